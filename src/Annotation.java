@@ -1,5 +1,9 @@
 package teanlis;
 
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
 /**
  *
  * This class represents an arbitrary annotation in a text. An annotation has the fields and
@@ -44,17 +48,38 @@ package teanlis;
  * 5. The attribute unchanged: This attribute stores whether a user changed the classification
  * of an instance or not. This can be important to asses the improvement of quality of a 
  * classifier from one re-training step to the next.
+ * <br>
+ * <br>
+ * The type and the sub_type are stored as codes of the Symbol_Table shared by all 
+ * documents, so filtering annotations by type or sub_type can compare the codes 
+ * returned by getType_code and getSub_type_code instead of strings.
  * 
  * @author Andreas Mller
  */
 
 public class Annotation extends Linguistic_Element implements java.io.Serializable {
 	
+	private static final long serialVersionUID = 2L;
+	
+	/**
+	 * The list of the document the annotation was added to last, which is told
+	 * when the offsets of the annotation change (see Interval_Index.Source_List).
+	 */
+	transient Interval_Index.Source_List list;
+	
 	/**
 	 * Get the type of the annotation.
 	 * @return The type of the annotation.
 	 */
 	public String getType() {
+		return Symbol_Table.getShared().getSymbol(type);
+	}
+	
+	/**
+	 * Get the code of the type of the annotation in the shared table of symbols.
+	 * @return The code of the type of the annotation or -1 if the type is null.
+	 */
+	public int getType_code() {
 		return type;
 	}
 	
@@ -63,7 +88,7 @@ public class Annotation extends Linguistic_Element implements java.io.Serializab
 	 * @param type The type of the annotation.
 	 */
 	public void setType(String type) {
-		this.type = type;
+		this.type = Symbol_Table.getShared().Intern(type);
 	}
 	
 	/*
@@ -74,6 +99,69 @@ public class Annotation extends Linguistic_Element implements java.io.Serializab
 		return original_text.substring(start, end);
 	}
 	
+	/**
+	 * Set the start offset of the annotation and tell the list the annotation is
+	 * contained in that it changed.
+	 * @param start The start offset of the annotation.
+	 */
+	public void setStart(int start) {
+		super.setStart(start);
+		
+		if (list != null) {
+			list.Changed();
+		}
+	}
+	
+	/**
+	 * Set the end offset of the annotation and tell the list the annotation is
+	 * contained in that it changed.
+	 * @param end The end offset of the annotation.
+	 */
+	public void setEnd(int end) {
+		super.setEnd(end);
+		
+		if (list != null) {
+			list.Changed();
+		}
+	}
+	
+	/**
+	 * Make a copy of the annotation. The copy does not belong to the list of the
+	 * annotation, so changing its offsets does not count as a change of the list.
+	 * @return A copy of the annotation.
+	 */
+	public Linguistic_Element Copy() {
+		Annotation copy = (Annotation) super.Copy();
+		
+		copy.list = null;
+		
+		return copy;
+	}
+	
+	/**
+	 * The id of the annotation in the document it is contained in, -1 if the 
+	 * annotation has no id yet. Ids are given by the document (see 
+	 * Document.NextAnnotationId) when the annotation is added to the document or 
+	 * its first change is recorded.
+	 */
+	int id;
+	
+	/**
+	 * Get the id of the annotation in the document it is contained in.
+	 * @return The id of the annotation or -1 if it has no id yet.
+	 */
+	public int getId() {
+		return id;
+	}
+	
+	/**
+	 * Set the id of the annotation in the document it is contained in.
+	 * @param id The id of the annotation.
+	 */
+	public void setId(int id) {
+		this.id = id;
+	}
+	
 	/**
 	 * The color for representing an annotation in a tool.
 	 */
@@ -98,16 +186,16 @@ public class Annotation extends Linguistic_Element implements java.io.Serializab
 	}
 	
 	/**
-	 * The main type of the annotation.
+	 * The code of the main type of the annotation in the shared table of symbols.
 	 */
-	String type;
+	transient int type;
 	
 	/**
-	 * The sub-type of the annotation. For example, a main type could be something
-	 * like "text in quotation marks". The sub-type would then something like
-	 * "emphasis" or "quotation".
+	 * The code of the sub-type of the annotation in the shared table of symbols. 
+	 * For example, a main type could be something like "text in quotation marks". 
+	 * The sub-type would then something like "emphasis" or "quotation".
 	 */
-	String sub_type;
+	transient int sub_type;
 	
 	/**
 	 * A note made by a user.
@@ -171,9 +259,9 @@ public class Annotation extends Linguistic_Element implements java.io.Serializab
 	public void setUnchecked(boolean unchecked, Document document) {
 		this.unchecked = unchecked;
 		if (this.unchecked) {
-			UpdateChangeLog (document, "unchecked");
+			UpdateChangeLog (document, Change_Log.UNCHECKED, -1);
 		} else {
-			UpdateChangeLog (document, "checked");
+			UpdateChangeLog (document, Change_Log.CHECKED, -1);
 		}
 	}
 	
@@ -215,9 +303,9 @@ public class Annotation extends Linguistic_Element implements java.io.Serializab
 	public void setUnchanged(boolean unchanged, Document document) {
 		this.unchanged = unchanged;
 		if (this.unchanged) {
-			UpdateChangeLog (document, "unchanged");
+			UpdateChangeLog (document, Change_Log.UNCHANGED, -1);
 		} else {
-			UpdateChangeLog (document, "changed");
+			UpdateChangeLog (document, Change_Log.CHANGED, -1);
 		}
 	}
 	
@@ -232,6 +320,16 @@ public class Annotation extends Linguistic_Element implements java.io.Serializab
 	 * @return The sub-type of the annotation.
 	 */
 	public String getSub_type() {
+		return Symbol_Table.getShared().getSymbol(sub_type);
+	}
+	
+	/**
+	 * Get the code of the sub-type of the annotation in the shared table of 
+	 * symbols.
+	 * @return The code of the sub-type of the annotation or -1 if the sub-type is 
+	 * null.
+	 */
+	public int getSub_type_code() {
 		return sub_type;
 	}
 	
@@ -243,8 +341,8 @@ public class Annotation extends Linguistic_Element implements java.io.Serializab
 	 * @param document The document the annotation occurs in.
 	 */
 	public void setSub_type(String sub_type, Document document) {
-		this.sub_type = sub_type;
-		UpdateChangeLog(document, sub_type);
+		this.sub_type = Symbol_Table.getShared().Intern(sub_type);
+		UpdateChangeLog(document, Change_Log.SUB_TYPE, this.sub_type);
 	}
 	
 	/**
@@ -253,8 +351,9 @@ public class Annotation extends Linguistic_Element implements java.io.Serializab
 	 * certain that those are the correct initial values).
 	 */
 	public Annotation () {
-		this.type = "unknown";
-		this.sub_type = "unknown";
+		this.type = Symbol_Table.getShared().Intern("unknown");
+		this.sub_type = this.type;
+		this.id = -1;
 		this.unchanged = true;
 		this.unchecked = true;
 		this.propability = 1.0d;
@@ -267,18 +366,93 @@ public class Annotation extends Linguistic_Element implements java.io.Serializab
 	 * @param type The type of the annotation.
 	 */
 	public Annotation (String type) {
-		this.type = type;
-		this.sub_type = "unknown";
+		this.type = Symbol_Table.getShared().Intern(type);
+		this.sub_type = Symbol_Table.getShared().Intern("unknown");
+		this.id = -1;
 		this.unchanged = true;
 		this.unchecked = true;
 		this.propability = 1.0d;
 	}
 	
+	/**
+	 * Write the annotation to a stream. The type and the sub-type are written as 
+	 * strings because the codes of the shared table of symbols are only valid in 
+	 * the running JVM.
+	 * @param output The stream the annotation is written to.
+	 * @throws IOException
+	 */
+	public void writeExternal (ObjectOutput output) throws IOException {
+		super.writeExternal(output);
+		
+		output.writeInt(id);
+		output.writeObject(getType());
+		output.writeObject(getSub_type());
+		output.writeObject(color);
+		output.writeObject(note);
+		output.writeBoolean(unchecked);
+		output.writeBoolean(unchanged);
+		output.writeDouble(propability);
+	}
+	
+	/**
+	 * Read the annotation from a stream and add its type and sub-type to the 
+	 * shared table of symbols.
+	 * @param input The stream the annotation is read from.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	public void readExternal (ObjectInput input) throws IOException, 
+			ClassNotFoundException {
+		super.readExternal(input);
+		
+		this.id = input.readInt();
+		this.type = Symbol_Table.getShared().Intern((String) input.readObject());
+		this.sub_type = Symbol_Table.getShared().Intern((String) input.readObject());
+		this.color = (String) input.readObject();
+		this.note = (String) input.readObject();
+		this.unchecked = input.readBoolean();
+		this.unchanged = input.readBoolean();
+		this.propability = input.readDouble();
+	}
+	
 	/**
 	 * Record changes in the annotation for purposes of monitoring, for example,
-	 * an active learning process.
+	 * an active learning process. The status "checked", "unchecked", "changed" 
+	 * or "unchanged" is recorded with the respective status code of Change_Log, 
+	 * any other status is recorded as a new sub-type.
+	 * @param document The document the annotation occurs in.
+	 * @param status The status of the annotation.
 	 */
 	public void UpdateChangeLog (Document document, String status) {
-		document.getInstance_change_log().add("("+this.start+","+this.end+","+status);
+		int status_code = java.util.Arrays.asList(Change_Log.STATUS_NAMES).indexOf(
+				status);
+		
+		if (status_code == -1) {
+			UpdateChangeLog(document, Change_Log.SUB_TYPE, 
+					Symbol_Table.getShared().Intern(status));
+		} else {
+			UpdateChangeLog(document, status_code, -1);
+		}
+	}
+	
+	/**
+	 * Record a change in the annotation in the change log of the document. The 
+	 * annotation gets an id from the document if it does not have one yet.
+	 * @param document The document the annotation occurs in.
+	 * @param status The status code, see Change_Log.
+	 * @param value The code of the sub-type for Change_Log.SUB_TYPE, -1 otherwise.
+	 */
+	public void UpdateChangeLog (Document document, int status, int value) {
+		Change_Log change_log = document.getChange_log();
+		
+		if (change_log.getMode() == Change_Log.DISABLED) {
+			return;
+		}
+		
+		if (id == -1) {
+			id = document.NextAnnotationId();
+		}
+		
+		change_log.Record(id, start, end, status, value);
 	}
 }
@@ -0,0 +1,745 @@
+package teanlis;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.util.Span;
+
+/**
+ * This class annotates documents with an ordered list of stages, which is
+ * configured per language. A pipeline consists of a reader, which makes a
+ * document from a file, and stages of two kinds:
+ * 
+ * 1. Document stages process the whole document, like the detection of
+ * sentences.
+ * 
+ * 2. Batch stages process batches of sentences (see Sentence_Batch), like the
+ * tokenizer and the taggers. Consecutive batch stages are applied to the
+ * batches of a document one after the other by the threads of a ForkJoinPool,
+ * so different batches are processed in parallel, and the tokens of the batches
+ * are written to the document in the order of the sentences. The number of
+ * threads can be limited (see setParallelism), and the finished batches are
+ * reported to a Progress (see setProgress).
+ * 
+ * Readers and stages are registered by name (see Register). The stages of a
+ * language are the value of the system property "teanlis.pipeline.[language]",
+ * a list of names separated by commas, for example
+ * "teanlis.pipeline.German=sentences,tokens,pos". The first name can be the name
+ * of a reader. The registered names are:
+ * 
+ * plain, tei: read a plain text file or a TEI file.
+ * sentences: detect sentences with OpenNLP.
+ * tokens: tokenize sentences with OpenNLP.
+ * pos: tag parts of speech with OpenNLP.
+ * lemmas, morphology, mate-pos, dependencies: lemmatize, tag morphological
+ * features, tag parts of speech and parse with the mate tools, see Mate_Tools.
+ * 
+ * Languages without a property use DEFAULT_STAGES if OpenNLP models are known
+ * for them and no stages otherwise.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Annotation_Pipeline {
+	
+	/**
+	 * A stage which processes a whole document.
+	 */
+	public interface Document_Stage {
+		
+		/**
+		 * Process a document.
+		 * @param document The document.
+		 * @param language The language of the document.
+		 * @throws Exception If the document can not be processed.
+		 */
+		public void Process (Document document, String language) throws Exception;
+	}
+	
+	/**
+	 * A stage which processes batches of sentences. The same stage processes
+	 * several batches at once, so it must not change its own fields.
+	 */
+	public interface Batch_Stage {
+		
+		/**
+		 * Process a batch of sentences.
+		 * @param batch The batch.
+		 * @throws Exception If the batch can not be processed.
+		 */
+		public void Process (Sentence_Batch batch) throws Exception;
+	}
+	
+	/**
+	 * A reader which makes a document from a file.
+	 */
+	public interface Reader {
+		
+		/**
+		 * Read a document.
+		 * @param file_path The path of the file.
+		 * @return The document.
+		 * @throws Exception If the file can not be read.
+		 */
+		public Document Read (String file_path) throws Exception;
+	}
+	
+	/**
+	 * A receiver of the progress of a pipeline. It is called by the threads which
+	 * process the batches, possibly by several at once.
+	 */
+	public interface Progress {
+		
+		/**
+		 * Report that a batch of sentences has been processed.
+		 * @param processed_sentences The number of sentences processed so far.
+		 * @param sentences The number of sentences of the document.
+		 */
+		public void Update (int processed_sentences, int sentences);
+	}
+	
+	/**
+	 * The prefix of the names of the system properties which contain the stages of
+	 * the languages.
+	 */
+	public static final String PROPERTY_PREFIX = "teanlis.pipeline.";
+	
+	/**
+	 * The stages of languages without a property.
+	 */
+	public static final String DEFAULT_STAGES = "plain,sentences,tokens";
+	
+	/**
+	 * The stages of English without a property, which also tag the parts of
+	 * speech as English documents always were.
+	 */
+	public static final String DEFAULT_ENGLISH_STAGES = "plain,sentences,tokens,pos";
+	
+	/**
+	 * The default number of sentences in a batch.
+	 */
+	public static final int BATCH_SIZE = 64;
+	
+	/**
+	 * The readers and stages by their names.
+	 */
+	static final HashMap<String, Object> registry = new HashMap<String, Object>();
+	
+	/**
+	 * The pools of the threads which process batches by their numbers of threads.
+	 */
+	static final HashMap<Integer, ForkJoinPool> pools =
+			new HashMap<Integer, ForkJoinPool>();
+	
+	/**
+	 * Reads a plain text file in the default encoding.
+	 */
+	public static final Reader PLAIN_TEXT = new Reader() {
+		public Document Read (String file_path) throws Exception {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(
+					new FileInputStream(file_path)));
+			
+			StringBuilder text = new StringBuilder();
+			
+			try {
+				String line = reader.readLine();
+				
+				while (line != null) {
+					text.append(line).append('\n');
+					
+					line = reader.readLine();
+				}
+			} finally {
+				reader.close();
+			}
+			
+			Document document = new Document();
+			
+			document.setOriginal_text(text.toString());
+			
+			return document;
+		}
+	};
+	
+	/**
+	 * Reads a TEI file, see TEI_Reader.
+	 */
+	public static final Reader TEI = new Reader() {
+		public Document Read (String file_path) throws Exception {
+			return TEI_Reader.Load(file_path);
+		}
+	};
+	
+	/**
+	 * Detects the sentences of a document with OpenNLP, replacing its sentences.
+	 */
+	public static final Document_Stage SENTENCES = new Document_Stage() {
+		public void Process (Document document, String language) throws Exception {
+			Span[] sentence_spans = OpenNLP_Tools.getSentence_detector(language)
+					.sentPosDetect(document.getOriginal_text());
+			
+			ArrayList<Sentence> sentences = new ArrayList<Sentence>(
+					sentence_spans.length);
+			
+			for (Span sentence_span: sentence_spans) {
+				Sentence sentence = new Sentence();
+				
+				sentence.setStart(sentence_span.getStart());
+				sentence.setEnd(sentence_span.getEnd());
+				
+				sentences.add(sentence);
+			}
+			
+			document.setSentences(sentences);
+		}
+	};
+	
+	/**
+	 * Tokenizes the sentences of a batch with OpenNLP. The offsets of the tokens
+	 * are taken from the spans of the tokenizer.
+	 */
+	public static final Batch_Stage TOKENS = new Batch_Stage() {
+		public void Process (Sentence_Batch batch) throws Exception {
+			TokenizerME tokenizer = OpenNLP_Tools.getTokenizer(batch.getLanguage());
+			
+			for (int i=0;i<batch.size();i++) {
+				int sentence_start = batch.getSentence(i).getStart();
+				
+				Span[] token_spans = tokenizer.tokenizePos(batch.getSentence_text(i));
+				
+				int[] starts = new int[token_spans.length];
+				int[] ends = new int[token_spans.length];
+				
+				for (int j=0;j<token_spans.length;j++) {
+					starts[j] = sentence_start+token_spans[j].getStart();
+					ends[j] = sentence_start+token_spans[j].getEnd();
+				}
+				
+				batch.setTokens(i, starts, ends);
+			}
+		}
+	};
+	
+	/**
+	 * Tags the parts of speech of the tokens of a batch with OpenNLP.
+	 */
+	public static final Batch_Stage POS = new Batch_Stage() {
+		public void Process (Sentence_Batch batch) throws Exception {
+			POSTaggerME pos_tagger = OpenNLP_Tools.getPos_tagger(batch.getLanguage());
+			
+			for (int i=0;i<batch.size();i++) {
+				batch.setPos(i, pos_tagger.tag(batch.getForms(i)));
+			}
+		}
+	};
+	
+	static {
+		Register("plain", PLAIN_TEXT);
+		Register("tei", TEI);
+		Register("sentences", SENTENCES);
+		Register("tokens", TOKENS);
+		Register("pos", POS);
+		Register("lemmas", new Mate_Stage(Mate_Tools.LEMMATIZER));
+		Register("morphology", new Mate_Stage(Mate_Tools.MORPH_TAGGER));
+		Register("mate-pos", new Mate_Stage(Mate_Tools.POS_TAGGER));
+		Register("dependencies", new Mate_Stage(Mate_Tools.PARSER));
+	}
+	
+	/**
+	 * A stage which applies a tool of the mate tools to the sentences of a batch.
+	 * Every thread uses its own instance of the tool, see Mate_Tools.
+	 */
+	public static class Mate_Stage implements Batch_Stage {
+		
+		/**
+		 * The component of the tool, for example Mate_Tools.LEMMATIZER.
+		 */
+		String component;
+		
+		/**
+		 * The path of the model or null for the model of the language of the
+		 * batch, see Mate_Tools.getModel_path.
+		 */
+		String model_path;
+		
+		/**
+		 * Constructor for a stage which uses the model of the language of the
+		 * batch.
+		 * @param component The component of the tool.
+		 */
+		public Mate_Stage (String component) {
+			this(component, null);
+		}
+		
+		/**
+		 * Constructor for a stage which uses the specified model.
+		 * @param component The component of the tool.
+		 * @param model_path The path of the model.
+		 */
+		public Mate_Stage (String component, String model_path) {
+			this.component = component;
+			this.model_path = model_path;
+		}
+		
+		public void Process (Sentence_Batch batch) throws Exception {
+			String path = model_path;
+			
+			if (path == null) {
+				path = Mate_Tools.getModel_path(batch.getLanguage(), component);
+			}
+			
+			Mate_Tools.Apply(batch, component, path);
+		}
+	}
+	
+	/**
+	 * The language of the documents.
+	 */
+	String language;
+	
+	/**
+	 * The reader.
+	 */
+	Reader reader;
+	
+	/**
+	 * The stages in the order they are applied.
+	 */
+	ArrayList<Object> stages;
+	
+	/**
+	 * The number of sentences in a batch.
+	 */
+	int batch_size;
+	
+	/**
+	 * The number of threads which process batches at once.
+	 */
+	int parallelism;
+	
+	/**
+	 * The receiver of the progress or null.
+	 */
+	Progress progress;
+	
+	/**
+	 * Constructor for a pipeline of a language without stages, which reads plain
+	 * text files.
+	 * @param language The language of the documents.
+	 */
+	public Annotation_Pipeline (String language) {
+		this.language = language;
+		this.reader = PLAIN_TEXT;
+		this.stages = new ArrayList<Object>();
+		this.batch_size = BATCH_SIZE;
+		this.parallelism = Runtime.getRuntime().availableProcessors();
+	}
+	
+	/**
+	 * Constructor for a pipeline of a language with the specified readers and
+	 * stages.
+	 * @param language The language of the documents.
+	 * @param names The names of the reader and the stages.
+	 */
+	public Annotation_Pipeline (String language, String... names) {
+		this(language);
+		
+		for (String name: names) {
+			add(name);
+		}
+	}
+	
+	/**
+	 * Make the pipeline of a language configured by the system property of the
+	 * language or the default stages.
+	 * @param language The language.
+	 * @return The pipeline.
+	 */
+	public static Annotation_Pipeline ForLanguage (String language) {
+		String names = System.getProperty(PROPERTY_PREFIX + language);
+		
+		if (names == null) {
+			if (language.equals("English")) {
+				names = DEFAULT_ENGLISH_STAGES;
+			} else if (Model_Registry.LANGUAGE_CODES.containsKey(language)) {
+				names = DEFAULT_STAGES;
+			} else {
+				names = "";
+			}
+		}
+		
+		Annotation_Pipeline pipeline = new Annotation_Pipeline(language);
+		
+		for (String name: names.split(",")) {
+			if (name.trim().length() > 0) {
+				pipeline.add(name.trim());
+			}
+		}
+		
+		return pipeline;
+	}
+	
+	/**
+	 * Register a reader or a stage by a name, replacing the one registered by the
+	 * name before.
+	 * @param name The name.
+	 * @param stage A Reader, Document_Stage or Batch_Stage.
+	 */
+	public static synchronized void Register (String name, Object stage) {
+		if (!(stage instanceof Reader || stage instanceof Document_Stage ||
+				stage instanceof Batch_Stage)) {
+			throw new IllegalArgumentException(name + " is not a reader or stage.");
+		}
+		
+		registry.put(name, stage);
+	}
+	
+	/**
+	 * Get a registered reader or stage.
+	 * @param name The name.
+	 * @return The reader or stage.
+	 */
+	public static synchronized Object getRegistered (String name) {
+		Object stage = registry.get(name);
+		
+		if (stage == null) {
+			throw new IllegalArgumentException("Unknown stage: " + name);
+		}
+		
+		return stage;
+	}
+	
+	/**
+	 * Get the pool of the threads which process batches with the specified number
+	 * of threads. The pools are kept, so their threads keep the tools they made
+	 * for the next documents.
+	 * @param parallelism The number of threads.
+	 * @return The pool.
+	 */
+	static synchronized ForkJoinPool getPool (int parallelism) {
+		ForkJoinPool pool = pools.get(parallelism);
+		
+		if (pool == null) {
+			pool = new ForkJoinPool(parallelism);
+			pools.put(parallelism, pool);
+		}
+		
+		return pool;
+	}
+	
+	/**
+	 * Add a registered stage to the end of the pipeline or replace the reader.
+	 * @param name The name of the reader or stage.
+	 * @return The pipeline.
+	 */
+	public Annotation_Pipeline add (String name) {
+		Object stage = getRegistered(name);
+		
+		if (stage instanceof Reader) {
+			reader = (Reader) stage;
+		} else {
+			stages.add(stage);
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Add a document stage to the end of the pipeline.
+	 * @param stage The stage.
+	 * @return The pipeline.
+	 */
+	public Annotation_Pipeline add (Document_Stage stage) {
+		stages.add(stage);
+		
+		return this;
+	}
+	
+	/**
+	 * Add a batch stage to the end of the pipeline.
+	 * @param stage The stage.
+	 * @return The pipeline.
+	 */
+	public Annotation_Pipeline add (Batch_Stage stage) {
+		stages.add(stage);
+		
+		return this;
+	}
+	
+	/**
+	 * Get the language of the documents.
+	 * @return The language.
+	 */
+	public String getLanguage() {
+		return language;
+	}
+	
+	/**
+	 * Set the reader which makes documents from files.
+	 * @param reader The reader.
+	 */
+	public void setReader (Reader reader) {
+		this.reader = reader;
+	}
+	
+	/**
+	 * Get the number of sentences in a batch.
+	 * @return The number of sentences.
+	 */
+	public int getBatch_size() {
+		return batch_size;
+	}
+	
+	/**
+	 * Set the number of sentences in a batch.
+	 * @param batch_size The number of sentences.
+	 */
+	public void setBatch_size (int batch_size) {
+		this.batch_size = batch_size;
+	}
+	
+	/**
+	 * Get the number of threads which process batches at once.
+	 * @return The number of threads.
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+	
+	/**
+	 * Set the number of threads which process batches at once. Every thread has
+	 * its own instances of the tools, so fewer threads need less memory for
+	 * tools with large models. The default is the number of processors.
+	 * @param parallelism The number of threads.
+	 */
+	public void setParallelism (int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+	
+	/**
+	 * Set the receiver of the progress of the pipeline.
+	 * @param progress The receiver or null.
+	 */
+	public void setProgress (Progress progress) {
+		this.progress = progress;
+	}
+	
+	/**
+	 * Read a document with the reader of the pipeline and process it.
+	 * @param file_path The path of the file.
+	 * @return The document.
+	 * @throws Exception If the file can not be read or a stage fails.
+	 */
+	public Document Process (String file_path) throws Exception {
+		Document document = reader.Read(file_path);
+		
+		Process(document);
+		
+		return document;
+	}
+	
+	/**
+	 * Process a document with all stages of the pipeline.
+	 * @param document The document.
+	 * @throws Exception If a stage fails.
+	 */
+	public void Process (Document document) throws Exception {
+		ArrayList<Batch_Stage> batch_stages = new ArrayList<Batch_Stage>();
+		
+		for (Object stage: stages) {
+			if (stage instanceof Batch_Stage) {
+				batch_stages.add((Batch_Stage) stage);
+			} else {
+				ProcessBatches(document, batch_stages);
+				
+				batch_stages.clear();
+				
+				((Document_Stage) stage).Process(document, language);
+			}
+		}
+		
+		ProcessBatches(document, batch_stages);
+	}
+	
+	/**
+	 * Apply batch stages to the sentences of a document in parallel and write the
+	 * tokens of the batches to the document.
+	 */
+	void ProcessBatches (Document document, List<Batch_Stage> batch_stages)
+			throws Exception {
+		if (batch_stages.isEmpty() || document.getSentences() == null) {
+			return;
+		}
+		
+		List<Sentence> sentences = document.getSentences();
+		
+		Token_Table tokens = document.getToken_table();
+		
+		if (tokens == null) {
+			tokens = new Token_Table();
+		}
+		
+		int[] sentence_tokens = getSentence_tokens(sentences, tokens);
+		
+		ArrayList<Sentence_Batch> batches = new ArrayList<Sentence_Batch>();
+		
+		for (int first=0;first<sentences.size();first=first+batch_size) {
+			Sentence_Batch batch = new Sentence_Batch(document, language, first,
+					Math.min(sentences.size(), first+batch_size));
+			
+			batch.LoadTokens(tokens, sentence_tokens);
+			
+			batches.add(batch);
+		}
+		
+		Batch_Task task = new Batch_Task(batches, batch_stages, tokens, progress,
+				new AtomicInteger(), sentences.size(), 0, batches.size());
+		
+		try {
+			getPool(parallelism).invoke(task);
+		} catch (RuntimeException e) {
+			Throwable cause = e;
+			
+			while (cause instanceof RuntimeException && cause.getCause() != null) {
+				cause = cause.getCause();
+			}
+			
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			
+			throw e;
+		}
+		
+		boolean tokenized = false;
+		
+		for (Sentence_Batch batch: batches) {
+			tokenized = tokenized || !batch.isFrom_document();
+		}
+		
+		if (tokenized) {
+			Token_Table new_tokens = new Token_Table();
+			
+			for (Sentence_Batch batch: batches) {
+				batch.AddTokens(new_tokens);
+			}
+			
+			document.setToken_table(new_tokens);
+		}
+	}
+	
+	/**
+	 * Find the tokens of every sentence: the tokens which start in a sentence
+	 * belong to it.
+	 * @return The index of the first token of every sentence, followed by the
+	 * index after the last token of the last sentence.
+	 */
+	static int[] getSentence_tokens (List<Sentence> sentences, Token_Table tokens) {
+		int[] sentence_tokens = new int[sentences.size()+1];
+		
+		int token = 0;
+		
+		for (int i=0;i<sentences.size();i++) {
+			Sentence sentence = sentences.get(i);
+			
+			while (token < tokens.size() && tokens.getStart(token) <
+					sentence.getStart()) {
+				token++;
+			}
+			
+			sentence_tokens[i] = token;
+			
+			while (token < tokens.size() && tokens.getStart(token) <
+					sentence.getEnd()) {
+				token++;
+			}
+		}
+		
+		sentence_tokens[sentences.size()] = token;
+		
+		return sentence_tokens;
+	}
+	
+	/**
+	 * The task which applies the batch stages to a range of batches. Batches whose
+	 * tokens were taken from the document are written back to their places in
+	 * the table of tokens as soon as they are finished. Every batch writes to its
+	 * own range of the table, so the threads do not need to wait for each other.
+	 */
+	static class Batch_Task extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		List<Sentence_Batch> batches;
+		List<Batch_Stage> batch_stages;
+		Token_Table tokens;
+		Progress progress;
+		
+		/**
+		 * The number of sentences processed by all tasks of the document.
+		 */
+		AtomicInteger processed_sentences;
+		
+		int sentences;
+		int first;
+		int end;
+		
+		Batch_Task (List<Sentence_Batch> batches, List<Batch_Stage> batch_stages,
+				Token_Table tokens, Progress progress,
+				AtomicInteger processed_sentences, int sentences, int first,
+				int end) {
+			this.batches = batches;
+			this.batch_stages = batch_stages;
+			this.tokens = tokens;
+			this.progress = progress;
+			this.processed_sentences = processed_sentences;
+			this.sentences = sentences;
+			this.first = first;
+			this.end = end;
+		}
+		
+		protected void compute() {
+			if (end-first > 1) {
+				int middle = (first+end) >>> 1;
+				
+				invokeAll(new Batch_Task(batches, batch_stages, tokens, progress,
+						processed_sentences, sentences, first, middle),
+						new Batch_Task(batches, batch_stages, tokens, progress,
+						processed_sentences, sentences, middle, end));
+				
+				return;
+			}
+			
+			Sentence_Batch batch = batches.get(first);
+			
+			try {
+				for (Batch_Stage stage: batch_stages) {
+					stage.Process(batch);
+				}
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+			
+			if (batch.isFrom_document()) {
+				batch.WriteTokens(tokens);
+			}
+			
+			int processed = processed_sentences.addAndGet(batch.size());
+			
+			if (progress != null) {
+				progress.Update(processed, sentences);
+			}
+		}
+	}
+}
@@ -0,0 +1,399 @@
+package teanlis;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * This class stores columns of ints, for example the columns of a Token_Table, in
+ * independently compressed blocks of BLOCK_SIZE rows. Every column has a kind
+ * which decides how its blocks are compressed:
+ * 
+ * 1. KIND_VALUES: every value as a zigzag varint, for small numbers.
+ * 
+ * 2. KIND_DELTAS: the first value of the block and the differences between
+ * neighbouring values as zigzag varints, for increasing numbers like offsets.
+ * 
+ * 3. KIND_DEFLATED: the values as zigzag varints compressed with a Deflater, for
+ * positions in a dictionary of strings, which repeat often.
+ * 
+ * The section of the columns starts with the number of rows, the number of
+ * columns, the number of rows per block, the number of blocks and the kinds of
+ * the columns, followed by the block index and the blocks. The block index
+ * contains for every block and column the offset of the block in the section, its
+ * length and the first value of the block. A range of rows is read by decoding
+ * only the blocks which contain it, and a sorted column can be searched with the
+ * first values in the block index and one decoded block.
+ * 
+ * @author Andreas Mller
+ */
+
+class Block_Columns {
+	
+	static final int KIND_VALUES = 0;
+	static final int KIND_DELTAS = 1;
+	static final int KIND_DEFLATED = 2;
+	
+	/**
+	 * The number of rows of a block.
+	 */
+	static final int BLOCK_SIZE = 4096;
+	
+	/**
+	 * The number of bytes of an entry of the block index.
+	 */
+	static final int INDEX_ENTRY_SIZE = 12;
+	
+	/**
+	 * The section of the columns.
+	 */
+	ByteBuffer section;
+	
+	/**
+	 * The number of rows.
+	 */
+	int size;
+	
+	int column_count;
+	int block_size;
+	int block_count;
+	int[] kinds;
+	
+	/**
+	 * The offset of the block index in the section.
+	 */
+	int index_offset;
+	
+	/**
+	 * Constructor for the columns stored in the specified section.
+	 * @param section The section.
+	 */
+	Block_Columns (ByteBuffer section) {
+		this.section = section;
+		this.size = section.getInt(0);
+		this.column_count = section.getInt(4);
+		this.block_size = section.getInt(8);
+		this.block_count = section.getInt(12);
+		this.kinds = new int[column_count];
+		
+		for (int i=0;i<column_count;i++) {
+			kinds[i] = section.getInt(16+4*i);
+		}
+		
+		this.index_offset = 16+4*column_count;
+	}
+	
+	/**
+	 * Get the number of rows.
+	 * @return The number of rows.
+	 */
+	int size () {
+		return size;
+	}
+	
+	/**
+	 * Get the number of bytes of the blocks of a column.
+	 * @param column The column.
+	 * @return The number of bytes.
+	 */
+	long getCompressed_size (int column) {
+		long bytes = 0;
+		
+		for (int block=0;block<block_count;block++) {
+			bytes = bytes+section.getInt(IndexEntry(block, column)+4);
+		}
+		
+		return bytes;
+	}
+	
+	/**
+	 * Read the values of a range of rows of a column.
+	 * @param column The column.
+	 * @param first The first row.
+	 * @param end The row after the last row.
+	 * @param values The array the values are copied to.
+	 * @param offset The position in the array the first value is copied to.
+	 */
+	void Read (int column, int first, int end, int[] values, int offset) {
+		if (first < 0 || end > size || first > end) {
+			throw new IndexOutOfBoundsException("Range: "+first+"-"+end+", Size: "+
+					size);
+		}
+		
+		int row = first;
+		
+		while (row < end) {
+			int block = row/block_size;
+			int block_start = block*block_size;
+			
+			int[] block_values = DecodeBlock(column, block);
+			
+			int count = Math.min(end, block_start+block_values.length)-row;
+			
+			System.arraycopy(block_values, row-block_start, values, offset, count);
+			
+			offset = offset+count;
+			row = row+count;
+		}
+	}
+	
+	/**
+	 * Get the value of a column in a row. The whole block of the row is decoded,
+	 * so Read should be used for ranges.
+	 * @param column The column.
+	 * @param row The row.
+	 * @return The value.
+	 */
+	int get (int column, int row) {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("Index: "+row+", Size: "+size);
+		}
+		
+		if (row % block_size == 0) {
+			return section.getInt(IndexEntry(row/block_size, column)+8);
+		}
+		
+		return DecodeBlock(column, row/block_size)[row % block_size];
+	}
+	
+	/**
+	 * Find the first row whose value is not smaller than the specified value in a
+	 * column whose values are sorted in ascending order. Only one block is
+	 * decoded.
+	 * @param column The column.
+	 * @param value The value.
+	 * @return The row or the number of rows if all values are smaller.
+	 */
+	int FindFirstAtLeast (int column, int value) {
+		int low = 0;
+		int high = block_count;
+		
+		while (low < high) {
+			int middle = (low+high) >>> 1;
+			
+			if (section.getInt(IndexEntry(middle, column)+8) < value) {
+				low = middle+1;
+			} else {
+				high = middle;
+			}
+		}
+		
+		if (low == 0) {
+			return 0;
+		}
+		
+		int block = low-1;
+		
+		int[] block_values = DecodeBlock(column, block);
+		
+		int row = 0;
+		
+		while (row < block_values.length && block_values[row] < value) {
+			row = row+1;
+		}
+		
+		return block*block_size+row;
+	}
+	
+	/**
+	 * Get the position of the entry of a block and a column in the block index.
+	 */
+	int IndexEntry (int block, int column) {
+		return index_offset+INDEX_ENTRY_SIZE*(block*column_count+column);
+	}
+	
+	/**
+	 * Decode the values of a column in a block.
+	 * @param column The column.
+	 * @param block The block.
+	 * @return The values of the block.
+	 */
+	int[] DecodeBlock (int column, int block) {
+		int entry = IndexEntry(block, column);
+		int offset = section.getInt(entry);
+		int length = section.getInt(entry+4);
+		
+		int[] values = new int[Math.min(block_size, size-block*block_size)];
+		
+		byte[] bytes = new byte[length];
+		
+		((ByteBuffer) section.duplicate().position(offset)).get(bytes);
+		
+		if (kinds[column] == KIND_DEFLATED) {
+			bytes = Inflate(bytes, values.length);
+		}
+		
+		int position = 0;
+		int previous = 0;
+		
+		for (int i=0;i<values.length;i++) {
+			int result = 0;
+			int shift = 0;
+			int next = bytes[position];
+			
+			position = position+1;
+			
+			while ((next & 0x80) != 0) {
+				result = result | ((next & 0x7F) << shift);
+				shift = shift+7;
+				next = bytes[position];
+				position = position+1;
+			}
+			
+			result = result | (next << shift);
+			
+			int decoded = (result >>> 1) ^ -(result & 1);
+			
+			if (kinds[column] == KIND_DELTAS) {
+				decoded = previous+decoded;
+				previous = decoded;
+			}
+			
+			values[i] = decoded;
+		}
+		
+		return values;
+	}
+	
+	/**
+	 * Decompress the bytes of a block.
+	 */
+	static byte[] Inflate (byte[] bytes, int value_count) {
+		Inflater inflater = new Inflater();
+		
+		try {
+			inflater.setInput(bytes);
+			
+			byte[] result = new byte[5*value_count];
+			int length = 0;
+			
+			while (!inflater.finished() && length < result.length) {
+				int count = inflater.inflate(result, length, result.length-length);
+				
+				if (count == 0 && inflater.needsInput()) {
+					break;
+				}
+				
+				length = length+count;
+			}
+			
+			return result;
+		} catch (DataFormatException e) {
+			throw new IllegalStateException("A compressed block is damaged.", e);
+		} finally {
+			inflater.end();
+		}
+	}
+	
+	/**
+	 * Write columns to a section.
+	 * @param writer The writer of the section.
+	 * @param columns The columns. Only the first size values of every column are
+	 * written.
+	 * @param kinds The kinds of the columns.
+	 * @param size The number of rows.
+	 * @throws IOException If the section can not be written.
+	 */
+	static void Write (Document_Format.Channel_Writer writer, int[][] columns,
+			int[] kinds, int size) throws IOException {
+		int block_count = (size+BLOCK_SIZE-1)/BLOCK_SIZE;
+		
+		byte[][] blocks = new byte[block_count*columns.length][];
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		
+		try {
+			for (int block=0;block<block_count;block++) {
+				int first = block*BLOCK_SIZE;
+				int end = Math.min(size, first+BLOCK_SIZE);
+				
+				for (int column=0;column<columns.length;column++) {
+					bytes.reset();
+					
+					int previous = 0;
+					
+					for (int i=first;i<end;i++) {
+						int value = columns[column][i];
+						
+						if (kinds[column] == KIND_DELTAS) {
+							int difference = value-previous;
+							
+							previous = value;
+							value = difference;
+						}
+						
+						int encoded = (value << 1) ^ (value >> 31);
+						
+						while ((encoded & ~0x7F) != 0) {
+							bytes.write((encoded & 0x7F) | 0x80);
+							encoded = encoded >>> 7;
+						}
+						
+						bytes.write(encoded);
+					}
+					
+					byte[] block_bytes = bytes.toByteArray();
+					
+					if (kinds[column] == KIND_DEFLATED) {
+						block_bytes = Deflate(deflater, block_bytes);
+					}
+					
+					blocks[block*columns.length+column] = block_bytes;
+				}
+			}
+		} finally {
+			deflater.end();
+		}
+		
+		writer.putInt(size);
+		writer.putInt(columns.length);
+		writer.putInt(BLOCK_SIZE);
+		writer.putInt(block_count);
+		
+		for (int kind: kinds) {
+			writer.putInt(kind);
+		}
+		
+		int offset = 16+4*columns.length+INDEX_ENTRY_SIZE*blocks.length;
+		
+		for (int block=0;block<block_count;block++) {
+			for (int column=0;column<columns.length;column++) {
+				int length = blocks[block*columns.length+column].length;
+				
+				writer.putInt(offset);
+				writer.putInt(length);
+				writer.putInt(columns[column][block*BLOCK_SIZE]);
+				
+				offset = offset+length;
+			}
+		}
+		
+		for (byte[] block: blocks) {
+			writer.putBytes(block);
+		}
+	}
+	
+	/**
+	 * Compress the bytes of a block.
+	 */
+	static byte[] Deflate (Deflater deflater, byte[] bytes) {
+		deflater.reset();
+		deflater.setInput(bytes);
+		deflater.finish();
+		
+		ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length/2+16);
+		byte[] buffer = new byte[8192];
+		
+		while (!deflater.finished()) {
+			int count = deflater.deflate(buffer);
+			
+			output.write(buffer, 0, count);
+		}
+		
+		return output.toByteArray();
+	}
+}
@@ -0,0 +1,697 @@
+package teanlis;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class records the changes of the annotations of a document, for example
+ * to monitor an active learning process. Every change is one record with the
+ * following fields, which are stored column by column in primitive arrays:
+ * 
+ * 1. The id of the annotation (see Document.NextAnnotationId).
+ * 
+ * 2. The start and end offset of the annotation.
+ * 
+ * 3. The status code, one of CHECKED, UNCHECKED, CHANGED, UNCHANGED and SUB_TYPE.
+ * 
+ * 4. The value of the change: for SUB_TYPE the code of the new sub-type in the
+ * shared table of symbols, -1 otherwise.
+ * 
+ * 5. The time of the change in milliseconds since 1970.
+ * 
+ * Records can only be appended. Appending does not lock the log: a thread
+ * reserves the position of its record with an atomic counter, writes the record
+ * and then marks it as complete, so any number of threads can append and read at
+ * the same time. The records are stored in chunks of CHUNK_SIZE records which
+ * are never moved once they were made.
+ * 
+ * Recording can be switched off (DISABLED) or batched (BATCHED) during bulk
+ * loads. In the batched mode every thread collects its records in its own buffer
+ * and appends them with one reservation when the buffer is full. The buffers of
+ * all threads are registered with the log, so Flush and leaving the mode BATCHED
+ * append the buffers of all threads, also of pool threads which no longer record
+ * anything.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Change_Log implements java.io.Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * Status code for an annotation which was checked by a user.
+	 */
+	public static final int CHECKED = 0;
+	
+	/**
+	 * Status code for an annotation which was marked as not checked.
+	 */
+	public static final int UNCHECKED = 1;
+	
+	/**
+	 * Status code for an annotation whose type or sub-type was changed by a user.
+	 */
+	public static final int CHANGED = 2;
+	
+	/**
+	 * Status code for an annotation which was marked as not changed.
+	 */
+	public static final int UNCHANGED = 3;
+	
+	/**
+	 * Status code for an annotation which got a new sub-type. The value of the
+	 * record is the code of the sub-type.
+	 */
+	public static final int SUB_TYPE = 4;
+	
+	/**
+	 * The names of the status codes, which are also the status strings of the
+	 * entries of the old change log.
+	 */
+	static final String[] STATUS_NAMES = {"checked", "unchecked", "changed",
+			"unchanged"};
+	
+	/**
+	 * Mode in which every change is appended to the log at once.
+	 */
+	public static final int ENABLED = 0;
+	
+	/**
+	 * Mode in which changes are not recorded.
+	 */
+	public static final int DISABLED = 1;
+	
+	/**
+	 * Mode in which every thread collects changes in its own buffer.
+	 */
+	public static final int BATCHED = 2;
+	
+	/**
+	 * The number of bits of the position of a record within a chunk.
+	 */
+	static final int CHUNK_BITS = 12;
+	
+	/**
+	 * The number of records in a chunk.
+	 */
+	static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	
+	/**
+	 * The number of records a batch buffer holds before it is appended.
+	 */
+	static final int BATCH_SIZE = 1024;
+	
+	/**
+	 * The chunks of the log. The array is replaced by a longer copy when a chunk is
+	 * added, so readers never see an array which is changed.
+	 */
+	transient AtomicReference<Chunk[]> chunks;
+	
+	/**
+	 * The number of records whose positions are reserved.
+	 */
+	transient AtomicInteger reserved;
+	
+	/**
+	 * The mode of the log, ENABLED, DISABLED or BATCHED.
+	 */
+	volatile int mode;
+	
+	/**
+	 * Whether records can not be appended to the log.
+	 */
+	boolean read_only;
+	
+	/**
+	 * The batch buffers of the threads for the mode BATCHED.
+	 */
+	transient ThreadLocal<Batch> batches;
+	
+	/**
+	 * The batch buffers of all threads which recorded in the mode BATCHED.
+	 */
+	transient List<Batch> all_batches;
+	
+	/**
+	 * No-arguments constructor for an empty log in the mode ENABLED.
+	 */
+	public Change_Log () {
+		Initialize();
+		this.mode = ENABLED;
+	}
+	
+	/**
+	 * Make the empty structures of the log.
+	 */
+	void Initialize () {
+		this.chunks = new AtomicReference<Chunk[]>(new Chunk[0]);
+		this.reserved = new AtomicInteger();
+		this.all_batches = Collections.synchronizedList(new ArrayList<Batch>());
+		this.batches = new ThreadLocal<Batch>() {
+			protected Batch initialValue() {
+				Batch batch = new Batch();
+				
+				all_batches.add(batch);
+				
+				return batch;
+			}
+		};
+	}
+	
+	/**
+	 * Get the mode of the log.
+	 * @return ENABLED, DISABLED or BATCHED.
+	 */
+	public int getMode() {
+		return mode;
+	}
+	
+	/**
+	 * Set the mode of the log. When the mode BATCHED is left, the buffers of all
+	 * threads are appended. A thread which is recording while the mode changes
+	 * appends its buffer itself when it sees the new mode.
+	 * @param mode ENABLED, DISABLED or BATCHED.
+	 */
+	public void setMode(int mode) {
+		if (mode != ENABLED && mode != DISABLED && mode != BATCHED) {
+			throw new IllegalArgumentException("Unknown mode " + mode);
+		}
+		
+		boolean leaving_batched = this.mode == BATCHED && mode != BATCHED;
+		
+		this.mode = mode;
+		
+		if (leaving_batched) {
+			Flush();
+		}
+	}
+	
+	/**
+	 * Check whether records can be appended to the log.
+	 * @return True if the log is a read-only copy.
+	 */
+	public boolean isRead_only() {
+		return read_only;
+	}
+	
+	/**
+	 * Record a change of an annotation according to the mode of the log.
+	 * @param annotation_id The id of the annotation.
+	 * @param start The start offset of the annotation.
+	 * @param end The end offset of the annotation.
+	 * @param status The status code.
+	 * @param value The code of the sub-type for SUB_TYPE, -1 otherwise.
+	 */
+	public void Record (int annotation_id, int start, int end, int status,
+			int value) {
+		if (read_only) {
+			throw new UnsupportedOperationException("The change log is read-only.");
+		}
+		
+		int current_mode = mode;
+		
+		if (current_mode == DISABLED) {
+			return;
+		}
+		
+		long timestamp = System.currentTimeMillis();
+		
+		if (current_mode == BATCHED) {
+			Batch batch = batches.get();
+			
+			synchronized (batch) {
+				batch.add(annotation_id, start, end, status, value, timestamp);
+				
+				// If the mode changed meanwhile, the buffer may already have been
+				// flushed, so the record is appended at once.
+				if (batch.size == BATCH_SIZE || mode != BATCHED) {
+					batch.AppendTo(this);
+				}
+			}
+		} else {
+			Write(reserved.getAndIncrement(), annotation_id, start, end, status,
+					value, timestamp);
+		}
+	}
+	
+	/**
+	 * Append the records in the batch buffers of all threads to the log.
+	 */
+	public void Flush () {
+		if (all_batches == null) {
+			return;
+		}
+		
+		synchronized (all_batches) {
+			for (Batch batch: all_batches) {
+				batch.AppendTo(this);
+			}
+		}
+	}
+	
+	/**
+	 * Get the number of records in the log, including records which are still
+	 * being written (see isComplete).
+	 * @return The number of records in the log.
+	 */
+	public int size() {
+		return reserved.get();
+	}
+	
+	/**
+	 * Check whether the record at the specified position was written completely.
+	 * Records which are not complete yet are skipped by Find, Count and
+	 * asStrings.
+	 * @param index The position of the record.
+	 * @return True if the record is complete.
+	 */
+	public boolean isComplete (int index) {
+		Chunk chunk = getChunk(index);
+		
+		return chunk != null && chunk.complete.get(index & (CHUNK_SIZE-1)) == 1;
+	}
+	
+	/**
+	 * Get the id of the annotation of the record at the specified position.
+	 * @param index The position of the record.
+	 * @return The id of the annotation.
+	 */
+	public int getAnnotation_id (int index) {
+		return getCompleteChunk(index).annotation_ids[index & (CHUNK_SIZE-1)];
+	}
+	
+	/**
+	 * Get the start offset of the annotation of the record at the specified
+	 * position.
+	 * @param index The position of the record.
+	 * @return The start offset of the annotation.
+	 */
+	public int getStart (int index) {
+		return getCompleteChunk(index).starts[index & (CHUNK_SIZE-1)];
+	}
+	
+	/**
+	 * Get the end offset of the annotation of the record at the specified
+	 * position.
+	 * @param index The position of the record.
+	 * @return The end offset of the annotation.
+	 */
+	public int getEnd (int index) {
+		return getCompleteChunk(index).ends[index & (CHUNK_SIZE-1)];
+	}
+	
+	/**
+	 * Get the status code of the record at the specified position.
+	 * @param index The position of the record.
+	 * @return The status code.
+	 */
+	public int getStatus (int index) {
+		return getCompleteChunk(index).statuses[index & (CHUNK_SIZE-1)];
+	}
+	
+	/**
+	 * Get the value of the record at the specified position.
+	 * @param index The position of the record.
+	 * @return The code of the sub-type for SUB_TYPE, -1 otherwise.
+	 */
+	public int getValue (int index) {
+		return getCompleteChunk(index).values[index & (CHUNK_SIZE-1)];
+	}
+	
+	/**
+	 * Get the time of the record at the specified position.
+	 * @param index The position of the record.
+	 * @return The time of the change in milliseconds since 1970.
+	 */
+	public long getTimestamp (int index) {
+		return getCompleteChunk(index).timestamps[index & (CHUNK_SIZE-1)];
+	}
+	
+	/**
+	 * Get the status string of the record at the specified position, which is the
+	 * name of the status code or the sub-type for SUB_TYPE.
+	 * @param index The position of the record.
+	 * @return The status string of the record.
+	 */
+	public String getStatus_string (int index) {
+		int status = getStatus(index);
+		
+		if (status == SUB_TYPE) {
+			return Symbol_Table.getShared().getSymbol(getValue(index));
+		}
+		
+		return STATUS_NAMES[status];
+	}
+	
+	/**
+	 * Find the complete records with the specified status code which were made at
+	 * or after the specified time.
+	 * @param status A status code or -1 for all status codes.
+	 * @param since A time in milliseconds since 1970, 0 for all records.
+	 * @return The positions of the records in ascending order.
+	 */
+	public int[] Find (int status, long since) {
+		int[] found = new int[16];
+		int found_size = 0;
+		
+		int size = reserved.get();
+		
+		for (int i=0;i<size;i++) {
+			Chunk chunk = getChunk(i);
+			int slot = i & (CHUNK_SIZE-1);
+			
+			if (chunk == null || chunk.complete.get(slot) != 1) {
+				continue;
+			}
+			
+			if ((status == -1 || chunk.statuses[slot] == status) &&
+					chunk.timestamps[slot] >= since) {
+				if (found_size == found.length) {
+					found = Arrays.copyOf(found, 2*found_size);
+				}
+				
+				found[found_size] = i;
+				found_size = found_size+1;
+			}
+		}
+		
+		return Arrays.copyOf(found, found_size);
+	}
+	
+	/**
+	 * Count the complete records which were made at or after the specified time
+	 * by status code.
+	 * @param since A time in milliseconds since 1970, 0 for all records.
+	 * @return The numbers of records, indexed by status code.
+	 */
+	public int[] Count (long since) {
+		int[] counts = new int[SUB_TYPE+1];
+		
+		int size = reserved.get();
+		
+		for (int i=0;i<size;i++) {
+			Chunk chunk = getChunk(i);
+			int slot = i & (CHUNK_SIZE-1);
+			
+			if (chunk != null && chunk.complete.get(slot) == 1 &&
+					chunk.timestamps[slot] >= since) {
+				counts[chunk.statuses[slot]] = counts[chunk.statuses[slot]]+1;
+			}
+		}
+		
+		return counts;
+	}
+	
+	/**
+	 * Get the complete records as strings in the format of the old change log,
+	 * "(start,end,status".
+	 * @return An unmodifiable list of the strings of the records.
+	 */
+	public List<String> asStrings () {
+		final int[] positions = Find(-1, 0);
+		
+		return new AbstractList<String>() {
+			
+			public String get (int index) {
+				int position = positions[index];
+				
+				return "(" + getStart(position) + "," + getEnd(position) + "," +
+						getStatus_string(position);
+			}
+			
+			public int size () {
+				return positions.length;
+			}
+		};
+	}
+	
+	/**
+	 * Replace the records of the log with records parsed from strings in the format
+	 * of the old change log. The records get the annotation id -1 and the time 0.
+	 * @param entries The strings.
+	 */
+	public void ReplaceWithStrings (List<String> entries) {
+		if (read_only) {
+			throw new UnsupportedOperationException("The change log is read-only.");
+		}
+		
+		Initialize();
+		
+		if (entries == null) {
+			return;
+		}
+		
+		for (String entry: entries) {
+			String[] fields = entry.substring(1).split(",", 3);
+			
+			int status = Arrays.asList(STATUS_NAMES).indexOf(fields[2]);
+			int value = -1;
+			
+			if (status == -1) {
+				status = SUB_TYPE;
+				value = Symbol_Table.getShared().Intern(fields[2]);
+			}
+			
+			Write(reserved.getAndIncrement(), -1, Integer.parseInt(fields[0]),
+					Integer.parseInt(fields[1]), status, value, 0);
+		}
+	}
+	
+	/**
+	 * Copy the complete records of the log into a new log.
+	 * @param read_only Whether records can not be appended to the copy.
+	 * @return The copy of the log.
+	 */
+	public Change_Log Copy (boolean read_only) {
+		Change_Log copy = new Change_Log();
+		
+		int[] positions = Find(-1, 0);
+		
+		for (int i=0;i<positions.length;i++) {
+			Chunk chunk = getChunk(positions[i]);
+			int slot = positions[i] & (CHUNK_SIZE-1);
+			
+			copy.Write(i, chunk.annotation_ids[slot], chunk.starts[slot],
+					chunk.ends[slot], chunk.statuses[slot], chunk.values[slot],
+					chunk.timestamps[slot]);
+		}
+		
+		copy.reserved.set(positions.length);
+		copy.mode = mode;
+		copy.read_only = read_only;
+		
+		return copy;
+	}
+	
+	/**
+	 * Write a record at a reserved position and mark it as complete.
+	 */
+	void Write (int index, int annotation_id, int start, int end, int status,
+			int value, long timestamp) {
+		Chunk chunk = MakeChunk(index >>> CHUNK_BITS);
+		int slot = index & (CHUNK_SIZE-1);
+		
+		chunk.annotation_ids[slot] = annotation_id;
+		chunk.starts[slot] = start;
+		chunk.ends[slot] = end;
+		chunk.statuses[slot] = status;
+		chunk.values[slot] = value;
+		chunk.timestamps[slot] = timestamp;
+		
+		// The volatile write publishes the fields written before.
+		chunk.complete.set(slot, 1);
+	}
+	
+	/**
+	 * Get the chunk containing the record at the specified position.
+	 * @param index The position of the record.
+	 * @return The chunk or null if it has not been made yet.
+	 */
+	Chunk getChunk (int index) {
+		Chunk[] current = chunks.get();
+		int chunk_index = index >>> CHUNK_BITS;
+		
+		return chunk_index < current.length ? current[chunk_index] : null;
+	}
+	
+	/**
+	 * Get the chunk containing the record at the specified position and check that
+	 * the record is complete.
+	 * @param index The position of the record.
+	 * @return The chunk.
+	 */
+	Chunk getCompleteChunk (int index) {
+		if (index < 0 || index >= reserved.get() || !isComplete(index)) {
+			throw new IndexOutOfBoundsException("No complete record at " + index);
+		}
+		
+		return getChunk(index);
+	}
+	
+	/**
+	 * Get the chunk with the specified index, making it and all chunks before it if
+	 * they have not been made yet.
+	 * @param chunk_index The index of the chunk.
+	 * @return The chunk.
+	 */
+	Chunk MakeChunk (int chunk_index) {
+		while (true) {
+			Chunk[] current = chunks.get();
+			
+			if (chunk_index < current.length) {
+				return current[chunk_index];
+			}
+			
+			Chunk[] grown = Arrays.copyOf(current, Math.max(chunk_index+1,
+					2*current.length));
+			
+			for (int i=current.length;i<grown.length;i++) {
+				grown[i] = new Chunk();
+			}
+			
+			if (chunks.compareAndSet(current, grown)) {
+				return grown[chunk_index];
+			}
+		}
+	}
+	
+	/**
+	 * Write the log to a stream. The complete records are written column by column,
+	 * the sub-types are written as strings.
+	 * @param output The stream the log is written to.
+	 * @throws IOException
+	 */
+	private void writeObject (ObjectOutputStream output) throws IOException {
+		output.defaultWriteObject();
+		
+		int[] positions = Find(-1, 0);
+		
+		int[] annotation_ids = new int[positions.length];
+		int[] starts = new int[positions.length];
+		int[] ends = new int[positions.length];
+		int[] statuses = new int[positions.length];
+		String[] values = new String[positions.length];
+		long[] timestamps = new long[positions.length];
+		
+		for (int i=0;i<positions.length;i++) {
+			annotation_ids[i] = getAnnotation_id(positions[i]);
+			starts[i] = getStart(positions[i]);
+			ends[i] = getEnd(positions[i]);
+			statuses[i] = getStatus(positions[i]);
+			values[i] = Symbol_Table.getShared().getSymbol(getValue(positions[i]));
+			timestamps[i] = getTimestamp(positions[i]);
+		}
+		
+		output.writeObject(annotation_ids);
+		output.writeObject(starts);
+		output.writeObject(ends);
+		output.writeObject(statuses);
+		output.writeObject(values);
+		output.writeObject(timestamps);
+	}
+	
+	/**
+	 * Read the log from a stream and add the sub-types to the shared table of
+	 * symbols.
+	 * @param input The stream the log is read from.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	private void readObject (ObjectInputStream input) throws IOException,
+			ClassNotFoundException {
+		input.defaultReadObject();
+		
+		Initialize();
+		
+		int[] annotation_ids = (int[]) input.readObject();
+		int[] starts = (int[]) input.readObject();
+		int[] ends = (int[]) input.readObject();
+		int[] statuses = (int[]) input.readObject();
+		String[] values = (String[]) input.readObject();
+		long[] timestamps = (long[]) input.readObject();
+		
+		for (int i=0;i<annotation_ids.length;i++) {
+			Write(i, annotation_ids[i], starts[i], ends[i], statuses[i],
+					Symbol_Table.getShared().Intern(values[i]), timestamps[i]);
+		}
+		
+		reserved.set(annotation_ids.length);
+	}
+	
+	/**
+	 * The columns of CHUNK_SIZE records.
+	 */
+	static class Chunk {
+		int[] annotation_ids = new int[CHUNK_SIZE];
+		int[] starts = new int[CHUNK_SIZE];
+		int[] ends = new int[CHUNK_SIZE];
+		int[] statuses = new int[CHUNK_SIZE];
+		int[] values = new int[CHUNK_SIZE];
+		long[] timestamps = new long[CHUNK_SIZE];
+		
+		/**
+		 * 1 for the records which were written completely, 0 otherwise.
+		 */
+		AtomicIntegerArray complete = new AtomicIntegerArray(CHUNK_SIZE);
+	}
+	
+	/**
+	 * The buffer in which one thread collects records in the mode BATCHED. The
+	 * buffer is locked while the thread adds a record and while it is appended,
+	 * because Flush can append it from any thread.
+	 */
+	static class Batch {
+		int[] annotation_ids = new int[BATCH_SIZE];
+		int[] starts = new int[BATCH_SIZE];
+		int[] ends = new int[BATCH_SIZE];
+		int[] statuses = new int[BATCH_SIZE];
+		int[] values = new int[BATCH_SIZE];
+		long[] timestamps = new long[BATCH_SIZE];
+		int size;
+		
+		/**
+		 * Add a record to the buffer.
+		 */
+		void add (int annotation_id, int start, int end, int status, int value,
+				long timestamp) {
+			annotation_ids[size] = annotation_id;
+			starts[size] = start;
+			ends[size] = end;
+			statuses[size] = status;
+			values[size] = value;
+			timestamps[size] = timestamp;
+			
+			size = size+1;
+		}
+		
+		/**
+		 * Append the records in the buffer to a log with one reservation and empty
+		 * the buffer.
+		 * @param log The log.
+		 */
+		synchronized void AppendTo (Change_Log log) {
+			if (size == 0) {
+				return;
+			}
+			
+			int first = log.reserved.getAndAdd(size);
+			
+			for (int i=0;i<size;i++) {
+				log.Write(first+i, annotation_ids[i], starts[i], ends[i],
+						statuses[i], values[i], timestamps[i]);
+			}
+			
+			size = 0;
+		}
+	}
+}
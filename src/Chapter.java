@@ -1,5 +1,9 @@
 package teanlis;
 
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
 /**
  * 
  * This class represents chapters in a book, sections in a scientific work and in 
@@ -13,6 +17,8 @@ package teanlis;
 
 public class Chapter extends Linguistic_Element {
 	
+	private static final long serialVersionUID = 2L;
+	
 	/**
 	 * The tile of the chapter.
 	 */
@@ -94,5 +100,28 @@ public class Chapter extends Linguistic_Element {
 		this.title = title;
 	}
 	
+	/*
+	 * (non-Javadoc)
+	 * @see teanlis.Linguistic_Element#writeExternal(java.io.ObjectOutput)
+	 */
+	public void writeExternal (ObjectOutput output) throws IOException {
+		super.writeExternal(output);
+		
+		output.writeObject(title);
+		output.writeInt(start_sentence);
+		output.writeInt(end_sentence);
+	}
 	
+	/*
+	 * (non-Javadoc)
+	 * @see teanlis.Linguistic_Element#readExternal(java.io.ObjectInput)
+	 */
+	public void readExternal (ObjectInput input) throws IOException, 
+			ClassNotFoundException {
+		super.readExternal(input);
+		
+		this.title = (String) input.readObject();
+		this.start_sentence = input.readInt();
+		this.end_sentence = input.readInt();
+	}
 }
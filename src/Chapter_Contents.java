@@ -0,0 +1,199 @@
+package teanlis;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class contains the parts of a document which belong to one main-chapter
+ * and are loaded on demand by a Chapter_Store: the text of the chapter, its
+ * tokens and its non-standard annotations. All offsets are offsets in the text
+ * of the whole document, and the index of a token in the chapter plus the index
+ * of the first token of the chapter is the index of the token in the whole
+ * document.
+ * 
+ * The text of a document is split into one region per main-chapter which
+ * reaches from the start of the chapter to the start of the next chapter, so
+ * every character and every token of the document belongs to exactly one
+ * chapter. Annotations belong to the chapter their start offset is in.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Chapter_Contents implements java.io.Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * The index of the chapter in the list of main-chapters of the document.
+	 */
+	int index;
+	
+	/**
+	 * The offset in the text of the document the region of the chapter starts at.
+	 */
+	int start;
+	
+	/**
+	 * The offset in the text of the document the region of the chapter ends at
+	 * (exclusive).
+	 */
+	int end;
+	
+	/**
+	 * The length of the text of the whole document.
+	 */
+	int text_length;
+	
+	/**
+	 * The text of the region of the chapter.
+	 */
+	String text;
+	
+	/**
+	 * The index of the first token of the chapter in the tokens of the document.
+	 */
+	int first_token;
+	
+	/**
+	 * The tokens of the chapter.
+	 */
+	Token_Table tokens;
+	
+	/**
+	 * A map from type names to lists of the non-standard annotations of the
+	 * chapter.
+	 */
+	Map<String, List<Annotation>> text_units;
+	
+	/**
+	 * The index from offsets to the tokens of the chapter. It is not stored with
+	 * the chapter because it can be recomputed from the tokens.
+	 */
+	transient Offset_Index offset_index;
+	
+	/**
+	 * Constructor for the contents of a chapter.
+	 * @param index The index of the chapter in the list of main-chapters.
+	 * @param start The offset the region of the chapter starts at.
+	 * @param end The offset the region of the chapter ends at (exclusive).
+	 * @param text_length The length of the text of the whole document.
+	 * @param text The text of the region of the chapter.
+	 * @param first_token The index of the first token of the chapter in the tokens
+	 * of the document.
+	 * @param tokens The tokens of the chapter.
+	 * @param text_units The non-standard annotations of the chapter.
+	 */
+	public Chapter_Contents (int index, int start, int end, int text_length, 
+			String text, int first_token, Token_Table tokens,
+			Map<String, List<Annotation>> text_units) {
+		this.index = index;
+		this.start = start;
+		this.end = end;
+		this.text_length = text_length;
+		this.text = text;
+		this.first_token = first_token;
+		this.tokens = tokens;
+		this.text_units = text_units;
+	}
+	
+	/**
+	 * Get the index of the chapter in the list of main-chapters of the document.
+	 * @return The index of the chapter.
+	 */
+	public int getIndex() {
+		return index;
+	}
+	
+	/**
+	 * Get the offset in the text of the document the region of the chapter starts
+	 * at.
+	 * @return The offset the region of the chapter starts at.
+	 */
+	public int getStart() {
+		return start;
+	}
+	
+	/**
+	 * Get the offset in the text of the document the region of the chapter ends
+	 * at.
+	 * @return The offset the region of the chapter ends at (exclusive).
+	 */
+	public int getEnd() {
+		return end;
+	}
+	
+	/**
+	 * Get the text of the region of the chapter. The first character of the
+	 * returned string is the character at the start offset of the region.
+	 * @return The text of the region of the chapter.
+	 */
+	public String getText() {
+		return text;
+	}
+	
+	/**
+	 * Get the string between two offsets in the text of the document. Both offsets
+	 * have to be in the region of the chapter.
+	 * @param start The start offset.
+	 * @param end The end offset (exclusive).
+	 * @return The string between the offsets.
+	 */
+	public String getString(int start, int end) {
+		return text.substring(start-this.start, end-this.start);
+	}
+	
+	/**
+	 * Get the index of the first token of the chapter in the tokens of the
+	 * document.
+	 * @return The index of the first token of the chapter.
+	 */
+	public int getFirst_token() {
+		return first_token;
+	}
+	
+	/**
+	 * Get the tokens of the chapter.
+	 * @return The tokens of the chapter.
+	 */
+	public Token_Table getTokens() {
+		return tokens;
+	}
+	
+	/**
+	 * Get the map from type names to lists of the non-standard annotations of the
+	 * chapter.
+	 * @return The non-standard annotations of the chapter.
+	 */
+	public Map<String, List<Annotation>> getText_units() {
+		return text_units;
+	}
+	
+	/**
+	 * Get the index of the token of the chapter the specified offset belongs to.
+	 * The index is the index of the token in the tokens of the whole document.
+	 * @param offset A character offset in the text of the document.
+	 * @return The index of the token in the document or -1 if the offset does not
+	 * belong to a token of the chapter.
+	 */
+	public int getTokenAtOffset(int offset) {
+		if (offset_index == null) {
+			offset_index = new Offset_Index(tokens.CopyStarts(), tokens.CopyEnds(),
+					end);
+		}
+		
+		if (tokens.size() == 0) {
+			return -1;
+		}
+		
+		// Only the first and the last chapter of the document continue the first and 
+		// the last token up to the start and the end of the text, see Offset_Index.
+		if ((index > 0 && offset < tokens.getStart(0)) || (end < text_length && 
+				offset > tokens.getEnd(tokens.size()-1))) {
+			return -1;
+		}
+		
+		int token = offset_index.getToken(offset);
+		
+		return token == -1 ? -1 : first_token+token;
+	}
+}
@@ -0,0 +1,458 @@
+package teanlis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class stores a document in a directory so that it can be opened without
+ * loading all of it. The directory contains
+ * 
+ * 1. the skeleton of the document: the title, the metadata and the lines,
+ * sentences, paragraphs, pages and chapters, but no text, tokens and
+ * non-standard annotations, and
+ * 
+ * 2. one file per main-chapter with the text, the tokens and the non-standard
+ * annotations of the chapter (see Chapter_Contents). A document without
+ * main-chapters is stored as one chapter.
+ * 
+ * Opening a store only loads the skeleton. The contents of a chapter are loaded
+ * when they are accessed for the first time and stay in memory until more
+ * chapters than the residency limit are loaded; then the chapter which was not
+ * accessed for the longest time is dropped and loaded again when it is needed.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Chapter_Store {
+	
+	/**
+	 * The name of the file the skeleton of the document is stored in.
+	 */
+	static final String SKELETON_FILE = "skeleton";
+	
+	/**
+	 * The prefix of the names of the files the chapters are stored in. The index
+	 * of the chapter is appended to the prefix.
+	 */
+	static final String CHAPTER_FILE_PREFIX = "chapter_";
+	
+	/**
+	 * The directory the document is stored in.
+	 */
+	String directory;
+	
+	/**
+	 * The skeleton of the document.
+	 */
+	Document skeleton;
+	
+	/**
+	 * The offsets the regions of the chapters start at.
+	 */
+	int[] chapter_starts;
+	
+	/**
+	 * The offsets the regions of the chapters end at (exclusive).
+	 */
+	int[] chapter_ends;
+	
+	/**
+	 * The indices of the first tokens of the chapters.
+	 */
+	int[] first_tokens;
+	
+	/**
+	 * The maximum number of chapters which are kept in memory.
+	 */
+	int max_resident;
+	
+	/**
+	 * The chapters which are kept in memory, ordered from the chapter accessed
+	 * longest ago to the chapter accessed last.
+	 */
+	LinkedHashMap<Integer, Chapter_Contents> resident;
+	
+	/**
+	 * Constructor for the store which opens the document stored in the specified
+	 * directory. Only the skeleton of the document is loaded.
+	 * @param directory The directory the document is stored in.
+	 * @param max_resident The maximum number of chapters which are kept in memory.
+	 */
+	public Chapter_Store (String directory, int max_resident) {
+		this.directory = directory;
+		this.max_resident = Math.max(1, max_resident);
+		
+		this.resident = new LinkedHashMap<Integer, Chapter_Contents>(16, 0.75f,
+				true) {
+			protected boolean removeEldestEntry(
+					Map.Entry<Integer, Chapter_Contents> eldest) {
+				return size() > Chapter_Store.this.max_resident;
+			}
+		};
+		
+		try {
+			ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(
+					new FileInputStream(new File(directory, SKELETON_FILE))));
+			
+			this.skeleton = (Document) input.readObject();
+			this.chapter_starts = (int[]) input.readObject();
+			this.chapter_ends = (int[]) input.readObject();
+			this.first_tokens = (int[]) input.readObject();
+			
+			input.close();
+		} catch (java.io.IOException e) {
+			e.printStackTrace();
+		} catch (java.lang.ClassNotFoundException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Get the skeleton of the document: everything but the text, the tokens and
+	 * the non-standard annotations.
+	 * @return The skeleton of the document.
+	 */
+	public Document getSkeleton() {
+		return skeleton;
+	}
+	
+	/**
+	 * Get the number of chapters in the store.
+	 * @return The number of chapters in the store.
+	 */
+	public int getChapter_count() {
+		return chapter_starts.length;
+	}
+	
+	/**
+	 * Get the index of the chapter whose region contains the specified offset. The
+	 * offset at the end of the text belongs to the last chapter.
+	 * @param offset A character offset in the text of the document.
+	 * @return The index of the chapter or -1 if the offset is outside of the text.
+	 */
+	public int getChapterAtOffset(int offset) {
+		if (offset < 0 || chapter_starts.length == 0 ||
+				offset > chapter_ends[chapter_ends.length-1]) {
+			return -1;
+		}
+		
+		return LastStartAtOrBefore(chapter_starts, offset);
+	}
+	
+	/**
+	 * Get the maximum number of chapters which are kept in memory.
+	 * @return The maximum number of chapters which are kept in memory.
+	 */
+	public synchronized int getMax_resident() {
+		return max_resident;
+	}
+	
+	/**
+	 * Set the maximum number of chapters which are kept in memory. If more
+	 * chapters are in memory, the chapters accessed longest ago are dropped.
+	 * @param max_resident The maximum number of chapters which are kept in memory.
+	 */
+	public synchronized void setMax_resident(int max_resident) {
+		this.max_resident = Math.max(1, max_resident);
+		
+		while (resident.size() > this.max_resident) {
+			resident.remove(resident.keySet().iterator().next());
+		}
+	}
+	
+	/**
+	 * Check whether the contents of the specified chapter are in memory.
+	 * @param index The index of the chapter.
+	 * @return True if the contents of the chapter are in memory.
+	 */
+	public synchronized boolean isResident(int index) {
+		return resident.containsKey(index);
+	}
+	
+	/**
+	 * Get the contents of the specified chapter. The contents are loaded if they
+	 * are not in memory.
+	 * @param index The index of the chapter.
+	 * @return The contents of the chapter or null if there is no chapter with the
+	 * index or its contents can not be loaded.
+	 */
+	public synchronized Chapter_Contents getChapter(int index) {
+		if (index < 0 || index >= chapter_starts.length) {
+			return null;
+		}
+		
+		Chapter_Contents contents = resident.get(index);
+		
+		if (contents == null) {
+			contents = LoadChapter(index);
+			
+			if (contents != null) {
+				resident.put(index, contents);
+			}
+		}
+		
+		return contents;
+	}
+	
+	/**
+	 * Get the string between two offsets in the text of the document. The
+	 * chapters the string is contained in are loaded if they are not in memory.
+	 * Offsets outside of the text are moved to its start or end.
+	 * @param start The start offset.
+	 * @param end The end offset (exclusive).
+	 * @return The string between the offsets, an empty string if the end is not
+	 * after the start, or null if a chapter can not be loaded.
+	 */
+	public String getString(int start, int end) {
+		if (chapter_starts.length == 0) {
+			return "";
+		}
+		
+		int length = chapter_ends[chapter_ends.length-1];
+		
+		start = Math.max(0, start);
+		end = Math.min(length, end);
+		
+		if (end <= start) {
+			return "";
+		}
+		
+		StringBuilder string = new StringBuilder(end-start);
+		
+		int position = start;
+		
+		while (position < end) {
+			Chapter_Contents contents = getChapter(getChapterAtOffset(position));
+			
+			if (contents == null) {
+				return null;
+			}
+			
+			int part_end = Math.min(end, contents.getEnd());
+			
+			string.append(contents.getString(position, part_end));
+			
+			position = part_end;
+		}
+		
+		return string.toString();
+	}
+	
+	/**
+	 * Get the index of the token the specified character offset belongs to. The 
+	 * chapter containing the offset is loaded if it is not in memory.
+	 * @param offset A character offset in the text of the document.
+	 * @return The index of the token in the document or -1 if the offset does 
+	 * not belong to any token.
+	 */
+	public int getTokenAtOffset(int offset) {
+		int chapter = getChapterAtOffset(offset);
+		
+		if (chapter == -1) {
+			return -1;
+		}
+		
+		Chapter_Contents contents = getChapter(chapter);
+		
+		if (contents == null) {
+			return -1;
+		}
+		
+		int token = contents.getTokenAtOffset(offset);
+		
+		// A token which starts in the previous chapter can reach into this one.
+		if (token == -1 && chapter > 0 && (contents.getTokens().size() == 0 || 
+				offset < contents.getTokens().getStart(0))) {
+			Chapter_Contents previous = getChapter(chapter-1);
+			
+			if (previous != null) {
+				token = previous.getTokenAtOffset(offset);
+			}
+		}
+		
+		return token;
+	}
+	
+	/**
+	 * Load the contents of a chapter from its file.
+	 * @param index The index of the chapter.
+	 * @return The contents of the chapter or null if they can not be loaded.
+	 */
+	Chapter_Contents LoadChapter(int index) {
+		try {
+			ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(
+					new FileInputStream(new File(directory, CHAPTER_FILE_PREFIX +
+							index))));
+			
+			Chapter_Contents contents = (Chapter_Contents) input.readObject();
+			
+			input.close();
+			
+			return contents;
+		} catch (java.io.IOException e) {
+			e.printStackTrace();
+		} catch (java.lang.ClassNotFoundException e) {
+			e.printStackTrace();
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Store a document in the specified directory in the layout which can be
+	 * opened by a chapter store. The directory is created if it does not exist.
+	 * The main-chapters and the tokens of the document have to be sorted by their
+	 * start offsets.
+	 * @param document The document.
+	 * @param directory The directory.
+	 */
+	public static void Save (Document document, String directory) {
+		try {
+			new File(directory).mkdirs();
+			
+			String text = document.getOriginal_text();
+			
+			int[] starts = ChapterStarts(document);
+			int[] ends = new int[starts.length];
+			int[] first_tokens = new int[starts.length+1];
+			
+			Token_Table tokens = document.getToken_table();
+			
+			if (tokens == null) {
+				tokens = new Token_Table();
+			}
+			
+			int token = 0;
+			
+			for (int i=0;i<starts.length;i++) {
+				ends[i] = i+1 < starts.length ? starts[i+1] : text.length();
+				
+				if (i > 0) {
+					while (token < tokens.size() && tokens.getStart(token) < starts[i]) {
+						token = token+1;
+					}
+				}
+				
+				first_tokens[i] = token;
+			}
+			
+			first_tokens[starts.length] = tokens.size();
+			
+			ArrayList<Map<String, List<Annotation>>> chapter_text_units =
+					new ArrayList<Map<String, List<Annotation>>>();
+			
+			for (int i=0;i<starts.length;i++) {
+				chapter_text_units.add(new HashMap<String, List<Annotation>>());
+			}
+			
+			for (String type: document.getText_units().keySet()) {
+				for (Annotation annotation: document.getText_units().get(type)) {
+					int chapter = LastStartAtOrBefore(starts, annotation.getStart());
+					
+					if (!chapter_text_units.get(chapter).containsKey(type)) {
+						chapter_text_units.get(chapter).put(type,
+								new ArrayList<Annotation>());
+					}
+					
+					chapter_text_units.get(chapter).get(type).add(annotation);
+				}
+			}
+			
+			for (int i=0;i<starts.length;i++) {
+				Chapter_Contents contents = new Chapter_Contents(i, starts[i],
+						ends[i], text.length(), text.substring(starts[i], ends[i]), 
+						first_tokens[i],
+						tokens.CopyRange(first_tokens[i], first_tokens[i+1]),
+						chapter_text_units.get(i));
+				
+				ObjectOutputStream output = new ObjectOutputStream(
+						new BufferedOutputStream(new FileOutputStream(new File(
+								directory, CHAPTER_FILE_PREFIX + i))));
+				
+				output.writeObject(contents);
+				output.close();
+			}
+			
+			Document skeleton = new Document();
+			
+			skeleton.setTitle(document.getTitle());
+			skeleton.setMeta_data(document.getMeta_data());
+			skeleton.setNote_history(document.getNote_history());
+			skeleton.setLines(document.getLines());
+			skeleton.setSentences(document.getSentences());
+			skeleton.setParagraphs(document.getParagraphs());
+			skeleton.setPages(document.getPages());
+			skeleton.setSub_chapters(document.getSub_chapters());
+			skeleton.setMain_chapters(document.getMain_chapters());
+			
+			ObjectOutputStream output = new ObjectOutputStream(
+					new BufferedOutputStream(new FileOutputStream(new File(
+							directory, SKELETON_FILE))));
+			
+			output.writeObject(skeleton);
+			output.writeObject(starts);
+			output.writeObject(ends);
+			output.writeObject(Arrays.copyOf(first_tokens, starts.length));
+			output.close();
+		} catch (java.io.IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Get the offsets the regions of the chapters of a document start at. The
+	 * region of the first chapter starts at the start of the text.
+	 * @param document The document.
+	 * @return The offsets the regions of the chapters start at.
+	 */
+	static int[] ChapterStarts (Document document) {
+		List<Chapter> main_chapters = document.getMain_chapters();
+		
+		if (main_chapters == null || main_chapters.isEmpty()) {
+			return new int[] {0};
+		}
+		
+		int[] starts = new int[main_chapters.size()];
+		
+		for (int i=1;i<starts.length;i++) {
+			starts[i] = main_chapters.get(i).getStart();
+		}
+		
+		return starts;
+	}
+	
+	/**
+	 * Get the index of the last chapter whose region starts at or before the
+	 * specified offset.
+	 * @param starts The offsets the regions of the chapters start at.
+	 * @param offset A character offset.
+	 * @return The index of the chapter, 0 if the offset is before all chapters.
+	 */
+	static int LastStartAtOrBefore (int[] starts, int offset) {
+		int low = 0;
+		int high = starts.length-1;
+		
+		while (low < high) {
+			int middle = (low+high+1) >>> 1;
+			
+			if (starts[middle] <= offset) {
+				low = middle;
+			} else {
+				high = middle-1;
+			}
+		}
+		
+		return low;
+	}
+}
@@ -0,0 +1,372 @@
+package teanlis;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class reads a corpus of documents which is stored in one file, written by
+ * a Corpus_Writer. The file starts with the magic number MAGIC and the version,
+ * followed by the documents in the format of Document_Format, the table of
+ * contents and a footer with the position of the table of contents. The table of
+ * contents contains an entry for every document (see Corpus_Entry), so the
+ * titles and metadata of all documents are known without reading the documents.
+ * 
+ * Documents can be read by their id (getDocument, MapDocument), one after the
+ * other in the order of the file (iterator), which reads the file sequentially,
+ * or by several threads at once (ForEach). The file is only read with positional
+ * reads and maps, so all methods can be called by several threads at once.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Corpus_Archive implements Iterable<Document> {
+	
+	/**
+	 * The magic number at the start of every archive ("TNLA").
+	 */
+	public static final int MAGIC = 0x544E4C41;
+	
+	/**
+	 * The magic number in the footer of every archive ("TNLT").
+	 */
+	public static final int TABLE_MAGIC = 0x544E4C54;
+	
+	/**
+	 * The version of the format of the archive.
+	 */
+	public static final int VERSION = 1;
+	
+	/**
+	 * The size of the header in bytes: magic number and version.
+	 */
+	static final int HEADER_SIZE = 8;
+	
+	/**
+	 * The size of the footer in bytes: position of the table of contents, magic
+	 * number and version.
+	 */
+	static final int FOOTER_SIZE = 16;
+	
+	/**
+	 * The path of the archive.
+	 */
+	String path;
+	
+	/**
+	 * The file of the archive.
+	 */
+	RandomAccessFile file;
+	
+	/**
+	 * The channel of the file of the archive.
+	 */
+	FileChannel channel;
+	
+	/**
+	 * The entries of the documents in the archive.
+	 */
+	List<Corpus_Entry> entries;
+	
+	/**
+	 * Interface for code which processes the documents of an archive, see
+	 * ForEach.
+	 */
+	public interface Visitor {
+		
+		/**
+		 * Process a document of the archive.
+		 * @param entry The entry of the document.
+		 * @param document The document.
+		 */
+		void Visit (Corpus_Entry entry, Document document);
+	}
+	
+	/**
+	 * Constructor for the archive which opens the archive at the specified path
+	 * and reads its table of contents.
+	 * @param path The path of the archive.
+	 * @throws IOException If the archive can not be read or is not an archive.
+	 */
+	public Corpus_Archive (String path) throws IOException {
+		this.path = path;
+		this.file = new RandomAccessFile(path, "r");
+		this.channel = file.getChannel();
+		
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+			
+			long size = channel.size();
+			
+			if (size < HEADER_SIZE+FOOTER_SIZE) {
+				throw new IOException(path + " is not a corpus archive.");
+			}
+			
+			Document_Format.ReadFully(channel, header, 0);
+			Document_Format.ReadFully(channel, footer, size-FOOTER_SIZE);
+			
+			if (header.getInt(0) != MAGIC || footer.getInt(8) != TABLE_MAGIC) {
+				throw new IOException(path + " is not a corpus archive or was not "
+						+ "closed.");
+			}
+			
+			if (header.getInt(4) > VERSION) {
+				throw new IOException("The version " + header.getInt(4) + " of the "
+						+ "corpus archive is not supported.");
+			}
+			
+			long table_offset = footer.getLong(0);
+			
+			ByteBuffer table = ByteBuffer.allocate((int) (size-FOOTER_SIZE-
+					table_offset));
+			
+			Document_Format.ReadFully(channel, table, table_offset);
+			
+			table.flip();
+			
+			this.entries = Collections.unmodifiableList(ReadTable(table));
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Get the path of the archive.
+	 * @return The path of the archive.
+	 */
+	public String getPath() {
+		return path;
+	}
+	
+	/**
+	 * Get the number of documents in the archive.
+	 * @return The number of documents in the archive.
+	 */
+	public int size() {
+		return entries.size();
+	}
+	
+	/**
+	 * Get the entry of a document.
+	 * @param id The id of the document.
+	 * @return The entry of the document.
+	 */
+	public Corpus_Entry getEntry(int id) {
+		return entries.get(id);
+	}
+	
+	/**
+	 * Get the entries of all documents in the order of their ids, which is the
+	 * order of the documents in the file.
+	 * @return An unmodifiable list of the entries.
+	 */
+	public List<Corpus_Entry> getEntries() {
+		return entries;
+	}
+	
+	/**
+	 * Read a document of the archive.
+	 * @param id The id of the document.
+	 * @return The document.
+	 * @throws IOException If the document can not be read.
+	 */
+	public Document getDocument (int id) throws IOException {
+		return Document_Format.Load(channel, entries.get(id).getOffset());
+	}
+	
+	/**
+	 * Map a document of the archive into memory without reading it, see
+	 * Mapped_Document.
+	 * @param id The id of the document.
+	 * @return The mapped document.
+	 * @throws IOException If the document can not be mapped.
+	 */
+	public Mapped_Document MapDocument (int id) throws IOException {
+		return new Mapped_Document(path, entries.get(id).getOffset());
+	}
+	
+	/**
+	 * Get an iterator which reads the documents one after the other in the order
+	 * of the file. Documents which can not be read are printed and skipped. The
+	 * next document is read by hasNext, so hasNext only returns true if next can
+	 * return a document.
+	 */
+	public Iterator<Document> iterator() {
+		return new Iterator<Document>() {
+			
+			int next = 0;
+			
+			/**
+			 * The document read ahead by hasNext or null.
+			 */
+			Document read_ahead = null;
+			
+			public boolean hasNext() {
+				while (read_ahead == null && next < entries.size()) {
+					try {
+						read_ahead = getDocument(next);
+					} catch (IOException e) {
+						e.printStackTrace();
+					}
+					
+					next = next+1;
+				}
+				
+				return read_ahead != null;
+			}
+			
+			public Document next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				
+				Document document = read_ahead;
+				
+				read_ahead = null;
+				
+				return document;
+			}
+			
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+	
+	/**
+	 * Read all documents of the archive with several threads and give every
+	 * document to the visitor. Every thread takes the next document which has not
+	 * been taken yet, so the documents are read roughly in the order of the file.
+	 * The visitor is called by several threads at once.
+	 * @param visitor The visitor.
+	 * @param thread_count The number of threads.
+	 * @throws IOException If a document can not be read.
+	 */
+	public void ForEach (final Visitor visitor, int thread_count)
+			throws IOException {
+		final AtomicInteger next = new AtomicInteger();
+		
+		ExecutorService executor = Executors.newFixedThreadPool(thread_count);
+		
+		try {
+			ArrayList<Future<Object>> results = new ArrayList<Future<Object>>();
+			
+			for (int i=0;i<thread_count;i++) {
+				results.add(executor.submit(new Callable<Object>() {
+					public Object call() throws IOException {
+						int id = next.getAndIncrement();
+						
+						while (id < entries.size()) {
+							visitor.Visit(entries.get(id), getDocument(id));
+							
+							id = next.getAndIncrement();
+						}
+						
+						return null;
+					}
+				}));
+			}
+			
+			for (Future<Object> result: results) {
+				try {
+					result.get();
+				} catch (ExecutionException e) {
+					next.set(entries.size());
+					
+					if (e.getCause() instanceof IOException) {
+						throw (IOException) e.getCause();
+					}
+					
+					throw new RuntimeException(e.getCause());
+				} catch (InterruptedException e) {
+					next.set(entries.size());
+					Thread.currentThread().interrupt();
+					
+					throw new IOException("Interrupted while reading " + path);
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+	
+	/**
+	 * Close the archive. Mapped documents of the archive stay readable.
+	 * @throws IOException If the archive can not be closed.
+	 */
+	public void Close () throws IOException {
+		file.close();
+	}
+	
+	/**
+	 * Read the entries of the table of contents, see Corpus_Writer.MakeTable.
+	 * @param table The bytes of the table of contents.
+	 * @return The entries.
+	 */
+	static ArrayList<Corpus_Entry> ReadTable (ByteBuffer table) {
+		int count = table.getInt();
+		
+		ArrayList<Corpus_Entry> entries = new ArrayList<Corpus_Entry>(count);
+		
+		for (int i=0;i<count;i++) {
+			long offset = table.getLong();
+			long length = table.getLong();
+			String title = ReadString(table);
+			
+			int meta_data_size = table.getInt();
+			
+			Map<String, String> meta_data = null;
+			
+			if (meta_data_size != -1) {
+				HashMap<String, String> read_meta_data = new HashMap<String, String>();
+				
+				for (int j=0;j<meta_data_size;j++) {
+					String name = ReadString(table);
+					
+					read_meta_data.put(name, ReadString(table));
+				}
+				
+				meta_data = Collections.unmodifiableMap(read_meta_data);
+			}
+			
+			entries.add(new Corpus_Entry(i, title, meta_data, offset, length));
+		}
+		
+		return entries;
+	}
+	
+	/**
+	 * Read a string written by Corpus_Writer.WriteString.
+	 */
+	static String ReadString (ByteBuffer table) {
+		int length = table.getInt();
+		
+		if (length == -1) {
+			return null;
+		}
+		
+		char[] characters = new char[length];
+		
+		for (int i=0;i<length;i++) {
+			characters[i] = table.getChar();
+		}
+		
+		return new String(characters);
+	}
+}
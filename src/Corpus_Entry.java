@@ -0,0 +1,97 @@
+package teanlis;
+
+import java.util.Map;
+
+/**
+ * This class represents the entry of a document in the table of contents of a
+ * Corpus_Archive: the id of the document, its title and metadata, and the
+ * position and length of the document in the archive.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Corpus_Entry {
+	
+	/**
+	 * The id of the document, which is its position in the table of contents.
+	 */
+	int id;
+	
+	/**
+	 * The title of the document.
+	 */
+	String title;
+	
+	/**
+	 * The metadata of the document.
+	 */
+	Map<String, String> meta_data;
+	
+	/**
+	 * The position of the document in the archive.
+	 */
+	long offset;
+	
+	/**
+	 * The number of bytes of the document in the archive.
+	 */
+	long length;
+	
+	/**
+	 * Constructor for the entry.
+	 * @param id The id of the document.
+	 * @param title The title of the document.
+	 * @param meta_data The metadata of the document, which is not copied.
+	 * @param offset The position of the document in the archive.
+	 * @param length The number of bytes of the document in the archive.
+	 */
+	Corpus_Entry (int id, String title, Map<String, String> meta_data, long offset,
+			long length) {
+		this.id = id;
+		this.title = title;
+		this.meta_data = meta_data;
+		this.offset = offset;
+		this.length = length;
+	}
+	
+	/**
+	 * Get the id of the document.
+	 * @return The id of the document.
+	 */
+	public int getId() {
+		return id;
+	}
+	
+	/**
+	 * Get the title of the document.
+	 * @return The title of the document.
+	 */
+	public String getTitle() {
+		return title;
+	}
+	
+	/**
+	 * Get the metadata of the document.
+	 * @return An unmodifiable map of the metadata of the document or null if the
+	 * document has no metadata.
+	 */
+	public Map<String, String> getMeta_data() {
+		return meta_data;
+	}
+	
+	/**
+	 * Get the position of the document in the archive.
+	 * @return The position of the document in the archive.
+	 */
+	public long getOffset() {
+		return offset;
+	}
+	
+	/**
+	 * Get the number of bytes of the document in the archive.
+	 * @return The number of bytes of the document in the archive.
+	 */
+	public long getLength() {
+		return length;
+	}
+}
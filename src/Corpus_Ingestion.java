@@ -0,0 +1,457 @@
+package teanlis;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class ingests a directory of TEI files (ending with .xml or .tei) and
+ * plain text files (ending with .txt) into a Corpus_Archive. The files are
+ * parsed and processed by the stages (see Stage) on a pool of a fixed number of
+ * threads, several documents at once, and one thread writes the processed
+ * documents to the archive with a Corpus_Writer.
+ * 
+ * Both sides are bounded: at most twice as many files as there are threads wait
+ * to be parsed (the thread walking the directory parses files itself when the
+ * pool is busy), and at most queue_capacity processed documents wait to be
+ * written (the threads of the pool wait when the writer is behind). So the
+ * number of documents in memory does not depend on the size of the corpus.
+ * 
+ * TEI files are loaded with MakeDocument.TEILoader, plain text files with
+ * MakeDocument.MakeDocumentFromPlainTextFile, which also attaches sentences and
+ * tokens for the language of the ingestion. The models of the language are
+ * loaded before the first file (see Model_Registry.Warmup). The path of the
+ * file is stored in the metadata of the document in the field "source".
+ * 
+ * @author Andreas Mller
+ */
+
+public class Corpus_Ingestion {
+	
+	/**
+	 * The name of the metadata field the path of the file of a document is
+	 * stored in.
+	 */
+	public static final String SOURCE_FIELD = "source";
+	
+	/**
+	 * Interface for a processing stage which is applied to every document after
+	 * it was loaded, for example tokenization or tagging. Stages are called by
+	 * several threads at once, each with a different document.
+	 */
+	public interface Stage {
+		
+		/**
+		 * Process a document.
+		 * @param document The document.
+		 * @return The processed document, usually the same object, or null if the
+		 * document can not be processed.
+		 * @throws Exception If the document can not be processed.
+		 */
+		Document Process (Document document) throws Exception;
+	}
+	
+	/**
+	 * The stage which attaches sentences and tokens, see
+	 * MakeDocument.AttachSentencesAndTokens.
+	 */
+	public static final Stage SENTENCES_AND_TOKENS = new Stage() {
+		public Document Process (Document document) {
+			return MakeDocument.AttachSentencesAndTokens(document);
+		}
+	};
+	
+	/**
+	 * A processed document and the path of its file. A parsed file without a
+	 * document marks the end of the queue.
+	 */
+	static class Parsed_File {
+		String path;
+		Document document;
+		
+		Parsed_File (String path, Document document) {
+			this.path = path;
+			this.document = document;
+		}
+	}
+	
+	/**
+	 * The path of the archive.
+	 */
+	String archive_path;
+	
+	/**
+	 * The language of plain text files, see
+	 * MakeDocument.MakeDocumentFromPlainTextFile.
+	 */
+	String language;
+	
+	/**
+	 * The number of threads parsing and processing files.
+	 */
+	int thread_count;
+	
+	/**
+	 * The maximal number of processed documents waiting to be written.
+	 */
+	int queue_capacity;
+	
+	/**
+	 * Whether the columns of the tokens are compressed in the archive.
+	 */
+	boolean compressed;
+	
+	/**
+	 * The stages applied to every document in their order.
+	 */
+	ArrayList<Stage> stages;
+	
+	/**
+	 * The number of files which could not be loaded or processed.
+	 */
+	AtomicInteger failed_count;
+	
+	/**
+	 * Constructor for an ingestion into the archive at the specified path with
+	 * one thread per processor.
+	 * @param archive_path The path of the archive, which is created or appended
+	 * to.
+	 * @param language The language of plain text files or "unknown" if they are
+	 * only loaded.
+	 */
+	public Corpus_Ingestion (String archive_path, String language) {
+		this(archive_path, language, Runtime.getRuntime().availableProcessors(),
+				16);
+	}
+	
+	/**
+	 * Constructor for an ingestion into the archive at the specified path.
+	 * @param archive_path The path of the archive, which is created or appended
+	 * to.
+	 * @param language The language of plain text files or "unknown" if they are
+	 * only loaded.
+	 * @param thread_count The number of threads parsing and processing files.
+	 * @param queue_capacity The maximal number of processed documents waiting to
+	 * be written.
+	 */
+	public Corpus_Ingestion (String archive_path, String language,
+			int thread_count, int queue_capacity) {
+		this.archive_path = archive_path;
+		this.language = language;
+		this.thread_count = thread_count;
+		this.queue_capacity = queue_capacity;
+		this.stages = new ArrayList<Stage>();
+		this.failed_count = new AtomicInteger();
+	}
+	
+	/**
+	 * Add a stage which is applied to every document after the stages added
+	 * before.
+	 * @param stage The stage.
+	 */
+	public void addStage (Stage stage) {
+		stages.add(stage);
+	}
+	
+	/**
+	 * Set whether the columns of the tokens are compressed in the archive, see
+	 * Corpus_Writer.
+	 * @param compressed Whether the columns are compressed.
+	 */
+	public void setCompressed (boolean compressed) {
+		this.compressed = compressed;
+	}
+	
+	/**
+	 * Get the number of files which could not be loaded or processed in the
+	 * ingestions so far.
+	 * @return The number of files.
+	 */
+	public int getFailed_count () {
+		return failed_count.get();
+	}
+	
+	/**
+	 * Ingest all TEI and plain text files in a directory and its
+	 * sub-directories. Files which can not be loaded or processed are printed
+	 * and skipped.
+	 * @param directory The directory.
+	 * @return The ids of the documents in the archive by the paths of their
+	 * files, in the order the documents were written.
+	 * @throws IOException If the archive can not be written.
+	 */
+	public Map<String, Integer> Ingest (File directory) throws IOException {
+		ArrayList<File> files = new ArrayList<File>();
+		
+		CollectFiles(directory, files);
+		
+		return Ingest(files);
+	}
+	
+	/**
+	 * Ingest TEI and plain text files.
+	 * @param files The files.
+	 * @return The ids of the documents in the archive by the paths of their
+	 * files, in the order the documents were written.
+	 * @throws IOException If the archive can not be written.
+	 */
+	public Map<String, Integer> Ingest (List<File> files) throws IOException {
+		if (!language.equals("unknown")) {
+			Model_Registry.getShared().Warmup(language);
+		}
+		
+		final BlockingQueue<Parsed_File> queue =
+				new ArrayBlockingQueue<Parsed_File>(queue_capacity);
+		
+		final Corpus_Writer writer = new Corpus_Writer(archive_path, compressed);
+		
+		ExecutorService writer_thread = Executors.newSingleThreadExecutor();
+		
+		final Future<Map<String, Integer>> written = writer_thread.submit(
+				new Callable<Map<String, Integer>>() {
+			public Map<String, Integer> call() throws Exception {
+				return WriteDocuments(queue, writer);
+			}
+		});
+		
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(thread_count,
+				thread_count, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(2*thread_count),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		
+		try {
+			for (final File file: files) {
+				pool.execute(new Runnable() {
+					public void run() {
+						Document document = ParseFile(file);
+						
+						if (document != null) {
+							Put(queue, new Parsed_File(file.getPath(), document),
+									written);
+						}
+					}
+				});
+			}
+		} finally {
+			pool.shutdown();
+			
+			try {
+				while (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+					// wait until all files are processed
+				}
+			} catch (InterruptedException e) {
+				pool.shutdownNow();
+				Thread.currentThread().interrupt();
+			}
+			
+			Put(queue, new Parsed_File(null, null), written);
+			
+			writer_thread.shutdown();
+		}
+		
+		try {
+			return written.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			
+			throw new IOException("Interrupted while writing " + archive_path);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			
+			throw new IOException(e.getCause());
+		}
+	}
+	
+	/**
+	 * Write the documents of the queue to the archive until the end of the queue
+	 * and close the archive. After an error, also an unchecked exception thrown
+	 * while a document is encoded, the remaining documents are taken from the
+	 * queue without being written, so the threads of the pool do not wait
+	 * forever, and the error is thrown at the end.
+	 * @param queue The queue.
+	 * @param writer The writer of the archive.
+	 * @return The ids of the written documents by the paths of their files.
+	 * @throws IOException If a document can not be written.
+	 * @throws InterruptedException
+	 */
+	Map<String, Integer> WriteDocuments (BlockingQueue<Parsed_File> queue,
+			Corpus_Writer writer) throws IOException, InterruptedException {
+		LinkedHashMap<String, Integer> ids = new LinkedHashMap<String, Integer>();
+		
+		Exception error = null;
+		
+		try {
+			Parsed_File parsed_file = queue.take();
+			
+			while (parsed_file.document != null) {
+				if (error == null) {
+					try {
+						ids.put(parsed_file.path, writer.add(parsed_file.document));
+					} catch (Exception e) {
+						error = e;
+					}
+				}
+				
+				parsed_file = queue.take();
+			}
+		} finally {
+			writer.Close();
+		}
+		
+		if (error instanceof IOException) {
+			throw (IOException) error;
+		} else if (error != null) {
+			throw new IOException("A document could not be written to " +
+					archive_path, error);
+		}
+		
+		return ids;
+	}
+	
+	/**
+	 * Load a file and apply the stages to its document.
+	 * @param file The file.
+	 * @return The document or null if the file can not be loaded or processed.
+	 */
+	Document ParseFile (File file) {
+		try {
+			String name = file.getName().toLowerCase();
+			
+			Document document;
+			
+			if (name.endsWith(".txt")) {
+				document = MakeDocument.MakeDocumentFromPlainTextFile(file.getPath(),
+						language);
+			} else {
+				document = MakeDocument.TEILoader(file.getPath());
+			}
+			
+			for (int i=0;i<stages.size() && document != null;i++) {
+				document = stages.get(i).Process(document);
+			}
+			
+			if (document == null) {
+				failed_count.incrementAndGet();
+				System.err.println("The file " + file.getPath() + " could not be "
+						+ "ingested.");
+				
+				return null;
+			}
+			
+			if (document.getTitle() == null) {
+				document.setTitle(file.getName());
+			}
+			
+			HashMap<String, String> meta_data = new HashMap<String, String>();
+			
+			if (document.getMeta_data() != null) {
+				meta_data.putAll(document.getMeta_data());
+			}
+			
+			meta_data.put(SOURCE_FIELD, file.getPath());
+			
+			document.setMeta_data(meta_data);
+			
+			return document;
+		} catch (Exception e) {
+			failed_count.incrementAndGet();
+			e.printStackTrace();
+			
+			return null;
+		}
+	}
+	
+	/**
+	 * Put a parsed file into the queue, waiting while the queue is full. The
+	 * file is dropped if the writer has stopped, for example because of an
+	 * Error, since nobody would take it from the queue anymore.
+	 */
+	static void Put (BlockingQueue<Parsed_File> queue, Parsed_File parsed_file,
+			Future<?> written) {
+		boolean interrupted = false;
+		boolean added = false;
+		
+		while (!added && !written.isDone()) {
+			try {
+				added = queue.offer(parsed_file, 1, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Collect the TEI and plain text files in a directory and its
+	 * sub-directories in the order of their names.
+	 * @param directory The directory.
+	 * @param files The list the files are added to.
+	 */
+	static void CollectFiles (File directory, List<File> files) {
+		File[] children = directory.listFiles();
+		
+		if (children == null) {
+			return;
+		}
+		
+		Arrays.sort(children);
+		
+		for (File child: children) {
+			String name = child.getName().toLowerCase();
+			
+			if (child.isDirectory()) {
+				CollectFiles(child, files);
+			} else if (name.endsWith(".xml") || name.endsWith(".tei") ||
+					name.endsWith(".txt")) {
+				files.add(child);
+			}
+		}
+	}
+	
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.err.println("Usage: Corpus_Ingestion directory archive "
+					+ "[language] [threads]");
+			return;
+		}
+		
+		String language = args.length > 2 ? args[2] : "unknown";
+		int thread_count = args.length > 3 ? Integer.parseInt(args[3]) :
+			Runtime.getRuntime().availableProcessors();
+		
+		Corpus_Ingestion ingestion = new Corpus_Ingestion(args[1], language,
+				thread_count, 4*thread_count);
+		
+		try {
+			long start = System.currentTimeMillis();
+			
+			Map<String, Integer> ids = ingestion.Ingest(new File(args[0]));
+			
+			System.out.println(ids.size() + " documents ingested, " +
+					ingestion.getFailed_count() + " failed, in " +
+					(System.currentTimeMillis()-start) + " ms");
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,249 @@
+package teanlis;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class writes documents to a Corpus_Archive. Documents are appended one
+ * after the other in the format of Document_Format, and the table of contents is
+ * written behind the last document when the writer is closed.
+ * 
+ * A writer for an existing archive appends the new documents behind the old
+ * table of contents and writes a new table of contents which contains the old
+ * and the new entries, so the archive stays readable with its old table of
+ * contents until the writer is closed. The space of the old table of contents
+ * is not reused.
+ * 
+ * Several threads can add documents to the same writer; the documents are
+ * written one at a time.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Corpus_Writer {
+	
+	/**
+	 * The path of the archive.
+	 */
+	String path;
+	
+	/**
+	 * The file of the archive.
+	 */
+	RandomAccessFile file;
+	
+	/**
+	 * The channel of the file of the archive.
+	 */
+	FileChannel channel;
+	
+	/**
+	 * The position the next document is written to.
+	 */
+	long position;
+	
+	/**
+	 * The entries of the documents in the archive.
+	 */
+	ArrayList<Corpus_Entry> entries;
+	
+	/**
+	 * Whether the columns of the tokens of the documents are compressed in blocks,
+	 * see Document_Format.SECTION_BLOCK_TOKENS.
+	 */
+	boolean compressed;
+	
+	/**
+	 * Constructor for a writer which creates the archive at the specified path or
+	 * appends to it if it exists.
+	 * @param path The path of the archive.
+	 * @throws IOException If the archive can not be opened.
+	 */
+	public Corpus_Writer (String path) throws IOException {
+		this(path, false);
+	}
+	
+	/**
+	 * Constructor for a writer which creates the archive at the specified path or
+	 * appends to it if it exists.
+	 * @param path The path of the archive.
+	 * @param compressed Whether the columns of the tokens of the added documents 
+	 * are compressed in blocks.
+	 * @throws IOException If the archive can not be opened.
+	 */
+	public Corpus_Writer (String path, boolean compressed) throws IOException {
+		this.path = path;
+		this.compressed = compressed;
+		this.entries = new ArrayList<Corpus_Entry>();
+		
+		boolean exists = new File(path).length() > 0;
+		
+		if (exists) {
+			Corpus_Archive archive = new Corpus_Archive(path);
+			
+			try {
+				entries.addAll(archive.getEntries());
+			} finally {
+				archive.Close();
+			}
+		}
+		
+		this.file = new RandomAccessFile(path, "rw");
+		this.channel = file.getChannel();
+		
+		if (exists) {
+			this.position = channel.size();
+		} else {
+			ByteBuffer header = ByteBuffer.allocate(Corpus_Archive.HEADER_SIZE);
+			
+			header.putInt(Corpus_Archive.MAGIC);
+			header.putInt(Corpus_Archive.VERSION);
+			header.flip();
+			
+			Write(header);
+		}
+	}
+	
+	/**
+	 * Add a document to the archive.
+	 * @param document The document.
+	 * @return The id of the document in the archive.
+	 * @throws IOException If the document can not be written.
+	 */
+	public synchronized int add (Document document) throws IOException {
+		if (channel == null) {
+			throw new IOException("The writer of " + path + " is closed.");
+		}
+		
+		long end = Document_Format.Write(document, channel, position,
+				compressed);
+		
+		Map<String, String> meta_data = null;
+		
+		if (document.getMeta_data() != null) {
+			meta_data = Collections.unmodifiableMap(new HashMap<String, String>(
+					document.getMeta_data()));
+		}
+		
+		Corpus_Entry entry = new Corpus_Entry(entries.size(), document.getTitle(),
+				meta_data, position, end-position);
+		
+		entries.add(entry);
+		
+		position = end;
+		
+		return entry.getId();
+	}
+	
+	/**
+	 * Get the number of documents in the archive, including the documents which
+	 * were in the archive before the writer was opened.
+	 * @return The number of documents in the archive.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+	
+	/**
+	 * Write the table of contents and close the archive.
+	 * @throws IOException If the table of contents can not be written.
+	 */
+	public synchronized void Close () throws IOException {
+		if (channel == null) {
+			return;
+		}
+		
+		try {
+			long table_offset = position;
+			
+			Write(ByteBuffer.wrap(MakeTable(entries)));
+			
+			ByteBuffer footer = ByteBuffer.allocate(Corpus_Archive.FOOTER_SIZE);
+			
+			footer.putLong(table_offset);
+			footer.putInt(Corpus_Archive.TABLE_MAGIC);
+			footer.putInt(Corpus_Archive.VERSION);
+			footer.flip();
+			
+			Write(footer);
+			
+			channel.truncate(position);
+			channel.force(false);
+		} finally {
+			file.close();
+			channel = null;
+		}
+	}
+	
+	/**
+	 * Write bytes at the current position.
+	 * @param buffer The bytes.
+	 * @throws IOException If the bytes can not be written.
+	 */
+	void Write (ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			position = position+channel.write(buffer, position);
+		}
+	}
+	
+	/**
+	 * Make the bytes of the table of contents: the number of entries and for every
+	 * entry its position, its length, its title and its metadata.
+	 * @param entries The entries.
+	 * @return The bytes of the table of contents.
+	 * @throws IOException
+	 */
+	static byte[] MakeTable (List<Corpus_Entry> entries) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(bytes);
+		
+		output.writeInt(entries.size());
+		
+		for (Corpus_Entry entry: entries) {
+			output.writeLong(entry.getOffset());
+			output.writeLong(entry.getLength());
+			
+			WriteString(output, entry.getTitle());
+			
+			Map<String, String> meta_data = entry.getMeta_data();
+			
+			if (meta_data == null) {
+				output.writeInt(-1);
+			} else {
+				output.writeInt(meta_data.size());
+				
+				for (String name: meta_data.keySet()) {
+					WriteString(output, name);
+					WriteString(output, meta_data.get(name));
+				}
+			}
+		}
+		
+		output.close();
+		
+		return bytes.toByteArray();
+	}
+	
+	/**
+	 * Write a string as its length (-1 for null) and its characters.
+	 */
+	static void WriteString (DataOutputStream output, String string)
+			throws IOException {
+		if (string == null) {
+			output.writeInt(-1);
+		} else {
+			output.writeInt(string.length());
+			output.writeChars(string);
+		}
+	}
+}
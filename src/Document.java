@@ -16,6 +16,9 @@ import java.io.FileWriter;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 
@@ -27,40 +30,71 @@ import java.util.HashSet;
  * @author Andreas Mller
  */
 public class Document extends Linguistic_Element {
+	
+	private static final long serialVersionUID = 2L;
+	
 	/**
-	 * List for recording changes of instances of annotations in the document.
+	 * The log recording changes of instances of annotations in the document.
 	 */
-	ArrayList<String> instance_change_log;
+	Change_Log change_log;
 	
 	/**
-	 * Get the list for recording changes of instances of annotations in the 
-	 * document.
-	 * @return The list for recording changes of instances of annotations in the 
+	 * The id the next annotation of the document gets, see NextAnnotationId.
+	 */
+	AtomicInteger next_annotation_id;
+	
+	/**
+	 * Get the log recording changes of instances of annotations in the document.
+	 * @return The log recording changes of instances of annotations in the 
 	 * document.
 	 */
-	public ArrayList<String> getInstance_change_log() {
-		return instance_change_log;
+	public Change_Log getChange_log() {
+		return change_log;
 	}
 	
 	/**
-	 * Set the list for recording changes of instances of annotations in the 
-	 * document.
+	 * Get the changes of instances of annotations in the document as strings of 
+	 * the form "(start,end,status".
+	 * @return An unmodifiable list of the changes of instances of annotations in 
+	 * the document.
+	 * @deprecated Use getChange_log instead. Adding strings to the returned list 
+	 * does not record changes.
+	 */
+	@Deprecated
+	public List<String> getInstance_change_log() {
+		return change_log.asStrings();
+	}
+	
+	/**
+	 * Replace the changes of instances of annotations in the document with the 
+	 * changes in the specified strings of the form "(start,end,status".
 	 * @param instance_change_log
+	 * @deprecated Use getChange_log instead.
 	 */
-	public void setInstance_change_log(ArrayList<String> instance_change_log) {
-		this.instance_change_log = instance_change_log;
+	@Deprecated
+	public void setInstance_change_log(List<String> instance_change_log) {
+		change_log.ReplaceWithStrings(instance_change_log);
+	}
+	
+	/**
+	 * Get a new id for an annotation of the document. Ids are unique within the 
+	 * document and can be requested by several threads at once.
+	 * @return A new id.
+	 */
+	public int NextAnnotationId() {
+		return next_annotation_id.getAndIncrement();
 	}
 	
 	/**
 	 * List of the textual lines in the document.
 	 */
-	ArrayList<Line> lines;
+	List<Line> lines;
 	
 	/**
 	 * Get the list of textual lines in the document.
 	 * @return
 	 */
-	public ArrayList<Line> getLines() {
+	public List<Line> getLines() {
 		return lines;
 	}
 	
@@ -68,8 +102,9 @@ public class Document extends Linguistic_Element {
 	 * Set the list of textual lines in the document.
 	 * @param lines
 	 */
-	public void setLines(ArrayList<Line> lines) {
+	public void setLines(List<Line> lines) {
 		this.lines = lines;
+		this.hierarchy = null;
 	}
 	
 	/**
@@ -81,34 +116,47 @@ public class Document extends Linguistic_Element {
 	 * A map from names of metadata fields to the values stored in those fields. All
 	 * names and values are stored as strings.
 	 */
-	HashMap<String, String> meta_data;
+	Map<String, String> meta_data;
 	
 	/**
-	 * List of the tokens in the document.
+	 * The tokens in the document. The tokens are stored column by column, see 
+	 * Token_Table.
 	 */
-	ArrayList<Token> tokens;
+	Token_Table tokens;
 	
 	/**
 	 * List of the sentences in the document.
 	 */
-	ArrayList<Sentence> sentences;
+	List<Sentence> sentences;
 	
 	/**
 	 * List of the paragraphs in the document.
 	 */
-	ArrayList<Paragraph> paragraphs;
+	List<Paragraph> paragraphs;
 	
 	/**
 	 * A map from type names to lists of annotations of the respective type. This 
 	 * map is used for all non-standard (see Conceptual Documentation) annotations.
 	 */
-	HashMap<String, ArrayList<Annotation>> text_units;
+	Map<String, List<Annotation>> text_units;
 	
 	/**
 	 * The text of the document.
 	 */
 	String original_text;
 	
+	/**
+	 * The path of the file the text of the document is stored in if the text is 
+	 * not kept in memory (see OpenMappedText), null otherwise.
+	 */
+	String mapped_text_path;
+	
+	/**
+	 * The mapped file the text of the document is stored in. It is not stored 
+	 * with the document, the file is mapped again from its path.
+	 */
+	transient Mapped_Text mapped_text;
+	
 	/**
 	 * The title of the document.
 	 */
@@ -117,43 +165,90 @@ public class Document extends Linguistic_Element {
 	/**
 	 * The list of sub-chapters in the document.
 	 */
-	ArrayList<Chapter> sub_chapters;
+	List<Chapter> sub_chapters;
 	
 	/**
 	 * The list of main-chapters in the document.
 	 */
-	ArrayList<Chapter> main_chapters;
+	List<Chapter> main_chapters;
 	
 	/**
-	 * A map from character offsets to tokens. This map links annotations to the 
-	 * linguistic and representational (see Conceptual Documentation) hierarchy. 
-	 * (?)
+	 * The index from character offsets to tokens. This index links annotations to 
+	 * the linguistic and representational (see Conceptual Documentation) 
+	 * hierarchy. It is not stored with the document because it can be recomputed 
+	 * from the tokens.
 	 */
-	HashMap<Integer, Integer> offset_to_token_map = new HashMap<Integer, Integer>();
+	transient Offset_Index offset_index;
 	
 	/**
-	 * Get the map from character offsets to tokens.
-	 * @return
+	 * The indices over the non-standard annotations, one for every type which was 
+	 * queried. The indices are not stored with the document because they can be 
+	 * recomputed from the annotations.
 	 */
-	public HashMap<Integer, Integer> getOffset_to_token_map() {
-		return offset_to_token_map;
+	transient HashMap<String, Interval_Index> interval_indices;
+	
+	/**
+	 * The linguistic and conceptual hierarchy of the document, see BuildHierarchy. 
+	 * It is not stored with the document because it can be recomputed from the 
+	 * elements of the document.
+	 */
+	transient Hierarchy hierarchy;
+	
+	/**
+	 * Get the index from character offsets to tokens. The index is computed if it 
+	 * has not been computed yet.
+	 * @return The index from character offsets to tokens.
+	 */
+	public Offset_Index getOffset_index() {
+		if (offset_index == null) {
+			MakeOffsetToTokenMap();
+		}
+		
+		return offset_index;
+	}
+	
+	/**
+	 * Get the index of the token the specified character offset belongs to. The 
+	 * index from offsets to tokens is computed if it has not been computed yet.
+	 * @param offset A character offset in the text of the document.
+	 * @return The index of the token the offset belongs to or -1 if the offset 
+	 * does not belong to any token.
+	 */
+	public int getTokenAtOffset(int offset) {
+		return getOffset_index().getToken(offset);
 	}
 	
 	/**
-	 * Set the map from character offsets to tokens. This method can, but should not
-	 * be used directly. The method is used by the MakeOffsetToTokenMap method which
-	 * computes the map.
-	 * @param offset_to_token_map
+	 * Get a map from character offsets to tokens. The map is computed from the 
+	 * index from offsets to tokens and contains one entry for every character of 
+	 * the text which belongs to a token, so it needs a lot of memory for long 
+	 * texts.
+	 * @return A map from character offsets to tokens.
+	 * @deprecated Use getTokenAtOffset instead.
 	 */
-	public void setOffset_to_token_map(HashMap<Integer, Integer> offset_to_token_map) {
-		this.offset_to_token_map = offset_to_token_map;
+	@Deprecated
+	public HashMap<Integer, Integer> getOffset_to_token_map() {
+		HashMap<Integer, Integer> offset_to_token_map = 
+				new HashMap<Integer, Integer>();
+		
+		Offset_Index index = getOffset_index();
+		
+		for (int i=0;i<=index.getText_length();i++) {
+			int token = index.getToken(i);
+			
+			if (token != -1) {
+				offset_to_token_map.put(i, token);
+			}
+		}
+		
+		return offset_to_token_map;
 	}
 	
 	/**
 	 * Get the list of main-chapters in the document.
 	 * @return
 	 */
-	public ArrayList<Chapter> getMain_chapters() {
+	public List<Chapter> getMain_chapters() {
 		return main_chapters;
 	}
 	
@@ -161,20 +256,21 @@ public class Document extends Linguistic_Element {
 	 * Set the list of main-chapters in the document.
 	 * @param main_chapters
 	 */
-	public void setMain_chapters(ArrayList<Chapter> main_chapters) {
+	public void setMain_chapters(List<Chapter> main_chapters) {
 		this.main_chapters = main_chapters;
+		this.hierarchy = null;
 	}
 	
 	/**
 	 * The list of pages in the document.
 	 */
-	ArrayList<Page> pages;
+	List<Page> pages;
 
 	/**
 	 * Get the list of pages in the document.
 	 * @return
 	 */
-	public ArrayList<Page> getPages() {
+	public List<Page> getPages() {
 		return pages;
 	}
 	
@@ -182,15 +278,16 @@ public class Document extends Linguistic_Element {
 	 * Set the list of pages in the document.
 	 * @param pages
 	 */
-	public void setPages(ArrayList<Page> pages) {
+	public void setPages(List<Page> pages) {
 		this.pages = pages;
+		this.hierarchy = null;
 	}
 	
 	/**
 	 * Get the list of sub-chapters in the document.
 	 * @return
 	 */
-	public ArrayList<Chapter> getSub_chapters() {
+	public List<Chapter> getSub_chapters() {
 		return sub_chapters;
 	}
 	
@@ -198,8 +295,9 @@ public class Document extends Linguistic_Element {
 	 * Set the list of sub-chapters in the document.
 	 * @param sub_chapters
 	 */
-	public void setSub_chapters(ArrayList<Chapter> sub_chapters) {
+	public void setSub_chapters(List<Chapter> sub_chapters) {
 		this.sub_chapters = sub_chapters;
+		this.hierarchy = null;
 	}
 	
 	/**
@@ -222,7 +320,7 @@ public class Document extends Linguistic_Element {
 	 * Get the map which stores the metadata associated with the document.
 	 * @return
 	 */
-	public HashMap<String, String> getMeta_data() {
+	public Map<String, String> getMeta_data() {
 		return meta_data;
 	}
 	
@@ -230,7 +328,7 @@ public class Document extends Linguistic_Element {
 	 * Set the map which stores the metadata associated with the document.
 	 * @param meta_data
 	 */
-	public void setMeta_data(HashMap<String, String> meta_data) {
+	public void setMeta_data(Map<String, String> meta_data) {
 		this.meta_data = meta_data;
 	}
 	
@@ -239,7 +337,7 @@ public class Document extends Linguistic_Element {
 	 * contained in the document.
 	 * @return
 	 */
-	public HashMap<String, ArrayList<Annotation>> getText_units() {
+	public Map<String, List<Annotation>> getText_units() {
 		return text_units;
 	}
 	
@@ -248,31 +346,177 @@ public class Document extends Linguistic_Element {
 	 * contained in the document.
 	 * @param text_units
 	 */
-	public void setText_units(HashMap<String, ArrayList<Annotation>> text_units) {
+	public void setText_units(Map<String, List<Annotation>> text_units) {
 		this.text_units = text_units;
+		this.interval_indices = null;
+	}
+	
+	/**
+	 * Add an annotation of the specified type to the non-standard annotations 
+	 * contained in the document. The list for the type is created if the document 
+	 * does not contain annotations of the type yet.
+	 * @param type The name of the type of the annotation.
+	 * @param annotation The annotation.
+	 */
+	public void addAnnotation(String type, Annotation annotation) {
+		if (annotation.getId() == -1) {
+			annotation.setId(NextAnnotationId());
+		}
+		
+		List<Annotation> annotations_of_type = text_units.get(type);
+		
+		if (annotations_of_type == null) {
+			annotations_of_type = new Interval_Index.Source_List();
+			
+			text_units.put(type, annotations_of_type);
+		}
+		
+		annotations_of_type.add(annotation);
+		
+		if (interval_indices != null) {
+			interval_indices.remove(type);
+		}
+	}
+	
+	/**
+	 * Get the index over the non-standard annotations of the specified type which 
+	 * answers which annotations overlap, contain or are contained in a span of the 
+	 * text. The index is made when it is requested for the first time and made 
+	 * again when annotations were added to, removed from or replaced in the list 
+	 * of the type or their offsets were changed since then. The list of the type 
+	 * is replaced by an Interval_Index.Source_List, which counts these changes, if 
+	 * it is another kind of list.
+	 * @param type The name of the type of the annotations.
+	 * @return The index over the annotations of the type. The index is empty if 
+	 * the document does not contain annotations of the type.
+	 */
+	public Interval_Index getInterval_index(String type) {
+		if (interval_indices == null) {
+			interval_indices = new HashMap<String, Interval_Index>();
+		}
+		
+		List<Annotation> annotations_of_type = text_units.get(type);
+		
+		if (annotations_of_type != null &&
+				!(annotations_of_type instanceof Interval_Index.Source_List)) {
+			annotations_of_type = new Interval_Index.Source_List(annotations_of_type);
+			
+			text_units.put(type, annotations_of_type);
+		}
+		
+		Interval_Index interval_index = interval_indices.get(type);
+		
+		if (interval_index == null || !interval_index.isIndexOf(
+				annotations_of_type)) {
+			interval_index = new Interval_Index(annotations_of_type);
+			
+			interval_indices.put(type, interval_index);
+		}
+		
+		return interval_index;
+	}
+	
+	/**
+	 * Throw away the indices over the non-standard annotations, so they are made 
+	 * again when they are requested the next time.
+	 */
+	public void InvalidateIntervalIndices() {
+		this.interval_indices = null;
+	}
+	
+	/**
+	 * Get all non-standard annotations of the specified type which share at least 
+	 * one offset with the span from the specified start to the specified end 
+	 * offset (both inclusive).
+	 * @param type The name of the type of the annotations.
+	 * @param start The start offset of the span.
+	 * @param end The end offset of the span.
+	 * @return The annotations overlapping the span sorted by their start offsets.
+	 */
+	public ArrayList<Annotation> getOverlappingAnnotations(String type, int start, 
+			int end) {
+		return getInterval_index(type).getOverlapping(start, end);
 	}
 	
 	/**
-	 * Get the list of tokens in the document.
+	 * Get all non-standard annotations of the specified type which lie completely 
+	 * inside the span from the specified start to the specified end offset (both 
+	 * inclusive), for example all NP annotations on a page.
+	 * @param type The name of the type of the annotations.
+	 * @param start The start offset of the span.
+	 * @param end The end offset of the span.
+	 * @return The annotations contained in the span sorted by their start offsets.
+	 */
+	public ArrayList<Annotation> getContainedAnnotations(String type, int start, 
+			int end) {
+		return getInterval_index(type).getContained(start, end);
+	}
+	
+	/**
+	 * Get all non-standard annotations of the specified type which contain the 
+	 * specified offset.
+	 * @param type The name of the type of the annotations.
+	 * @param offset A character offset in the text of the document.
+	 * @return The annotations containing the offset sorted by their start offsets.
+	 */
+	public ArrayList<Annotation> getAnnotationsAtOffset(String type, int offset) {
+		return getInterval_index(type).getAt(offset);
+	}
+	
+	/**
+	 * Get the list of tokens in the document. The tokens in the list are views of 
+	 * the tokens in the token table of the document, changing them changes the 
+	 * table.
 	 * @return
 	 */
-	public ArrayList<Token> getTokens() {
+	public List<Token> getTokens() {
+		if (tokens == null) {
+			return null;
+		}
+		
+		return tokens.asList();
+	}
+	
+	/**
+	 * Set the list of tokens in the document. The properties of the tokens are 
+	 * copied into a new token table, so later changes of the tokens in the list 
+	 * do not change the document.
+	 * @param tokens
+	 */
+	public void setTokens(List<Token> tokens) {
+		if (tokens == null) {
+			this.tokens = null;
+		} else {
+			this.tokens = new Token_Table(tokens);
+		}
+		
+		this.offset_index = null;
+		this.hierarchy = null;
+	}
+	
+	/**
+	 * Get the table storing the tokens of the document column by column.
+	 * @return
+	 */
+	public Token_Table getToken_table() {
 		return tokens;
 	}
 	
 	/**
-	 * Set the list of tokens in the document.
+	 * Set the table storing the tokens of the document column by column.
 	 * @param tokens
 	 */
-	public void setTokens(ArrayList<Token> tokens) {
+	public void setToken_table(Token_Table tokens) {
 		this.tokens = tokens;
+		this.offset_index = null;
+		this.hierarchy = null;
 	}
 	
 	/**
 	 * Get the list of sentences in the documents.
 	 * @return
 	 */
-	public ArrayList<Sentence> getSentences() {
+	public List<Sentence> getSentences() {
 		return sentences;
 	}
 	
@@ -280,24 +524,114 @@ public class Document extends Linguistic_Element {
 	 * Set the list of sentences in the document.
 	 * @param sentences
 	 */
-	public void setSentences(ArrayList<Sentence> sentences) {
+	public void setSentences(List<Sentence> sentences) {
 		this.sentences = sentences;
+		this.hierarchy = null;
 	}
 	
 	/**
-	 * Get the text of the document.
+	 * Get the text of the document. If the text is stored in a mapped file (see 
+	 * OpenMappedText), the text is copied to a string which is kept in the 
+	 * document from then on, so for large texts getText should be used instead.
 	 * @return
 	 */
 	public String getOriginal_text() {
+		if (original_text == null && mapped_text_path != null) {
+			Mapped_Text text = getMapped_text();
+			
+			if (text != null) {
+				original_text = text.toString();
+			}
+		}
+		
 		return original_text;
 	}
 	
 	/**
-	 * Set the text of the document.
+	 * Set the text of the document. The document does not use a mapped file for 
+	 * its text any more.
 	 * @param original_text
 	 */
 	public void setOriginal_text(String original_text) {
 		this.original_text = original_text;
+		this.mapped_text = null;
+		this.mapped_text_path = null;
+	}
+	
+	/**
+	 * Get the text of the document without copying it. This is the string of the 
+	 * text if the text is kept in memory and the mapped file otherwise. All start 
+	 * and end offsets of the elements of the document can be used with the 
+	 * returned text.
+	 * @return The text of the document or null if the document has no text.
+	 */
+	public CharSequence getText() {
+		if (original_text != null) {
+			return original_text;
+		}
+		
+		return getMapped_text();
+	}
+	
+	/**
+	 * Get the number of characters of the text of the document.
+	 * @return The number of characters of the text of the document.
+	 */
+	public int getText_length() {
+		CharSequence text = getText();
+		
+		return text == null ? 0 : text.length();
+	}
+	
+	/**
+	 * Get the mapped file the text of the document is stored in. The file is 
+	 * mapped again if the document was loaded from a saved object.
+	 * @return The mapped file or null if the text of the document is not stored 
+	 * in a mapped file or the file can not be mapped.
+	 */
+	public Mapped_Text getMapped_text() {
+		if (mapped_text == null && mapped_text_path != null) {
+			try {
+				mapped_text = new Mapped_Text(mapped_text_path);
+			} catch (java.io.IOException e) {
+				e.printStackTrace();
+			}
+		}
+		
+		return mapped_text;
+	}
+	
+	/**
+	 * Use the text stored in the file at the specified path (see Mapped_Text) as 
+	 * the text of the document. The file is mapped into memory, so the text is not 
+	 * read before it is accessed and does not occupy the heap.
+	 * @param path The path of a file containing the text in UTF-16.
+	 */
+	public void OpenMappedText (String path) {
+		try {
+			this.mapped_text = new Mapped_Text(path);
+			this.mapped_text_path = path;
+			this.original_text = null;
+			this.offset_index = null;
+		} catch (java.io.IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Write the text of the document to a file at the specified path and use the 
+	 * mapped file as the text of the document from then on, so the string of the 
+	 * text can be garbage collected.
+	 * @param path The path of the file.
+	 */
+	public void MapOriginalText (String path) {
+		try {
+			Mapped_Text.Write(getText(), path);
+			
+			OpenMappedText(path);
+		} catch (java.io.IOException e) {
+			e.printStackTrace();
+		}
 	}
 	
 	/**
@@ -308,23 +642,25 @@ public class Document extends Linguistic_Element {
 	public Document (String original_text) {
 
 		this.original_text = original_text;
-		this.text_units = new HashMap<String, ArrayList<Annotation>>();
-		this.instance_change_log = new ArrayList<String>();
+		this.text_units = new HashMap<String, List<Annotation>>();
+		this.change_log = new Change_Log();
+		this.next_annotation_id = new AtomicInteger();
 	}
 	
 	/**
 	 * No-arguments constructor for the document.
 	 */
 	public Document () {
-		this.text_units = new HashMap<String, ArrayList<Annotation>>();
-		this.instance_change_log = new ArrayList<String>();
+		this.text_units = new HashMap<String, List<Annotation>>();
+		this.change_log = new Change_Log();
+		this.next_annotation_id = new AtomicInteger();
 	}
 	
 	/**
 	 * Get the list of paragraphs in the document.
 	 * @return
 	 */
-	public ArrayList<Paragraph> getParagraphs() {
+	public List<Paragraph> getParagraphs() {
 		return paragraphs;
 	}
 	
@@ -332,278 +668,350 @@ public class Document extends Linguistic_Element {
 	 * Set the list of paragraphs in the document.
 	 * @param paragraphs
 	 */
-	public void setParagraphs(ArrayList<Paragraph> paragraphs) {
+	public void setParagraphs(List<Paragraph> paragraphs) {
 		this.paragraphs = paragraphs;
+		this.hierarchy = null;
 	}
 	
 	/**
 	 * Builds the linguistic and conceptual hierarchy. For example, for each 
 	 * sentence the paragraph (or paragraphs in the case of a sentence which 
-	 * overlaps more than one paragraph).
+	 * overlaps more than one paragraph). The hierarchy is stored in the document 
+	 * (see getHierarchy) and the containing elements are written to the tokens, 
+	 * sentences, paragraphs, pages and lines, and the first and last sentences to 
+	 * the chapters. The method can be called again after elements of the document 
+	 * changed, all relations are computed from scratch.
 	 */
 	public void BuildHierarchy () {
 		
-		int current_start = sentences.get(0).getStart();
-		int current_end = sentences.get(0).getEnd();
+		hierarchy = new Hierarchy(this);
 		
-		int current_index = 0;
-		
-		for (Token token: tokens) {
-			if (token.getStart() <= current_end) {
-				token.setContaining_sentence(current_index);
-			} else if (token.getStart() > current_end) {
-				
-				if (current_index+1 < sentences.size()) {
-				
-					token.setContaining_sentence(current_index+1);
-					current_start = sentences.get(current_index+1).getStart();
-					current_end = sentences.get(current_index+1).getEnd();
-				
-					current_index = current_index+1;
-				} else {
-					token.setContaining_sentence(current_index);
-				}
-			} 
+		for (int i=0;i<hierarchy.size(Hierarchy.TOKENS);i++) {
+			tokens.setSentence(i, hierarchy.getAncestor(Hierarchy.TOKENS, i, 
+					Hierarchy.SENTENCES));
 		}
 		
-		/*current_start = paragraphs.get(0).getStart();
-		current_end = paragraphs.get(0).getEnd();
-		
-		current_index = 0;
-		
-		for (Line line: lines) {
-			if (line.getStart() >= current_start && line.getStart() <= current_end) {
-				line.setContaining_paragraph(current_index);
-			} else if (line.getStart() > current_end) {
-				
-				if (current_index+1 < paragraphs.size()) {
-				
-					line.setContaining_paragraph(current_index+1);
-					current_start = paragraphs.get(current_index+1).getStart();
-					current_end = paragraphs.get(current_index+1).getEnd();
-				
-					current_index = current_index+1;
-				}
-			}
+		for (int i=0;i<hierarchy.size(Hierarchy.SENTENCES);i++) {
+			Sentence sentence = sentences.get(i);
+			
+			sentence.setContaining_paragraph(hierarchy.getAncestor(
+					Hierarchy.SENTENCES, i, Hierarchy.PARAGRAPHS));
+			sentence.setContaining_chapter(getContainingChapter(
+					Hierarchy.SENTENCES, i));
 		}
 		
-		current_start = pages.get(0).getStart();
-		current_end = pages.get(0).getEnd();
-		
-		current_index = 0;
-		
-		for (Line line: lines) {
-			if (line.getStart() >= current_start && line.getStart() <= current_end) {
-				line.setContaining_page(current_index);
-			} else if (line.getStart() > current_end) {
-				if (line.getStart() < pages.get(pages.size()-1).getEnd()) { 
-					line.setContaining_page(current_index+1);
-					current_start = pages.get(current_index+1).getStart();
-					current_end = pages.get(current_index+1).getEnd();
-				
-					current_index = current_index+1;
-				}
-			}
-		} 
-		
-		/*current_start = sub_chapters.get(0).getStart();
-		current_end = sub_chapters.get(0).getEnd();
-		
-		current_index = 0;
-		
-		for (Line line: lines) {
-			if (line.getStart() >= current_start && line.getStart() <= current_end) {
-				line.setContaining_sub_chapter(current_index);
-			} else if (line.getStart() > current_end) {
-				if (line.getStart() < sub_chapters.get(sub_chapters.size()-1).getEnd()) { 
-					line.setContaining_sub_chapter(current_index+1);
-					current_start = sub_chapters.get(current_index+1).getStart();
-					current_end = sub_chapters.get(current_index+1).getEnd();
-				
-					current_index = current_index+1;
-				}
-			}
-		} */
-		
-		/*current_start = main_chapters.get(0).getStart();
-		current_end = main_chapters.get(0).getEnd();
-		
-		current_index = 0;
-		
-		for (Line line: lines) {
-			if (line.getStart() >= current_start && line.getStart() <= current_end) {
-				line.setContaining_main_chapter(current_index);
-			} else if (line.getStart() > current_end) {
-				if (line.getStart() < main_chapters.get(main_chapters.size()-1).getEnd()) { 
-					line.setContaining_main_chapter(current_index+1);
-					current_start = main_chapters.get(current_index+1).getStart();
-					current_end = main_chapters.get(current_index+1).getEnd();
-				
-					current_index = current_index+1;
-				}
-			}
-		} */
-		
-		/*current_start = paragraphs.get(0).getStart();
-		current_end = paragraphs.get(0).getEnd();
-		
-		current_index = 0;
-		
-		for (Sentence sentence: sentences) {
-			if (sentence.getStart() >= current_start && sentence.getStart() <= current_end) {
-				sentence.setContaining_paragraph(current_index);
-			} else if (sentence.getStart() > current_end) {
-				
-				if (current_index+1 < paragraphs.size()) {
-				
-					sentence.setContaining_paragraph(current_index+1);
-					current_start = paragraphs.get(current_index+1).getStart();
-					current_end = paragraphs.get(current_index+1).getEnd();
-				
-					current_index = current_index+1;
-				}
-			}
+		for (int i=0;i<hierarchy.size(Hierarchy.PARAGRAPHS);i++) {
+			Paragraph paragraph = paragraphs.get(i);
+			
+			paragraph.setContaining_page(hierarchy.getAncestor(
+					Hierarchy.PARAGRAPHS, i, Hierarchy.PAGES));
+			paragraph.setContaining_chapter(getContainingChapter(
+					Hierarchy.PARAGRAPHS, i));
 		}
 		
-		if (!pages.isEmpty()) {
-		
-		current_start = pages.get(0).getStart();
-		current_end = pages.get(0).getEnd();
-		
-		// Check out
-		
-		current_index = 0;
-		
-		for (Paragraph paragraph: paragraphs) {
-			if (paragraph.getStart() >= current_start && paragraph.getEnd() <= current_end) {
-				paragraph.setContaining_page(current_index);
-			} else if (paragraph.getStart() > current_end) {
-				
-				if (current_index < this.getPages().size()-1) {
-				
-					paragraph.setContaining_page(current_index+1);
-					current_start = pages.get(current_index+1).getStart();
-					current_end = pages.get(current_index+1).getEnd();
-				
-					current_index = current_index+1;
-				} else {
-					paragraph.setContaining_page(-1);
-				}
-			}
-		} 
+		for (int i=0;i<hierarchy.size(Hierarchy.PAGES);i++) {
+			pages.get(i).setContaining_chapter(getContainingChapter(
+					Hierarchy.PAGES, i));
+		}
 		
+		for (int i=0;i<hierarchy.size(Hierarchy.LINES);i++) {
+			Line line = lines.get(i);
+			
+			line.setContaining_paragraph(hierarchy.getAncestor(Hierarchy.LINES, i, 
+					Hierarchy.PARAGRAPHS));
+			line.setContaining_page(hierarchy.getAncestor(Hierarchy.LINES, i, 
+					Hierarchy.PAGES));
+			line.setContaining_sub_chapter(hierarchy.getAncestor(Hierarchy.LINES, i, 
+					Hierarchy.SUB_CHAPTERS));
+			line.setContaining_main_chapter(hierarchy.getAncestor(Hierarchy.LINES, 
+					i, Hierarchy.MAIN_CHAPTERS));
 		}
 		
-		current_start = main_chapters.get(0).getStart();
-		current_end = main_chapters.get(0).getEnd();
+		SetChapterSentences(sub_chapters);
+		SetChapterSentences(main_chapters);
+	}
+	
+	/**
+	 * Get the chapter containing an element of the hierarchy. This is the 
+	 * sub-chapter containing the element if the document has sub-chapters and the 
+	 * main-chapter containing the element otherwise.
+	 * @param level The level of the element in the hierarchy.
+	 * @param index The index of the element in its level.
+	 * @return The index of the chapter or -1 if the document has no chapters.
+	 */
+	int getContainingChapter (int level, int index) {
+		int chapter = hierarchy.getAncestor(level, index, Hierarchy.SUB_CHAPTERS);
 		
-		current_index = 0;
+		if (chapter == -1) {
+			chapter = hierarchy.getAncestor(level, index, Hierarchy.MAIN_CHAPTERS);
+		}
 		
-		for (Page page: pages) {
-			if (page.getStart() >= current_start && page.getStart() <= current_end) {
-				page.setContaining_chapter(current_index);
-			} else if (page.getStart() > current_end) {
-				
-				if (current_index+1 < main_chapters.size()) {
-				
-					page.setContaining_chapter(current_index+1);
-					current_start = main_chapters.get(current_index+1).getStart();
-					current_end = main_chapters.get(current_index+1).getEnd();
-				
-					current_index = current_index+1;
-				}
-			}
-		} */
+		return chapter;
 	}
 	
 	/**
-	 * Compute the mapping from offsets to tokens which links arbitrary annotations 
-	 * to the linguistic and conceptual hierarchy.
+	 * Set the sentences containing the start and end offsets of the chapters in 
+	 * the specified list in one sweep over the chapters and the sentences.
+	 * @param chapters The chapters.
 	 */
-	public void MakeOffsetToTokenMap () {
-		offset_to_token_map = new HashMap<Integer, Integer>();
+	void SetChapterSentences (List<Chapter> chapters) {
+		if (chapters == null || chapters.isEmpty()) {
+			return;
+		}
 		
-		for (int i=0;i<tokens.get(0).getStart();i++) {
-			offset_to_token_map.put(i, 0);
+		int[] chapter_starts = new int[chapters.size()];
+		int[] chapter_ends = new int[chapters.size()];
+		
+		for (int i=0;i<chapters.size();i++) {
+			chapter_starts[i] = chapters.get(i).getStart();
+			chapter_ends[i] = chapters.get(i).getEnd();
 		}
 		
-		for (int i=0;i<tokens.size();i++) {
-			Token token = tokens.get(i);
+		int[] start_sentences = new int[chapters.size()];
+		int[] end_sentences = new int[chapters.size()];
+		
+		if (sentences == null || sentences.isEmpty()) {
+			java.util.Arrays.fill(start_sentences, -1);
+			java.util.Arrays.fill(end_sentences, -1);
+		} else {
+			int[] sentence_starts = new int[sentences.size()];
+			int[] sentence_ends = new int[sentences.size()];
 			
-			for (int j=token.getStart();j<=token.getEnd();j++) {
-				offset_to_token_map.put(new Integer(j),new Integer(i));
+			for (int i=0;i<sentences.size();i++) {
+				sentence_starts[i] = sentences.get(i).getStart();
+				sentence_ends[i] = sentences.get(i).getEnd();
 			}
-			/*if (i < tokens.size()-1) {
-				Token next_token = tokens.get(i+1);
-				for (int z=token.getEnd()+1;z<next_token.getStart();z++) {
-					offset_to_token_map.put(new Integer(z), new Integer(i));
-				}
-			} */
+			
+			Hierarchy.Assign(chapter_starts, chapter_ends, sentence_starts, 
+					sentence_ends, start_sentences, end_sentences);
 		}
 		
-		for (int i=tokens.get(tokens.size()-1).getEnd()+1;
-				i<=original_text.length();i++) {
-			offset_to_token_map.put(i, tokens.size()-1);
+		for (int i=0;i<chapters.size();i++) {
+			chapters.get(i).setStart_sentence(start_sentences[i]);
+			chapters.get(i).setEnd_sentence(end_sentences[i]);
+		}
+	}
+	
+	/**
+	 * Get the linguistic and conceptual hierarchy of the document. The hierarchy 
+	 * is built if it has not been built yet or if elements of the document were 
+	 * set since it was built.
+	 * @return The hierarchy of the document.
+	 */
+	public Hierarchy getHierarchy() {
+		if (hierarchy == null) {
+			BuildHierarchy();
 		}
 		
-		/*for (int i=tokens.get(tokens.size()-1).getEnd()+1;i<=original_text.length();i++) {
-			offset_to_token_map.put(i, tokens.size()-1);
-		} */
+		return hierarchy;
+	}
+	
+	/**
+	 * Compute the index from offsets to tokens which links arbitrary annotations 
+	 * to the linguistic and conceptual hierarchy. The index has to be recomputed 
+	 * when the tokens of the document change.
+	 */
+	public void MakeOffsetToTokenMap () {
+		offset_index = new Offset_Index(tokens.CopyStarts(), tokens.CopyEnds(), 
+				getText_length());
 	}
 	
 	/**
-	 * Save the document as one object at the specified path.
+	 * Make an immutable snapshot of the document which any number of threads can 
+	 * read without locks while the document is changed, see Frozen_Document. All 
+	 * elements of the document are copied.
+	 * @return The snapshot of the document.
+	 */
+	public Frozen_Document Freeze () {
+		return new Frozen_Document(this);
+	}
+	
+	/**
+	 * Save the document as one object at the specified path. The document is 
+	 * written in the binary format of Document_Format.
 	 * @param path
 	 */
 	public void SaveAsOneObject (String path) {
 		
 		try {
-		
-		FileOutputStream object_output_stream = new FileOutputStream(path);
-	    ObjectOutput object_output = new ObjectOutputStream(object_output_stream);
-	    object_output.writeObject(this);
-	    
-	    object_output_stream.close();
-	    object_output.close();
-				
+			
+			Document_Format.Save(this, path);
+			
 		} catch (java.io.IOException e) {
 			e.printStackTrace();
 		} 
 	}
 	
 	/**
-	 * Load the document from an object stored at the specified path.
+	 * Load the document from an object stored at the specified path. Files in the 
+	 * binary format of Document_Format and files written with Java serialization 
+	 * are recognized by their first bytes. Files written with Java serialization 
+	 * by older versions, whose classes were not Externalizable, are read with 
+	 * Legacy_Reader.
 	 * @param path
 	 */
 	public void LoadAsOneObject (String path) {
 		
 		try {
 		
+		if (Document_Format.isDocument_format(path)) {
+			CopyFrom(Document_Format.Load(path));
+			
+			return;
+		}
+		
 		FileInputStream object_in_stream = new FileInputStream(path);
-	    ObjectInputStream object_input = new ObjectInputStream(object_in_stream);
-	    Document loaded_document = (Document) object_input.readObject();
-	   
+	    ObjectInputStream object_input = new Legacy_Reader(
+	    		new java.io.BufferedInputStream(object_in_stream));
+	    Document loaded_document = Legacy_Reader.ToDocument(
+	    		object_input.readObject());
+	    
+	    CopyFrom(loaded_document);
+	    
+	    object_in_stream.close();
+	    object_input.close();
+	    
+		} catch (java.io.IOException e) {
+			e.printStackTrace();
+		} catch (java.lang.ClassNotFoundException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Replace the contents of the document with the contents of a loaded document.
+	 * @param loaded_document The loaded document.
+	 */
+	void CopyFrom (Document loaded_document) {
+	    this.change_log = loaded_document.getChange_log();
+	    this.next_annotation_id = loaded_document.next_annotation_id;
 	    this.lines = loaded_document.getLines();
 	    this.main_chapters = loaded_document.getMain_chapters();
 	    this.meta_data = loaded_document.getMeta_data();
+	    this.markup_sentences = loaded_document.markup_sentences;
 	    this.note_history = loaded_document.getNote_history();
-	    this.offset_to_token_map = loaded_document.getOffset_to_token_map();
-	    this.original_text = loaded_document.getOriginal_text();
+	    this.start = loaded_document.getStart();
+	    this.end = loaded_document.getEnd();
+	    this.offset_index = loaded_document.offset_index;
+	    this.hierarchy = null;
+	    this.original_text = loaded_document.original_text;
+	    this.mapped_text_path = loaded_document.mapped_text_path;
+	    this.mapped_text = null;
 	    this.pages = loaded_document.getPages();
 	    this.paragraphs = loaded_document.getParagraphs();
 	    this.sentences = loaded_document.getSentences();
 	    this.sub_chapters = loaded_document.getSub_chapters();
 	    this.text_units = loaded_document.getText_units();
+	    this.interval_indices = null;
 	    this.title = loaded_document.getTitle();
-	    this.tokens = loaded_document.getTokens();
-	    
-	    object_in_stream.close();
-	    object_input.close();
-	    
-		} catch (java.io.IOException e) {
-			e.printStackTrace();
-		} catch (java.lang.ClassNotFoundException e) {
-			e.printStackTrace();
+	    this.tokens = loaded_document.getToken_table();
+	}
+	
+	/**
+	 * Write the document to a stream. The layers and the annotations are written 
+	 * as columns (see Element_Columns), the tokens as the columns of the table of 
+	 * tokens. The indices and the hierarchy are not written because they can be 
+	 * recomputed.
+	 * @param output The stream the document is written to.
+	 */
+	public void writeExternal (ObjectOutput output) throws java.io.IOException {
+		super.writeExternal(output);
+		
+		output.writeObject(title);
+		output.writeObject(original_text);
+		output.writeObject(mapped_text_path);
+		
+		if (meta_data == null) {
+			output.writeObject(null);
+		} else {
+			output.writeObject(new HashMap<String, String>(meta_data));
+		}
+		
+		output.writeObject(tokens);
+		
+		Element_Columns.Write(output, sentences);
+		Element_Columns.Write(output, paragraphs);
+		Element_Columns.Write(output, pages);
+		Element_Columns.Write(output, sub_chapters);
+		Element_Columns.Write(output, main_chapters);
+		Element_Columns.Write(output, lines);
+		
+		if (text_units == null) {
+			output.writeInt(-1);
+		} else {
+			output.writeInt(text_units.size());
+			
+			for (String type: text_units.keySet()) {
+				output.writeObject(type);
+				Element_Columns.Write(output, text_units.get(type));
+			}
+		}
+		
+		output.writeObject(change_log);
+		output.writeInt(next_annotation_id.get());
+		
+		if (markup_sentences == null) {
+			output.writeInt(-1);
+		} else {
+			output.writeInt(markup_sentences.size());
+			
+			for (int sentence: markup_sentences) {
+				output.writeInt(sentence);
+			}
+		}
+	}
+	
+	/**
+	 * Read the document from a stream written by writeExternal.
+	 * @param input The stream the document is read from.
+	 */
+	@SuppressWarnings("unchecked")
+	public void readExternal (ObjectInput input) throws java.io.IOException, 
+			ClassNotFoundException {
+		super.readExternal(input);
+		
+		this.title = (String) input.readObject();
+		this.original_text = (String) input.readObject();
+		this.mapped_text_path = (String) input.readObject();
+		this.meta_data = (Map<String, String>) input.readObject();
+		this.tokens = (Token_Table) input.readObject();
+		
+		this.sentences = Element_Columns.Read(input);
+		this.paragraphs = Element_Columns.Read(input);
+		this.pages = Element_Columns.Read(input);
+		this.sub_chapters = Element_Columns.Read(input);
+		this.main_chapters = Element_Columns.Read(input);
+		this.lines = Element_Columns.Read(input);
+		
+		int type_count = input.readInt();
+		
+		if (type_count == -1) {
+			this.text_units = null;
+		} else {
+			this.text_units = new HashMap<String, List<Annotation>>();
+			
+			for (int i=0;i<type_count;i++) {
+				String type = (String) input.readObject();
+				
+				List<Annotation> annotations = Element_Columns.Read(input);
+				
+				text_units.put(type, annotations);
+			}
+		}
+		
+		this.change_log = (Change_Log) input.readObject();
+		this.next_annotation_id = new AtomicInteger(input.readInt());
+		
+		int markup_count = input.readInt();
+		
+		if (markup_count == -1) {
+			this.markup_sentences = null;
+		} else {
+			this.markup_sentences = new HashSet<Integer>();
+			
+			for (int i=0;i<markup_count;i++) {
+				markup_sentences.add(input.readInt());
+			}
 		}
 	}
-}
\ No newline at end of file
+}
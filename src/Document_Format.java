@@ -0,0 +1,1465 @@
+package teanlis;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class writes documents to and reads documents from a binary file format
+ * which is made for documents, instead of Java serialization of the whole object
+ * graph. The file starts with a header which contains the magic number MAGIC, the
+ * version of the format and a table with the offset and length of every section
+ * of the file. All numbers are stored big endian, strings are stored once in the
+ * section of strings and referred to by their position in that section (-1 for
+ * null). The sections are:
+ * 
+ * 1. SECTION_STRINGS: the number of strings, the offsets of the strings in the
+ * characters (one more than there are strings) and the characters in UTF-16.
+ * 
+ * 2. SECTION_META: the title, the path of a mapped text, the start and end
+ * offset and the next annotation id of the document and its metadata.
+ * 
+ * 3. SECTION_TEXT: the length of the text and its characters in UTF-16.
+ * 
+ * 4. SECTION_TOKENS and one section for every layer of the hierarchy (see
+ * LayerSection): the number of elements, the number of columns and the columns
+ * of the elements, starting with the start and end offsets. The dictionary
+ * encoded columns of the tokens contain positions of strings.
+ * 
+ * 5. SECTION_ANNOTATIONS: the number of types, a table with the name, the number
+ * of annotations and the offset of the block of every type, and the blocks. A
+ * block contains the columns of the annotations of a type and the positions of
+ * the annotations sorted by their start offsets.
+ * 
+ * 6. SECTION_CHANGE_LOG: the records of the change log, see Change_Log.
+ * 
+ * 7. SECTION_NOTES: the entries of the note histories of all elements.
+ * 
+ * 8. SECTION_BLOCK_TOKENS: the columns of the tokens compressed in blocks (see
+ * Block_Columns), instead of SECTION_TOKENS if the document was written with
+ * compressed tokens. Offsets, sentences and ids are stored as differences,
+ * governors as small numbers and the positions of strings are deflated, which
+ * makes the columns of the tokens several times smaller, and a range of tokens
+ * can still be read without reading the other tokens.
+ * 
+ * The sections are written and read through NIO channels. Every section is
+ * stored in one piece with fixed-width columns, so a section can be mapped into
+ * memory and its columns read as IntBuffers (see Mapped_Document). Nothing which
+ * can be computed from the elements, like the index from offsets to tokens, is
+ * stored; it is computed again when the document is loaded. A layer which is null
+ * in the document has no section and is null again after loading.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Document_Format {
+	
+	/**
+	 * The magic number at the start of every file of the format ("TNLD").
+	 */
+	public static final int MAGIC = 0x544E4C44;
+	
+	/**
+	 * The version of the format which is written. Files of newer versions are
+	 * rejected when they are read. Version 2 added SECTION_BLOCK_TOKENS.
+	 */
+	public static final int VERSION = 2;
+	
+	public static final int SECTION_STRINGS = 0;
+	public static final int SECTION_META = 1;
+	public static final int SECTION_TEXT = 2;
+	public static final int SECTION_TOKENS = 3;
+	public static final int SECTION_ANNOTATIONS = 10;
+	public static final int SECTION_CHANGE_LOG = 11;
+	public static final int SECTION_NOTES = 12;
+	public static final int SECTION_BLOCK_TOKENS = 13;
+	
+	/**
+	 * The number of sections in the table of the header.
+	 */
+	public static final int SECTION_COUNT = 14;
+	
+	/**
+	 * The size of the header in bytes: magic number, version, number of sections
+	 * and offset and length of every section.
+	 */
+	static final int HEADER_SIZE = 12+16*SECTION_COUNT;
+	
+	/**
+	 * The layer of the note history entries of the document itself in the section
+	 * of notes. The entries of tokens and the layers of the hierarchy have the
+	 * level of the layer (see Hierarchy), the entries of annotations have
+	 * ANNOTATION_NOTES plus the position of their type in the section of
+	 * annotations.
+	 */
+	static final int DOCUMENT_NOTES = -1;
+	
+	/**
+	 * The first layer of note history entries of annotations.
+	 */
+	static final int ANNOTATION_NOTES = Hierarchy.LEVEL_COUNT;
+	
+	/**
+	 * The number of columns of the blocks of the section of annotations which
+	 * contain ints: ids, starts, ends, types, sub-types, colors, notes, flags and
+	 * the positions sorted by start offset. The probabilities follow as longs.
+	 */
+	static final int ANNOTATION_INT_COLUMNS = 9;
+	
+	/**
+	 * The bit of the flags column of annotations for unchecked.
+	 */
+	static final int FLAG_UNCHECKED = 1;
+	
+	/**
+	 * The bit of the flags column of annotations for unchanged.
+	 */
+	static final int FLAG_UNCHANGED = 2;
+	
+	/**
+	 * Get the section of a layer of the hierarchy.
+	 * @param level The level of the layer, see Hierarchy.
+	 * @return The section of the layer.
+	 */
+	public static int LayerSection (int level) {
+		return SECTION_TOKENS+level;
+	}
+	
+	/**
+	 * Check whether the file at the specified path starts with the magic number of
+	 * the format.
+	 * @param path The path of the file.
+	 * @return True if the file is a file of the format.
+	 */
+	public static boolean isDocument_format (String path) {
+		try {
+			FileInputStream input = new FileInputStream(path);
+			
+			try {
+				ByteBuffer magic = ByteBuffer.allocate(4);
+				
+				while (magic.hasRemaining() && input.getChannel().read(magic) != -1) {
+				}
+				
+				return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+			} finally {
+				input.close();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Write a document to a file at the specified path.
+	 * @param document The document.
+	 * @param path The path of the file.
+	 * @throws IOException If the file can not be written.
+	 */
+	public static void Save (Document document, String path) throws IOException {
+		Save(document, path, false);
+	}
+	
+	/**
+	 * Write a document to a file at the specified path.
+	 * @param document The document.
+	 * @param path The path of the file.
+	 * @param compressed Whether the columns of the tokens are compressed in blocks 
+	 * (see SECTION_BLOCK_TOKENS).
+	 * @throws IOException If the file can not be written.
+	 */
+	public static void Save (Document document, String path, boolean compressed) 
+			throws IOException {
+		FileOutputStream output = new FileOutputStream(path);
+		
+		try {
+			Write(document, output.getChannel(), 0, compressed);
+		} finally {
+			output.close();
+		}
+	}
+	
+	/**
+	 * Write a document to a channel starting at the specified position, for 
+	 * example at the end of a Corpus_Archive. The offsets of the sections in the 
+	 * header are relative to that position.
+	 * @param document The document.
+	 * @param channel The channel.
+	 * @param base The position of the header in the channel.
+	 * @param compressed Whether the columns of the tokens are compressed in blocks.
+	 * @return The position after the last byte of the document.
+	 * @throws IOException If the document can not be written.
+	 */
+	static long Write (Document document, FileChannel channel, long base,
+			boolean compressed) throws IOException {
+		Channel_Writer writer = new Channel_Writer(channel, base+HEADER_SIZE);
+		Dictionary strings = new Dictionary();
+		
+		long[] offsets = new long[SECTION_COUNT];
+		long[] lengths = new long[SECTION_COUNT];
+		
+		Arrays.fill(offsets, -1);
+		
+		offsets[SECTION_META] = writer.position();
+		WriteMeta(writer, document, strings);
+		lengths[SECTION_META] = writer.position()-offsets[SECTION_META];
+		
+		if (document.getText() != null) {
+			offsets[SECTION_TEXT] = writer.position();
+			WriteText(writer, document.getText());
+			lengths[SECTION_TEXT] = writer.position()-offsets[SECTION_TEXT];
+		}
+		
+		if (document.getToken_table() != null) {
+			int section = compressed ? SECTION_BLOCK_TOKENS : SECTION_TOKENS;
+			
+			offsets[section] = writer.position();
+			
+			if (compressed) {
+				WriteBlockTokens(writer, document.getToken_table(), strings);
+			} else {
+				WriteTokens(writer, document.getToken_table(), strings);
+			}
+			
+			lengths[section] = writer.position()-offsets[section];
+		}
+		
+		for (int level=Hierarchy.SENTENCES;level<Hierarchy.LEVEL_COUNT;level++) {
+			List<? extends Linguistic_Element> elements = getLayer(document, level);
+			
+			if (elements != null) {
+				int section = LayerSection(level);
+				
+				offsets[section] = writer.position();
+				WriteLayer(writer, elements, level, strings);
+				lengths[section] = writer.position()-offsets[section];
+			}
+		}
+		
+		ArrayList<String> types = new ArrayList<String>();
+		
+		if (document.getText_units() != null) {
+			types.addAll(document.getText_units().keySet());
+			
+			offsets[SECTION_ANNOTATIONS] = writer.position();
+			WriteAnnotations(writer, document.getText_units(), types, strings);
+			lengths[SECTION_ANNOTATIONS] = writer.position()-
+					offsets[SECTION_ANNOTATIONS];
+		}
+		
+		if (document.getChange_log() != null) {
+			offsets[SECTION_CHANGE_LOG] = writer.position();
+			WriteChangeLog(writer, document.getChange_log(), strings);
+			lengths[SECTION_CHANGE_LOG] = writer.position()-
+					offsets[SECTION_CHANGE_LOG];
+		}
+		
+		offsets[SECTION_NOTES] = writer.position();
+		WriteNotes(writer, document, types, strings);
+		lengths[SECTION_NOTES] = writer.position()-offsets[SECTION_NOTES];
+		
+		offsets[SECTION_STRINGS] = writer.position();
+		WriteStrings(writer, strings);
+		lengths[SECTION_STRINGS] = writer.position()-offsets[SECTION_STRINGS];
+		
+		writer.Flush();
+		
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		
+		header.putInt(MAGIC);
+		header.putInt(VERSION);
+		header.putInt(SECTION_COUNT);
+		
+		for (int i=0;i<SECTION_COUNT;i++) {
+			header.putLong(offsets[i] == -1 ? -1 : offsets[i]-base);
+			header.putLong(lengths[i]);
+		}
+		
+		header.flip();
+		
+		long position = base;
+		
+		while (header.hasRemaining()) {
+			position = position+channel.write(header, position);
+		}
+		
+		return writer.position();
+	}
+	
+	/**
+	 * Read a document from a file at the specified path. The index from offsets to
+	 * tokens is computed after the document was read.
+	 * @param path The path of the file.
+	 * @return The document.
+	 * @throws IOException If the file can not be read or is not a file of the
+	 * format.
+	 */
+	public static Document Load (String path) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(path, "r");
+		
+		try {
+			return Load(file.getChannel(), 0);
+		} finally {
+			file.close();
+		}
+	}
+	
+	/**
+	 * Read a document which starts at the specified position of a channel. The 
+	 * channel is only read with positional reads and maps, so several threads 
+	 * can read documents from the same channel at once.
+	 * @param channel The channel.
+	 * @param base The position of the header of the document in the channel.
+	 * @return The document.
+	 * @throws IOException If the document can not be read.
+	 */
+	static Document Load (FileChannel channel, long base) throws IOException {
+		long[][] sections = ReadHeader(channel, base);
+		
+		String[] strings = ReadStrings(MapSection(channel, sections,
+				SECTION_STRINGS));
+		
+		Document document = new Document();
+		
+		ReadMeta(MapSection(channel, sections, SECTION_META), document, strings);
+		
+		ByteBuffer text = MapSection(channel, sections, SECTION_TEXT);
+		
+		if (text != null) {
+			char[] characters = new char[text.getInt(0)];
+			
+			text.position(4);
+			text.asCharBuffer().get(characters);
+			
+			document.original_text = new String(characters);
+		}
+		
+		ByteBuffer tokens = MapSection(channel, sections, SECTION_TOKENS);
+		
+		if (tokens != null) {
+			document.tokens = ReadTokens(tokens, strings);
+		}
+		
+		ByteBuffer block_tokens = MapSection(channel, sections, SECTION_BLOCK_TOKENS);
+		
+		if (block_tokens != null) {
+			Block_Columns columns = new Block_Columns(block_tokens);
+			
+			document.tokens = ReadTokenRange(columns, strings, 0, columns.size());
+		}
+		
+		document.sentences = ReadLayer(MapSection(channel, sections,
+				LayerSection(Hierarchy.SENTENCES)), new ArrayList<Sentence>(),
+				Hierarchy.SENTENCES, strings);
+		document.paragraphs = ReadLayer(MapSection(channel, sections,
+				LayerSection(Hierarchy.PARAGRAPHS)), new ArrayList<Paragraph>(),
+				Hierarchy.PARAGRAPHS, strings);
+		document.pages = ReadLayer(MapSection(channel, sections,
+				LayerSection(Hierarchy.PAGES)), new ArrayList<Page>(),
+				Hierarchy.PAGES, strings);
+		document.sub_chapters = ReadLayer(MapSection(channel, sections,
+				LayerSection(Hierarchy.SUB_CHAPTERS)), new ArrayList<Chapter>(),
+				Hierarchy.SUB_CHAPTERS, strings);
+		document.main_chapters = ReadLayer(MapSection(channel, sections,
+				LayerSection(Hierarchy.MAIN_CHAPTERS)), new ArrayList<Chapter>(),
+				Hierarchy.MAIN_CHAPTERS, strings);
+		document.lines = ReadLayer(MapSection(channel, sections,
+				LayerSection(Hierarchy.LINES)), new ArrayList<Line>(),
+				Hierarchy.LINES, strings);
+		
+		ArrayList<String> types = new ArrayList<String>();
+		
+		ByteBuffer annotations = MapSection(channel, sections,
+				SECTION_ANNOTATIONS);
+		
+		if (annotations != null) {
+			document.text_units = ReadAnnotations(annotations, types, strings);
+		}
+		
+		ByteBuffer change_log = MapSection(channel, sections, SECTION_CHANGE_LOG);
+		
+		if (change_log != null) {
+			document.change_log = ReadChangeLog(change_log, strings);
+		}
+		
+		ReadNotes(MapSection(channel, sections, SECTION_NOTES), document, types,
+				strings);
+		
+		if (document.tokens != null) {
+			document.MakeOffsetToTokenMap();
+		}
+		
+		return document;
+	}
+	
+	/**
+	 * Read the header of a file of the format and check the magic number and the
+	 * version.
+	 * @param channel The channel of the file.
+	 * @param base The position of the header in the channel.
+	 * @return The positions in the channel (first array) and lengths (second array) of the
+	 * sections, -1 for sections which are not contained in the file.
+	 * @throws IOException If the file is not a file of the format.
+	 */
+	static long[][] ReadHeader (FileChannel channel, long base) 
+			throws IOException {
+		ByteBuffer start = ByteBuffer.allocate(12);
+		
+		ReadFully(channel, start, base);
+		
+		if (start.getInt(0) != MAGIC) {
+			throw new IOException("The file is not a TEANLIS document file.");
+		}
+		
+		if (start.getInt(4) > VERSION) {
+			throw new IOException("The version " + start.getInt(4) + " of the "
+					+ "document file is not supported.");
+		}
+		
+		int section_count = start.getInt(8);
+		
+		ByteBuffer table = ByteBuffer.allocate(16*section_count);
+		
+		ReadFully(channel, table, base+12);
+		
+		long[][] sections = new long[2][SECTION_COUNT];
+		
+		Arrays.fill(sections[0], -1);
+		
+		for (int i=0;i<Math.min(section_count, SECTION_COUNT);i++) {
+			sections[0][i] = table.getLong(16*i) == -1 ? -1 : 
+					base+table.getLong(16*i);
+			sections[1][i] = table.getLong(16*i+8);
+		}
+		
+		return sections;
+	}
+	
+	/**
+	 * Map a section of a file of the format into memory.
+	 * @param channel The channel of the file.
+	 * @param sections The offsets and lengths of the sections, see ReadHeader.
+	 * @param section The section.
+	 * @return The mapped section or null if the file does not contain the
+	 * section.
+	 * @throws IOException If the section can not be mapped.
+	 */
+	static ByteBuffer MapSection (FileChannel channel, long[][] sections,
+			int section) throws IOException {
+		if (sections[0][section] == -1) {
+			return null;
+		}
+		
+		return channel.map(FileChannel.MapMode.READ_ONLY, sections[0][section],
+				sections[1][section]);
+	}
+	
+	/**
+	 * Read bytes from a channel until the buffer is full.
+	 * @param channel The channel.
+	 * @param buffer The buffer.
+	 * @param position The position in the channel the bytes are read from.
+	 * @throws IOException If the channel ends before the buffer is full.
+	 */
+	static void ReadFully (FileChannel channel, ByteBuffer buffer, long position)
+			throws IOException {
+		while (buffer.hasRemaining()) {
+			int count = channel.read(buffer, position);
+			
+			if (count == -1) {
+				throw new IOException("Unexpected end of the document file.");
+			}
+			
+			position = position+count;
+		}
+	}
+	
+	/**
+	 * Write the metadata of a document.
+	 */
+	static void WriteMeta (Channel_Writer writer, Document document,
+			Dictionary strings) throws IOException {
+		writer.putInt(strings.Encode(document.getTitle()));
+		writer.putInt(strings.Encode(document.mapped_text_path));
+		writer.putInt(document.getStart());
+		writer.putInt(document.getEnd());
+		writer.putInt(document.next_annotation_id == null ? 0 :
+				document.next_annotation_id.get());
+		
+		Map<String, String> meta_data = document.getMeta_data();
+		
+		if (meta_data == null) {
+			writer.putInt(-1);
+		} else {
+			writer.putInt(meta_data.size());
+			
+			for (String name: meta_data.keySet()) {
+				writer.putInt(strings.Encode(name));
+				writer.putInt(strings.Encode(meta_data.get(name)));
+			}
+		}
+	}
+	
+	/**
+	 * Read the metadata of a document.
+	 */
+	static void ReadMeta (ByteBuffer section, Document document, String[] strings) {
+		document.title = Decode(strings, section.getInt());
+		document.mapped_text_path = Decode(strings, section.getInt());
+		document.start = section.getInt();
+		document.end = section.getInt();
+		document.next_annotation_id.set(section.getInt());
+		
+		int meta_data_size = section.getInt();
+		
+		if (meta_data_size != -1) {
+			document.meta_data = new HashMap<String, String>();
+			
+			for (int i=0;i<meta_data_size;i++) {
+				String name = Decode(strings, section.getInt());
+				
+				document.meta_data.put(name, Decode(strings, section.getInt()));
+			}
+		}
+	}
+	
+	/**
+	 * Write the text of a document.
+	 */
+	static void WriteText (Channel_Writer writer, CharSequence text)
+			throws IOException {
+		writer.putInt(text.length());
+		
+		for (int i=0;i<text.length();i++) {
+			writer.putChar(text.charAt(i));
+		}
+	}
+	
+	/**
+	 * Write the columns of the tokens of a document.
+	 */
+	static void WriteTokens (Channel_Writer writer, Token_Table tokens,
+			Dictionary strings) throws IOException {
+		int size = tokens.size();
+		
+		writer.putInt(size);
+		writer.putInt(9);
+		
+		writer.putInts(tokens.starts, size);
+		writer.putInts(tokens.ends, size);
+		writer.putInts(tokens.governors, size);
+		writer.putInts(tokens.sentences, size);
+		writer.putInts(tokens.ids, size);
+		
+		int[][] columns = {tokens.lemmas, tokens.pos_tags, tokens.functions,
+				tokens.dependencies};
+		
+		for (int[] column: columns) {
+			for (int i=0;i<size;i++) {
+				writer.putInt(strings.Encode(tokens.Decode(column[i])));
+			}
+		}
+	}
+	
+	/**
+	 * Write the columns of the tokens of a document compressed in blocks, in the
+	 * same order as WriteTokens.
+	 */
+	static void WriteBlockTokens (Channel_Writer writer, Token_Table tokens,
+			Dictionary strings) throws IOException {
+		int size = tokens.size();
+		
+		int[][] columns = {tokens.starts, tokens.ends, tokens.governors,
+				tokens.sentences, tokens.ids, new int[size], new int[size],
+				new int[size], new int[size]};
+		
+		int[][] symbol_columns = {tokens.lemmas, tokens.pos_tags, tokens.functions,
+				tokens.dependencies};
+		
+		for (int i=0;i<symbol_columns.length;i++) {
+			for (int j=0;j<size;j++) {
+				columns[5+i][j] = strings.Encode(tokens.Decode(symbol_columns[i][j]));
+			}
+		}
+		
+		int[] kinds = {Block_Columns.KIND_DELTAS, Block_Columns.KIND_DELTAS,
+				Block_Columns.KIND_VALUES, Block_Columns.KIND_DELTAS,
+				Block_Columns.KIND_DELTAS, Block_Columns.KIND_DEFLATED,
+				Block_Columns.KIND_DEFLATED, Block_Columns.KIND_DEFLATED,
+				Block_Columns.KIND_DEFLATED};
+		
+		Block_Columns.Write(writer, columns, kinds, size);
+	}
+	
+	/**
+	 * Read the columns of a range of the tokens of a document which are 
+	 * compressed in blocks into a new table. Only the blocks containing the range
+	 * are decoded.
+	 * @param columns The compressed columns of the tokens.
+	 * @param strings The strings of the file.
+	 * @param first The index of the first token which is read.
+	 * @param end The index after the last token which is read.
+	 * @return A table containing the tokens of the range.
+	 */
+	static Token_Table ReadTokenRange (Block_Columns columns, String[] strings,
+			int first, int end) {
+		int count = end-first;
+		
+		Token_Table tokens = new Token_Table(count);
+		
+		int[][] targets = {tokens.starts, tokens.ends, tokens.governors, 
+				tokens.sentences, tokens.ids, tokens.lemmas, tokens.pos_tags,
+				tokens.functions, tokens.dependencies};
+		
+		for (int i=0;i<targets.length;i++) {
+			columns.Read(i, first, end, targets[i], 0);
+		}
+		
+		int[] codes = new int[strings.length+1];
+		
+		Arrays.fill(codes, -2);
+		
+		for (int i=5;i<targets.length;i++) {
+			for (int j=0;j<count;j++) {
+				int position = targets[i][j]+1;
+				
+				if (codes[position] == -2) {
+					codes[position] = tokens.Encode(Decode(strings, targets[i][j]));
+				}
+				
+				targets[i][j] = codes[position];
+			}
+		}
+		
+		tokens.size = count;
+		
+		return tokens;
+	}
+	
+	/**
+	 * Read the columns of the tokens of a document.
+	 */
+	static Token_Table ReadTokens (ByteBuffer section, String[] strings) {
+		return ReadTokenRange(section, strings, 0, section.getInt(0));
+	}
+	
+	/**
+	 * Read the columns of a range of the tokens of a document into a new table.
+	 * @param section The section of the tokens.
+	 * @param strings The strings of the file.
+	 * @param first The index of the first token which is read.
+	 * @param end The index after the last token which is read.
+	 * @return A table containing the tokens of the range.
+	 */
+	static Token_Table ReadTokenRange (ByteBuffer section, String[] strings,
+			int first, int end) {
+		int size = section.getInt(0);
+		int count = end-first;
+		
+		Token_Table tokens = new Token_Table(count);
+		
+		int[][] columns = {tokens.starts, tokens.ends, tokens.governors, 
+				tokens.sentences, tokens.ids};
+		
+		for (int i=0;i<columns.length;i++) {
+			IntBuffer column = ((ByteBuffer) section.duplicate().position(8+
+					4*(i*size+first))).asIntBuffer();
+			
+			column.get(columns[i], 0, count);
+		}
+		
+		int[][] symbol_columns = {tokens.lemmas, tokens.pos_tags, tokens.functions,
+				tokens.dependencies};
+		
+		for (int i=0;i<symbol_columns.length;i++) {
+			int column_offset = 8+4*((columns.length+i)*size+first);
+			
+			for (int j=0;j<count;j++) {
+				symbol_columns[i][j] = tokens.Encode(Decode(strings, section.getInt(
+						column_offset+4*j)));
+			}
+		}
+		
+		tokens.size = count;
+		
+		return tokens;
+	}
+	
+	/**
+	 * Get the number of columns of the elements of a layer besides the start and
+	 * end offsets.
+	 * @param level The level of the layer, see Hierarchy.
+	 * @return The number of additional columns.
+	 */
+	static int getExtra_columns (int level) {
+		switch (level) {
+		case Hierarchy.SUB_CHAPTERS:
+		case Hierarchy.MAIN_CHAPTERS:
+			return 3;
+		case Hierarchy.LINES:
+			return 4;
+		default:
+			return 2;
+		}
+	}
+	
+	/**
+	 * Write the columns of the elements of a layer.
+	 */
+	static void WriteLayer (Channel_Writer writer,
+			List<? extends Linguistic_Element> elements, int level,
+			Dictionary strings) throws IOException {
+		int extra_columns = getExtra_columns(level);
+		
+		writer.putInt(elements.size());
+		writer.putInt(2+extra_columns);
+		
+		for (Linguistic_Element element: elements) {
+			writer.putInt(element.getStart());
+		}
+		
+		for (Linguistic_Element element: elements) {
+			writer.putInt(element.getEnd());
+		}
+		
+		for (int column=0;column<extra_columns;column++) {
+			for (Linguistic_Element element: elements) {
+				writer.putInt(getExtra_column(element, level, column, strings));
+			}
+		}
+	}
+	
+	/**
+	 * Read the columns of the elements of a layer.
+	 * @param section The section of the layer or null.
+	 * @param elements The empty list the elements are added to.
+	 * @param level The level of the layer, see Hierarchy.
+	 * @param strings The strings of the file.
+	 * @return The list of elements or null if the section is null.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T extends Linguistic_Element> List<T> ReadLayer (ByteBuffer section,
+			ArrayList<T> elements, int level, String[] strings) {
+		if (section == null) {
+			return null;
+		}
+		
+		int size = section.getInt(0);
+		int column_count = section.getInt(4);
+		
+		IntBuffer columns = ((ByteBuffer) section.position(8)).asIntBuffer();
+		
+		elements.ensureCapacity(size);
+		
+		for (int i=0;i<size;i++) {
+			T element = (T) NewElement(level);
+			
+			element.start = columns.get(i);
+			element.end = columns.get(size+i);
+			
+			for (int column=0;column<column_count-2;column++) {
+				setExtra_column(element, level, column, columns.get((2+column)*size+i),
+						strings);
+			}
+			
+			elements.add(element);
+		}
+		
+		return elements;
+	}
+	
+	/**
+	 * Make a new element of a layer.
+	 * @param level The level of the layer, see Hierarchy.
+	 * @return The new element.
+	 */
+	static Linguistic_Element NewElement (int level) {
+		switch (level) {
+		case Hierarchy.SENTENCES:
+			return new Sentence();
+		case Hierarchy.PARAGRAPHS:
+			return new Paragraph();
+		case Hierarchy.PAGES:
+			return new Page();
+		case Hierarchy.LINES:
+			return new Line();
+		default:
+			return new Chapter();
+		}
+	}
+	
+	/**
+	 * Get the value of an additional column of an element of a layer.
+	 */
+	static int getExtra_column (Linguistic_Element element, int level, int column,
+			Dictionary strings) {
+		switch (level) {
+		case Hierarchy.SENTENCES:
+			Sentence sentence = (Sentence) element;
+			return column == 0 ? sentence.getContaining_paragraph() :
+					sentence.getContaining_chapter();
+		case Hierarchy.PARAGRAPHS:
+			Paragraph paragraph = (Paragraph) element;
+			return column == 0 ? paragraph.getContaining_page() :
+					paragraph.getContaining_chapter();
+		case Hierarchy.PAGES:
+			Page page = (Page) element;
+			return column == 0 ? page.getNumber() : page.getContaining_chapter();
+		case Hierarchy.LINES:
+			Line line = (Line) element;
+			
+			switch (column) {
+			case 0:
+				return line.getContaining_paragraph();
+			case 1:
+				return line.getContaining_page();
+			case 2:
+				return line.getContaining_sub_chapter();
+			default:
+				return line.getContaining_main_chapter();
+			}
+		default:
+			Chapter chapter = (Chapter) element;
+			
+			switch (column) {
+			case 0:
+				return chapter.getStart_sentence();
+			case 1:
+				return chapter.getEnd_sentence();
+			default:
+				return strings.Encode(chapter.getTitle());
+			}
+		}
+	}
+	
+	/**
+	 * Set the value of an additional column of an element of a layer.
+	 */
+	static void setExtra_column (Linguistic_Element element, int level, int column,
+			int value, String[] strings) {
+		switch (level) {
+		case Hierarchy.SENTENCES:
+			Sentence sentence = (Sentence) element;
+			
+			if (column == 0) {
+				sentence.setContaining_paragraph(value);
+			} else {
+				sentence.setContaining_chapter(value);
+			}
+			break;
+		case Hierarchy.PARAGRAPHS:
+			Paragraph paragraph = (Paragraph) element;
+			
+			if (column == 0) {
+				paragraph.setContaining_page(value);
+			} else {
+				paragraph.setContaining_chapter(value);
+			}
+			break;
+		case Hierarchy.PAGES:
+			Page page = (Page) element;
+			
+			if (column == 0) {
+				page.setNumber(value);
+			} else {
+				page.setContaining_chapter(value);
+			}
+			break;
+		case Hierarchy.LINES:
+			Line line = (Line) element;
+			
+			switch (column) {
+			case 0:
+				line.setContaining_paragraph(value);
+				break;
+			case 1:
+				line.setContaining_page(value);
+				break;
+			case 2:
+				line.setContaining_sub_chapter(value);
+				break;
+			default:
+				line.setContaining_main_chapter(value);
+			}
+			break;
+		default:
+			Chapter chapter = (Chapter) element;
+			
+			switch (column) {
+			case 0:
+				chapter.setStart_sentence(value);
+				break;
+			case 1:
+				chapter.setEnd_sentence(value);
+				break;
+			default:
+				chapter.setTitle(Decode(strings, value));
+			}
+		}
+	}
+	
+	/**
+	 * Get a layer of the hierarchy of a document.
+	 * @param document The document.
+	 * @param level The level of the layer, see Hierarchy.
+	 * @return The elements of the layer.
+	 */
+	static List<? extends Linguistic_Element> getLayer (Document document,
+			int level) {
+		switch (level) {
+		case Hierarchy.SENTENCES:
+			return document.getSentences();
+		case Hierarchy.PARAGRAPHS:
+			return document.getParagraphs();
+		case Hierarchy.PAGES:
+			return document.getPages();
+		case Hierarchy.SUB_CHAPTERS:
+			return document.getSub_chapters();
+		case Hierarchy.MAIN_CHAPTERS:
+			return document.getMain_chapters();
+		case Hierarchy.LINES:
+			return document.getLines();
+		default:
+			return null;
+		}
+	}
+	
+	/**
+	 * Write the non-standard annotations of a document. The block of every type
+	 * is written at the offset stored in the table of types, relative to the start
+	 * of the section.
+	 */
+	static void WriteAnnotations (Channel_Writer writer,
+			Map<String, List<Annotation>> text_units, List<String> types,
+			Dictionary strings) throws IOException {
+		writer.putInt(types.size());
+		
+		long block_offset = 4+16L*types.size();
+		
+		for (String type: types) {
+			int count = text_units.get(type) == null ? 0 : text_units.get(type).size();
+			
+			writer.putInt(strings.Encode(type));
+			writer.putInt(count);
+			writer.putLong(block_offset);
+			
+			block_offset = block_offset+4L*ANNOTATION_INT_COLUMNS*count+8L*count;
+		}
+		
+		for (String type: types) {
+			List<Annotation> annotations = text_units.get(type);
+			
+			if (annotations == null) {
+				continue;
+			}
+			
+			for (Annotation annotation: annotations) {
+				writer.putInt(annotation.getId());
+			}
+			
+			for (Annotation annotation: annotations) {
+				writer.putInt(annotation.getStart());
+			}
+			
+			for (Annotation annotation: annotations) {
+				writer.putInt(annotation.getEnd());
+			}
+			
+			for (Annotation annotation: annotations) {
+				writer.putInt(strings.Encode(annotation.getType()));
+			}
+			
+			for (Annotation annotation: annotations) {
+				writer.putInt(strings.Encode(annotation.getSub_type()));
+			}
+			
+			for (Annotation annotation: annotations) {
+				writer.putInt(strings.Encode(annotation.getColor()));
+			}
+			
+			for (Annotation annotation: annotations) {
+				writer.putInt(strings.Encode(annotation.getNote()));
+			}
+			
+			for (Annotation annotation: annotations) {
+				writer.putInt((annotation.isUnchecked() ? FLAG_UNCHECKED : 0) |
+						(annotation.isUnchanged() ? FLAG_UNCHANGED : 0));
+			}
+			
+			writer.putInts(SortByStart(annotations), annotations.size());
+			
+			for (Annotation annotation: annotations) {
+				writer.putLong(Double.doubleToLongBits(annotation.getPropability()));
+			}
+		}
+	}
+	
+	/**
+	 * Get the positions of annotations sorted by their start offsets and, for
+	 * equal start offsets, by their end offsets.
+	 * @param annotations The annotations.
+	 * @return The positions of the annotations in sorted order.
+	 */
+	static int[] SortByStart (final List<Annotation> annotations) {
+		Integer[] positions = new Integer[annotations.size()];
+		
+		for (int i=0;i<positions.length;i++) {
+			positions[i] = i;
+		}
+		
+		Arrays.sort(positions, new Comparator<Integer>() {
+			public int compare(Integer first, Integer second) {
+				Annotation first_annotation = annotations.get(first);
+				Annotation second_annotation = annotations.get(second);
+				
+				if (first_annotation.getStart() != second_annotation.getStart()) {
+					return first_annotation.getStart() < second_annotation.getStart() ?
+							-1 : 1;
+				}
+				
+				if (first_annotation.getEnd() != second_annotation.getEnd()) {
+					return first_annotation.getEnd() < second_annotation.getEnd() ?
+							-1 : 1;
+				}
+				
+				return 0;
+			}
+		});
+		
+		int[] sorted = new int[positions.length];
+		
+		for (int i=0;i<sorted.length;i++) {
+			sorted[i] = positions[i];
+		}
+		
+		return sorted;
+	}
+	
+	/**
+	 * Read the non-standard annotations of a document.
+	 */
+	static Map<String, List<Annotation>> ReadAnnotations (ByteBuffer section,
+			List<String> types, String[] strings) {
+		Map<String, List<Annotation>> text_units =
+				new HashMap<String, List<Annotation>>();
+		
+		int type_count = section.getInt(0);
+		
+		for (int i=0;i<type_count;i++) {
+			String type = Decode(strings, section.getInt(4+16*i));
+			int count = section.getInt(8+16*i);
+			int block_offset = (int) section.getLong(12+16*i);
+			
+			types.add(type);
+			
+			ArrayList<Annotation> annotations = new Interval_Index.Source_List(count);
+			
+			for (int j=0;j<count;j++) {
+				annotations.add(ReadAnnotation(section, block_offset, count, j, 
+						strings));
+			}
+			
+			text_units.put(type, annotations);
+		}
+		
+		return text_units;
+	}
+	
+	/**
+	 * Read one annotation from the block of its type.
+	 * @param section The section of annotations.
+	 * @param block_offset The offset of the block in the section.
+	 * @param count The number of annotations in the block.
+	 * @param index The position of the annotation in the block.
+	 * @param strings The strings of the file.
+	 * @return The annotation.
+	 */
+	static Annotation ReadAnnotation (ByteBuffer section, int block_offset, 
+			int count, int index, String[] strings) {
+		Annotation annotation = new Annotation();
+		
+		annotation.setId(section.getInt(block_offset+4*index));
+		annotation.setStart(section.getInt(block_offset+4*(count+index)));
+		annotation.setEnd(section.getInt(block_offset+4*(2*count+index)));
+		annotation.setType(Decode(strings, section.getInt(block_offset+
+				4*(3*count+index))));
+		annotation.sub_type = Symbol_Table.getShared().Intern(Decode(strings,
+				section.getInt(block_offset+4*(4*count+index))));
+		annotation.setColor(Decode(strings, section.getInt(block_offset+
+				4*(5*count+index))));
+		annotation.setNote(Decode(strings, section.getInt(block_offset+
+				4*(6*count+index))));
+		
+		int flags = section.getInt(block_offset+4*(7*count+index));
+		
+		annotation.unchecked = (flags & FLAG_UNCHECKED) != 0;
+		annotation.unchanged = (flags & FLAG_UNCHANGED) != 0;
+		annotation.setPropability(Double.longBitsToDouble(section.getLong(
+				block_offset+4*ANNOTATION_INT_COLUMNS*count+8*index)));
+		
+		return annotation;
+	}
+	
+	/**
+	 * Write the complete records of a change log.
+	 */
+	static void WriteChangeLog (Channel_Writer writer, Change_Log change_log,
+			Dictionary strings) throws IOException {
+		int[] positions = change_log.Find(-1, 0);
+		
+		writer.putInt(change_log.getMode());
+		writer.putInt(positions.length);
+		
+		for (int position: positions) {
+			writer.putInt(change_log.getAnnotation_id(position));
+		}
+		
+		for (int position: positions) {
+			writer.putInt(change_log.getStart(position));
+		}
+		
+		for (int position: positions) {
+			writer.putInt(change_log.getEnd(position));
+		}
+		
+		for (int position: positions) {
+			writer.putInt(change_log.getStatus(position));
+		}
+		
+		for (int position: positions) {
+			writer.putInt(strings.Encode(Symbol_Table.getShared().getSymbol(
+					change_log.getValue(position))));
+		}
+		
+		for (int position: positions) {
+			writer.putLong(change_log.getTimestamp(position));
+		}
+	}
+	
+	/**
+	 * Read the records of a change log.
+	 */
+	static Change_Log ReadChangeLog (ByteBuffer section, String[] strings) {
+		Change_Log change_log = new Change_Log();
+		
+		int count = section.getInt(4);
+		
+		for (int i=0;i<count;i++) {
+			change_log.Write(i, section.getInt(8+4*i), section.getInt(8+4*(count+i)),
+					section.getInt(8+4*(2*count+i)), section.getInt(8+4*(3*count+i)),
+					Symbol_Table.getShared().Intern(Decode(strings, section.getInt(
+					8+4*(4*count+i)))), section.getLong(8+20*count+8*i));
+		}
+		
+		change_log.reserved.set(count);
+		change_log.mode = section.getInt(0);
+		
+		return change_log;
+	}
+	
+	/**
+	 * Write the entries of the note histories of the document, its tokens, the
+	 * elements of its layers and its annotations.
+	 */
+	static void WriteNotes (Channel_Writer writer, Document document,
+			List<String> types, Dictionary strings) throws IOException {
+		ArrayList<int[]> entries = new ArrayList<int[]>();
+		
+		AddNotes(entries, DOCUMENT_NOTES, 0, document.getNote_history(), strings);
+		
+		Token_Table tokens = document.getToken_table();
+		
+		if (tokens != null) {
+			for (Integer index: tokens.note_histories.keySet()) {
+				AddNotes(entries, Hierarchy.TOKENS, index,
+						tokens.note_histories.get(index), strings);
+			}
+		}
+		
+		for (int level=Hierarchy.SENTENCES;level<Hierarchy.LEVEL_COUNT;level++) {
+			List<? extends Linguistic_Element> elements = getLayer(document, level);
+			
+			if (elements != null) {
+				for (int i=0;i<elements.size();i++) {
+					AddNotes(entries, level, i, elements.get(i).getNote_history(),
+							strings);
+				}
+			}
+		}
+		
+		for (int i=0;i<types.size();i++) {
+			List<Annotation> annotations = document.getText_units().get(types.get(i));
+			
+			if (annotations != null) {
+				for (int j=0;j<annotations.size();j++) {
+					AddNotes(entries, ANNOTATION_NOTES+i, j,
+							annotations.get(j).getNote_history(), strings);
+				}
+			}
+		}
+		
+		writer.putInt(entries.size());
+		
+		for (int[] entry: entries) {
+			writer.putInt(entry[0]);
+			writer.putInt(entry[1]);
+			writer.putInt(entry[2]);
+			writer.putInt(entry[3]);
+		}
+	}
+	
+	/**
+	 * Add the entries of a note history to the entries which are written.
+	 */
+	static void AddNotes (ArrayList<int[]> entries, int layer, int index,
+			HashMap<String, String> note_history, Dictionary strings) {
+		if (note_history == null) {
+			return;
+		}
+		
+		if (note_history.isEmpty()) {
+			entries.add(new int[] {layer, index, -1, -1});
+		}
+		
+		for (String date: note_history.keySet()) {
+			entries.add(new int[] {layer, index, strings.Encode(date),
+					strings.Encode(note_history.get(date))});
+		}
+	}
+	
+	/**
+	 * Read the entries of the note histories of the document, its tokens, the
+	 * elements of its layers and its annotations.
+	 */
+	static void ReadNotes (ByteBuffer section, Document document,
+			List<String> types, String[] strings) {
+		int count = section.getInt(0);
+		
+		for (int i=0;i<count;i++) {
+			int layer = section.getInt(4+16*i);
+			int index = section.getInt(8+16*i);
+			
+			HashMap<String, String> note_history;
+			
+			if (layer == DOCUMENT_NOTES) {
+				if (document.note_history == null) {
+					document.note_history = new HashMap<String, String>();
+				}
+				
+				note_history = document.note_history;
+			} else if (layer == Hierarchy.TOKENS) {
+				if (document.tokens.note_histories.get(index) == null) {
+					document.tokens.note_histories.put(index,
+							new HashMap<String, String>());
+				}
+				
+				note_history = document.tokens.note_histories.get(index);
+			} else {
+				Linguistic_Element element;
+				
+				if (layer >= ANNOTATION_NOTES) {
+					element = document.text_units.get(types.get(layer-
+							ANNOTATION_NOTES)).get(index);
+				} else {
+					element = getLayer(document, layer).get(index);
+				}
+				
+				if (element.note_history == null) {
+					element.note_history = new HashMap<String, String>();
+				}
+				
+				note_history = element.note_history;
+			}
+			
+			if (section.getInt(12+16*i) != -1) {
+				note_history.put(Decode(strings, section.getInt(12+16*i)),
+						Decode(strings, section.getInt(16+16*i)));
+			}
+		}
+	}
+	
+	/**
+	 * Write the strings of the file.
+	 */
+	static void WriteStrings (Channel_Writer writer, Dictionary strings)
+			throws IOException {
+		writer.putInt(strings.strings.size());
+		
+		int offset = 0;
+		
+		writer.putInt(offset);
+		
+		for (String string: strings.strings) {
+			offset = offset+string.length();
+			writer.putInt(offset);
+		}
+		
+		for (String string: strings.strings) {
+			for (int i=0;i<string.length();i++) {
+				writer.putChar(string.charAt(i));
+			}
+		}
+	}
+	
+	/**
+	 * Read the strings of a file.
+	 * @param section The section of strings.
+	 * @return The strings.
+	 */
+	static String[] ReadStrings (ByteBuffer section) {
+		int count = section.getInt(0);
+		
+		String[] strings = new String[count];
+		
+		int characters_offset = 4+4*(count+1);
+		
+		for (int i=0;i<count;i++) {
+			int start = section.getInt(4+4*i);
+			int end = section.getInt(8+4*i);
+			
+			char[] characters = new char[end-start];
+			
+			for (int j=0;j<characters.length;j++) {
+				characters[j] = section.getChar(characters_offset+2*(start+j));
+			}
+			
+			strings[i] = new String(characters);
+		}
+		
+		return strings;
+	}
+	
+	/**
+	 * Get the string at a position of the strings of a file.
+	 * @param strings The strings.
+	 * @param code The position or -1.
+	 * @return The string or null if the position is -1.
+	 */
+	static String Decode (String[] strings, int code) {
+		return code == -1 ? null : strings[code];
+	}
+	
+	/**
+	 * The strings which are written to a file, each of them once.
+	 */
+	static class Dictionary {
+		HashMap<String, Integer> codes = new HashMap<String, Integer>();
+		ArrayList<String> strings = new ArrayList<String>();
+		
+		/**
+		 * Get the position of a string, adding it if it is not contained yet.
+		 * @param string The string.
+		 * @return The position of the string or -1 if the string is null.
+		 */
+		int Encode (String string) {
+			if (string == null) {
+				return -1;
+			}
+			
+			Integer code = codes.get(string);
+			
+			if (code == null) {
+				code = strings.size();
+				
+				codes.put(string, code);
+				strings.add(string);
+			}
+			
+			return code;
+		}
+	}
+	
+	/**
+	 * Writes numbers and characters to a channel through a direct buffer.
+	 */
+	static class Channel_Writer {
+		FileChannel channel;
+		ByteBuffer buffer;
+		long written;
+		
+		/**
+		 * Constructor for the writer which starts writing at the specified position
+		 * of the channel.
+		 */
+		Channel_Writer (FileChannel channel, long position) {
+			this.channel = channel;
+			this.buffer = ByteBuffer.allocateDirect(1 << 16);
+			this.written = position;
+		}
+		
+		/**
+		 * Get the position in the channel the next byte is written to.
+		 */
+		long position () {
+			return written+buffer.position();
+		}
+		
+		void putInt (int value) throws IOException {
+			if (buffer.remaining() < 4) {
+				Flush();
+			}
+			
+			buffer.putInt(value);
+		}
+		
+		void putLong (long value) throws IOException {
+			if (buffer.remaining() < 8) {
+				Flush();
+			}
+			
+			buffer.putLong(value);
+		}
+		
+		void putChar (char value) throws IOException {
+			if (buffer.remaining() < 2) {
+				Flush();
+			}
+			
+			buffer.putChar(value);
+		}
+		
+		void putInts (int[] values, int count) throws IOException {
+			for (int i=0;i<count;i++) {
+				putInt(values[i]);
+			}
+		}
+		
+		void putBytes (byte[] values) throws IOException {
+			int written_bytes = 0;
+			
+			while (written_bytes < values.length) {
+				if (!buffer.hasRemaining()) {
+					Flush();
+				}
+				
+				int count = Math.min(buffer.remaining(), values.length-written_bytes);
+				
+				buffer.put(values, written_bytes, count);
+				written_bytes = written_bytes+count;
+			}
+		}
+		
+		/**
+		 * Write the bytes in the buffer to the channel.
+		 */
+		void Flush () throws IOException {
+			buffer.flip();
+			
+			while (buffer.hasRemaining()) {
+				written = written+channel.write(buffer, written);
+			}
+			
+			buffer.clear();
+		}
+	}
+}
@@ -0,0 +1,808 @@
+package teanlis;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+
+/**
+ * This class saves the changes of a document as records which are appended to a
+ * journal next to the file of the document (the snapshot), so saving takes time
+ * proportional to the number of changes instead of the size of the document. The
+ * journal is stored at the path of the snapshot with the suffix ".journal".
+ * 
+ * Changes are recorded with PutAnnotation, RemoveAnnotation and PutToken, which
+ * store the current state of the annotation or token, and written by Save, which
+ * also writes the new records of the change log of the document. Load reads the
+ * snapshot and replays the journal. Compact writes a new snapshot and removes the
+ * records contained in it from the journal; CompactInBackground does this in a
+ * background thread, and Save starts it when the journal becomes larger than
+ * the compaction threshold.
+ * 
+ * Every record stores a state instead of a difference, so replaying a record
+ * which is already contained in the snapshot does not change the document. This
+ * makes it safe when a compaction is interrupted after the new snapshot but
+ * before the new journal was written. A record which was not written completely,
+ * for example because the program was ended while saving, is detected by its
+ * checksum and removed when the journal is opened.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Document_Journal {
+	
+	/**
+	 * The magic number at the start of every journal ("TNLJ").
+	 */
+	public static final int MAGIC = 0x544E4C4A;
+	
+	/**
+	 * The version of the format of the journal.
+	 */
+	public static final int VERSION = 1;
+	
+	/**
+	 * The kinds of records.
+	 */
+	static final byte PUT_ANNOTATION = 1;
+	static final byte REMOVE_ANNOTATION = 2;
+	static final byte PUT_TOKEN = 3;
+	static final byte CHANGE_LOG_RECORD = 4;
+	
+	/**
+	 * The size of the header in bytes: magic number and version.
+	 */
+	static final int HEADER_SIZE = 8;
+	
+	/**
+	 * The size of the length and checksum in front of every record.
+	 */
+	static final int RECORD_HEADER_SIZE = 8;
+	
+	/**
+	 * The default size of the journal in bytes from which on Save compacts it.
+	 */
+	public static final long DEFAULT_COMPACTION_THRESHOLD = 8L << 20;
+	
+	/**
+	 * The path of the snapshot.
+	 */
+	String path;
+	
+	/**
+	 * The path of the journal.
+	 */
+	String journal_path;
+	
+	RandomAccessFile file;
+	FileChannel channel;
+	
+	/**
+	 * The records which were recorded but not saved yet.
+	 */
+	ByteArrayOutputStream pending;
+	
+	/**
+	 * The record which is being recorded.
+	 */
+	ByteArrayOutputStream record;
+	DataOutputStream record_output;
+	
+	/**
+	 * The number of records of the change log of the document which are saved.
+	 */
+	int saved_changes;
+	
+	/**
+	 * The number of bytes of records which were appended to the journal since it
+	 * was opened, including records which were removed by compactions.
+	 */
+	long appended;
+	
+	/**
+	 * The value of appended at the first record of the journal file.
+	 */
+	long file_start;
+	
+	/**
+	 * The size of the journal from which on Save compacts it.
+	 */
+	long compaction_threshold;
+	
+	/**
+	 * The thread of the background compactions.
+	 */
+	ExecutorService compactor;
+	
+	/**
+	 * The last background compaction which was started.
+	 */
+	Future<Object> compaction;
+	
+	/**
+	 * Constructor for the journal of the snapshot at the specified path. The
+	 * journal is created if it does not exist, and records which were not
+	 * written completely are removed from it.
+	 * @param path The path of the snapshot.
+	 * @throws IOException If the journal can not be opened or is not a journal.
+	 */
+	public Document_Journal (String path) throws IOException {
+		this.path = path;
+		this.journal_path = path + ".journal";
+		this.pending = new ByteArrayOutputStream();
+		this.record = new ByteArrayOutputStream();
+		this.record_output = new DataOutputStream(record);
+		this.compaction_threshold = DEFAULT_COMPACTION_THRESHOLD;
+		
+		this.compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread (Runnable runnable) {
+				Thread thread = new Thread(runnable, "Document_Journal compaction");
+				
+				thread.setDaemon(true);
+				
+				return thread;
+			}
+		});
+		
+		Open();
+	}
+	
+	/**
+	 * Open the journal file and remove incomplete records at its end. The records
+	 * which are already in the file count as appended before file_start, so the
+	 * records saved after a mark are found at the right offset even if the
+	 * journal was not empty when it was opened.
+	 */
+	void Open () throws IOException {
+		this.file = new RandomAccessFile(journal_path, "rw");
+		this.channel = file.getChannel();
+		
+		if (channel.size() == 0) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			
+			header.putInt(MAGIC);
+			header.putInt(VERSION);
+			header.flip();
+			
+			Write(header, 0);
+		} else {
+			ByteBuffer journal = ReadJournal();
+			
+			channel.truncate(ValidEnd(journal));
+		}
+		
+		channel.position(channel.size());
+		
+		file_start = appended-(channel.size()-HEADER_SIZE);
+	}
+	
+	/**
+	 * Get the size of the journal from which on Save compacts it.
+	 * @return The size in bytes.
+	 */
+	public long getCompaction_threshold() {
+		return compaction_threshold;
+	}
+	
+	/**
+	 * Set the size of the journal from which on Save compacts it.
+	 * @param compaction_threshold The size in bytes, Long.MAX_VALUE to compact
+	 * only when Compact is called.
+	 */
+	public void setCompaction_threshold(long compaction_threshold) {
+		this.compaction_threshold = compaction_threshold;
+	}
+	
+	/**
+	 * Get the size of the journal file.
+	 * @return The size in bytes.
+	 * @throws IOException If the size can not be read.
+	 */
+	public synchronized long getSize() throws IOException {
+		return channel.size();
+	}
+	
+	/**
+	 * Read the snapshot and replay the records of the journal.
+	 * @return The document or a new document if there is no snapshot.
+	 * @throws IOException If the snapshot or the journal can not be read.
+	 */
+	public synchronized Document Load () throws IOException {
+		Document document;
+		
+		if (!new File(path).exists()) {
+			document = new Document();
+		} else if (Document_Format.isDocument_format(path)) {
+			document = Document_Format.Load(path);
+		} else {
+			document = new Document();
+			document.LoadAsOneObject(path);
+		}
+		
+		Replay(document, ReadJournal());
+		
+		saved_changes = document.getChange_log() == null ? 0 :
+			document.getChange_log().size();
+		
+		return document;
+	}
+	
+	/**
+	 * Record the current state of an annotation, which is added to the document
+	 * or replaces the annotation with the same id when the journal is replayed.
+	 * The annotation gets an id if it has none.
+	 * @param document The document of the annotation.
+	 * @param type The type of the annotation.
+	 * @param annotation The annotation.
+	 */
+	public synchronized void PutAnnotation (Document document, String type,
+			Annotation annotation) {
+		if (annotation.getId() == -1) {
+			annotation.setId(document.NextAnnotationId());
+		}
+		
+		try {
+			DataOutputStream output = StartRecord(PUT_ANNOTATION);
+			
+			Corpus_Writer.WriteString(output, type);
+			output.writeInt(annotation.getId());
+			output.writeInt(annotation.getStart());
+			output.writeInt(annotation.getEnd());
+			Corpus_Writer.WriteString(output, annotation.getSub_type());
+			Corpus_Writer.WriteString(output, annotation.getColor());
+			Corpus_Writer.WriteString(output, annotation.getNote());
+			output.writeBoolean(annotation.isUnchecked());
+			output.writeBoolean(annotation.isUnchanged());
+			output.writeDouble(annotation.getPropability());
+			WriteNote_history(output, annotation.getNote_history());
+			
+			EndRecord();
+		} catch (IOException e) {
+			// Writing to a ByteArrayOutputStream does not fail.
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Record that an annotation was removed from the document.
+	 * @param type The type of the annotation.
+	 * @param annotation The annotation.
+	 */
+	public synchronized void RemoveAnnotation (String type, Annotation annotation) {
+		try {
+			DataOutputStream output = StartRecord(REMOVE_ANNOTATION);
+			
+			Corpus_Writer.WriteString(output, type);
+			output.writeInt(annotation.getId());
+			
+			EndRecord();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Record the current state of the attributes of a token.
+	 * @param tokens The token table of the document.
+	 * @param index The index of the token.
+	 */
+	public synchronized void PutToken (Token_Table tokens, int index) {
+		try {
+			DataOutputStream output = StartRecord(PUT_TOKEN);
+			
+			output.writeInt(index);
+			Corpus_Writer.WriteString(output, tokens.getLemma(index));
+			Corpus_Writer.WriteString(output, tokens.getPos(index));
+			Corpus_Writer.WriteString(output, tokens.getFunction(index));
+			Corpus_Writer.WriteString(output, tokens.getDependency(index));
+			output.writeInt(tokens.getGovernor(index));
+			output.writeInt(tokens.getSentence(index));
+			WriteNote_history(output, tokens.getNote_history(index));
+			
+			EndRecord();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	/**
+	 * Append the recorded changes and the records of the change log of the
+	 * document which were not saved yet to the journal. A background compaction
+	 * is started if the journal became larger than the compaction threshold.
+	 * @param document The document.
+	 * @throws IOException If the journal can not be written.
+	 */
+	public synchronized void Save (Document document) throws IOException {
+		RecordChangeLog(document.getChange_log());
+		
+		if (pending.size() > 0) {
+			ByteBuffer records = ByteBuffer.wrap(pending.toByteArray());
+			
+			Write(records, channel.size());
+			channel.force(false);
+			
+			appended = appended+pending.size();
+			pending.reset();
+		}
+		
+		if (channel.size() > compaction_threshold && (compaction == null ||
+				compaction.isDone())) {
+			CompactInBackground(document);
+		}
+	}
+	
+	/**
+	 * Record the records of the change log which were not saved yet.
+	 */
+	void RecordChangeLog (Change_Log change_log) throws IOException {
+		if (change_log == null) {
+			return;
+		}
+		
+		change_log.Flush();
+		
+		while (saved_changes < change_log.size() &&
+				change_log.isComplete(saved_changes)) {
+			DataOutputStream output = StartRecord(CHANGE_LOG_RECORD);
+			
+			output.writeInt(saved_changes);
+			output.writeInt(change_log.getAnnotation_id(saved_changes));
+			output.writeInt(change_log.getStart(saved_changes));
+			output.writeInt(change_log.getEnd(saved_changes));
+			output.writeInt(change_log.getStatus(saved_changes));
+			Corpus_Writer.WriteString(output, Symbol_Table.getShared().getSymbol(
+					change_log.getValue(saved_changes)));
+			output.writeLong(change_log.getTimestamp(saved_changes));
+			
+			EndRecord();
+			
+			saved_changes = saved_changes+1;
+		}
+	}
+	
+	/**
+	 * Save the document and write a new snapshot of it, then remove the records
+	 * contained in the snapshot from the journal.
+	 * @param document The document.
+	 * @throws IOException If the snapshot or the journal can not be written.
+	 */
+	public void Compact (Document document) throws IOException {
+		Get(CompactInBackground(document));
+	}
+	
+	/**
+	 * Save the document and write a new snapshot of it in a background thread.
+	 * The document is copied (see Document.Freeze) before this method returns,
+	 * so it can be changed while the snapshot is written. Records which are saved
+	 * during the compaction stay in the journal.
+	 * @param document The document.
+	 * @return The result of the compaction, whose get method throws the
+	 * IOException of a failed compaction.
+	 * @throws IOException If the journal can not be written.
+	 */
+	public synchronized Future<Object> CompactInBackground (Document document)
+			throws IOException {
+		long previous_threshold = compaction_threshold;
+		
+		compaction_threshold = Long.MAX_VALUE;
+		
+		try {
+			Save(document);
+		} finally {
+			compaction_threshold = previous_threshold;
+		}
+		
+		final Document snapshot = document instanceof Frozen_Document ? document :
+			document.Freeze();
+		final long mark = appended;
+		
+		compaction = compactor.submit(new Callable<Object>() {
+			public Object call () throws IOException {
+				String snapshot_path = path + ".compacting";
+				
+				Document_Format.Save(snapshot, snapshot_path);
+				
+				ReplaceFiles(snapshot_path, mark);
+				
+				return null;
+			}
+		});
+		
+		return compaction;
+	}
+	
+	/**
+	 * Replace the snapshot with a new one and remove the records which were
+	 * saved before the new snapshot was made from the journal.
+	 * @param snapshot_path The path of the new snapshot.
+	 * @param mark The value of appended when the new snapshot was made.
+	 */
+	synchronized void ReplaceFiles (String snapshot_path, long mark)
+			throws IOException {
+		String new_journal_path = journal_path + ".compacting";
+		
+		RandomAccessFile new_journal = new RandomAccessFile(new_journal_path, "rw");
+		
+		try {
+			FileChannel new_channel = new_journal.getChannel();
+			
+			new_channel.truncate(0);
+			
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			
+			header.putInt(MAGIC);
+			header.putInt(VERSION);
+			header.flip();
+			
+			while (header.hasRemaining()) {
+				new_channel.write(header);
+			}
+			
+			long tail = HEADER_SIZE+mark-file_start;
+			
+			while (tail < channel.size()) {
+				tail = tail+channel.transferTo(tail, channel.size()-tail, new_channel);
+			}
+			
+			new_channel.force(false);
+		} finally {
+			new_journal.close();
+		}
+		
+		Files.move(new File(snapshot_path).toPath(), new File(path).toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+		
+		file.close();
+		
+		Files.move(new File(new_journal_path).toPath(), new File(
+				journal_path).toPath(), StandardCopyOption.REPLACE_EXISTING);
+		
+		Open();
+	}
+	
+	/**
+	 * Append the records which were recorded but not saved yet to the journal,
+	 * wait for a running compaction and close the journal. Records of the change
+	 * log are only appended by Save.
+	 * @throws IOException If the journal can not be written.
+	 */
+	public void Close () throws IOException {
+		Future<Object> running;
+		
+		synchronized (this) {
+			running = compaction;
+		}
+		
+		if (running != null) {
+			Get(running);
+		}
+		
+		synchronized (this) {
+			if (pending.size() > 0) {
+				Write(ByteBuffer.wrap(pending.toByteArray()), channel.size());
+				channel.force(false);
+				
+				appended = appended+pending.size();
+				pending.reset();
+			}
+			
+			compactor.shutdown();
+			file.close();
+		}
+	}
+	
+	/**
+	 * Wait for the result of a compaction.
+	 */
+	static void Get (Future<Object> result) throws IOException {
+		try {
+			result.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			
+			throw new RuntimeException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			
+			throw new IOException("Interrupted while compacting the journal.");
+		}
+	}
+	
+	/**
+	 * Start a record of the specified kind.
+	 * @return The stream the fields of the record are written to.
+	 */
+	DataOutputStream StartRecord (byte kind) throws IOException {
+		record.reset();
+		record_output.writeByte(kind);
+		
+		return record_output;
+	}
+	
+	/**
+	 * Add the current record to the pending records with its length and checksum.
+	 */
+	void EndRecord () throws IOException {
+		record_output.flush();
+		
+		CRC32 checksum = new CRC32();
+		
+		checksum.update(record.toByteArray());
+		
+		DataOutputStream pending_output = new DataOutputStream(pending);
+		
+		pending_output.writeInt(record.size());
+		pending_output.writeInt((int) checksum.getValue());
+		record.writeTo(pending_output);
+		pending_output.flush();
+	}
+	
+	/**
+	 * Write bytes to the journal at the specified position.
+	 */
+	void Write (ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position = position+channel.write(buffer, position);
+		}
+	}
+	
+	/**
+	 * Read the whole journal and check its header.
+	 */
+	ByteBuffer ReadJournal () throws IOException {
+		long size = channel.size();
+		
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("The journal " + journal_path + " is too large.");
+		}
+		
+		ByteBuffer journal = ByteBuffer.allocate((int) size);
+		
+		Document_Format.ReadFully(channel, journal, 0);
+		
+		journal.flip();
+		
+		if (size < HEADER_SIZE || journal.getInt(0) != MAGIC) {
+			throw new IOException(journal_path + " is not a document journal.");
+		}
+		
+		if (journal.getInt(4) > VERSION) {
+			throw new IOException("The version " + journal.getInt(4) + " of the "
+					+ "journal is not supported.");
+		}
+		
+		return journal;
+	}
+	
+	/**
+	 * Get the position after the last complete record of the journal.
+	 */
+	static int ValidEnd (ByteBuffer journal) {
+		int position = HEADER_SIZE;
+		
+		while (RecordIsValid(journal, position)) {
+			position = position+RECORD_HEADER_SIZE+journal.getInt(position);
+		}
+		
+		return position;
+	}
+	
+	/**
+	 * Check whether a complete record with a correct checksum starts at a position
+	 * of the journal.
+	 */
+	static boolean RecordIsValid (ByteBuffer journal, int position) {
+		if (journal.limit()-position < RECORD_HEADER_SIZE) {
+			return false;
+		}
+		
+		int length = journal.getInt(position);
+		
+		if (length <= 0 || length > journal.limit()-position-RECORD_HEADER_SIZE) {
+			return false;
+		}
+		
+		CRC32 checksum = new CRC32();
+		
+		checksum.update(journal.array(), position+RECORD_HEADER_SIZE, length);
+		
+		return (int) checksum.getValue() == journal.getInt(position+4);
+	}
+	
+	/**
+	 * Apply the complete records of a journal to a document.
+	 * @param document The document.
+	 * @param journal The journal.
+	 */
+	static void Replay (Document document, ByteBuffer journal) {
+		HashMap<Integer, Annotation> annotations = new HashMap<Integer, Annotation>();
+		HashMap<Integer, String> types = new HashMap<Integer, String>();
+		
+		if (document.getText_units() == null) {
+			document.setText_units(new HashMap<String, List<Annotation>>());
+		}
+		
+		for (String type: document.getText_units().keySet()) {
+			for (Annotation annotation: document.getText_units().get(type)) {
+				annotations.put(annotation.getId(), annotation);
+				types.put(annotation.getId(), type);
+			}
+		}
+		
+		int position = HEADER_SIZE;
+		int max_id = -1;
+		
+		while (RecordIsValid(journal, position)) {
+			int length = journal.getInt(position);
+			
+			ByteBuffer record = (ByteBuffer) journal.duplicate().position(
+					position+RECORD_HEADER_SIZE).limit(position+RECORD_HEADER_SIZE+
+					length);
+			
+			byte kind = record.get();
+			
+			if (kind == PUT_ANNOTATION || kind == REMOVE_ANNOTATION) {
+				String type = Corpus_Archive.ReadString(record);
+				int id = record.getInt();
+				
+				Annotation old_annotation = annotations.remove(id);
+				
+				if (old_annotation != null) {
+					document.getText_units().get(types.remove(id)).remove(
+							old_annotation);
+				}
+				
+				if (kind == PUT_ANNOTATION) {
+					Annotation annotation = ReadAnnotation(record, type, id);
+					
+					List<Annotation> annotations_of_type =
+							document.getText_units().get(type);
+					
+					if (annotations_of_type == null) {
+						annotations_of_type = new Interval_Index.Source_List();
+						document.getText_units().put(type, annotations_of_type);
+					}
+					
+					annotations_of_type.add(annotation);
+					annotations.put(id, annotation);
+					types.put(id, type);
+					
+					max_id = Math.max(max_id, id);
+				}
+			} else if (kind == PUT_TOKEN) {
+				ReadToken(record, document.getToken_table());
+			} else if (kind == CHANGE_LOG_RECORD) {
+				ReadChangeLogRecord(record, document.getChange_log());
+			}
+			
+			position = position+RECORD_HEADER_SIZE+length;
+		}
+		
+		if (document.next_annotation_id != null &&
+				document.next_annotation_id.get() <= max_id) {
+			document.next_annotation_id.set(max_id+1);
+		}
+		
+		document.InvalidateIntervalIndices();
+	}
+	
+	/**
+	 * Read the fields of an annotation from a record.
+	 */
+	static Annotation ReadAnnotation (ByteBuffer record, String type, int id) {
+		Annotation annotation = new Annotation();
+		
+		annotation.setType(type);
+		annotation.setId(id);
+		annotation.setStart(record.getInt());
+		annotation.setEnd(record.getInt());
+		annotation.sub_type = Symbol_Table.getShared().Intern(
+				Corpus_Archive.ReadString(record));
+		annotation.setColor(Corpus_Archive.ReadString(record));
+		annotation.setNote(Corpus_Archive.ReadString(record));
+		annotation.unchecked = record.get() != 0;
+		annotation.unchanged = record.get() != 0;
+		annotation.setPropability(record.getDouble());
+		annotation.setNote_history(ReadNote_history(record));
+		
+		return annotation;
+	}
+	
+	/**
+	 * Apply a record of a token to the token table.
+	 */
+	static void ReadToken (ByteBuffer record, Token_Table tokens) {
+		int index = record.getInt();
+		
+		if (tokens == null || index >= tokens.size()) {
+			return;
+		}
+		
+		tokens.setLemma(index, Corpus_Archive.ReadString(record));
+		tokens.setPos(index, Corpus_Archive.ReadString(record));
+		tokens.setFunction(index, Corpus_Archive.ReadString(record));
+		tokens.setDependency(index, Corpus_Archive.ReadString(record));
+		tokens.setGovernor(index, record.getInt());
+		tokens.setSentence(index, record.getInt());
+		tokens.setNote_history(index, ReadNote_history(record));
+	}
+	
+	/**
+	 * Apply a record of the change log to the change log, unless the change log
+	 * already contains it.
+	 */
+	static void ReadChangeLogRecord (ByteBuffer record, Change_Log change_log) {
+		int index = record.getInt();
+		
+		if (change_log == null || index != change_log.size()) {
+			return;
+		}
+		
+		int annotation_id = record.getInt();
+		int start = record.getInt();
+		int end = record.getInt();
+		int status = record.getInt();
+		int value = Symbol_Table.getShared().Intern(Corpus_Archive.ReadString(
+				record));
+		
+		change_log.Write(index, annotation_id, start, end, status, value,
+				record.getLong());
+		change_log.reserved.set(index+1);
+	}
+	
+	/**
+	 * Write a note history as its number of entries (-1 for null) and the entries.
+	 */
+	static void WriteNote_history (DataOutputStream output,
+			Map<String, String> note_history) throws IOException {
+		if (note_history == null) {
+			output.writeInt(-1);
+			return;
+		}
+		
+		output.writeInt(note_history.size());
+		
+		for (String date: note_history.keySet()) {
+			Corpus_Writer.WriteString(output, date);
+			Corpus_Writer.WriteString(output, note_history.get(date));
+		}
+	}
+	
+	/**
+	 * Read a note history written by WriteNote_history.
+	 */
+	static HashMap<String, String> ReadNote_history (ByteBuffer record) {
+		int size = record.getInt();
+		
+		if (size == -1) {
+			return null;
+		}
+		
+		HashMap<String, String> note_history = new HashMap<String, String>();
+		
+		for (int i=0;i<size;i++) {
+			String date = Corpus_Archive.ReadString(record);
+			
+			note_history.put(date, Corpus_Archive.ReadString(record));
+		}
+		
+		return note_history;
+	}
+}
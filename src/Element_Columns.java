@@ -0,0 +1,536 @@
+package teanlis;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * This class writes lists of linguistic elements to object streams as columns:
+ * instead of one object per element, every field of the elements is written as
+ * one array of ints, strings or doubles. The columns are written with the
+ * serialization of arrays, so the stream contains no description of the
+ * elements and the strings of a column which are equal are written only once.
+ * Note histories are written only for the elements which have one.
+ * 
+ * A list is written as its size (-1 for null), the kind of its elements and
+ * the columns of the kind. Lists whose elements are not all of the same class
+ * are written with the kind GENERIC, one object per element.
+ * 
+ * Document.writeExternal writes its layers and annotations with this class.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Element_Columns {
+	
+	static final byte GENERIC = 0;
+	static final byte TOKENS = 1;
+	static final byte SENTENCES = 2;
+	static final byte PARAGRAPHS = 3;
+	static final byte PAGES = 4;
+	static final byte CHAPTERS = 5;
+	static final byte LINES = 6;
+	static final byte ANNOTATIONS = 7;
+	
+	/**
+	 * The bit of the flags of an annotation which is set if it is unchecked.
+	 */
+	static final int UNCHECKED = 1;
+	
+	/**
+	 * The bit of the flags of an annotation which is set if it is unchanged.
+	 */
+	static final int UNCHANGED = 2;
+	
+	/**
+	 * Write a list of linguistic elements.
+	 * @param output The stream the list is written to.
+	 * @param elements The list or null.
+	 * @throws IOException
+	 */
+	public static void Write (ObjectOutput output,
+			List<? extends Linguistic_Element> elements) throws IOException {
+		if (elements == null) {
+			output.writeInt(-1);
+			return;
+		}
+		
+		int size = elements.size();
+		byte kind = getKind(elements);
+		
+		output.writeInt(size);
+		output.writeByte(kind);
+		
+		if (kind == GENERIC) {
+			for (Linguistic_Element element: elements) {
+				output.writeObject(element);
+			}
+			
+			return;
+		}
+		
+		int[] starts = new int[size];
+		int[] ends = new int[size];
+		
+		for (int i=0;i<size;i++) {
+			Linguistic_Element element = elements.get(i);
+			
+			starts[i] = element.start;
+			ends[i] = element.end;
+		}
+		
+		output.writeObject(starts);
+		output.writeObject(ends);
+		
+		WriteNote_histories(output, elements);
+		
+		switch (kind) {
+		case TOKENS:
+			WriteTokens(output, elements);
+			break;
+		case SENTENCES:
+			int[] sentence_paragraphs = new int[size];
+			int[] sentence_chapters = new int[size];
+			
+			for (int i=0;i<size;i++) {
+				Sentence sentence = (Sentence) elements.get(i);
+				
+				sentence_paragraphs[i] = sentence.containing_paragraph;
+				sentence_chapters[i] = sentence.containing_chapter;
+			}
+			
+			output.writeObject(sentence_paragraphs);
+			output.writeObject(sentence_chapters);
+			break;
+		case PARAGRAPHS:
+			int[] paragraph_chapters = new int[size];
+			int[] paragraph_pages = new int[size];
+			
+			for (int i=0;i<size;i++) {
+				Paragraph paragraph = (Paragraph) elements.get(i);
+				
+				paragraph_chapters[i] = paragraph.containing_chapter;
+				paragraph_pages[i] = paragraph.containing_page;
+			}
+			
+			output.writeObject(paragraph_chapters);
+			output.writeObject(paragraph_pages);
+			break;
+		case PAGES:
+			int[] numbers = new int[size];
+			int[] page_chapters = new int[size];
+			
+			for (int i=0;i<size;i++) {
+				Page page = (Page) elements.get(i);
+				
+				numbers[i] = page.number;
+				page_chapters[i] = page.containing_chapter;
+			}
+			
+			output.writeObject(numbers);
+			output.writeObject(page_chapters);
+			break;
+		case CHAPTERS:
+			String[] titles = new String[size];
+			int[] start_sentences = new int[size];
+			int[] end_sentences = new int[size];
+			
+			for (int i=0;i<size;i++) {
+				Chapter chapter = (Chapter) elements.get(i);
+				
+				titles[i] = chapter.title;
+				start_sentences[i] = chapter.start_sentence;
+				end_sentences[i] = chapter.end_sentence;
+			}
+			
+			output.writeObject(titles);
+			output.writeObject(start_sentences);
+			output.writeObject(end_sentences);
+			break;
+		case LINES:
+			int[] line_paragraphs = new int[size];
+			int[] line_pages = new int[size];
+			int[] line_sub_chapters = new int[size];
+			int[] line_main_chapters = new int[size];
+			
+			for (int i=0;i<size;i++) {
+				Line line = (Line) elements.get(i);
+				
+				line_paragraphs[i] = line.containing_paragraph;
+				line_pages[i] = line.containing_page;
+				line_sub_chapters[i] = line.containing_sub_chapter;
+				line_main_chapters[i] = line.containing_main_chapter;
+			}
+			
+			output.writeObject(line_paragraphs);
+			output.writeObject(line_pages);
+			output.writeObject(line_sub_chapters);
+			output.writeObject(line_main_chapters);
+			break;
+		case ANNOTATIONS:
+			WriteAnnotations(output, elements);
+			break;
+		}
+	}
+	
+	/**
+	 * Read a list of linguistic elements written by Write.
+	 * @param input The stream the list is read from.
+	 * @return The list or null.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends Linguistic_Element> ArrayList<T> Read (
+			ObjectInput input) throws IOException, ClassNotFoundException {
+		int size = input.readInt();
+		
+		if (size == -1) {
+			return null;
+		}
+		
+		byte kind = input.readByte();
+		
+		ArrayList<Linguistic_Element> elements = new ArrayList<Linguistic_Element>(
+				size);
+		
+		if (kind == GENERIC) {
+			for (int i=0;i<size;i++) {
+				elements.add((Linguistic_Element) input.readObject());
+			}
+			
+			return (ArrayList<T>) elements;
+		}
+		
+		int[] starts = (int[]) input.readObject();
+		int[] ends = (int[]) input.readObject();
+		
+		HashMap<Integer, HashMap<String, String>> note_histories =
+				ReadNote_histories(input);
+		
+		switch (kind) {
+		case TOKENS:
+			ReadTokens(input, elements, size);
+			break;
+		case SENTENCES:
+			int[] sentence_paragraphs = (int[]) input.readObject();
+			int[] sentence_chapters = (int[]) input.readObject();
+			
+			for (int i=0;i<size;i++) {
+				Sentence sentence = new Sentence();
+				
+				sentence.containing_paragraph = sentence_paragraphs[i];
+				sentence.containing_chapter = sentence_chapters[i];
+				
+				elements.add(sentence);
+			}
+			break;
+		case PARAGRAPHS:
+			int[] paragraph_chapters = (int[]) input.readObject();
+			int[] paragraph_pages = (int[]) input.readObject();
+			
+			for (int i=0;i<size;i++) {
+				Paragraph paragraph = new Paragraph();
+				
+				paragraph.containing_chapter = paragraph_chapters[i];
+				paragraph.containing_page = paragraph_pages[i];
+				
+				elements.add(paragraph);
+			}
+			break;
+		case PAGES:
+			int[] numbers = (int[]) input.readObject();
+			int[] page_chapters = (int[]) input.readObject();
+			
+			for (int i=0;i<size;i++) {
+				Page page = new Page();
+				
+				page.number = numbers[i];
+				page.containing_chapter = page_chapters[i];
+				
+				elements.add(page);
+			}
+			break;
+		case CHAPTERS:
+			String[] titles = (String[]) input.readObject();
+			int[] start_sentences = (int[]) input.readObject();
+			int[] end_sentences = (int[]) input.readObject();
+			
+			for (int i=0;i<size;i++) {
+				Chapter chapter = new Chapter();
+				
+				chapter.title = titles[i];
+				chapter.start_sentence = start_sentences[i];
+				chapter.end_sentence = end_sentences[i];
+				
+				elements.add(chapter);
+			}
+			break;
+		case LINES:
+			int[] line_paragraphs = (int[]) input.readObject();
+			int[] line_pages = (int[]) input.readObject();
+			int[] line_sub_chapters = (int[]) input.readObject();
+			int[] line_main_chapters = (int[]) input.readObject();
+			
+			for (int i=0;i<size;i++) {
+				Line line = new Line();
+				
+				line.containing_paragraph = line_paragraphs[i];
+				line.containing_page = line_pages[i];
+				line.containing_sub_chapter = line_sub_chapters[i];
+				line.containing_main_chapter = line_main_chapters[i];
+				
+				elements.add(line);
+			}
+			break;
+		case ANNOTATIONS:
+			ReadAnnotations(input, elements, size);
+			break;
+		default:
+			throw new IOException("Unknown kind of elements: " + kind);
+		}
+		
+		for (int i=0;i<size;i++) {
+			Linguistic_Element element = elements.get(i);
+			
+			element.start = starts[i];
+			element.end = ends[i];
+			element.note_history = note_histories.get(i);
+		}
+		
+		return (ArrayList<T>) elements;
+	}
+	
+	/**
+	 * Get the kind of the elements of a list, GENERIC if the elements are not all
+	 * of the same class. Views of tokens are written as tokens.
+	 */
+	static byte getKind (List<? extends Linguistic_Element> elements) {
+		if (elements.isEmpty()) {
+			return GENERIC;
+		}
+		
+		Class<?> element_class = elements.get(0).getClass();
+		
+		if (element_class == Token_View.class) {
+			element_class = Token.class;
+		}
+		
+		for (Linguistic_Element element: elements) {
+			Class<?> other_class = element.getClass();
+			
+			if (other_class == Token_View.class) {
+				other_class = Token.class;
+			}
+			
+			if (other_class != element_class) {
+				return GENERIC;
+			}
+		}
+		
+		if (element_class == Token.class) {
+			return TOKENS;
+		} else if (element_class == Sentence.class) {
+			return SENTENCES;
+		} else if (element_class == Paragraph.class) {
+			return PARAGRAPHS;
+		} else if (element_class == Page.class) {
+			return PAGES;
+		} else if (element_class == Chapter.class) {
+			return CHAPTERS;
+		} else if (element_class == Line.class) {
+			return LINES;
+		} else if (element_class == Annotation.class) {
+			return ANNOTATIONS;
+		}
+		
+		return GENERIC;
+	}
+	
+	/**
+	 * Write the note histories of the elements which have one as the number of
+	 * those elements and for each of them its position in the list and its note
+	 * history.
+	 */
+	static void WriteNote_histories (ObjectOutput output,
+			List<? extends Linguistic_Element> elements) throws IOException {
+		int count = 0;
+		
+		for (Linguistic_Element element: elements) {
+			if (element.note_history != null && !element.note_history.isEmpty()) {
+				count = count+1;
+			}
+		}
+		
+		output.writeInt(count);
+		
+		for (int i=0;i<elements.size();i++) {
+			Linguistic_Element element = elements.get(i);
+			
+			if (element.note_history != null && !element.note_history.isEmpty()) {
+				output.writeInt(i);
+				Linguistic_Element.WriteNote_history(output, element.note_history);
+			}
+		}
+	}
+	
+	/**
+	 * Read the note histories written by WriteNote_histories.
+	 * @return The note histories by the positions of their elements.
+	 */
+	static HashMap<Integer, HashMap<String, String>> ReadNote_histories (
+			ObjectInput input) throws IOException, ClassNotFoundException {
+		int count = input.readInt();
+		
+		HashMap<Integer, HashMap<String, String>> note_histories =
+				new HashMap<Integer, HashMap<String, String>>();
+		
+		for (int i=0;i<count;i++) {
+			int position = input.readInt();
+			
+			note_histories.put(position, Linguistic_Element.ReadNote_history(input));
+		}
+		
+		return note_histories;
+	}
+	
+	/**
+	 * Write the columns of the fields of tokens.
+	 */
+	static void WriteTokens (ObjectOutput output,
+			List<? extends Linguistic_Element> elements) throws IOException {
+		int size = elements.size();
+		
+		int[] sentences = new int[size];
+		int[] ids = new int[size];
+		int[] governors = new int[size];
+		String[] lemmas = new String[size];
+		String[] pos_tags = new String[size];
+		String[] functions = new String[size];
+		String[] dependencies = new String[size];
+		
+		for (int i=0;i<size;i++) {
+			Token token = (Token) elements.get(i);
+			
+			sentences[i] = token.getContaining_sentence();
+			ids[i] = token.getId();
+			governors[i] = token.getGovernor();
+			lemmas[i] = token.getLemma();
+			pos_tags[i] = token.getPos();
+			functions[i] = token.getFunction();
+			dependencies[i] = token.getDependency();
+		}
+		
+		output.writeObject(sentences);
+		output.writeObject(ids);
+		output.writeObject(governors);
+		output.writeObject(lemmas);
+		output.writeObject(pos_tags);
+		output.writeObject(functions);
+		output.writeObject(dependencies);
+	}
+	
+	/**
+	 * Read the columns written by WriteTokens and add the tokens to the list.
+	 */
+	static void ReadTokens (ObjectInput input,
+			ArrayList<Linguistic_Element> elements, int size) throws IOException,
+			ClassNotFoundException {
+		int[] sentences = (int[]) input.readObject();
+		int[] ids = (int[]) input.readObject();
+		int[] governors = (int[]) input.readObject();
+		String[] lemmas = (String[]) input.readObject();
+		String[] pos_tags = (String[]) input.readObject();
+		String[] functions = (String[]) input.readObject();
+		String[] dependencies = (String[]) input.readObject();
+		
+		for (int i=0;i<size;i++) {
+			Token token = new Token();
+			
+			token.setContaining_sentence(sentences[i]);
+			token.setId(ids[i]);
+			token.setGovernor(governors[i]);
+			token.setLemma(lemmas[i]);
+			token.setPos(pos_tags[i]);
+			token.setFunction(functions[i]);
+			token.setDependency(dependencies[i]);
+			
+			elements.add(token);
+		}
+	}
+	
+	/**
+	 * Write the columns of the fields of annotations. The type and the sub-type
+	 * are written as strings because the codes of the shared table of symbols are
+	 * only valid in the running JVM.
+	 */
+	static void WriteAnnotations (ObjectOutput output,
+			List<? extends Linguistic_Element> elements) throws IOException {
+		int size = elements.size();
+		
+		int[] ids = new int[size];
+		int[] flags = new int[size];
+		String[] types = new String[size];
+		String[] sub_types = new String[size];
+		String[] colors = new String[size];
+		String[] notes = new String[size];
+		double[] propabilities = new double[size];
+		
+		for (int i=0;i<size;i++) {
+			Annotation annotation = (Annotation) elements.get(i);
+			
+			ids[i] = annotation.id;
+			flags[i] = (annotation.unchecked ? UNCHECKED : 0) |
+					(annotation.unchanged ? UNCHANGED : 0);
+			types[i] = annotation.getType();
+			sub_types[i] = annotation.getSub_type();
+			colors[i] = annotation.color;
+			notes[i] = annotation.note;
+			propabilities[i] = annotation.propability;
+		}
+		
+		output.writeObject(ids);
+		output.writeObject(flags);
+		output.writeObject(types);
+		output.writeObject(sub_types);
+		output.writeObject(colors);
+		output.writeObject(notes);
+		output.writeObject(propabilities);
+	}
+	
+	/**
+	 * Read the columns written by WriteAnnotations and add the annotations to the
+	 * list.
+	 */
+	static void ReadAnnotations (ObjectInput input,
+			ArrayList<Linguistic_Element> elements, int size) throws IOException,
+			ClassNotFoundException {
+		int[] ids = (int[]) input.readObject();
+		int[] flags = (int[]) input.readObject();
+		String[] types = (String[]) input.readObject();
+		String[] sub_types = (String[]) input.readObject();
+		String[] colors = (String[]) input.readObject();
+		String[] notes = (String[]) input.readObject();
+		double[] propabilities = (double[]) input.readObject();
+		
+		Symbol_Table symbols = Symbol_Table.getShared();
+		
+		for (int i=0;i<size;i++) {
+			Annotation annotation = new Annotation();
+			
+			annotation.id = ids[i];
+			annotation.unchecked = (flags[i] & UNCHECKED) != 0;
+			annotation.unchanged = (flags[i] & UNCHANGED) != 0;
+			annotation.type = symbols.Intern(types[i]);
+			annotation.sub_type = symbols.Intern(sub_types[i]);
+			annotation.color = colors[i];
+			annotation.note = notes[i];
+			annotation.propability = propabilities[i];
+			
+			elements.add(annotation);
+		}
+	}
+}
@@ -0,0 +1,508 @@
+package teanlis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class represents an immutable snapshot of a document, see
+ * Document.Freeze. The snapshot contains copies of all elements of the document,
+ * so later changes of the document do not change the snapshot, and the snapshot
+ * can not be changed: all methods of Document which change the document throw an
+ * UnsupportedOperationException.
+ * 
+ * The elements of every layer are stored in an array, and the getters return
+ * unmodifiable lists backed by these arrays. The tokens are stored in a read-only
+ * Token_Table. Everything the document computes lazily (the index from offsets to
+ * tokens, the hierarchy and the indices over the non-standard annotations) is
+ * computed when the snapshot is made, so reading the snapshot never writes to it
+ * and any number of threads can read the same snapshot without locks, for
+ * example to search it with SimpleLuceneSearch or to extract keywords, while an
+ * annotator changes the document the snapshot was made of.
+ * 
+ * Because the fields of the snapshot are inherited from Document and can not be
+ * final, a snapshot has to be published safely, for example through a volatile
+ * field or an AtomicReference, before other threads read it. The linguistic
+ * elements returned by the snapshot are copies which belong to the snapshot and
+ * must not be changed.
+ * 
+ * A new version of a snapshot with changed annotations is made with
+ * WithAnnotation and WithAnnotations. The new version shares the text, the
+ * tokens, the layers and the annotations of all other types with the old
+ * version and only copies the list of the changed type (copy-on-write), so
+ * threads which still read the old version are not affected. The annotations
+ * passed to these methods are copied, and the new version has its own counter of
+ * annotation ids, so making a new version never changes the old one. Thaw makes
+ * a mutable document from a snapshot.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Frozen_Document extends Document {
+	
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * The indices over the non-standard annotations, one for every type the
+	 * snapshot contains annotations of.
+	 */
+	transient Map<String, Interval_Index> frozen_interval_indices;
+	
+	/**
+	 * Whether the snapshot is complete. Until then the constructor may set the
+	 * fields of the snapshot.
+	 */
+	transient boolean frozen;
+	
+	/**
+	 * Constructor for subclasses which set the fields of the snapshot themselves 
+	 * and set frozen when they are done.
+	 */
+	Frozen_Document () {
+	}
+	
+	/**
+	 * Constructor for a snapshot of the specified document. All elements of the
+	 * document are copied.
+	 * @param document The document.
+	 */
+	Frozen_Document (Document document) {
+		this.title = document.getTitle();
+		this.original_text = document.original_text;
+		this.mapped_text_path = document.mapped_text_path;
+		
+		if (original_text == null && mapped_text_path != null) {
+			this.mapped_text = document.getMapped_text();
+		}
+		
+		if (document.getNote_history() != null) {
+			this.note_history = new HashMap<String, String>(
+					document.getNote_history());
+		}
+		
+		this.start = document.getStart();
+		this.end = document.getEnd();
+		
+		if (document.getMeta_data() != null) {
+			this.meta_data = Collections.unmodifiableMap(
+					new HashMap<String, String>(document.getMeta_data()));
+		}
+		
+		this.change_log = document.getChange_log().Copy(true);
+		this.next_annotation_id = new AtomicInteger(
+				document.next_annotation_id.get());
+		
+		if (document.getToken_table() != null) {
+			this.tokens = document.getToken_table().CopyReadOnly();
+		}
+		
+		this.lines = CopyElements(document.getLines(), new Line[0]);
+		this.sentences = CopyElements(document.getSentences(), new Sentence[0]);
+		this.paragraphs = CopyElements(document.getParagraphs(), new Paragraph[0]);
+		this.pages = CopyElements(document.getPages(), new Page[0]);
+		this.sub_chapters = CopyElements(document.getSub_chapters(),
+				new Chapter[0]);
+		this.main_chapters = CopyElements(document.getMain_chapters(),
+				new Chapter[0]);
+		
+		Map<String, List<Annotation>> frozen_text_units =
+				new HashMap<String, List<Annotation>>();
+		
+		this.frozen_interval_indices = new HashMap<String, Interval_Index>();
+		
+		if (document.getText_units() != null) {
+			for (String type: document.getText_units().keySet()) {
+				List<Annotation> annotations_of_type = CopyElements(
+						document.getText_units().get(type), new Annotation[0]);
+				
+				frozen_text_units.put(type, annotations_of_type);
+				frozen_interval_indices.put(type, new Interval_Index(
+						annotations_of_type));
+			}
+		}
+		
+		this.text_units = Collections.unmodifiableMap(frozen_text_units);
+		this.frozen_interval_indices = Collections.unmodifiableMap(
+				frozen_interval_indices);
+		
+		if (tokens != null) {
+			this.offset_index = new Offset_Index(tokens.CopyStarts(),
+					tokens.CopyEnds(), getText_length());
+		}
+		
+		this.hierarchy = new Hierarchy(this);
+		
+		this.frozen = true;
+	}
+	
+	/**
+	 * Constructor for a new version of a snapshot in which the annotations of one
+	 * type are replaced. Everything else is shared with the old version. The new
+	 * version counts the ids of annotations on from the counter of the old
+	 * version, and annotations without an id get one from the new counter.
+	 * @param previous The old version of the snapshot.
+	 * @param type The name of the type of the replaced annotations.
+	 * @param annotations_of_type The new annotations of the type. The list is
+	 * copied, but the annotations are not, so they have to be copies which belong
+	 * to the new version.
+	 */
+	Frozen_Document (Frozen_Document previous, String type,
+			List<Annotation> annotations_of_type) {
+		this.title = previous.title;
+		this.original_text = previous.original_text;
+		this.mapped_text_path = previous.mapped_text_path;
+		this.mapped_text = previous.mapped_text;
+		this.note_history = previous.note_history;
+		this.start = previous.start;
+		this.end = previous.end;
+		this.meta_data = previous.meta_data;
+		this.change_log = previous.change_log;
+		this.next_annotation_id = new AtomicInteger(
+				previous.next_annotation_id.get());
+		this.tokens = previous.tokens;
+		this.lines = previous.lines;
+		this.sentences = previous.sentences;
+		this.paragraphs = previous.paragraphs;
+		this.pages = previous.pages;
+		this.sub_chapters = previous.sub_chapters;
+		this.main_chapters = previous.main_chapters;
+		this.offset_index = previous.offset_index;
+		this.hierarchy = previous.hierarchy;
+		
+		Map<String, List<Annotation>> frozen_text_units =
+				new HashMap<String, List<Annotation>>(previous.text_units);
+		Map<String, Interval_Index> interval_indices =
+				new HashMap<String, Interval_Index>(previous.frozen_interval_indices);
+		
+		List<Annotation> frozen_annotations = Collections.unmodifiableList(
+				Arrays.asList(annotations_of_type.toArray(
+				new Annotation[annotations_of_type.size()])));
+		
+		for (Annotation annotation: frozen_annotations) {
+			if (annotation.getId() == -1) {
+				annotation.setId(next_annotation_id.getAndIncrement());
+			} else if (annotation.getId() >= next_annotation_id.get()) {
+				next_annotation_id.set(annotation.getId()+1);
+			}
+		}
+		
+		frozen_text_units.put(type, frozen_annotations);
+		interval_indices.put(type, new Interval_Index(frozen_annotations));
+		
+		this.text_units = Collections.unmodifiableMap(frozen_text_units);
+		this.frozen_interval_indices = Collections.unmodifiableMap(
+				interval_indices);
+		
+		this.frozen = true;
+	}
+	
+	/**
+	 * Make a new version of the snapshot which additionally contains a copy of the
+	 * specified annotation. The snapshot itself is not changed. If the annotation
+	 * has no id, the copy gets the next id of the new version.
+	 * @param type The name of the type of the annotation.
+	 * @param annotation The annotation.
+	 * @return The new version of the snapshot.
+	 */
+	public Frozen_Document WithAnnotation (String type, Annotation annotation) {
+		List<Annotation> annotations_of_type = new ArrayList<Annotation>();
+		
+		if (text_units.get(type) != null) {
+			annotations_of_type.addAll(text_units.get(type));
+		}
+		
+		annotations_of_type.add((Annotation) annotation.Copy());
+		
+		return new Frozen_Document(this, type, annotations_of_type);
+	}
+	
+	/**
+	 * Make a new version of the snapshot in which the annotations of the
+	 * specified type are replaced by copies of the specified annotations. The
+	 * snapshot itself is not changed. Copies of annotations without an id get the
+	 * next ids of the new version.
+	 * @param type The name of the type of the annotations.
+	 * @param annotations_of_type The new annotations of the type.
+	 * @return The new version of the snapshot.
+	 */
+	public Frozen_Document WithAnnotations (String type,
+			List<Annotation> annotations_of_type) {
+		List<Annotation> copies = new ArrayList<Annotation>(
+				annotations_of_type.size());
+		
+		for (Annotation annotation: annotations_of_type) {
+			copies.add((Annotation) annotation.Copy());
+		}
+		
+		return new Frozen_Document(this, type, copies);
+	}
+	
+	/**
+	 * Make a mutable document from the snapshot. All elements of the snapshot are
+	 * copied, so changing the document does not change the snapshot.
+	 * @return A mutable copy of the snapshot.
+	 */
+	public Document Thaw () {
+		Document document = new Document();
+		
+		document.title = title;
+		document.original_text = original_text;
+		document.mapped_text_path = mapped_text_path;
+		document.mapped_text = mapped_text;
+		document.start = start;
+		document.end = end;
+		
+		if (note_history != null) {
+			document.note_history = new HashMap<String, String>(note_history);
+		}
+		
+		if (meta_data != null) {
+			document.meta_data = new HashMap<String, String>(meta_data);
+		}
+		
+		document.change_log = change_log.Copy(false);
+		document.next_annotation_id.set(next_annotation_id.get());
+		
+		if (tokens != null) {
+			document.tokens = tokens.CopyRange(0, tokens.size());
+		}
+		
+		document.lines = ThawElements(lines);
+		document.sentences = ThawElements(sentences);
+		document.paragraphs = ThawElements(paragraphs);
+		document.pages = ThawElements(pages);
+		document.sub_chapters = ThawElements(sub_chapters);
+		document.main_chapters = ThawElements(main_chapters);
+		
+		for (String type: text_units.keySet()) {
+			document.text_units.put(type, ThawElements(text_units.get(type)));
+		}
+		
+		return document;
+	}
+	
+	/**
+	 * Get the snapshot itself, since it can not be changed anyway.
+	 * @return The snapshot.
+	 */
+	public Frozen_Document Freeze () {
+		return this;
+	}
+	
+	/**
+	 * Get the text of the document. Unlike in a mutable document, the string of a
+	 * text stored in a mapped file is not kept, so getText should be used for
+	 * large texts.
+	 * @return The text of the document.
+	 */
+	public String getOriginal_text() {
+		if (original_text == null && mapped_text != null) {
+			return mapped_text.toString();
+		}
+		
+		return original_text;
+	}
+	
+	/**
+	 * Get the index over the non-standard annotations of the specified type. The
+	 * indices of a snapshot are made when the snapshot is made.
+	 * @param type The name of the type of the annotations.
+	 * @return The index over the annotations of the type. The index is empty if
+	 * the snapshot does not contain annotations of the type.
+	 */
+	public Interval_Index getInterval_index(String type) {
+		Interval_Index interval_index = frozen_interval_indices.get(type);
+		
+		if (interval_index == null) {
+			return new Interval_Index(null);
+		}
+		
+		return interval_index;
+	}
+	
+	@Deprecated
+	public void setInstance_change_log(List<String> instance_change_log) {
+		CheckWritable();
+		super.setInstance_change_log(instance_change_log);
+	}
+	
+	public void setLines(List<Line> lines) {
+		CheckWritable();
+		super.setLines(lines);
+	}
+	
+	public void setMain_chapters(List<Chapter> main_chapters) {
+		CheckWritable();
+		super.setMain_chapters(main_chapters);
+	}
+	
+	public void setPages(List<Page> pages) {
+		CheckWritable();
+		super.setPages(pages);
+	}
+	
+	public void setSub_chapters(List<Chapter> sub_chapters) {
+		CheckWritable();
+		super.setSub_chapters(sub_chapters);
+	}
+	
+	public void setTitle(String title) {
+		CheckWritable();
+		super.setTitle(title);
+	}
+	
+	public void setMeta_data(Map<String, String> meta_data) {
+		CheckWritable();
+		super.setMeta_data(meta_data);
+	}
+	
+	public void setText_units(Map<String, List<Annotation>> text_units) {
+		CheckWritable();
+		super.setText_units(text_units);
+	}
+	
+	public void addAnnotation(String type, Annotation annotation) {
+		CheckWritable();
+		super.addAnnotation(type, annotation);
+	}
+	
+	public void InvalidateIntervalIndices() {
+		CheckWritable();
+		super.InvalidateIntervalIndices();
+	}
+	
+	public void setTokens(List<Token> tokens) {
+		CheckWritable();
+		super.setTokens(tokens);
+	}
+	
+	public void setToken_table(Token_Table tokens) {
+		CheckWritable();
+		super.setToken_table(tokens);
+	}
+	
+	public void setSentences(List<Sentence> sentences) {
+		CheckWritable();
+		super.setSentences(sentences);
+	}
+	
+	public void setOriginal_text(String original_text) {
+		CheckWritable();
+		super.setOriginal_text(original_text);
+	}
+	
+	public void OpenMappedText (String path) {
+		CheckWritable();
+		super.OpenMappedText(path);
+	}
+	
+	public void MapOriginalText (String path) {
+		CheckWritable();
+		super.MapOriginalText(path);
+	}
+	
+	public void setParagraphs(List<Paragraph> paragraphs) {
+		CheckWritable();
+		super.setParagraphs(paragraphs);
+	}
+	
+	public void BuildHierarchy () {
+		CheckWritable();
+		super.BuildHierarchy();
+	}
+	
+	public void MakeOffsetToTokenMap () {
+		CheckWritable();
+		super.MakeOffsetToTokenMap();
+	}
+	
+	public void LoadAsOneObject (String path) {
+		CheckWritable();
+		super.LoadAsOneObject(path);
+	}
+	
+	public void setStart(int start) {
+		CheckWritable();
+		super.setStart(start);
+	}
+	
+	public void setEnd(int end) {
+		CheckWritable();
+		super.setEnd(end);
+	}
+	
+	public void setNote_history(HashMap<String, String> note_history) {
+		CheckWritable();
+		super.setNote_history(note_history);
+	}
+	
+	/**
+	 * Write a mutable copy of the snapshot instead of the snapshot, because the
+	 * indices of the snapshot are not stored and could not be made again without
+	 * writing to the snapshot. Use Freeze on the loaded document to get a snapshot
+	 * again.
+	 * @return A mutable copy of the snapshot.
+	 */
+	Object writeReplace () {
+		return Thaw();
+	}
+	
+	/**
+	 * Check that the snapshot can be changed, which is only the case while it is
+	 * made.
+	 */
+	void CheckWritable () {
+		if (frozen) {
+			throw new UnsupportedOperationException("The document is frozen.");
+		}
+	}
+	
+	/**
+	 * Copy the specified elements into an array and wrap the array in an
+	 * unmodifiable list.
+	 * @param elements The elements.
+	 * @param type An empty array of the class of the elements.
+	 * @return An unmodifiable list of copies of the elements or null if the
+	 * specified list is null.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T extends Linguistic_Element> List<T> CopyElements (List<T> elements,
+			T[] type) {
+		if (elements == null) {
+			return null;
+		}
+		
+		T[] copies = Arrays.copyOf(type, elements.size());
+		
+		for (int i=0;i<copies.length;i++) {
+			copies[i] = (T) elements.get(i).Copy();
+		}
+		
+		return Collections.unmodifiableList(Arrays.asList(copies));
+	}
+	
+	/**
+	 * Copy the specified elements into a mutable list.
+	 * @param elements The elements.
+	 * @return A mutable list of copies of the elements or null if the specified
+	 * list is null.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T extends Linguistic_Element> List<T> ThawElements (List<T> elements) {
+		if (elements == null) {
+			return null;
+		}
+		
+		ArrayList<T> copies = new ArrayList<T>(elements.size());
+		
+		for (T element: elements) {
+			copies.add((T) element.Copy());
+		}
+		
+		return copies;
+	}
+}
@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.net.URL;
 import java.net.URI;
@@ -48,37 +49,41 @@ public class GATE_Converter {
 		
 		Integer id = 0;
 		
-		for (Token token: document.getTokens()) {
+		Token_Table tokens = document.getToken_table();
+		
+		for (int i=0;i<tokens.size();i++) {
 			FeatureMap token_map = gate.Factory.newFeatureMap();
 			
-			if (token.getLemma() != null) {
-				token_map.put("lemma", token.getLemma());
+			if (tokens.getLemma_code(i) != -1) {
+				token_map.put("lemma", tokens.getLemma(i));
 			} 
 			
-			if (token.getPos() != null) {
-				token_map.put("category", token.getPos());
+			if (tokens.getPos_code(i) != -1) {
+				token_map.put("category", tokens.getPos(i));
 			}
 			
-			if (token.getFunction() != null) {
-				token_map.put("function", token.getFunction());
+			if (tokens.getFunction_code(i) != -1) {
+				token_map.put("function", tokens.getFunction(i));
 			}
 			
-			if (token.getGovernor() != -1) {
-				token_map.put("governor", token.getGovernor());
+			if (tokens.getGovernor(i) != -1) {
+				token_map.put("governor", tokens.getGovernor(i));
 			}
 			
-			if (token.getDependency() != null) {
-				token_map.put("dependency", token.getDependency());
+			if (tokens.getDependency_code(i) != -1) {
+				token_map.put("dependency", tokens.getDependency(i));
 			}
 			
-			if (token.getNote_history() != null) {
-				for (String key: token.getNote_history().keySet()) {
-					token_map.put(key, token.getNote_history().get(key));
+			HashMap<String, String> note_history = tokens.getNote_history(i);
+			
+			if (note_history != null) {
+				for (String key: note_history.keySet()) {
+					token_map.put(key, note_history.get(key));
 				}
 			}
 			
-			gate_document.getAnnotations().add(id, new Long(token.getStart()), 
-					new Long(token.getEnd()), "Token", token_map);
+			gate_document.getAnnotations().add(id, new Long(tokens.getStart(i)), 
+					new Long(tokens.getEnd(i)), "Token", token_map);
 			
 			id = id+1;
 		}
@@ -138,7 +143,7 @@ public class GATE_Converter {
 		}
 		
 		for (String key: document.getText_units().keySet()) {
-			ArrayList<Annotation> annotations_of_type = document.getText_units().
+			List<Annotation> annotations_of_type = document.getText_units().
 					get(key);
 			
 			for (Annotation annotation_of_type: annotations_of_type) {
@@ -217,59 +222,62 @@ public class GATE_Converter {
 		
 		Collections.sort(default_annotation_list, new OffsetComparator());
 		
-		ArrayList<Token> tokens = new ArrayList<Token>();
+		Token_Table tokens = new Token_Table(default_annotation_list.size());
 		ArrayList<Sentence> sentences = new ArrayList<Sentence>();
 		ArrayList<Paragraph> paragraphs = new ArrayList<Paragraph>();
 		ArrayList<Page> pages = new ArrayList<Page>();
 		ArrayList<Chapter> sub_chapters = new ArrayList<Chapter>();
 		ArrayList<Chapter> main_chapters = new ArrayList<Chapter>();
 		
-		document.setText_units(new HashMap<String, ArrayList<Annotation>>());
+		document.setText_units(new HashMap<String, List<Annotation>>());
+		
+		// The sub-types of imported annotations are not changes made by a user.
+		document.getChange_log().setMode(Change_Log.DISABLED);
 		
 		for (gate.Annotation default_annotation: default_annotation_list) {
 			if (default_annotation.getType().equals("Token")) {
-				Token token = new Token();
-				
-				token.setStart(default_annotation.getStartNode().getOffset().intValue());
-				token.setEnd(default_annotation.getEndNode().getOffset().intValue());
-				
-				token.setNote_history(new HashMap<String, String>());
+				int token = tokens.add(default_annotation.getStartNode().getOffset().
+						intValue(), default_annotation.getEndNode().getOffset().
+							intValue());
 				
 				if (default_annotation.getFeatures().containsKey("lemma")) {
-					token.setLemma((String) default_annotation.getFeatures().
+					tokens.setLemma(token, (String) default_annotation.getFeatures().
 							get("lemma"));
 				}
 				
 				if (default_annotation.getFeatures().containsKey("category")) {
-					token.setPos((String) default_annotation.getFeatures().
+					tokens.setPos(token, (String) default_annotation.getFeatures().
 							get("category"));
 				}
 				
 				if (default_annotation.getFeatures().containsKey("dependency")) {
-					token.setDependency((String) default_annotation.getFeatures().
-							get("dependency"));
+					tokens.setDependency(token, (String) default_annotation.
+							getFeatures().get("dependency"));
 				}
 				
 				if (default_annotation.getFeatures().containsKey("governor")) {
-					token.setGovernor((Integer) default_annotation.getFeatures().
-							get("governor"));
+					tokens.setGovernor(token, (Integer) default_annotation.
+							getFeatures().get("governor"));
 				}
 				
 				if (default_annotation.getFeatures().containsKey("function")) {
-					token.setFunction((String) default_annotation.getFeatures().
-							get("function"));
+					tokens.setFunction(token, (String) default_annotation.
+							getFeatures().get("function"));
 				}
 				
 				for (Object key: default_annotation.getFeatures().keySet()) {
 					if (!key.equals("lemma") && !key.equals("category") && 
 							!key.equals("governor") && !key.equals("dependency") && 
 								!key.equals("function")) {
-						token.getNote_history().put(key.toString(), 
+						if (tokens.getNote_history(token) == null) {
+							tokens.setNote_history(token, 
+									new HashMap<String, String>());
+						}
+						
+						tokens.getNote_history(token).put(key.toString(), 
 								default_annotation.getFeatures().get(key).toString());
 					}
 				}
-				
-				tokens.add(token);
 			} else if (default_annotation.getType().equals("Sentence")) {
 				Sentence sentence = new Sentence();
 				
@@ -317,24 +325,17 @@ public class GATE_Converter {
 					annotation_of_type.setSub_type("unknown", document);
 				}
 				
-				if (document.getText_units().containsKey(default_annotation.getType())) {
-					document.getText_units().get(default_annotation.getType()).add(
-							annotation_of_type);
-				} else {
-					document.getText_units().put(default_annotation.getType(), 
-							new ArrayList<Annotation>());
-					
-					document.getText_units().get(default_annotation.getType()).add(
-							annotation_of_type);
-				}
+				document.addAnnotation(default_annotation.getType(), 
+						annotation_of_type);
 			}
 		}
 		
-		document.setTokens(tokens);
+		document.setToken_table(tokens);
 		document.setSentences(sentences);
 		document.setParagraphs(paragraphs);
 		document.setPages(pages);
-
+		
+		document.getChange_log().setMode(Change_Log.ENABLED);
 		
 		return document;
 		
@@ -414,12 +415,13 @@ public class GATE_Converter {
 		ArrayList<Annotation> drama_np_list = new ArrayList<Annotation>();
 		
 		for (Annotation np: internal_document.getText_units().get("NP")) {
-			System.out.println(np.getString(
-					internal_document.getOriginal_text()));
+			Text_View np_text = np.getText(internal_document.getOriginal_text());
+			
+			System.out.println(np_text);
 			
-			if (np.getString(internal_document.getOriginal_text()).
-					toLowerCase().indexOf("drama") != -1) {
-				drama_nps.add(np.getString(internal_document.getOriginal_text()));
+			if (Text_View.RegionContainsIgnoreCase(np_text, 0, np_text.length(), 
+					"drama")) {
+				drama_nps.add(np_text.toString());
 				
 				Annotation drama_np = new Annotation();
 				
@@ -706,7 +708,7 @@ public class GATE_Converter {
 			
 			if (page_label == 1) {
 				System.out.println("Dramatic Page");
-				System.out.println(internal_document.getPages().get(i).getString(
+				System.out.println(internal_document.getPages().get(i).getText(
 						internal_document.getOriginal_text()));
 				
 				Annotation labeled_page = new Annotation();
@@ -721,7 +723,7 @@ public class GATE_Converter {
 				labeled_pages_list.add(labeled_page);
 			} else if (page_label == 2) {
 				System.out.println("Epic Page");
-				System.out.println(internal_document.getPages().get(i).getString(
+				System.out.println(internal_document.getPages().get(i).getText(
 						internal_document.getOriginal_text()));
 				
 				Annotation labeled_page = new Annotation();
@@ -736,7 +738,7 @@ public class GATE_Converter {
 				labeled_pages_list.add(labeled_page);
 			} else if (page_label == 3) {
 				System.out.println("Lyric Page");
-				System.out.println(internal_document.getPages().get(i).getString(
+				System.out.println(internal_document.getPages().get(i).getText(
 						internal_document.getOriginal_text()));
 				
 				Annotation labeled_page = new Annotation();
@@ -0,0 +1,548 @@
+package teanlis;
+
+/**
+ * This class represents the linguistic and representational (see Conceptual
+ * Documentation) hierarchy of a document: which sentence a token belongs to,
+ * which paragraph a sentence belongs to and so on up to the main-chapters, and
+ * which paragraph, page and chapters a line belongs to. The hierarchy is
+ * computed by the BuildHierarchy method of the document.
+ * 
+ * The levels of the hierarchy form the chain tokens, sentences, paragraphs,
+ * pages, sub-chapters, main-chapters. Lines are a separate level whose parent is
+ * the lowest level above sentences. Levels the document does not contain are
+ * skipped, so if a document has no pages, the parent of a paragraph is a
+ * sub-chapter.
+ * 
+ * For every element of a level the hierarchy stores the index of the parent
+ * containing the start offset of the element and the index of the parent
+ * containing its end offset in primitive arrays. Elements which straddle a
+ * boundary, for example a sentence which continues on the next page, have
+ * different first and last parents. An element belongs to its first parent. An
+ * element which starts in a gap between two parents belongs to the following
+ * parent, an element which starts after the last parent belongs to the last
+ * parent. For every parent the hierarchy stores the range of its children, the
+ * children of a parent are always a contiguous range of the child level.
+ * 
+ * Chapters can start in the middle of a page, so the sub-chapter and the
+ * main-chapter of a token, sentence, paragraph, page or line are not taken from
+ * its parents. Every element of these levels is assigned to the chapters of both
+ * chapter levels by its own start offset, the same way it is assigned to its
+ * parent, and getAncestor and the descendants of a chapter use this assignment.
+ * 
+ * The elements of all levels are expected to be sorted by their start offsets
+ * and elements of the same level are expected not to overlap, which is the case
+ * for all documents created by the methods in MakeDocument and GATE_Converter.
+ * Computing the hierarchy takes time linear in the number of elements of all
+ * levels.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Hierarchy {
+	
+	/**
+	 * The level of the tokens.
+	 */
+	public static final int TOKENS = 0;
+	
+	/**
+	 * The level of the sentences.
+	 */
+	public static final int SENTENCES = 1;
+	
+	/**
+	 * The level of the paragraphs.
+	 */
+	public static final int PARAGRAPHS = 2;
+	
+	/**
+	 * The level of the pages.
+	 */
+	public static final int PAGES = 3;
+	
+	/**
+	 * The level of the sub-chapters.
+	 */
+	public static final int SUB_CHAPTERS = 4;
+	
+	/**
+	 * The level of the main-chapters.
+	 */
+	public static final int MAIN_CHAPTERS = 5;
+	
+	/**
+	 * The level of the lines.
+	 */
+	public static final int LINES = 6;
+	
+	/**
+	 * The number of levels.
+	 */
+	static final int LEVEL_COUNT = 7;
+	
+	/**
+	 * The number of elements of every level.
+	 */
+	int[] sizes;
+	
+	/**
+	 * The level of the parents of every level or -1 if the elements of the level
+	 * have no parents.
+	 */
+	int[] parent_levels;
+	
+	/**
+	 * For every level the index of the parent containing the start offset of each
+	 * element.
+	 */
+	int[][] first_parents;
+	
+	/**
+	 * For every level the index of the parent containing the end offset of each
+	 * element.
+	 */
+	int[][] last_parents;
+	
+	/**
+	 * For every level the index of the first child of each parent, the parents
+	 * are the elements of the parent level of the level.
+	 */
+	int[][] first_children;
+	
+	/**
+	 * For every level the index after the last child of each parent.
+	 */
+	int[][] end_children;
+	
+	/**
+	 * For the sub-chapters and the main-chapters and every level below them the
+	 * index of the chapter containing the start offset of each element, see
+	 * getChapter_index for the first index.
+	 */
+	int[][][] chapters;
+	
+	/**
+	 * For the sub-chapters and the main-chapters and every level below them the
+	 * index of the first element of the level in each chapter.
+	 */
+	int[][][] first_chapter_elements;
+	
+	/**
+	 * For the sub-chapters and the main-chapters and every level below them the
+	 * index after the last element of the level in each chapter.
+	 */
+	int[][][] end_chapter_elements;
+	
+	/**
+	 * Constructor for the hierarchy which computes the hierarchy of the specified
+	 * document.
+	 * @param document The document.
+	 */
+	public Hierarchy (Document document) {
+		int[][] starts = new int[LEVEL_COUNT][];
+		int[][] ends = new int[LEVEL_COUNT][];
+		
+		if (document.getToken_table() != null) {
+			starts[TOKENS] = document.getToken_table().CopyStarts();
+			ends[TOKENS] = document.getToken_table().CopyEnds();
+		}
+		
+		CopyOffsets(document.getSentences(), starts, ends, SENTENCES);
+		CopyOffsets(document.getParagraphs(), starts, ends, PARAGRAPHS);
+		CopyOffsets(document.getPages(), starts, ends, PAGES);
+		CopyOffsets(document.getSub_chapters(), starts, ends, SUB_CHAPTERS);
+		CopyOffsets(document.getMain_chapters(), starts, ends, MAIN_CHAPTERS);
+		CopyOffsets(document.getLines(), starts, ends, LINES);
+		
+		this.sizes = new int[LEVEL_COUNT];
+		this.parent_levels = new int[LEVEL_COUNT];
+		this.first_parents = new int[LEVEL_COUNT][];
+		this.last_parents = new int[LEVEL_COUNT][];
+		this.first_children = new int[LEVEL_COUNT][];
+		this.end_children = new int[LEVEL_COUNT][];
+		
+		for (int level=0;level<LEVEL_COUNT;level++) {
+			if (starts[level] == null) {
+				starts[level] = new int[0];
+				ends[level] = new int[0];
+			}
+			
+			sizes[level] = starts[level].length;
+		}
+		
+		for (int level=0;level<LEVEL_COUNT;level++) {
+			int parent_level = -1;
+			
+			for (int above=level == LINES ? PARAGRAPHS : level+1;
+					above <= MAIN_CHAPTERS && parent_level == -1;above++) {
+				if (sizes[above] > 0) {
+					parent_level = above;
+				}
+			}
+			
+			parent_levels[level] = parent_level;
+			
+			first_parents[level] = new int[sizes[level]];
+			last_parents[level] = new int[sizes[level]];
+			
+			if (parent_level == -1) {
+				java.util.Arrays.fill(first_parents[level], -1);
+				java.util.Arrays.fill(last_parents[level], -1);
+				
+				continue;
+			}
+			
+			first_children[level] = new int[sizes[parent_level]];
+			end_children[level] = new int[sizes[parent_level]];
+			
+			Assign(starts[level], ends[level], starts[parent_level],
+					ends[parent_level], first_parents[level], last_parents[level]);
+			
+			MakeChildRanges(first_parents[level], first_children[level],
+					end_children[level]);
+		}
+		
+		this.chapters = new int[2][LEVEL_COUNT][];
+		this.first_chapter_elements = new int[2][LEVEL_COUNT][];
+		this.end_chapter_elements = new int[2][LEVEL_COUNT][];
+		
+		for (int chapter_level=SUB_CHAPTERS;chapter_level<=MAIN_CHAPTERS;
+				chapter_level++) {
+			int chapter_index = getChapter_index(chapter_level);
+			
+			for (int level=0;level<LEVEL_COUNT;level++) {
+				if (isChapter_level(level) || sizes[chapter_level] == 0) {
+					continue;
+				}
+				
+				int[] element_chapters = new int[sizes[level]];
+				
+				Assign(starts[level], ends[level], starts[chapter_level],
+						ends[chapter_level], element_chapters, new int[sizes[level]]);
+				
+				chapters[chapter_index][level] = element_chapters;
+				first_chapter_elements[chapter_index][level] =
+						new int[sizes[chapter_level]];
+				end_chapter_elements[chapter_index][level] =
+						new int[sizes[chapter_level]];
+				
+				MakeChildRanges(element_chapters,
+						first_chapter_elements[chapter_index][level],
+						end_chapter_elements[chapter_index][level]);
+			}
+		}
+	}
+	
+	/**
+	 * Check whether a level is one of the levels of chapters.
+	 * @param level The level.
+	 * @return True if the level is SUB_CHAPTERS or MAIN_CHAPTERS.
+	 */
+	static boolean isChapter_level(int level) {
+		return level == SUB_CHAPTERS || level == MAIN_CHAPTERS;
+	}
+	
+	/**
+	 * Get the first index of the arrays of the chapters of the elements for a level
+	 * of chapters.
+	 * @param chapter_level SUB_CHAPTERS or MAIN_CHAPTERS.
+	 * @return The index.
+	 */
+	static int getChapter_index(int chapter_level) {
+		return chapter_level-SUB_CHAPTERS;
+	}
+	
+	/**
+	 * Get the number of elements of the specified level.
+	 * @param level The level.
+	 * @return The number of elements of the level.
+	 */
+	public int size(int level) {
+		return sizes[level];
+	}
+	
+	/**
+	 * Get the level of the parents of the elements of the specified level.
+	 * @param level The level.
+	 * @return The level of the parents or -1 if the elements of the level have no
+	 * parents.
+	 */
+	public int getParent_level(int level) {
+		return parent_levels[level];
+	}
+	
+	/**
+	 * Get the parent of an element, the parent containing the start offset of the
+	 * element.
+	 * @param level The level of the element.
+	 * @param index The index of the element in its level.
+	 * @return The index of the parent or -1 if the element has no parent.
+	 */
+	public int getParent(int level, int index) {
+		return first_parents[level][index];
+	}
+	
+	/**
+	 * Get the parent containing the end offset of an element. This is a different
+	 * parent than the one returned by getParent if the element straddles a
+	 * boundary of its parent level.
+	 * @param level The level of the element.
+	 * @param index The index of the element in its level.
+	 * @return The index of the parent or -1 if the element has no parent.
+	 */
+	public int getLast_parent(int level, int index) {
+		return last_parents[level][index];
+	}
+	
+	/**
+	 * Check whether an element straddles a boundary of its parent level, that is
+	 * whether it starts in one parent and ends in another.
+	 * @param level The level of the element.
+	 * @param index The index of the element in its level.
+	 * @return True if the element straddles a boundary, false otherwise.
+	 */
+	public boolean isStraddling(int level, int index) {
+		return first_parents[level][index] != last_parents[level][index];
+	}
+	
+	/**
+	 * Get the ancestor of an element on the specified level, for example the page
+	 * a token is on. The ancestor is found by following the parents of the
+	 * element, except for the chapters of an element below the chapters, which are
+	 * the chapters containing the start offset of the element itself.
+	 * @param level The level of the element.
+	 * @param index The index of the element in its level.
+	 * @param ancestor_level The level of the ancestor.
+	 * @return The index of the ancestor or -1 if the document does not contain
+	 * elements of the ancestor level or the level is not above the level of the
+	 * element.
+	 */
+	public int getAncestor(int level, int index, int ancestor_level) {
+		if (ancestor_level == LINES || sizes[ancestor_level] == 0) {
+			return -1;
+		}
+		
+		if (isChapter_level(ancestor_level) && !isChapter_level(level)) {
+			return index == -1 ? -1 :
+					chapters[getChapter_index(ancestor_level)][level][index];
+		}
+		
+		while (level != ancestor_level && index != -1) {
+			int parent_level = parent_levels[level];
+			
+			if (parent_level == -1 || parent_level > ancestor_level) {
+				return -1;
+			}
+			
+			index = first_parents[level][index];
+			level = parent_level;
+		}
+		
+		return index;
+	}
+	
+	/**
+	 * Get the index of the first child of a parent on the specified level.
+	 * @param child_level The level of the children.
+	 * @param parent The index of the parent in the parent level of the children.
+	 * @return The index of the first child.
+	 */
+	public int getFirst_child(int child_level, int parent) {
+		return first_children[child_level][parent];
+	}
+	
+	/**
+	 * Get the index after the last child of a parent on the specified level. The
+	 * parent has no children on the level if this is the index of the first child.
+	 * @param child_level The level of the children.
+	 * @param parent The index of the parent in the parent level of the children.
+	 * @return The index after the last child.
+	 */
+	public int getEnd_child(int child_level, int parent) {
+		return end_children[child_level][parent];
+	}
+	
+	/**
+	 * Get the index of the first descendant of an element on the specified level,
+	 * for example the first token of a sub-chapter.
+	 * @param level The level of the element.
+	 * @param index The index of the element in its level.
+	 * @param descendant_level The level of the descendants.
+	 * @return The index of the first descendant or -1 if the level of the
+	 * descendants is not below the level of the element.
+	 */
+	public int getFirst_descendant(int level, int index, int descendant_level) {
+		int[] range = getDescendants(level, index, descendant_level);
+		
+		return range == null ? -1 : range[0];
+	}
+	
+	/**
+	 * Get the index after the last descendant of an element on the specified
+	 * level. The element has no descendants on the level if this is the index of
+	 * the first descendant.
+	 * @param level The level of the element.
+	 * @param index The index of the element in its level.
+	 * @param descendant_level The level of the descendants.
+	 * @return The index after the last descendant or -1 if the level of the
+	 * descendants is not below the level of the element.
+	 */
+	public int getEnd_descendant(int level, int index, int descendant_level) {
+		int[] range = getDescendants(level, index, descendant_level);
+		
+		return range == null ? -1 : range[1];
+	}
+	
+	/**
+	 * Get the range of the descendants of an element on the specified level by
+	 * following the ranges of the children from the descendant level up to the
+	 * level of the element. The descendants of a chapter below the chapters are the
+	 * elements assigned to the chapter by their own start offsets.
+	 * @param level The level of the element.
+	 * @param index The index of the element in its level.
+	 * @param descendant_level The level of the descendants.
+	 * @return The index of the first descendant and the index after the last
+	 * descendant or null if the level of the descendants is not below the level of
+	 * the element.
+	 */
+	int[] getDescendants(int level, int index, int descendant_level) {
+		if (isChapter_level(level) && !isChapter_level(descendant_level) &&
+				sizes[level] > 0) {
+			int chapter_index = getChapter_index(level);
+			
+			return new int[] {first_chapter_elements[chapter_index][
+					descendant_level][index], end_chapter_elements[chapter_index][
+					descendant_level][index]};
+		}
+		
+		int[] chain = new int[LEVEL_COUNT];
+		int length = 0;
+		
+		int current = descendant_level;
+		
+		while (current != level) {
+			if (current == -1 || length == LEVEL_COUNT) {
+				return null;
+			}
+			
+			chain[length] = current;
+			length = length+1;
+			
+			current = parent_levels[current];
+		}
+		
+		int first = index;
+		int end = index+1;
+		
+		for (int i=length-1;i>=0;i--) {
+			int child_level = chain[i];
+			
+			if (first == end) {
+				int position = first < sizes[parent_levels[child_level]] ?
+						first_children[child_level][first] : sizes[child_level];
+				
+				first = position;
+				end = position;
+			} else {
+				int new_first = first_children[child_level][first];
+				
+				end = end_children[child_level][end-1];
+				first = new_first;
+			}
+		}
+		
+		return new int[] {first, end};
+	}
+	
+	/**
+	 * Copy the start and end offsets of the elements of a level into arrays.
+	 * @param elements The elements of the level or null.
+	 * @param starts The arrays of start offsets of all levels.
+	 * @param ends The arrays of end offsets of all levels.
+	 * @param level The level.
+	 */
+	static void CopyOffsets (java.util.List<? extends Linguistic_Element> elements,
+			int[][] starts, int[][] ends, int level) {
+		if (elements == null) {
+			return;
+		}
+		
+		starts[level] = new int[elements.size()];
+		ends[level] = new int[elements.size()];
+		
+		for (int i=0;i<elements.size();i++) {
+			starts[level][i] = elements.get(i).getStart();
+			ends[level][i] = elements.get(i).getEnd();
+		}
+	}
+	
+	/**
+	 * Assign every child to the parents containing its start and end offset in one
+	 * sweep over the children and the parents. The parent containing the start
+	 * offset is the first parent which does not end before the child starts, or
+	 * the last parent if all parents end before the child starts. The parent
+	 * containing the end offset is the last parent which starts at or before the
+	 * end of the child, but never a parent before the one containing the start.
+	 * @param child_starts The start offsets of the children.
+	 * @param child_ends The end offsets of the children.
+	 * @param parent_starts The start offsets of the parents.
+	 * @param parent_ends The end offsets of the parents.
+	 * @param first_parents The array the parents containing the start offsets are
+	 * written to.
+	 * @param last_parents The array the parents containing the end offsets are
+	 * written to.
+	 */
+	static void Assign (int[] child_starts, int[] child_ends, int[] parent_starts,
+			int[] parent_ends, int[] first_parents, int[] last_parents) {
+		int parent_count = parent_starts.length;
+		
+		int first = 0;
+		int last = 0;
+		
+		for (int i=0;i<child_starts.length;i++) {
+			while (first < parent_count-1 && parent_ends[first] < child_starts[i]) {
+				first = first+1;
+			}
+			
+			if (last < first) {
+				last = first;
+			}
+			
+			while (last > first && parent_starts[last] > child_ends[i]) {
+				last = last-1;
+			}
+			
+			while (last < parent_count-1 && parent_starts[last+1] <= child_ends[i]) {
+				last = last+1;
+			}
+			
+			first_parents[i] = first;
+			last_parents[i] = last;
+		}
+	}
+	
+	/**
+	 * Compute the range of the children of every parent from the parents of the
+	 * children. The parents of the children never decrease, so the children of a
+	 * parent form a contiguous range.
+	 * @param first_parents The parents of the children.
+	 * @param first_children The array the first children of the parents are
+	 * written to.
+	 * @param end_children The array the indices after the last children of the
+	 * parents are written to.
+	 */
+	static void MakeChildRanges (int[] first_parents, int[] first_children,
+			int[] end_children) {
+		int child = 0;
+		
+		for (int parent=0;parent<first_children.length;parent++) {
+			first_children[parent] = child;
+			
+			while (child < first_parents.length && first_parents[child] == parent) {
+				child = child+1;
+			}
+			
+			end_children[parent] = child;
+		}
+	}
+}
@@ -0,0 +1,475 @@
+package teanlis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * This class is an index over the annotations of one type in a document which
+ * answers the questions which annotations overlap a span of the text, which
+ * annotations are contained in a span of the text and which annotations contain
+ * an offset, without looking at every annotation of the type.
+ * 
+ * The index is an augmented interval tree which is stored in primitive arrays.
+ * The annotations are sorted by their start offsets, and the sorted array is
+ * viewed as a complete binary search tree: the element in the middle of the array
+ * is the root, the elements in the middle of the two halves are its children and
+ * so on. For every node the index stores the largest end offset in the subtree
+ * below the node, so whole subtrees which end before a query starts can be
+ * skipped. Queries take O(log n + k) steps for n annotations and k results.
+ * 
+ * Start and end offsets are both treated as inclusive, the same way the index
+ * from offsets to tokens (see Offset_Index) treats them. The results of all
+ * queries are sorted by start offset.
+ * 
+ * The index is a snapshot of the list of annotations it was made from. If the
+ * list is a Source_List, the list counts its modifications, including changes of
+ * the offsets of its annotations, and the document makes a new index when the
+ * count differs from the count the index was made at (see
+ * Document.getInterval_index). An index over any other list is never up to date.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Interval_Index {
+	
+	/**
+	 * Subtrees with this many levels or less are searched by a linear scan, which
+	 * is faster than walking down the tree for a few elements.
+	 */
+	static final int SCAN_LEVEL = 3;
+	
+	/**
+	 * The list of annotations the index was made from.
+	 */
+	List<Annotation> source;
+	
+	/**
+	 * The number of modifications of the list the index was made from at the time
+	 * the index was made, or -1 if the list does not count its modifications.
+	 */
+	int source_modifications;
+	
+	/**
+	 * The annotations sorted by their start offsets.
+	 */
+	Annotation[] annotations;
+	
+	/**
+	 * The start offsets of the sorted annotations.
+	 */
+	int[] starts;
+	
+	/**
+	 * The end offsets of the sorted annotations.
+	 */
+	int[] ends;
+	
+	/**
+	 * For every node of the tree the largest end offset of the annotations in the
+	 * subtree below the node.
+	 */
+	int[] max_ends;
+	
+	/**
+	 * The level of the root of the tree, leaves have level 0.
+	 */
+	int max_level;
+	
+	/**
+	 * Constructor for the index which takes the list of annotations which are
+	 * indexed as argument. The list is not changed, the annotations are copied
+	 * into the index.
+	 * @param source The list of annotations which are indexed.
+	 */
+	public Interval_Index (List<Annotation> source) {
+		this.source = source;
+		
+		if (source == null) {
+			this.source_modifications = 0;
+			this.annotations = new Annotation[0];
+		} else {
+			this.source_modifications = source instanceof Source_List ?
+					((Source_List) source).getModifications() : -1;
+			this.annotations = source.toArray(new Annotation[source.size()]);
+		}
+		
+		Arrays.sort(annotations, new Comparator<Annotation>() {
+			public int compare(Annotation first, Annotation second) {
+				if (first.getStart() != second.getStart()) {
+					return first.getStart() < second.getStart() ? -1 : 1;
+				}
+				
+				if (first.getEnd() != second.getEnd()) {
+					return first.getEnd() < second.getEnd() ? -1 : 1;
+				}
+				
+				return 0;
+			}
+		});
+		
+		int size = annotations.length;
+		
+		this.starts = new int[size];
+		this.ends = new int[size];
+		this.max_ends = new int[size];
+		
+		for (int i=0;i<size;i++) {
+			starts[i] = annotations[i].getStart();
+			ends[i] = annotations[i].getEnd();
+		}
+		
+		this.max_level = MakeMaxEnds();
+	}
+	
+	/**
+	 * Get the number of annotations in the index.
+	 * @return The number of annotations in the index.
+	 */
+	public int size() {
+		return annotations.length;
+	}
+	
+	/**
+	 * Check whether the index was made from the specified list and the list was
+	 * not modified since the index was made. Only a Source_List knows whether it
+	 * was modified, so the index is never up to date with any other list.
+	 * @param list A list of annotations.
+	 * @return True if the index is up to date with the list, false if the index
+	 * has to be made again.
+	 */
+	public boolean isIndexOf (List<Annotation> list) {
+		if (list == null) {
+			return source == null;
+		}
+		
+		return list == source && list instanceof Source_List &&
+				((Source_List) list).getModifications() == source_modifications;
+	}
+	
+	/**
+	 * Get the annotations in the index sorted by their start offsets.
+	 * @return The annotations in the index sorted by their start offsets.
+	 */
+	public List<Annotation> getAnnotations() {
+		return Collections.unmodifiableList(Arrays.asList(annotations));
+	}
+	
+	/**
+	 * Get all annotations which share at least one offset with the span from the
+	 * specified start to the specified end offset.
+	 * @param start The start offset of the span.
+	 * @param end The end offset of the span.
+	 * @return The annotations overlapping the span sorted by their start offsets.
+	 */
+	public ArrayList<Annotation> getOverlapping (int start, int end) {
+		ArrayList<Annotation> result = new ArrayList<Annotation>();
+		
+		int size = annotations.length;
+		
+		if (size == 0 || end < start) {
+			return result;
+		}
+		
+		// Each entry of the stack is a node of the tree: its level, its position in
+		// the arrays and whether its left subtree has already been searched.
+		int[] levels = new int[2*(max_level+2)];
+		int[] nodes = new int[2*(max_level+2)];
+		boolean[] left_done = new boolean[2*(max_level+2)];
+		
+		int top = 0;
+		
+		levels[0] = max_level;
+		nodes[0] = (1 << max_level)-1;
+		left_done[0] = false;
+		top = 1;
+		
+		while (top > 0) {
+			top = top-1;
+			
+			int level = levels[top];
+			int node = nodes[top];
+			
+			if (level <= SCAN_LEVEL) {
+				int first = node >> level << level;
+				int last = first+(1 << (level+1))-1;
+				
+				if (last > size) {
+					last = size;
+				}
+				
+				for (int i=first;i<last && starts[i] <= end;i++) {
+					if (ends[i] >= start) {
+						result.add(annotations[i]);
+					}
+				}
+			} else if (!left_done[top]) {
+				int left = node-(1 << (level-1));
+				
+				left_done[top] = true;
+				top = top+1;
+				
+				if (left >= size || max_ends[left] >= start) {
+					levels[top] = level-1;
+					nodes[top] = left;
+					left_done[top] = false;
+					top = top+1;
+				}
+			} else if (node < size && starts[node] <= end) {
+				if (ends[node] >= start) {
+					result.add(annotations[node]);
+				}
+				
+				levels[top] = level-1;
+				nodes[top] = node+(1 << (level-1));
+				left_done[top] = false;
+				top = top+1;
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Get all annotations which lie completely inside the span from the specified
+	 * start to the specified end offset, for example all NP annotations on a page.
+	 * @param start The start offset of the span.
+	 * @param end The end offset of the span.
+	 * @return The annotations contained in the span sorted by their start offsets.
+	 */
+	public ArrayList<Annotation> getContained (int start, int end) {
+		ArrayList<Annotation> result = new ArrayList<Annotation>();
+		
+		for (int i=FirstStartAtOrAfter(start);i<starts.length && starts[i] <= end;
+				i++) {
+			if (ends[i] <= end) {
+				result.add(annotations[i]);
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Get all annotations which contain the whole span from the specified start to
+	 * the specified end offset, for example the chapter a sentence is part of.
+	 * @param start The start offset of the span.
+	 * @param end The end offset of the span.
+	 * @return The annotations containing the span sorted by their start offsets.
+	 */
+	public ArrayList<Annotation> getContaining (int start, int end) {
+		ArrayList<Annotation> result = new ArrayList<Annotation>();
+		
+		for (Annotation annotation: getOverlapping(start, start)) {
+			if (annotation.getEnd() >= end) {
+				result.add(annotation);
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Get all annotations which contain the specified offset.
+	 * @param offset A character offset in the text of the document.
+	 * @return The annotations containing the offset sorted by their start offsets.
+	 */
+	public ArrayList<Annotation> getAt (int offset) {
+		return getOverlapping(offset, offset);
+	}
+	
+	/**
+	 * Get the position of the first annotation in the sorted arrays which starts
+	 * at or after the specified offset.
+	 * @param offset A character offset in the text of the document.
+	 * @return The position of the first annotation which starts at or after the
+	 * offset, or the number of annotations if all annotations start before it.
+	 */
+	int FirstStartAtOrAfter (int offset) {
+		int low = 0;
+		int high = starts.length-1;
+		
+		while (low <= high) {
+			int middle = (low+high) >>> 1;
+			
+			if (starts[middle] < offset) {
+				low = middle+1;
+			} else {
+				high = middle-1;
+			}
+		}
+		
+		return low;
+	}
+	
+	/**
+	 * Compute the largest end offset below every node of the tree. The node at
+	 * position i has the level given by the number of trailing ones of i, so the
+	 * leaves are at the even positions and the nodes of each level are computed
+	 * from the nodes of the level below. Nodes whose right subtree lies partly
+	 * beyond the end of the array take the largest end offset of the last
+	 * complete subtree instead.
+	 * @return The level of the root of the tree.
+	 */
+	int MakeMaxEnds () {
+		int size = annotations.length;
+		
+		if (size == 0) {
+			return 0;
+		}
+		
+		int last_node = 0;
+		int last_max = 0;
+		
+		for (int i=0;i<size;i=i+2) {
+			last_node = i;
+			max_ends[i] = ends[i];
+			last_max = ends[i];
+		}
+		
+		int level = 1;
+		
+		for (;(1 << level) <= size;level++) {
+			int half = 1 << (level-1);
+			int first = (half << 1)-1;
+			int step = half << 2;
+			
+			for (int i=first;i<size;i=i+step) {
+				int left_max = max_ends[i-half];
+				int right_max = i+half < size ? max_ends[i+half] : last_max;
+				
+				int max_end = ends[i];
+				
+				if (left_max > max_end) {
+					max_end = left_max;
+				}
+				
+				if (right_max > max_end) {
+					max_end = right_max;
+				}
+				
+				max_ends[i] = max_end;
+			}
+			
+			if (((last_node >> level) & 1) == 1) {
+				last_node = last_node-half;
+			} else {
+				last_node = last_node+half;
+			}
+			
+			if (last_node < size && max_ends[last_node] > last_max) {
+				last_max = max_ends[last_node];
+			}
+		}
+		
+		return level-1;
+	}
+	
+	/**
+	 * A list of annotations which counts its modifications, so an index over the
+	 * list can tell whether it is out of date. Adding, removing and replacing
+	 * annotations is counted, and so is every change of the start or end offset of
+	 * an annotation in the list: the list is the owner of the annotations added to
+	 * it, and an annotation tells its owner when its offsets change. An annotation
+	 * has only one owner, the list it was added to last.
+	 */
+	public static class Source_List extends ArrayList<Annotation> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		/**
+		 * The number of annotations which were replaced and of offset changes of the
+		 * annotations. Structural modifications are counted by modCount.
+		 */
+		int changes;
+		
+		/**
+		 * Constructor for an empty list.
+		 */
+		public Source_List () {
+			super();
+		}
+		
+		/**
+		 * Constructor for an empty list with the specified capacity.
+		 * @param capacity The number of annotations the list can hold without
+		 * growing.
+		 */
+		public Source_List (int capacity) {
+			super(capacity);
+		}
+		
+		/**
+		 * Constructor for a list containing the specified annotations.
+		 * @param annotations The annotations.
+		 */
+		public Source_List (Collection<? extends Annotation> annotations) {
+			super(annotations);
+			
+			for (Annotation annotation: this) {
+				Own(annotation);
+			}
+		}
+		
+		/**
+		 * Get the number of modifications of the list.
+		 * @return The number of modifications.
+		 */
+		public int getModifications() {
+			return modCount+changes;
+		}
+		
+		/**
+		 * Count a change of the offsets of an annotation in the list.
+		 */
+		void Changed() {
+			changes++;
+		}
+		
+		/**
+		 * Make the list the owner of an annotation.
+		 * @param annotation The annotation or null.
+		 */
+		void Own(Annotation annotation) {
+			if (annotation != null) {
+				annotation.list = this;
+			}
+		}
+		
+		public boolean add(Annotation annotation) {
+			Own(annotation);
+			return super.add(annotation);
+		}
+		
+		public void add(int index, Annotation annotation) {
+			Own(annotation);
+			super.add(index, annotation);
+		}
+		
+		public boolean addAll(Collection<? extends Annotation> annotations) {
+			for (Annotation annotation: annotations) {
+				Own(annotation);
+			}
+			
+			return super.addAll(annotations);
+		}
+		
+		public boolean addAll(int index,
+				Collection<? extends Annotation> annotations) {
+			for (Annotation annotation: annotations) {
+				Own(annotation);
+			}
+			
+			return super.addAll(index, annotations);
+		}
+		
+		public Annotation set(int index, Annotation annotation) {
+			Own(annotation);
+			changes++;
+			return super.set(index, annotation);
+		}
+	}
+}
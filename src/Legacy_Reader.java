@@ -0,0 +1,377 @@
+package teanlis;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * This class reads documents written with Java serialization by the versions of
+ * the framework whose linguistic elements were Serializable instead of
+ * Externalizable (see Linguistic_Element). The classes of those versions are
+ * recognized in the stream by their names and serial version UIDs and read into
+ * nested classes with the fields of the old classes (Old_Document, Old_Token
+ * and so on), which ToDocument converts to a document. Objects of the current
+ * classes are read as usual, so the stream can be used for files written by
+ * both old and new versions.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Legacy_Reader extends ObjectInputStream {
+	
+	/**
+	 * The classes with the fields of the old classes by the names of the old
+	 * classes.
+	 */
+	static final HashMap<String, Class<?>> OLD_CLASSES =
+			new HashMap<String, Class<?>>();
+	
+	/**
+	 * The serial version UIDs of the old classes by their names.
+	 */
+	static final HashMap<String, Long> OLD_UIDS = new HashMap<String, Long>();
+	
+	static {
+		Add("teanlis.Linguistic_Element", Old_Element.class,
+				5690868948320306288L);
+		Add("teanlis.Document", Old_Document.class, -417094732328119996L);
+		Add("teanlis.Token", Old_Token.class, 2606932682811717827L);
+		Add("teanlis.Annotation", Old_Annotation.class, 8806767994732231115L);
+		Add("teanlis.Sentence", Old_Sentence.class, 2791615208453552411L);
+		Add("teanlis.Paragraph", Old_Paragraph.class, 4900126174262042858L);
+		Add("teanlis.Page", Old_Page.class, -952434009162220475L);
+		Add("teanlis.Chapter", Old_Chapter.class, -47689620737587270L);
+		Add("teanlis.Line", Old_Line.class, -2420129073642519398L);
+	}
+	
+	/**
+	 * Register an old class.
+	 */
+	static void Add (String name, Class<?> old_class, long uid) {
+		OLD_CLASSES.put(name, old_class);
+		OLD_UIDS.put(name, uid);
+	}
+	
+	/**
+	 * Constructor for the reader of the specified stream.
+	 * @param input The stream.
+	 * @throws IOException If the header of the stream can not be read.
+	 */
+	public Legacy_Reader (InputStream input) throws IOException {
+		super(input);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see java.io.ObjectInputStream#readClassDescriptor()
+	 */
+	protected ObjectStreamClass readClassDescriptor () throws IOException,
+			ClassNotFoundException {
+		ObjectStreamClass descriptor = super.readClassDescriptor();
+		
+		Long uid = OLD_UIDS.get(descriptor.getName());
+		
+		if (uid != null && uid == descriptor.getSerialVersionUID()) {
+			return ObjectStreamClass.lookup(OLD_CLASSES.get(descriptor.getName()));
+		}
+		
+		return descriptor;
+	}
+	
+	/**
+	 * Get the document of an object read from a stream.
+	 * @param object A Document or an object of an old Document.
+	 * @return The document.
+	 * @throws IOException If the object is not a document.
+	 */
+	public static Document ToDocument (Object object) throws IOException {
+		if (object instanceof Document) {
+			return (Document) object;
+		}
+		
+		if (!(object instanceof Old_Document)) {
+			throw new IOException("The stream does not contain a document.");
+		}
+		
+		Old_Document old = (Old_Document) object;
+		
+		Document document = new Document(old.original_text);
+		
+		document.setTitle(old.title);
+		document.meta_data = old.meta_data;
+		document.markup_sentences = old.markup_sentences;
+		document.start = old.start;
+		document.end = old.end;
+		document.note_history = old.note_history;
+		
+		if (old.tokens != null) {
+			ArrayList<Token> tokens = new ArrayList<Token>(old.tokens.size());
+			
+			for (Old_Token old_token: old.tokens) {
+				Token token = new Token(old_token.start, old_token.end);
+				
+				token.note_history = old_token.note_history;
+				token.setContaining_sentence(old_token.containing_sentence);
+				token.setId(old_token.id);
+				token.setGovernor(old_token.governor);
+				token.setLemma(old_token.lemma);
+				token.setPos(old_token.pos);
+				token.setDependency(old_token.dependency);
+				token.setFunction(old_token.function);
+				
+				tokens.add(token);
+			}
+			
+			document.setTokens(tokens);
+		}
+		
+		document.sentences = Convert(old.sentences);
+		document.paragraphs = Convert(old.paragraphs);
+		document.pages = Convert(old.pages);
+		document.sub_chapters = Convert(old.sub_chapters);
+		document.main_chapters = Convert(old.main_chapters);
+		document.lines = Convert(old.lines);
+		
+		if (old.text_units == null) {
+			document.text_units = null;
+		} else {
+			for (String type: old.text_units.keySet()) {
+				List<Annotation> annotations = Convert(old.text_units.get(type));
+				
+				document.getText_units().put(type, annotations);
+			}
+		}
+		
+		if (old.instance_change_log != null) {
+			document.getChange_log().ReplaceWithStrings(old.instance_change_log);
+		}
+		
+		return document;
+	}
+	
+	/**
+	 * Convert a list of old linguistic elements to linguistic elements.
+	 * @param old_elements The old elements or null.
+	 * @return The elements or null.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T extends Linguistic_Element> ArrayList<T> Convert (
+			List<? extends Old_Element> old_elements) {
+		if (old_elements == null) {
+			return null;
+		}
+		
+		ArrayList<Linguistic_Element> elements = new ArrayList<Linguistic_Element>(
+				old_elements.size());
+		
+		for (Old_Element old_element: old_elements) {
+			Linguistic_Element element = old_element.Convert();
+			
+			element.start = old_element.start;
+			element.end = old_element.end;
+			element.note_history = old_element.note_history;
+			
+			elements.add(element);
+		}
+		
+		return (ArrayList<T>) elements;
+	}
+	
+	/**
+	 * The fields of the old Linguistic_Element.
+	 */
+	static class Old_Element implements java.io.Serializable {
+		
+		private static final long serialVersionUID = 5690868948320306288L;
+		
+		HashMap<String, String> note_history;
+		int start;
+		int end;
+		
+		/**
+		 * Make the linguistic element with the fields of the subclass. The fields
+		 * of Old_Element are set by the caller.
+		 */
+		Linguistic_Element Convert () {
+			return new Linguistic_Element();
+		}
+	}
+	
+	/**
+	 * The fields of the old Document.
+	 */
+	static class Old_Document extends Old_Element {
+		
+		private static final long serialVersionUID = -417094732328119996L;
+		
+		ArrayList<String> instance_change_log;
+		ArrayList<Old_Line> lines;
+		HashSet<Integer> markup_sentences;
+		HashMap<String, String> meta_data;
+		ArrayList<Old_Token> tokens;
+		ArrayList<Old_Sentence> sentences;
+		ArrayList<Old_Paragraph> paragraphs;
+		HashMap<String, ArrayList<Old_Annotation>> text_units;
+		String original_text;
+		String title;
+		ArrayList<Old_Chapter> sub_chapters;
+		ArrayList<Old_Chapter> main_chapters;
+		HashMap<Integer, Integer> offset_to_token_map;
+		ArrayList<Old_Page> pages;
+	}
+	
+	/**
+	 * The fields of the old Token.
+	 */
+	static class Old_Token extends Old_Element {
+		
+		private static final long serialVersionUID = 2606932682811717827L;
+		
+		int containing_sentence;
+		int id;
+		String lemma;
+		String pos;
+		String dependency;
+		String function;
+		int governor;
+	}
+	
+	/**
+	 * The fields of the old Annotation, whose type and sub-type were strings.
+	 */
+	static class Old_Annotation extends Old_Element {
+		
+		private static final long serialVersionUID = 8806767994732231115L;
+		
+		String color;
+		String type;
+		String sub_type;
+		String note;
+		boolean unchecked;
+		double propability;
+		boolean unchanged;
+		
+		Linguistic_Element Convert () {
+			Annotation annotation = new Annotation(type);
+			
+			annotation.sub_type = Symbol_Table.getShared().Intern(sub_type);
+			annotation.color = color;
+			annotation.note = note;
+			annotation.unchecked = unchecked;
+			annotation.unchanged = unchanged;
+			annotation.propability = propability;
+			
+			return annotation;
+		}
+	}
+	
+	/**
+	 * The fields of the old Sentence.
+	 */
+	static class Old_Sentence extends Old_Element {
+		
+		private static final long serialVersionUID = 2791615208453552411L;
+		
+		int containing_paragraph;
+		int containing_chapter;
+		
+		Linguistic_Element Convert () {
+			Sentence sentence = new Sentence();
+			
+			sentence.containing_paragraph = containing_paragraph;
+			sentence.containing_chapter = containing_chapter;
+			
+			return sentence;
+		}
+	}
+	
+	/**
+	 * The fields of the old Paragraph.
+	 */
+	static class Old_Paragraph extends Old_Element {
+		
+		private static final long serialVersionUID = 4900126174262042858L;
+		
+		int containing_chapter;
+		int containing_page;
+		
+		Linguistic_Element Convert () {
+			Paragraph paragraph = new Paragraph();
+			
+			paragraph.containing_chapter = containing_chapter;
+			paragraph.containing_page = containing_page;
+			
+			return paragraph;
+		}
+	}
+	
+	/**
+	 * The fields of the old Page.
+	 */
+	static class Old_Page extends Old_Element {
+		
+		private static final long serialVersionUID = -952434009162220475L;
+		
+		int number;
+		int containing_chapter;
+		
+		Linguistic_Element Convert () {
+			Page page = new Page();
+			
+			page.number = number;
+			page.containing_chapter = containing_chapter;
+			
+			return page;
+		}
+	}
+	
+	/**
+	 * The fields of the old Chapter.
+	 */
+	static class Old_Chapter extends Old_Element {
+		
+		private static final long serialVersionUID = -47689620737587270L;
+		
+		String title;
+		int start_sentence;
+		int end_sentence;
+		
+		Linguistic_Element Convert () {
+			Chapter chapter = new Chapter(title);
+			
+			chapter.start_sentence = start_sentence;
+			chapter.end_sentence = end_sentence;
+			
+			return chapter;
+		}
+	}
+	
+	/**
+	 * The fields of the old Line.
+	 */
+	static class Old_Line extends Old_Element {
+		
+		private static final long serialVersionUID = -2420129073642519398L;
+		
+		int containing_paragraph;
+		int containing_page;
+		int containing_sub_chapter;
+		int containing_main_chapter;
+		
+		Linguistic_Element Convert () {
+			Line line = new Line();
+			
+			line.containing_paragraph = containing_paragraph;
+			line.containing_page = containing_page;
+			line.containing_sub_chapter = containing_sub_chapter;
+			line.containing_main_chapter = containing_main_chapter;
+			
+			return line;
+		}
+	}
+}
@@ -1,5 +1,9 @@
 package teanlis;
 
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
 /**
  * This class represents a textual line.
  * 
@@ -9,6 +13,8 @@ package teanlis;
 
 public class Line extends Linguistic_Element {
 	
+	private static final long serialVersionUID = 2L;
+	
 	/**
 	 * No-arguments constructor for the line.
 	 */
@@ -102,4 +108,31 @@ public class Line extends Linguistic_Element {
 	public void setContaining_main_chapter(int containing_main_chapter) {
 		this.containing_main_chapter = containing_main_chapter;
 	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see teanlis.Linguistic_Element#writeExternal(java.io.ObjectOutput)
+	 */
+	public void writeExternal (ObjectOutput output) throws IOException {
+		super.writeExternal(output);
+		
+		output.writeInt(containing_paragraph);
+		output.writeInt(containing_page);
+		output.writeInt(containing_sub_chapter);
+		output.writeInt(containing_main_chapter);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see teanlis.Linguistic_Element#readExternal(java.io.ObjectInput)
+	 */
+	public void readExternal (ObjectInput input) throws IOException, 
+			ClassNotFoundException {
+		super.readExternal(input);
+		
+		this.containing_paragraph = input.readInt();
+		this.containing_page = input.readInt();
+		this.containing_sub_chapter = input.readInt();
+		this.containing_main_chapter = input.readInt();
+	}
 }
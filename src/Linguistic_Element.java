@@ -1,7 +1,10 @@
 package teanlis;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.HashMap;
+import java.util.Map;
 
 /**
  * This class is the base class for all linguistic and organizational elements of a text.
@@ -19,12 +22,21 @@ import java.util.HashMap;
  * 3. A getString method: This method returns, given the string representing a text, the
  * substring which represents the element in the text. You have to take care that you
  * call this method with the string of the text the linguistic or organizationl element is
- * derived from, otherwise you will get nonsensical results.
+ * derived from, otherwise you will get nonsensical results. The getText method 
+ * returns a view of the same region of the text which does not copy the 
+ * characters (see Text_View).
+ * 
+ * Linguistic elements are serialized with writeExternal and readExternal, which
+ * write only the values of the fields and no description of the fields, and
+ * nothing for empty note histories. Files written by the serialization of
+ * earlier versions are read with Legacy_Reader.
  * 
  * @author Andreas Mller
  */
 
-public class Linguistic_Element implements java.io.Serializable{
+public class Linguistic_Element implements java.io.Externalizable, Cloneable {
+	
+	private static final long serialVersionUID = 2L;
 	
 	/**
 	 * A map from dates when the notes where made to notes a user made for the 
@@ -111,4 +123,115 @@ public class Linguistic_Element implements java.io.Serializable{
 		
 		return return_string;
 	}
+	
+	/**
+	 * Get a view of the region of the text constituting the linguistic element. 
+	 * Unlike getString, this method does not copy the characters of the region, 
+	 * so it can be used to match, compare and hash the linguistic element without 
+	 * creating a string.
+	 * @param original_text The text of the document.
+	 * @return A view of the region of the text constituting the linguistic 
+	 * element, or an empty view if the offsets are outside of the text.
+	 */
+	public Text_View getText(CharSequence original_text) {
+		try {
+			return new Text_View(original_text, getStart(), getEnd());
+		} catch (java.lang.StringIndexOutOfBoundsException e) {
+			e.printStackTrace();
+			
+			return new Text_View(original_text, 0, 0);
+		}
+	}
+	
+	/**
+	 * Make a copy of the linguistic element. The copy has the same class and the 
+	 * same field values as the linguistic element, and its own copy of the note 
+	 * history, so changing the copy does not change the linguistic element.
+	 * @return A copy of the linguistic element.
+	 */
+	public Linguistic_Element Copy() {
+		try {
+			Linguistic_Element copy = (Linguistic_Element) clone();
+			
+			if (note_history != null) {
+				copy.note_history = new HashMap<String, String>(note_history);
+			}
+			
+			return copy;
+		} catch (java.lang.CloneNotSupportedException e) {
+			throw new InternalError(e.toString());
+		}
+	}
+	
+	/**
+	 * Write the fields of the linguistic element. Subclasses write their own 
+	 * fields after calling this method.
+	 * @param output The stream the fields are written to.
+	 */
+	public void writeExternal (ObjectOutput output) throws IOException {
+		output.writeInt(start);
+		output.writeInt(end);
+		
+		WriteNote_history(output, note_history);
+	}
+	
+	/**
+	 * Read the fields written by writeExternal.
+	 * @param input The stream the fields are read from.
+	 */
+	public void readExternal (ObjectInput input) throws IOException, 
+			ClassNotFoundException {
+		this.start = input.readInt();
+		this.end = input.readInt();
+		this.note_history = ReadNote_history(input);
+	}
+	
+	/**
+	 * Write a note history as its number of entries and the entries. Null and 
+	 * empty note histories are written as 0 entries.
+	 * @param output The stream the note history is written to.
+	 * @param note_history The note history.
+	 * @throws IOException
+	 */
+	static void WriteNote_history (ObjectOutput output, 
+			Map<String, String> note_history) throws IOException {
+		if (note_history == null) {
+			output.writeInt(0);
+			return;
+		}
+		
+		output.writeInt(note_history.size());
+		
+		for (String date: note_history.keySet()) {
+			output.writeObject(date);
+			output.writeObject(note_history.get(date));
+		}
+	}
+	
+	/**
+	 * Read a note history written by WriteNote_history.
+	 * @param input The stream the note history is read from.
+	 * @return The note history or null if it has no entries.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	static HashMap<String, String> ReadNote_history (ObjectInput input) 
+			throws IOException, ClassNotFoundException {
+		int size = input.readInt();
+		
+		if (size == 0) {
+			return null;
+		}
+		
+		HashMap<String, String> note_history = new HashMap<String, String>(
+				size*4/3+1);
+		
+		for (int i=0;i<size;i++) {
+			String date = (String) input.readObject();
+			
+			note_history.put(date, (String) input.readObject());
+		}
+		
+		return note_history;
+	}
 }
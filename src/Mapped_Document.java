@@ -0,0 +1,686 @@
+package teanlis;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents a document stored in a file of Document_Format which is
+ * read directly from the file instead of being loaded. The sections of the file
+ * are mapped into memory when the document is opened, and the elements of the
+ * document are made from the mapped columns when they are requested: the lists
+ * of sentences, paragraphs, pages, chapters and lines and the lists of
+ * annotations are views which make a new element every time an element is read,
+ * and the text is a Mapped_Text over the section of the text.
+ * 
+ * The methods getElement_start, getElement_end, getTokens and
+ * getAnnotationsInElement answer queries like "the tokens of sentence 5000" or
+ * "the NP annotations in page 12" by binary search on the mapped columns without
+ * reading the rest of the document; if the tokens are compressed in blocks (see
+ * Document_Format.SECTION_BLOCK_TOKENS), only the blocks containing the requested
+ * tokens are decoded. The token table, the index from offsets to
+ * tokens and the indices over the annotations, which methods like keyword
+ * extraction in SimilarityFunctions need, are read from the mapped columns when
+ * they are requested for the first time.
+ * 
+ * A mapped document is read-only like a Frozen_Document and can be read by
+ * several threads at once. The elements it returns are copies; changing them
+ * does not change the file. Thaw loads the whole document.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Mapped_Document extends Frozen_Document {
+	
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * The path of the file of the document.
+	 */
+	String path;
+	
+	/**
+	 * The position of the document in the file.
+	 */
+	long base;
+	
+	/**
+	 * The strings of the file.
+	 */
+	String[] strings;
+	
+	/**
+	 * The mapped sections of the file, null for sections the file does not
+	 * contain.
+	 */
+	ByteBuffer[] sections;
+	
+	/**
+	 * The columns of the tokens if they are compressed in blocks, otherwise null.
+	 */
+	Block_Columns block_tokens;
+	
+	/**
+	 * The names of the types of the annotations in the order of the section of
+	 * annotations.
+	 */
+	List<String> types;
+	
+	/**
+	 * A map from the layers and indices of elements (see NoteKey) to their note
+	 * histories.
+	 */
+	HashMap<Long, HashMap<String, String>> notes;
+	
+	/**
+	 * The indices over the annotations which were requested so far.
+	 */
+	HashMap<String, Interval_Index> mapped_interval_indices;
+	
+	/**
+	 * Constructor for the document which maps the file at the specified path.
+	 * @param path The path of a file of Document_Format.
+	 * @throws IOException If the file can not be mapped or is not a file of the
+	 * format.
+	 */
+	public Mapped_Document (String path) throws IOException {
+		this(path, 0);
+	}
+	
+	/**
+	 * Constructor for the document which maps a document starting at the 
+	 * specified position of the file at the specified path, for example a 
+	 * document of a Corpus_Archive.
+	 * @param path The path of the file.
+	 * @param base The position of the header of the document in the file.
+	 * @throws IOException If the document can not be mapped.
+	 */
+	public Mapped_Document (String path, long base) throws IOException {
+		this.path = path;
+		this.base = base;
+		
+		RandomAccessFile file = new RandomAccessFile(path, "r");
+		
+		try {
+			FileChannel channel = file.getChannel();
+			
+			long[][] section_table = Document_Format.ReadHeader(channel, base);
+			
+			this.sections = new ByteBuffer[Document_Format.SECTION_COUNT];
+			
+			for (int i=0;i<sections.length;i++) {
+				if (i != Document_Format.SECTION_TEXT) {
+					sections[i] = Document_Format.MapSection(channel, section_table, i);
+				}
+			}
+			
+			this.strings = Document_Format.ReadStrings(
+					sections[Document_Format.SECTION_STRINGS]);
+			
+			if (sections[Document_Format.SECTION_BLOCK_TOKENS] != null) {
+				this.block_tokens = new Block_Columns(
+						sections[Document_Format.SECTION_BLOCK_TOKENS]);
+			}
+			
+			Document_Format.ReadMeta(sections[Document_Format.SECTION_META], this,
+					strings);
+			
+			this.mapped_text_path = null;
+			
+			long text_offset = section_table[0][Document_Format.SECTION_TEXT];
+			
+			if (text_offset != -1) {
+				ByteBuffer text_length = ByteBuffer.allocate(4);
+				
+				Document_Format.ReadFully(channel, text_length, text_offset);
+				
+				this.mapped_text = new Mapped_Text(path, channel, text_offset+4,
+						text_length.getInt(0));
+			}
+		} finally {
+			file.close();
+		}
+		
+		if (meta_data != null) {
+			this.meta_data = Collections.unmodifiableMap(meta_data);
+		}
+		
+		this.sentences = new Layer_List<Sentence>(Hierarchy.SENTENCES).OrNull();
+		this.paragraphs = new Layer_List<Paragraph>(Hierarchy.PARAGRAPHS).OrNull();
+		this.pages = new Layer_List<Page>(Hierarchy.PAGES).OrNull();
+		this.sub_chapters = new Layer_List<Chapter>(Hierarchy.SUB_CHAPTERS).OrNull();
+		this.main_chapters = new Layer_List<Chapter>(
+				Hierarchy.MAIN_CHAPTERS).OrNull();
+		this.lines = new Layer_List<Line>(Hierarchy.LINES).OrNull();
+		
+		this.types = new ArrayList<String>();
+		
+		Map<String, List<Annotation>> mapped_text_units =
+				new HashMap<String, List<Annotation>>();
+		
+		ByteBuffer annotations = sections[Document_Format.SECTION_ANNOTATIONS];
+		
+		if (annotations != null) {
+			for (int i=0;i<annotations.getInt(0);i++) {
+				String type = Document_Format.Decode(strings, annotations.getInt(
+						4+16*i));
+				
+				types.add(type);
+				mapped_text_units.put(type, new Annotation_List(i));
+			}
+		}
+		
+		this.text_units = Collections.unmodifiableMap(mapped_text_units);
+		
+		if (sections[Document_Format.SECTION_CHANGE_LOG] != null) {
+			this.change_log = Document_Format.ReadChangeLog(
+					sections[Document_Format.SECTION_CHANGE_LOG], strings).Copy(true);
+		} else {
+			this.change_log = new Change_Log().Copy(true);
+		}
+		
+		ReadNotes();
+		
+		this.mapped_interval_indices = new HashMap<String, Interval_Index>();
+		
+		this.frozen = true;
+	}
+	
+	/**
+	 * Get the path of the file of the document.
+	 * @return The path of the file of the document.
+	 */
+	public String getPath() {
+		return path;
+	}
+	
+	/**
+	 * Get the number of elements of a layer of the hierarchy without reading them.
+	 * @param level The level of the layer, see Hierarchy.
+	 * @return The number of elements of the layer, 0 if the document does not have
+	 * the layer.
+	 */
+	public int getElement_count (int level) {
+		ByteBuffer section = sections[Document_Format.LayerSection(level)];
+		
+		return section == null ? 0 : section.getInt(0);
+	}
+	
+	/**
+	 * Get the start offset of an element of a layer of the hierarchy.
+	 * @param level The level of the layer, see Hierarchy.
+	 * @param index The index of the element in its layer.
+	 * @return The start offset of the element.
+	 */
+	public int getElement_start (int level, int index) {
+		return getColumn(level, 0, index);
+	}
+	
+	/**
+	 * Get the end offset of an element of a layer of the hierarchy.
+	 * @param level The level of the layer, see Hierarchy.
+	 * @param index The index of the element in its layer.
+	 * @return The end offset of the element.
+	 */
+	public int getElement_end (int level, int index) {
+		return getColumn(level, 1, index);
+	}
+	
+	/**
+	 * Get the range of tokens whose start offsets lie in an element of a layer of
+	 * the hierarchy (both offsets inclusive), found by binary search on the
+	 * mapped start offsets of the tokens.
+	 * @param level The level of the layer, see Hierarchy.
+	 * @param index The index of the element in its layer.
+	 * @return The index of the first token and the index after the last token.
+	 */
+	public int[] getToken_range (int level, int index) {
+		int start = getElement_start(level, index);
+		int end = getElement_end(level, index);
+		
+		return new int[] {FirstTokenStartingAtOrAfter(start),
+				FirstTokenStartingAtOrAfter(end+1)};
+	}
+	
+	/**
+	 * Get the tokens whose start offsets lie in an element of a layer of the
+	 * hierarchy, for example the tokens of a sentence. Only the columns of these
+	 * tokens are read from the file.
+	 * @param level The level of the layer, see Hierarchy.
+	 * @param index The index of the element in its layer.
+	 * @return A read-only table of the tokens of the element. The offsets of the
+	 * tokens are offsets in the text of the document.
+	 */
+	public Token_Table getTokens (int level, int index) {
+		int[] range = getToken_range(level, index);
+		
+		Token_Table tokens;
+		
+		if (block_tokens != null) {
+			tokens = Document_Format.ReadTokenRange(block_tokens, strings, range[0],
+					range[1]);
+		} else {
+			tokens = Document_Format.ReadTokenRange(
+					sections[Document_Format.SECTION_TOKENS], strings, range[0],
+					range[1]);
+		}
+		
+		tokens.read_only = true;
+		
+		return tokens;
+	}
+	
+	/**
+	 * Get the annotations of a type which lie completely inside an element of a
+	 * layer of the hierarchy, for example the NP annotations in a page.
+	 * @param type The name of the type of the annotations.
+	 * @param level The level of the layer, see Hierarchy.
+	 * @param index The index of the element in its layer.
+	 * @return The annotations sorted by their start offsets.
+	 */
+	public ArrayList<Annotation> getAnnotationsInElement (String type, int level,
+			int index) {
+		return getContainedAnnotations(type, getElement_start(level, index),
+				getElement_end(level, index));
+	}
+	
+	/**
+	 * Get the annotations of a type which lie completely inside a span of the
+	 * text (both offsets inclusive). The annotations are found with the positions
+	 * of the annotations sorted by start offset which are stored in the file, so
+	 * only the annotations which start in the span are read.
+	 */
+	public ArrayList<Annotation> getContainedAnnotations(String type, int start,
+			int end) {
+		ArrayList<Annotation> contained = new ArrayList<Annotation>();
+		
+		int type_index = types.indexOf(type);
+		
+		if (type_index == -1) {
+			return contained;
+		}
+		
+		ByteBuffer section = sections[Document_Format.SECTION_ANNOTATIONS];
+		
+		int count = section.getInt(8+16*type_index);
+		int block_offset = (int) section.getLong(12+16*type_index);
+		
+		int starts = block_offset+4*count;
+		int ends = block_offset+8*count;
+		int by_start = block_offset+4*8*count;
+		
+		int low = 0;
+		int high = count;
+		
+		while (low < high) {
+			int middle = (low+high) >>> 1;
+			
+			if (section.getInt(starts+4*section.getInt(by_start+4*middle)) < start) {
+				low = middle+1;
+			} else {
+				high = middle;
+			}
+		}
+		
+		for (int i=low;i<count;i++) {
+			int position = section.getInt(by_start+4*i);
+			
+			if (section.getInt(starts+4*position) > end) {
+				break;
+			}
+			
+			if (section.getInt(ends+4*position) <= end) {
+				contained.add(ReadAnnotation(type_index, count, block_offset,
+						position));
+			}
+		}
+		
+		return contained;
+	}
+	
+	/**
+	 * Get the index over the annotations of a type. The index is made from the
+	 * mapped annotations when it is requested for the first time.
+	 */
+	public synchronized Interval_Index getInterval_index(String type) {
+		Interval_Index interval_index = mapped_interval_indices.get(type);
+		
+		if (interval_index == null) {
+			List<Annotation> annotations_of_type = text_units.get(type);
+			
+			interval_index = new Interval_Index(annotations_of_type == null ? null :
+					new ArrayList<Annotation>(annotations_of_type));
+			
+			mapped_interval_indices.put(type, interval_index);
+		}
+		
+		return interval_index;
+	}
+	
+	/**
+	 * Get the table of the tokens of the document. The table is read from the
+	 * mapped columns when it is requested for the first time.
+	 */
+	public synchronized Token_Table getToken_table() {
+		if (tokens == null && (sections[Document_Format.SECTION_TOKENS] != null ||
+				block_tokens != null)) {
+			Token_Table table;
+			
+			if (block_tokens != null) {
+				table = Document_Format.ReadTokenRange(block_tokens, strings, 0,
+						block_tokens.size());
+			} else {
+				table = Document_Format.ReadTokens(
+						sections[Document_Format.SECTION_TOKENS], strings);
+			}
+			
+			for (Long key: notes.keySet()) {
+				if ((int) (key >> 32) == Hierarchy.TOKENS) {
+					table.note_histories.put((int) (long) key,
+							new HashMap<String, String>(notes.get(key)));
+				}
+			}
+			
+			table.read_only = true;
+			
+			tokens = table;
+		}
+		
+		return tokens;
+	}
+	
+	public List<Token> getTokens() {
+		Token_Table table = getToken_table();
+		
+		return table == null ? null : table.asList();
+	}
+	
+	/**
+	 * Get the index from offsets to tokens, which is made from the mapped start
+	 * and end offsets of the tokens when it is requested for the first time.
+	 */
+	public synchronized Offset_Index getOffset_index() {
+		ByteBuffer section = sections[Document_Format.SECTION_TOKENS];
+		
+		if (offset_index == null && block_tokens != null) {
+			int size = block_tokens.size();
+			
+			int[] starts = new int[size];
+			int[] ends = new int[size];
+			
+			block_tokens.Read(0, 0, size, starts, 0);
+			block_tokens.Read(1, 0, size, ends, 0);
+			
+			offset_index = new Offset_Index(starts, ends, getText_length());
+		}
+		
+		if (offset_index == null && section != null) {
+			int size = section.getInt(0);
+			
+			int[] starts = new int[size];
+			int[] ends = new int[size];
+			
+			((ByteBuffer) section.duplicate().position(8)).asIntBuffer().get(starts);
+			((ByteBuffer) section.duplicate().position(8+4*size)).asIntBuffer().get(
+					ends);
+			
+			offset_index = new Offset_Index(starts, ends, getText_length());
+		}
+		
+		return offset_index;
+	}
+	
+	/**
+	 * Get the hierarchy of the document, which is made when it is requested for
+	 * the first time.
+	 */
+	public synchronized Hierarchy getHierarchy() {
+		if (hierarchy == null) {
+			hierarchy = new Hierarchy(this);
+		}
+		
+		return hierarchy;
+	}
+	
+	/**
+	 * Load the whole document from the file into a mutable document.
+	 */
+	public Document Thaw () {
+		try {
+			RandomAccessFile file = new RandomAccessFile(path, "r");
+			
+			try {
+				return Document_Format.Load(file.getChannel(), base);
+			} finally {
+				file.close();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+	
+	/**
+	 * Make a new version of the document which additionally contains the
+	 * specified annotation. The document is loaded from the file for this.
+	 */
+	public Frozen_Document WithAnnotation (String type, Annotation annotation) {
+		return Thaw().Freeze().WithAnnotation(type, annotation);
+	}
+	
+	/**
+	 * Make a new version of the document in which the annotations of the
+	 * specified type are replaced. The document is loaded from the file for this.
+	 */
+	public Frozen_Document WithAnnotations (String type,
+			List<Annotation> annotations_of_type) {
+		return Thaw().Freeze().WithAnnotations(type, annotations_of_type);
+	}
+	
+	/**
+	 * Get a column of the elements of a layer.
+	 * @param level The level of the layer, see Hierarchy.
+	 * @param column The column, 0 for the start offsets and 1 for the end offsets.
+	 * @param index The index of the element in its layer.
+	 * @return The value of the column for the element.
+	 */
+	int getColumn (int level, int column, int index) {
+		ByteBuffer section = sections[Document_Format.LayerSection(level)];
+		
+		int size = section == null ? 0 : section.getInt(0);
+		
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+		}
+		
+		return section.getInt(8+4*(column*size+index));
+	}
+	
+	/**
+	 * Find the first token whose start offset is not smaller than the specified
+	 * offset by binary search on the mapped start offsets.
+	 * @param offset An offset.
+	 * @return The index of the token or the number of tokens if all tokens start
+	 * before the offset.
+	 */
+	int FirstTokenStartingAtOrAfter (int offset) {
+		ByteBuffer section = sections[Document_Format.SECTION_TOKENS];
+		
+		if (block_tokens != null) {
+			return block_tokens.FindFirstAtLeast(0, offset);
+		}
+		
+		if (section == null) {
+			return 0;
+		}
+		
+		int low = 0;
+		int high = section.getInt(0);
+		
+		while (low < high) {
+			int middle = (low+high) >>> 1;
+			
+			if (section.getInt(8+4*middle) < offset) {
+				low = middle+1;
+			} else {
+				high = middle;
+			}
+		}
+		
+		return low;
+	}
+	
+	/**
+	 * Read an annotation from the mapped section of annotations.
+	 */
+	Annotation ReadAnnotation (int type_index, int count, int block_offset,
+			int position) {
+		Annotation annotation = Document_Format.ReadAnnotation(
+				sections[Document_Format.SECTION_ANNOTATIONS], block_offset, count,
+				position, strings);
+		
+		annotation.note_history = getNotes(Document_Format.ANNOTATION_NOTES+
+				type_index, position);
+		
+		return annotation;
+	}
+	
+	/**
+	 * Read the note histories of the file into the map of notes. The note history
+	 * of the document itself is set directly.
+	 */
+	void ReadNotes () {
+		this.notes = new HashMap<Long, HashMap<String, String>>();
+		
+		ByteBuffer section = sections[Document_Format.SECTION_NOTES];
+		
+		if (section == null) {
+			return;
+		}
+		
+		for (int i=0;i<section.getInt(0);i++) {
+			long key = NoteKey(section.getInt(4+16*i), section.getInt(8+16*i));
+			
+			HashMap<String, String> note_history = notes.get(key);
+			
+			if (note_history == null) {
+				note_history = new HashMap<String, String>();
+				
+				notes.put(key, note_history);
+			}
+			
+			if (section.getInt(12+16*i) != -1) {
+				note_history.put(Document_Format.Decode(strings, section.getInt(
+						12+16*i)), Document_Format.Decode(strings, section.getInt(
+						16+16*i)));
+			}
+		}
+		
+		this.note_history = notes.get(NoteKey(Document_Format.DOCUMENT_NOTES, 0));
+	}
+	
+	/**
+	 * Get a copy of the note history of an element.
+	 * @param layer The layer of the element in the section of notes.
+	 * @param index The index of the element in its layer.
+	 * @return A copy of the note history or null if the element has none.
+	 */
+	HashMap<String, String> getNotes (int layer, int index) {
+		HashMap<String, String> note_history = notes.get(NoteKey(layer, index));
+		
+		return note_history == null ? null : new HashMap<String, String>(
+				note_history);
+	}
+	
+	/**
+	 * Get the key of the note history of an element in the map of notes.
+	 */
+	static long NoteKey (int layer, int index) {
+		return ((long) layer << 32) | (index & 0xFFFFFFFFL);
+	}
+	
+	/**
+	 * A read-only list of the elements of a layer which makes the elements from
+	 * the mapped columns.
+	 */
+	class Layer_List<T extends Linguistic_Element> extends AbstractList<T> {
+		int level;
+		ByteBuffer section;
+		
+		Layer_List (int level) {
+			this.level = level;
+			this.section = sections[Document_Format.LayerSection(level)];
+		}
+		
+		/**
+		 * Get the list or null if the document does not have the layer.
+		 */
+		List<T> OrNull () {
+			return section == null ? null : this;
+		}
+		
+		@SuppressWarnings("unchecked")
+		public T get (int index) {
+			int size = size();
+			
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+			}
+			
+			T element = (T) Document_Format.NewElement(level);
+			
+			element.start = section.getInt(8+4*index);
+			element.end = section.getInt(8+4*(size+index));
+			
+			for (int column=0;column<section.getInt(4)-2;column++) {
+				Document_Format.setExtra_column(element, level, column,
+						section.getInt(8+4*((2+column)*size+index)), strings);
+			}
+			
+			element.note_history = getNotes(level, index);
+			
+			return element;
+		}
+		
+		public int size () {
+			return section.getInt(0);
+		}
+	}
+	
+	/**
+	 * A read-only list of the annotations of a type which makes the annotations
+	 * from the mapped columns.
+	 */
+	class Annotation_List extends AbstractList<Annotation> {
+		int type_index;
+		int count;
+		int block_offset;
+		
+		Annotation_List (int type_index) {
+			ByteBuffer section = sections[Document_Format.SECTION_ANNOTATIONS];
+			
+			this.type_index = type_index;
+			this.count = section.getInt(8+16*type_index);
+			this.block_offset = (int) section.getLong(12+16*type_index);
+		}
+		
+		public Annotation get (int index) {
+			if (index < 0 || index >= count) {
+				throw new IndexOutOfBoundsException("Index: "+index+", Size: "+count);
+			}
+			
+			return ReadAnnotation(type_index, count, block_offset, index);
+		}
+		
+		public int size () {
+			return count;
+		}
+	}
+}
@@ -0,0 +1,271 @@
+package teanlis;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This class represents the text of a document which is stored in a file instead
+ * of the heap. The file contains the characters of the text in UTF-16 (big
+ * endian, without byte order mark), so the character at offset i is stored at
+ * byte 2*i and the start and end offsets of tokens, sentences and annotations
+ * can be used with the text unchanged.
+ * 
+ * The file is mapped into memory read-only. Opening a text only maps the file,
+ * the characters are read by the operating system when they are accessed, and
+ * several processes which open the same file share the same pages of the page
+ * cache. Because a single mapping can not be larger than 2 GB, the file is
+ * mapped in chunks.
+ * 
+ * The text implements CharSequence, so it can be used with Text_View, regular
+ * expressions and all methods which accept a CharSequence. toString copies the
+ * whole text to the heap and should be avoided for large texts.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Mapped_Text implements CharSequence {
+	
+	/**
+	 * The number of bits of the offsets within a chunk. Every chunk holds 2^28
+	 * characters (512 MB).
+	 */
+	static final int CHUNK_BITS = 28;
+	
+	/**
+	 * The number of characters in every chunk but the last one.
+	 */
+	static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	
+	/**
+	 * The path of the file the text is stored in.
+	 */
+	String path;
+	
+	/**
+	 * The mapped chunks of the file.
+	 */
+	CharBuffer[] chunks;
+	
+	/**
+	 * The number of characters of the text.
+	 */
+	int length;
+	
+	/**
+	 * Constructor for the text which maps the file at the specified path.
+	 * @param path The path of a file containing a text in UTF-16.
+	 * @throws IOException If the file can not be mapped.
+	 */
+	public Mapped_Text (String path) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(path, "r");
+		
+		try {
+			FileChannel channel = file.getChannel();
+			
+			Map(path, channel, 0, channel.size()/2);
+		} finally {
+			file.close();
+		}
+	}
+	
+	/**
+	 * Constructor for the text which maps a region of a file, for example the 
+	 * section of the text in a file of Document_Format.
+	 * @param path The path of the file.
+	 * @param channel The channel of the file.
+	 * @param offset The byte offset of the first character in the file.
+	 * @param characters The number of characters of the text.
+	 * @throws IOException If the region can not be mapped.
+	 */
+	Mapped_Text (String path, FileChannel channel, long offset, long characters) 
+			throws IOException {
+		Map(path, channel, offset, characters);
+	}
+	
+	/**
+	 * Map the characters of the text in chunks.
+	 * @param path The path of the file.
+	 * @param channel The channel of the file.
+	 * @param offset The byte offset of the first character in the file.
+	 * @param characters The number of characters of the text.
+	 * @throws IOException If the text is too long or can not be mapped.
+	 */
+	void Map (String path, FileChannel channel, long offset, long characters) 
+			throws IOException {
+		this.path = path;
+		
+		if (characters > Integer.MAX_VALUE) {
+			throw new IOException("The text in " + path + " is longer than "
+					+ Integer.MAX_VALUE + " characters");
+		}
+		
+		this.length = (int) characters;
+		this.chunks = new CharBuffer[(int) ((characters+CHUNK_SIZE-1)/CHUNK_SIZE)];
+		
+		for (int i=0;i<chunks.length;i++) {
+			long first = (long) i*CHUNK_SIZE;
+			long chunk_length = Math.min(CHUNK_SIZE, characters-first);
+			
+			chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset+2*first,
+					2*chunk_length).asCharBuffer();
+		}
+	}
+	
+	/**
+	 * Get the path of the file the text is stored in.
+	 * @return The path of the file the text is stored in.
+	 */
+	public String getPath() {
+		return path;
+	}
+	
+	public int length() {
+		return length;
+	}
+	
+	public char charAt(int index) {
+		if (index < 0 || index >= length) {
+			throw new StringIndexOutOfBoundsException(index);
+		}
+		
+		return chunks[index >>> CHUNK_BITS].get(index & (CHUNK_SIZE-1));
+	}
+	
+	/**
+	 * Get a view of a region of the text. The characters are not copied.
+	 */
+	public CharSequence subSequence(int start, int end) {
+		return new Text_View(this, start, end);
+	}
+	
+	/**
+	 * Copy a region of the text to a string.
+	 * @param start The start offset of the region.
+	 * @param end The end offset of the region (exclusive).
+	 * @return The string of the region.
+	 */
+	public String substring (int start, int end) {
+		if (start < 0 || end > length || start > end) {
+			throw new StringIndexOutOfBoundsException("Region " + start + "-" + end
+					+ " is outside of a text of length " + length);
+		}
+		
+		char[] characters = new char[end-start];
+		
+		int position = start;
+		
+		while (position < end) {
+			CharBuffer chunk = chunks[position >>> CHUNK_BITS].duplicate();
+			
+			int offset = position & (CHUNK_SIZE-1);
+			int count = Math.min(end-position, chunk.limit()-offset);
+			
+			chunk.position(offset);
+			chunk.get(characters, position-start, count);
+			
+			position = position+count;
+		}
+		
+		return new String(characters);
+	}
+	
+	/**
+	 * Copy the whole text to a string.
+	 */
+	public String toString() {
+		return substring(0, length);
+	}
+	
+	/**
+	 * Write a text to a file in the format which can be mapped by this class.
+	 * @param text The text.
+	 * @param path The path of the file.
+	 * @throws IOException If the file can not be written.
+	 */
+	public static void Write (CharSequence text, String path) throws IOException {
+		FileOutputStream output = new FileOutputStream(path);
+		
+		try {
+			FileChannel channel = output.getChannel();
+			
+			ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+			CharBuffer characters = buffer.asCharBuffer();
+			
+			int position = 0;
+			
+			while (position < text.length()) {
+				characters.clear();
+				
+				int count = Math.min(characters.capacity(), text.length()-position);
+				
+				for (int i=0;i<count;i++) {
+					characters.put(text.charAt(position+i));
+				}
+				
+				buffer.clear();
+				buffer.limit(2*count);
+				
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				
+				position = position+count;
+			}
+		} finally {
+			output.close();
+		}
+	}
+	
+	/**
+	 * Convert a plain text file to a file in the format which can be mapped by this
+	 * class. The text is converted in small pieces, so the text is never kept in
+	 * memory as a whole.
+	 * @param source_path The path of the plain text file.
+	 * @param charset The name of the character set of the plain text file, for
+	 * example "UTF-8".
+	 * @param target_path The path of the file which is written.
+	 * @throws IOException If a file can not be read or written.
+	 */
+	public static void Convert (String source_path, String charset,
+			String target_path) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new FileInputStream(source_path), charset));
+		
+		FileOutputStream output = new FileOutputStream(target_path);
+		
+		try {
+			FileChannel channel = output.getChannel();
+			
+			ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+			CharBuffer characters = buffer.asCharBuffer();
+			
+			char[] read_buffer = new char[characters.capacity()];
+			
+			int count = reader.read(read_buffer);
+			
+			while (count != -1) {
+				characters.clear();
+				characters.put(read_buffer, 0, count);
+				
+				buffer.clear();
+				buffer.limit(2*count);
+				
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				
+				count = reader.read(read_buffer);
+			}
+		} finally {
+			reader.close();
+			output.close();
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package teanlis;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+
+/**
+ * This class gives every thread its own instances of the lemmatizer, morphological
+ * tagger, part-of-speech tagger and parser of the mate tools (is2), which can not
+ * be used by several threads at once. An instance is made when a thread needs it
+ * the first time and is reused for all sentences the thread processes.
+ * 
+ * The models of a language are read from the files given by the system
+ * properties "teanlis.mate.[language].[component]", for example
+ * "teanlis.mate.German.lemmatizer", where the component is LEMMATIZER,
+ * MORPH_TAGGER, POS_TAGGER or PARSER.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Mate_Tools {
+	
+	/**
+	 * The prefix of the names of the system properties which contain the paths of
+	 * the models.
+	 */
+	public static final String PROPERTY_PREFIX = "teanlis.mate.";
+	
+	public static final String LEMMATIZER = "lemmatizer";
+	public static final String MORPH_TAGGER = "morph_tagger";
+	public static final String POS_TAGGER = "pos_tagger";
+	public static final String PARSER = "parser";
+	
+	/**
+	 * The tools of the current thread by their components and the paths of their
+	 * models.
+	 */
+	static final ThreadLocal<HashMap<String, Object>> instances =
+			new ThreadLocal<HashMap<String, Object>>() {
+		protected HashMap<String, Object> initialValue() {
+			return new HashMap<String, Object>();
+		}
+	};
+	
+	/**
+	 * Get the path of the model of a component for a language.
+	 * @param language The language.
+	 * @param component The component.
+	 * @return The path of the model.
+	 * @throws IOException If the path is not set or the file does not exist.
+	 */
+	public static String getModel_path (String language, String component)
+			throws IOException {
+		String name = PROPERTY_PREFIX + language + "." + component;
+		
+		String path = System.getProperty(name);
+		
+		if (path == null) {
+			throw new IOException("The system property " + name + " is not set.");
+		}
+		
+		if (!new File(path).isFile()) {
+			throw new IOException("The model " + path + " does not exist.");
+		}
+		
+		return path;
+	}
+	
+	/**
+	 * Get the tool of the current thread for a component and a model, making it if
+	 * the thread does not have it yet.
+	 * @param component The component.
+	 * @param model_path The path of the model.
+	 * @return The tool.
+	 */
+	public static Object getTool (String component, String model_path) {
+		String key = component + ":" + model_path;
+		
+		Object tool = instances.get().get(key);
+		
+		if (tool == null) {
+			if (component.equals(LEMMATIZER)) {
+				tool = new is2.lemmatizer.Lemmatizer(model_path);
+			} else if (component.equals(MORPH_TAGGER)) {
+				tool = new is2.mtag.Tagger(model_path);
+			} else if (component.equals(POS_TAGGER)) {
+				tool = new is2.tag.Tagger(model_path);
+			} else if (component.equals(PARSER)) {
+				tool = new is2.parser.Parser(model_path);
+			} else {
+				throw new IllegalArgumentException("Unknown component: " + component);
+			}
+			
+			instances.get().put(key, tool);
+		}
+		
+		return tool;
+	}
+	
+	/**
+	 * Apply a tool to the data of a sentence.
+	 * @param component The component of the tool.
+	 * @param model_path The path of the model of the tool.
+	 * @param sentence_data The data of the sentence.
+	 * @return The data with the annotations of the tool.
+	 */
+	public static is2.data.SentenceData09 Apply (String component,
+			String model_path, is2.data.SentenceData09 sentence_data) {
+		Object tool = getTool(component, model_path);
+		
+		if (component.equals(LEMMATIZER)) {
+			return ((is2.lemmatizer.Lemmatizer) tool).apply(sentence_data);
+		} else if (component.equals(MORPH_TAGGER)) {
+			return ((is2.mtag.Tagger) tool).apply(sentence_data);
+		} else if (component.equals(POS_TAGGER)) {
+			return ((is2.tag.Tagger) tool).apply(sentence_data);
+		} else {
+			return ((is2.parser.Parser) tool).apply(sentence_data);
+		}
+	}
+	
+	/**
+	 * Apply a tool to all sentences of a batch and store its annotations in the
+	 * batch. The data of every sentence is kept in the batch, so the next tool
+	 * continues with the annotations of this one.
+	 * @param batch The batch.
+	 * @param component The component of the tool.
+	 * @param model_path The path of the model of the tool.
+	 */
+	public static void Apply (Sentence_Batch batch, String component,
+			String model_path) {
+		for (int i=0;i<batch.size();i++) {
+			is2.data.SentenceData09 sentence_data = null;
+			
+			if (batch.getSentence_data(i) instanceof is2.data.SentenceData09) {
+				sentence_data = (is2.data.SentenceData09) batch.getSentence_data(i);
+			} else {
+				sentence_data = new is2.data.SentenceData09();
+				sentence_data.init(batch.getForms(i));
+			}
+			
+			sentence_data = Apply(component, model_path, sentence_data);
+			
+			batch.setSentence_data(i, sentence_data);
+			
+			if (component.equals(LEMMATIZER)) {
+				batch.setLemmas(i, sentence_data.plemmas);
+			} else if (component.equals(MORPH_TAGGER)) {
+				batch.setFeatures(i, sentence_data.pfeats);
+			} else if (component.equals(POS_TAGGER)) {
+				batch.setPos(i, sentence_data.ppos);
+			} else {
+				batch.setHeads(i, sentence_data.pheads);
+				batch.setDependencies(i, sentence_data.plabels);
+			}
+		}
+	}
+}
@@ -0,0 +1,375 @@
+package teanlis;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import opennlp.tools.postag.POSModel;
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceModel;
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.tokenize.TokenizerModel;
+
+/**
+ * This class loads the OpenNLP models used by MakeDocument once per JVM and
+ * shares them between all callers. Models are identified by a language (for
+ * example "German") and a component (SENTENCES, TOKENS or POS_TAGS) and are read
+ * from the file "[code]-[component].bin" in the directory of the models, where
+ * the code is the code of the language used by the names of the OpenNLP models
+ * ("de" for German). The directory is the value of the system property
+ * "teanlis.models" or the directory the models were always read from.
+ * 
+ * A model is loaded when it is requested the first time. Threads which request
+ * the same model while it is loaded wait for it instead of loading it again.
+ * Models are immutable and can be used by several threads at once, but the
+ * detectors, tokenizers and taggers made from them can not, so every caller gets
+ * its own instance (see NewSentence_detector, NewTokenizer, NewPos_tagger).
+ * 
+ * Models can be loaded in advance with Warmup, and the time needed to load each
+ * model is recorded (see getLoad_times).
+ * 
+ * @author Andreas Mller
+ */
+
+public class Model_Registry {
+	
+	/**
+	 * The name of the system property which contains the directory of the models.
+	 */
+	public static final String DIRECTORY_PROPERTY = "teanlis.models";
+	
+	/**
+	 * The directory of the models if the system property is not set.
+	 */
+	public static final String DEFAULT_DIRECTORY = "C:\\Users\\Andreas\\Downloads";
+	
+	public static final String SENTENCES = "sent";
+	public static final String TOKENS = "token";
+	public static final String POS_TAGS = "pos-maxent";
+	
+	/**
+	 * The codes of the languages in the names of the files of the models.
+	 */
+	static final HashMap<String, String> LANGUAGE_CODES =
+			new HashMap<String, String>();
+	
+	static {
+		LANGUAGE_CODES.put("English", "en");
+		LANGUAGE_CODES.put("German", "de");
+		LANGUAGE_CODES.put("Danish", "da");
+		LANGUAGE_CODES.put("Spanish", "es");
+		LANGUAGE_CODES.put("Dutch", "nl");
+		LANGUAGE_CODES.put("Portuguese", "pt");
+		LANGUAGE_CODES.put("Protugese", "pt");
+		LANGUAGE_CODES.put("Swedish", "se");
+	}
+	
+	/**
+	 * The registry shared by all documents.
+	 */
+	static Model_Registry shared;
+	
+	/**
+	 * The directory of the models.
+	 */
+	String directory;
+	
+	/**
+	 * The models which are loaded or being loaded by their keys, see getKey.
+	 */
+	ConcurrentHashMap<String, FutureTask<Object>> models;
+	
+	/**
+	 * The times in milliseconds needed to load the models by their keys.
+	 */
+	ConcurrentHashMap<String, Long> load_times;
+	
+	/**
+	 * Constructor for a registry of the models in the specified directory.
+	 * @param directory The directory of the models.
+	 */
+	public Model_Registry (String directory) {
+		this.directory = directory;
+		this.models = new ConcurrentHashMap<String, FutureTask<Object>>();
+		this.load_times = new ConcurrentHashMap<String, Long>();
+	}
+	
+	/**
+	 * Get the registry shared by all documents, whose directory is the value of
+	 * the system property DIRECTORY_PROPERTY or DEFAULT_DIRECTORY.
+	 * @return The shared registry.
+	 */
+	public static synchronized Model_Registry getShared() {
+		if (shared == null) {
+			shared = new Model_Registry(System.getProperty(DIRECTORY_PROPERTY,
+					DEFAULT_DIRECTORY));
+		}
+		
+		return shared;
+	}
+	
+	/**
+	 * Get the directory of the models.
+	 * @return The directory of the models.
+	 */
+	public String getDirectory() {
+		return directory;
+	}
+	
+	/**
+	 * Get the file of a model.
+	 * @param language The language, for example "German".
+	 * @param component The component: SENTENCES, TOKENS or POS_TAGS.
+	 * @return The file of the model.
+	 * @throws IOException If the language is not known.
+	 */
+	public File getFile (String language, String component) throws IOException {
+		String code = LANGUAGE_CODES.get(language);
+		
+		if (code == null) {
+			throw new IOException("There are no models for the language " +
+					language + ".");
+		}
+		
+		return new File(directory, code + "-" + component + ".bin");
+	}
+	
+	/**
+	 * Check whether the file of a model exists.
+	 * @param language The language.
+	 * @param component The component.
+	 * @return Whether the file of the model exists.
+	 */
+	public boolean hasModel (String language, String component) {
+		try {
+			return getFile(language, component).isFile();
+		} catch (IOException e) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Get the model for detecting sentences in a language.
+	 * @param language The language.
+	 * @return The model.
+	 * @throws IOException If the model can not be loaded.
+	 */
+	public SentenceModel getSentence_model (String language) throws IOException {
+		return (SentenceModel) getModel(language, SENTENCES);
+	}
+	
+	/**
+	 * Get the model for tokenizing a language.
+	 * @param language The language.
+	 * @return The model.
+	 * @throws IOException If the model can not be loaded.
+	 */
+	public TokenizerModel getTokenizer_model (String language) throws IOException {
+		return (TokenizerModel) getModel(language, TOKENS);
+	}
+	
+	/**
+	 * Get the model for tagging the parts of speech of a language.
+	 * @param language The language.
+	 * @return The model.
+	 * @throws IOException If the model can not be loaded.
+	 */
+	public POSModel getPos_model (String language) throws IOException {
+		return (POSModel) getModel(language, POS_TAGS);
+	}
+	
+	/**
+	 * Make a new detector of sentences for the calling thread.
+	 * @param language The language.
+	 * @return The detector.
+	 * @throws IOException If the model can not be loaded.
+	 */
+	public SentenceDetectorME NewSentence_detector (String language)
+			throws IOException {
+		return new SentenceDetectorME(getSentence_model(language));
+	}
+	
+	/**
+	 * Make a new tokenizer for the calling thread.
+	 * @param language The language.
+	 * @return The tokenizer.
+	 * @throws IOException If the model can not be loaded.
+	 */
+	public TokenizerME NewTokenizer (String language) throws IOException {
+		return new TokenizerME(getTokenizer_model(language));
+	}
+	
+	/**
+	 * Make a new tagger of parts of speech for the calling thread.
+	 * @param language The language.
+	 * @return The tagger.
+	 * @throws IOException If the model can not be loaded.
+	 */
+	public POSTaggerME NewPos_tagger (String language) throws IOException {
+		return new POSTaggerME(getPos_model(language));
+	}
+	
+	/**
+	 * Get a model, loading it if it has not been loaded yet. If the model can not
+	 * be loaded, it is loaded again at the next request.
+	 * @param language The language.
+	 * @param component The component.
+	 * @return The model.
+	 * @throws IOException If the model can not be loaded.
+	 */
+	public Object getModel (String language, String component)
+			throws IOException {
+		final File file = getFile(language, component);
+		final String key = getKey(language, component);
+		final String final_component = component;
+		
+		FutureTask<Object> model = models.get(key);
+		
+		if (model == null) {
+			FutureTask<Object> new_model = new FutureTask<Object>(
+					new Callable<Object>() {
+				public Object call() throws IOException {
+					long start = System.currentTimeMillis();
+					
+					Object loaded_model = LoadModel(file, final_component);
+					
+					load_times.put(key, System.currentTimeMillis()-start);
+					
+					return loaded_model;
+				}
+			});
+			
+			model = models.putIfAbsent(key, new_model);
+			
+			if (model == null) {
+				model = new_model;
+				model.run();
+			}
+		}
+		
+		try {
+			return model.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			
+			throw new IOException("Interrupted while loading " + file);
+		} catch (ExecutionException e) {
+			models.remove(key, model);
+			
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			
+			throw new IOException("The model " + file + " can not be loaded.",
+					e.getCause());
+		}
+	}
+	
+	/**
+	 * Read a model from its file.
+	 */
+	static Object LoadModel (File file, String component) throws IOException {
+		if (component.equals(SENTENCES)) {
+			return new SentenceModel(file);
+		} else if (component.equals(TOKENS)) {
+			return new TokenizerModel(file);
+		} else if (component.equals(POS_TAGS)) {
+			return new POSModel(file);
+		}
+		
+		throw new IOException("Unknown component: " + component);
+	}
+	
+	/**
+	 * Get the key of a model: the code of its language and its component.
+	 */
+	static String getKey (String language, String component) {
+		String code = LANGUAGE_CODES.get(language);
+		
+		return (code == null ? language : code) + "-" + component;
+	}
+	
+	/**
+	 * Load the models of the specified languages whose files exist, several at
+	 * once, and print the time needed to load each of them. Models which can not
+	 * be loaded are printed and skipped.
+	 * @param languages The languages.
+	 * @return The times in milliseconds needed to load the models by their keys.
+	 */
+	public Map<String, Long> Warmup (String... languages) {
+		ExecutorService executor = Executors.newFixedThreadPool(
+				Runtime.getRuntime().availableProcessors());
+		
+		ArrayList<Future<Object>> results = new ArrayList<Future<Object>>();
+		
+		try {
+			for (final String language: languages) {
+				for (final String component: new String[] {SENTENCES, TOKENS,
+						POS_TAGS}) {
+					if (!hasModel(language, component)) {
+						continue;
+					}
+					
+					results.add(executor.submit(new Callable<Object>() {
+						public Object call() throws IOException {
+							return getModel(language, component);
+						}
+					}));
+				}
+			}
+			
+			for (Future<Object> result: results) {
+				try {
+					result.get();
+				} catch (ExecutionException e) {
+					e.getCause().printStackTrace();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+		
+		Map<String, Long> times = getLoad_times();
+		
+		for (String key: times.keySet()) {
+			System.out.println("Loaded model " + key + " in " + times.get(key) +
+					" ms");
+		}
+		
+		return times;
+	}
+	
+	/**
+	 * Get the times needed to load the models which were loaded so far.
+	 * @return The times in milliseconds by the keys of the models, for example
+	 * "de-sent", sorted by the keys.
+	 */
+	public Map<String, Long> getLoad_times() {
+		ArrayList<String> keys = new ArrayList<String>(load_times.keySet());
+		
+		Collections.sort(keys);
+		
+		LinkedHashMap<String, Long> times = new LinkedHashMap<String, Long>();
+		
+		for (String key: keys) {
+			times.put(key, load_times.get(key));
+		}
+		
+		return times;
+	}
+}
@@ -0,0 +1,158 @@
+package teanlis;
+
+/**
+ * This class represents the mapping from character offsets in the text of a
+ * document to the indices of the tokens in the document. Instead of storing one
+ * entry for every character of the text, the index only stores the start and end
+ * offsets of the tokens in two primitive arrays and answers lookups by binary
+ * search. This means the index needs memory proportional to the number of tokens,
+ * not to the number of characters of the text.
+ * 
+ * The index gives the same answers as the character map the document used to
+ * compute:
+ * 
+ * 1. Every offset before the first token belongs to the first token.
+ * 
+ * 2. Every offset from the start to the end offset of a token (both inclusive)
+ * belongs to the token. If two tokens share an offset, for example because the
+ * end offset of a token is the start offset of the next token, the offset belongs
+ * to the token which comes later in the list of tokens.
+ * 
+ * 3. Every offset after the end offset of the last token up to the length of the
+ * text belongs to the last token.
+ * 
+ * 4. Offsets in gaps between tokens and offsets outside of the text do not belong
+ * to any token.
+ * 
+ * The tokens are expected to be sorted by their start offsets, which is the case
+ * for all tokens created by the methods in MakeDocument and GATE_Converter.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Offset_Index implements java.io.Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * The start offsets of the tokens.
+	 */
+	int[] starts;
+	
+	/**
+	 * The end offsets of the tokens.
+	 */
+	int[] ends;
+	
+	/**
+	 * For each token the largest end offset of this token and all tokens before
+	 * it. This is used to stop the search for a token containing an offset as soon
+	 * as no earlier token can reach the offset any more.
+	 */
+	int[] max_ends;
+	
+	/**
+	 * The length of the text the tokens are contained in.
+	 */
+	int text_length;
+	
+	/**
+	 * Constructor for the index which takes the start and end offsets of the
+	 * tokens and the length of the text as arguments. The arrays are used
+	 * directly, they are not copied.
+	 * @param starts The start offsets of the tokens.
+	 * @param ends The end offsets of the tokens.
+	 * @param text_length The length of the text the tokens are contained in.
+	 */
+	public Offset_Index (int[] starts, int[] ends, int text_length) {
+		this.starts = starts;
+		this.ends = ends;
+		this.text_length = text_length;
+		
+		this.max_ends = new int[ends.length];
+		
+		int max_end = Integer.MIN_VALUE;
+		
+		for (int i=0;i<ends.length;i++) {
+			if (ends[i] > max_end) {
+				max_end = ends[i];
+			}
+			
+			max_ends[i] = max_end;
+		}
+	}
+	
+	/**
+	 * Get the number of tokens in the index.
+	 * @return The number of tokens in the index.
+	 */
+	public int size() {
+		return starts.length;
+	}
+	
+	/**
+	 * Get the length of the text the index was computed for.
+	 * @return The length of the text the index was computed for.
+	 */
+	public int getText_length() {
+		return text_length;
+	}
+	
+	/**
+	 * Get the index of the token the specified offset belongs to.
+	 * @param offset A character offset in the text of the document.
+	 * @return The index of the token the offset belongs to or -1 if the offset
+	 * does not belong to any token.
+	 */
+	public int getToken (int offset) {
+		int size = starts.length;
+		
+		if (size == 0 || offset < 0) {
+			return -1;
+		}
+		
+		if (offset > ends[size-1] && offset <= text_length) {
+			return size-1;
+		}
+		
+		int candidate = LastStartAtOrBefore(offset);
+		
+		while (candidate >= 0 && max_ends[candidate] >= offset) {
+			if (ends[candidate] >= offset) {
+				return candidate;
+			}
+			
+			candidate = candidate-1;
+		}
+		
+		if (offset < starts[0]) {
+			return 0;
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Get the index of the last token which starts at or before the specified
+	 * offset.
+	 * @param offset A character offset in the text of the document.
+	 * @return The index of the last token which starts at or before the offset or
+	 * -1 if all tokens start after the offset.
+	 */
+	int LastStartAtOrBefore (int offset) {
+		int low = 0;
+		int high = starts.length-1;
+		
+		while (low <= high) {
+			int middle = (low+high) >>> 1;
+			
+			if (starts[middle] <= offset) {
+				low = middle+1;
+			} else {
+				high = middle-1;
+			}
+		}
+		
+		return high;
+	}
+}
@@ -0,0 +1,114 @@
+package teanlis;
+
+import java.io.IOException;
+import java.util.HashMap;
+
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.tokenize.TokenizerME;
+
+/**
+ * This class attaches sentences, tokens and part-of-speech tags to documents with
+ * the OpenNLP models of Model_Registry. The detectors, tokenizers and taggers of
+ * OpenNLP can not be used by several threads at once, so every thread has its
+ * own instances (see getSentence_detector, getTokenizer, getPos_tagger), which
+ * share the models of the registry and are reused for all documents the thread
+ * processes.
+ * 
+ * The sentences and tokens are attached by an Annotation_Pipeline, which
+ * tokenizes and tags batches of sentences in parallel.
+ *
+ * @author Andreas Mller
+ */
+
+public class OpenNLP_Tools {
+	
+	/**
+	 * The detectors, tokenizers and taggers of the current thread by their
+	 * languages and components, see getKey.
+	 */
+	static final ThreadLocal<HashMap<String, Object>> instances =
+			new ThreadLocal<HashMap<String, Object>>() {
+		protected HashMap<String, Object> initialValue() {
+			return new HashMap<String, Object>();
+		}
+	};
+	
+	/**
+	 * Get the detector of sentences of the current thread for a language.
+	 * @param language The language.
+	 * @return The detector.
+	 * @throws IOException If the model can not be loaded.
+	 */
+	public static SentenceDetectorME getSentence_detector (String language)
+			throws IOException {
+		String key = Model_Registry.getKey(language, Model_Registry.SENTENCES);
+		
+		SentenceDetectorME detector = (SentenceDetectorME) instances.get().get(key);
+		
+		if (detector == null) {
+			detector = Model_Registry.getShared().NewSentence_detector(language);
+			instances.get().put(key, detector);
+		}
+		
+		return detector;
+	}
+	
+	/**
+	 * Get the tokenizer of the current thread for a language.
+	 * @param language The language.
+	 * @return The tokenizer.
+	 * @throws IOException If the model can not be loaded.
+	 */
+	public static TokenizerME getTokenizer (String language) throws IOException {
+		String key = Model_Registry.getKey(language, Model_Registry.TOKENS);
+		
+		TokenizerME tokenizer = (TokenizerME) instances.get().get(key);
+		
+		if (tokenizer == null) {
+			tokenizer = Model_Registry.getShared().NewTokenizer(language);
+			instances.get().put(key, tokenizer);
+		}
+		
+		return tokenizer;
+	}
+	
+	/**
+	 * Get the tagger of parts of speech of the current thread for a language.
+	 * @param language The language.
+	 * @return The tagger.
+	 * @throws IOException If the model can not be loaded.
+	 */
+	public static POSTaggerME getPos_tagger (String language) throws IOException {
+		String key = Model_Registry.getKey(language, Model_Registry.POS_TAGS);
+		
+		POSTaggerME tagger = (POSTaggerME) instances.get().get(key);
+		
+		if (tagger == null) {
+			tagger = Model_Registry.getShared().NewPos_tagger(language);
+			instances.get().put(key, tagger);
+		}
+		
+		return tagger;
+	}
+	
+	/**
+	 * Detect the sentences of a document and attach them and their tokens to the
+	 * document, replacing its sentences and tokens.
+	 * @param document The document.
+	 * @param language The language of the document.
+	 * @param tag_pos Whether the tokens are tagged with their parts of speech.
+	 * @throws Exception If a model can not be loaded.
+	 */
+	public static void AttachSentencesAndTokens (Document document,
+			String language, boolean tag_pos) throws Exception {
+		Annotation_Pipeline pipeline = new Annotation_Pipeline(language,
+				"sentences", "tokens");
+		
+		if (tag_pos) {
+			pipeline.add("pos");
+		}
+		
+		pipeline.Process(document);
+	}
+}
@@ -1,5 +1,9 @@
 package teanlis;
 
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
 /**
  * This class represents a page. The field number contains the number assigned
  * to the page by the author, not necessarily the number you would get when
@@ -12,6 +16,8 @@ package teanlis;
 
 public class Page extends Linguistic_Element {
 	
+	private static final long serialVersionUID = 2L;
+	
 	/**
 	 * The number of the page. This is the number printed on the page, not the index
 	 * of the page in the list of pages contained in the document.
@@ -54,4 +60,27 @@ public class Page extends Linguistic_Element {
 	public void setNumber(int number) {
 		this.number = number;
 	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see teanlis.Linguistic_Element#writeExternal(java.io.ObjectOutput)
+	 */
+	public void writeExternal (ObjectOutput output) throws IOException {
+		super.writeExternal(output);
+		
+		output.writeInt(number);
+		output.writeInt(containing_chapter);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see teanlis.Linguistic_Element#readExternal(java.io.ObjectInput)
+	 */
+	public void readExternal (ObjectInput input) throws IOException, 
+			ClassNotFoundException {
+		super.readExternal(input);
+		
+		this.number = input.readInt();
+		this.containing_chapter = input.readInt();
+	}
 }
@@ -1,5 +1,9 @@
 package teanlis;
 
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
 /**
  * This class represents a paragraph.
  * 
@@ -8,6 +12,8 @@ package teanlis;
  */
 public class Paragraph extends Linguistic_Element {
 	
+	private static final long serialVersionUID = 2L;
+	
 	/**
 	 * The chapter containing the paragraph.
 	 */
@@ -49,4 +55,27 @@ public class Paragraph extends Linguistic_Element {
 	public void setContaining_chapter(int chapter) {
 		this.containing_chapter = chapter;
 	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see teanlis.Linguistic_Element#writeExternal(java.io.ObjectOutput)
+	 */
+	public void writeExternal (ObjectOutput output) throws IOException {
+		super.writeExternal(output);
+		
+		output.writeInt(containing_chapter);
+		output.writeInt(containing_page);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see teanlis.Linguistic_Element#readExternal(java.io.ObjectInput)
+	 */
+	public void readExternal (ObjectInput input) throws IOException, 
+			ClassNotFoundException {
+		super.readExternal(input);
+		
+		this.containing_chapter = input.readInt();
+		this.containing_page = input.readInt();
+	}
 }
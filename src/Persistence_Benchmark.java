@@ -0,0 +1,731 @@
+package teanlis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * This class measures what the storage formats of documents cost. For every
+ * format and document it measures:
+ * 
+ * 1. The time needed to save and to load the document.
+ * 2. The time of the first query after loading: the token at the middle of the
+ * text, the sentences and the annotations of a type.
+ * 3. The number of bytes on disk.
+ * 4. How much the heap grew above the heap used just before saving and loading
+ * (the sum of the peaks of the heap pools minus their usage after a garbage
+ * collection before the operation, so the document which is saved does not
+ * count; the columns are named "heap_growth"), and the bytes allocated by the
+ * calling thread while saving and loading. Allocations of other threads are not
+ * counted, so formats which parse with a pool of threads (the plain format)
+ * report too few bytes; the columns are named "thread_allocated" to make that
+ * clear.
+ * 
+ * The documents are synthetic documents with the specified numbers of tokens
+ * (see MakeSyntheticDocument) and documents loaded from files. Every measurement
+ * is repeated and the median is reported, after runs which are not measured so
+ * that the JIT compiler has compiled the code. The results are written to a CSV
+ * or JSON file, depending on the extension of its name, so that results of
+ * different versions can be compared.
+ * 
+ * Usage: Persistence_Benchmark [-tokens 1000,100000,...] [-documents a,b]
+ * [-formats object,compressed,...] [-iterations n] [-warmup n]
+ * [-directory path] [-output results.csv|results.json]
+ * 
+ * The format "gate" (GATE xml, see GATE_Converter) needs an installation of GATE
+ * and is only measured if it is specified with -formats.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Persistence_Benchmark {
+	
+	/**
+	 * The numbers of tokens of the synthetic documents if none are specified.
+	 */
+	static final int[] DEFAULT_TOKEN_COUNTS = {1000, 100000, 1000000, 5000000};
+	
+	/**
+	 * The formats which are measured if none are specified.
+	 */
+	static final String[] DEFAULT_FORMATS = {"object", "compressed", "mapped",
+		"plain", "serialized"};
+	
+	/**
+	 * The words the text of synthetic documents consists of.
+	 */
+	static final String[] WORDS = {"der", "die", "das", "Haus", "steht", "am",
+		"Rande", "eines", "kleinen", "Waldes", "und", "wir", "gehen", "hinein",
+		"Erhabene", "Dichtung", "Sprache", "ist", "nicht", "sch\u00f6n"};
+	
+	/**
+	 * The part-of-speech tags of the words.
+	 */
+	static final String[] POS_TAGS = {"ART", "ART", "ART", "NN", "VVFIN",
+		"APPRART", "NN", "ART", "ADJA", "NN", "KON", "PPER", "VVFIN", "ADV", "NN",
+		"NN", "NN", "VAFIN", "PTKNEG", "ADJD"};
+	
+	/**
+	 * Interface for a storage format of documents.
+	 */
+	interface Storage_Format {
+		
+		/**
+		 * Save a document.
+		 * @param document The document.
+		 * @param path The path of the file or directory the document is saved to.
+		 * @throws Exception If the document can not be saved.
+		 */
+		void Save (Document document, String path) throws Exception;
+		
+		/**
+		 * Load a document.
+		 * @param path The path of the file or directory of the document.
+		 * @return The document.
+		 * @throws Exception If the document can not be loaded.
+		 */
+		Document Load (String path) throws Exception;
+	}
+	
+	/**
+	 * The result of measuring a format with a document.
+	 */
+	static class Result {
+		String format;
+		String document;
+		int tokens;
+		double save_ms;
+		double load_ms;
+		double first_query_ms;
+		long bytes;
+		long save_heap_growth;
+		long load_heap_growth;
+		long save_thread_allocated;
+		long load_thread_allocated;
+		String error;
+	}
+	
+	/**
+	 * The formats which can be measured by their names.
+	 */
+	static LinkedHashMap<String, Storage_Format> getFormats () {
+		LinkedHashMap<String, Storage_Format> formats =
+				new LinkedHashMap<String, Storage_Format>();
+		
+		formats.put("object", new Storage_Format() {
+			public void Save (Document document, String path) {
+				document.SaveAsOneObject(path);
+			}
+			
+			public Document Load (String path) {
+				Document document = new Document();
+				
+				document.LoadAsOneObject(path);
+				
+				return document;
+			}
+		});
+		
+		formats.put("compressed", new Storage_Format() {
+			public void Save (Document document, String path) throws IOException {
+				Document_Format.Save(document, path, true);
+			}
+			
+			public Document Load (String path) throws IOException {
+				return Document_Format.Load(path);
+			}
+		});
+		
+		formats.put("mapped", new Storage_Format() {
+			public void Save (Document document, String path) throws IOException {
+				Document_Format.Save(document, path);
+			}
+			
+			public Document Load (String path) throws IOException {
+				return new Mapped_Document(path);
+			}
+		});
+		
+		formats.put("plain", new Storage_Format() {
+			public void Save (Document document, String path) throws IOException {
+				Plain_Text_Format.Save(new File(path), document);
+			}
+			
+			public Document Load (String path) throws IOException {
+				return Plain_Text_Format.Load(new File(path));
+			}
+		});
+		
+		formats.put("serialized", new Storage_Format() {
+			public void Save (Document document, String path) throws IOException {
+				ObjectOutputStream output = new ObjectOutputStream(
+						new BufferedOutputStream(new FileOutputStream(path)));
+				
+				try {
+					output.writeObject(document);
+				} finally {
+					output.close();
+				}
+			}
+			
+			public Document Load (String path) throws Exception {
+				ObjectInputStream input = new Legacy_Reader(new BufferedInputStream(
+						new FileInputStream(path)));
+				
+				try {
+					return Legacy_Reader.ToDocument(input.readObject());
+				} finally {
+					input.close();
+				}
+			}
+		});
+		
+		formats.put("gate", new Storage_Format() {
+			public void Save (Document document, String path) throws IOException {
+				gate.Document gate_document = GATE_Converter.convert_to_gate_document(
+						document);
+				
+				if (gate_document == null) {
+					throw new IOException("The document can not be converted to GATE.");
+				}
+				
+				BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+						new FileOutputStream(path), "UTF-8"));
+				
+				try {
+					writer.write(gate_document.toXml());
+				} finally {
+					writer.close();
+				}
+			}
+			
+			public Document Load (String path) throws IOException {
+				Document document = Utils.LoadDocumentFromGateDocument(path);
+				
+				if (document == null) {
+					throw new IOException("The GATE document can not be loaded.");
+				}
+				
+				return document;
+			}
+		});
+		
+		return formats;
+	}
+	
+	/**
+	 * Make a synthetic document with the specified number of tokens. Every token
+	 * has a lemma and a part-of-speech tag, sentences have 20 tokens, paragraphs
+	 * 8 sentences, pages 4 paragraphs and chapters 50 pages, and every fifth token
+	 * is covered by an annotation of the type "NP".
+	 * @param token_count The number of tokens.
+	 * @return The document.
+	 */
+	public static Document MakeSyntheticDocument (int token_count) {
+		StringBuilder text = new StringBuilder(token_count*7);
+		Token_Table tokens = new Token_Table(token_count);
+		
+		ArrayList<Sentence> sentences = new ArrayList<Sentence>();
+		ArrayList<Paragraph> paragraphs = new ArrayList<Paragraph>();
+		ArrayList<Page> pages = new ArrayList<Page>();
+		ArrayList<Chapter> chapters = new ArrayList<Chapter>();
+		ArrayList<Annotation> noun_phrases = new ArrayList<Annotation>();
+		
+		for (int i=0;i<token_count;i++) {
+			int word = (i*7+i/13) % WORDS.length;
+			int start = text.length();
+			
+			text.append(WORDS[word]);
+			
+			int index = tokens.add(start, text.length());
+			
+			tokens.setLemma(index, WORDS[word].toLowerCase());
+			tokens.setPos(index, POS_TAGS[word]);
+			tokens.setId(index, i);
+			
+			if (i % 5 == 0) {
+				Annotation noun_phrase = new Annotation();
+				
+				noun_phrase.setStart(start);
+				noun_phrase.setEnd(text.length());
+				noun_phrases.add(noun_phrase);
+			}
+			
+			text.append(i % 20 == 19 ? ". " : " ");
+			
+			if (EndsElement(i, 20, token_count)) {
+				sentences.add(MakeElement(new Sentence(), tokens, i, 20));
+			}
+			
+			if (EndsElement(i, 160, token_count)) {
+				paragraphs.add(MakeElement(new Paragraph(), tokens, i, 160));
+			}
+			
+			if (EndsElement(i, 640, token_count)) {
+				Page page = MakeElement(new Page(), tokens, i, 640);
+				
+				page.setNumber(pages.size()+1);
+				pages.add(page);
+			}
+			
+			if (EndsElement(i, 32000, token_count)) {
+				chapters.add(MakeElement(new Chapter("Chapter " + (chapters.size()+1)),
+						tokens, i, 32000));
+			}
+		}
+		
+		Document document = new Document(text.toString());
+		
+		document.setTitle("Synthetic document with " + token_count + " tokens");
+		document.setToken_table(tokens);
+		document.setSentences(sentences);
+		document.setParagraphs(paragraphs);
+		document.setPages(pages);
+		document.setMain_chapters(chapters);
+		
+		for (Annotation noun_phrase: noun_phrases) {
+			document.addAnnotation("NP", noun_phrase);
+		}
+		
+		return document;
+	}
+	
+	/**
+	 * Check whether a token is the last token of an element of the specified
+	 * number of tokens.
+	 */
+	static boolean EndsElement (int token, int length, int token_count) {
+		return token % length == length-1 || token == token_count-1;
+	}
+	
+	/**
+	 * Set the offsets of an element which ends with the specified token.
+	 */
+	static <T extends Linguistic_Element> T MakeElement (T element,
+			Token_Table tokens, int token, int length) {
+		element.setStart(tokens.getStart(token-token % length));
+		element.setEnd(tokens.getEnd(token));
+		
+		return element;
+	}
+	
+	/**
+	 * Measure a format with a document.
+	 * @param format_name The name of the format.
+	 * @param format The format.
+	 * @param document_name The name of the document.
+	 * @param document The document.
+	 * @param directory The directory the document is saved to.
+	 * @param iterations The number of measured runs.
+	 * @param warmup The number of runs which are not measured.
+	 * @return The result.
+	 */
+	static Result Measure (String format_name, Storage_Format format,
+			String document_name, Document document, File directory, int iterations,
+			int warmup) {
+		Result result = new Result();
+		
+		result.format = format_name;
+		result.document = document_name;
+		result.tokens = document.getToken_table() == null ? 0 :
+			document.getToken_table().size();
+		
+		String path = new File(directory, document_name + "." + format_name)
+				.getPath();
+		
+		double[] save_times = new double[iterations];
+		double[] load_times = new double[iterations];
+		double[] query_times = new double[iterations];
+		double[] save_heaps = new double[iterations];
+		double[] load_heaps = new double[iterations];
+		double[] save_allocations = new double[iterations];
+		double[] load_allocations = new double[iterations];
+		
+		try {
+			for (int i=0;i<warmup+iterations;i++) {
+				Delete(new File(path));
+				
+				long[] save = new long[3];
+				long[] load = new long[3];
+				
+				StartMeasurement();
+				long start = System.nanoTime();
+				format.Save(document, path);
+				EndMeasurement(start, save);
+				
+				StartMeasurement();
+				start = System.nanoTime();
+				Document loaded = format.Load(path);
+				EndMeasurement(start, load);
+				
+				start = System.nanoTime();
+				Query(loaded);
+				long query = System.nanoTime()-start;
+				
+				if (i >= warmup) {
+					int run = i-warmup;
+					
+					save_times[run] = save[0]/1e6;
+					load_times[run] = load[0]/1e6;
+					query_times[run] = query/1e6;
+					
+					save_heaps[run] = save[1];
+					load_heaps[run] = load[1];
+					save_allocations[run] = save[2];
+					load_allocations[run] = load[2];
+				}
+			}
+			
+			result.bytes = Size(new File(path));
+			result.save_ms = Median(save_times);
+			result.load_ms = Median(load_times);
+			result.first_query_ms = Median(query_times);
+			result.save_heap_growth = (long) Median(save_heaps);
+			result.load_heap_growth = (long) Median(load_heaps);
+			result.save_thread_allocated = (long) Median(save_allocations);
+			result.load_thread_allocated = (long) Median(load_allocations);
+		} catch (Exception e) {
+			result.error = e.toString();
+		} finally {
+			Delete(new File(path));
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * The queries made after a document is loaded, which need the indices and
+	 * layers a format may load lazily.
+	 */
+	static int Query (Document document) {
+		int count = 0;
+		
+		count = count+document.getTokenAtOffset(document.getText_length()/2);
+		
+		if (document.getSentences() != null) {
+			count = count+document.getSentences().size();
+		}
+		
+		List<Annotation> noun_phrases = document.getText_units().get("NP");
+		
+		if (noun_phrases != null && !noun_phrases.isEmpty()) {
+			count = count+noun_phrases.get(noun_phrases.size()/2).getEnd();
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Collect the garbage, reset the peaks of the memory pools and take the usage
+	 * of the heap as the baseline of a measurement.
+	 */
+	static void StartMeasurement () {
+		System.gc();
+		
+		heap_at_start = 0;
+		
+		for (MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+				pool.resetPeakUsage();
+				heap_at_start = heap_at_start+pool.getUsage().getUsed();
+			}
+		}
+		
+		allocated_at_start = AllocatedBytes();
+	}
+	
+	/**
+	 * The bytes used in the heap pools when the measurement started.
+	 */
+	static long heap_at_start;
+	
+	/**
+	 * The bytes allocated by the current thread when the measurement started. Only
+	 * the thread which calls the format is measured: the threads of pools made by
+	 * the format have ended when the measurement ends, so their allocations can
+	 * not be read anymore.
+	 */
+	static long allocated_at_start;
+	
+	/**
+	 * Store the time, the growth of the heap above the baseline and the allocated
+	 * bytes of a measurement.
+	 * @param start The time the measurement started in nanoseconds.
+	 * @param values The array the values are stored in.
+	 */
+	static void EndMeasurement (long start, long[] values) {
+		values[0] = System.nanoTime()-start;
+		
+		long allocated = AllocatedBytes();
+		
+		long peak_heap = 0;
+		
+		for (MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+				peak_heap = peak_heap+pool.getPeakUsage().getUsed();
+			}
+		}
+		
+		values[1] = Math.max(0, peak_heap-heap_at_start);
+		values[2] = allocated == -1 ? -1 : allocated-allocated_at_start;
+	}
+	
+	/**
+	 * Get the number of bytes the current thread has allocated, if the JVM can
+	 * measure it.
+	 * @return The number of bytes or -1.
+	 */
+	static long AllocatedBytes () {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(
+					Thread.currentThread().getId());
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Get the median of values.
+	 */
+	static double Median (double[] values) {
+		double[] sorted = values.clone();
+		
+		Arrays.sort(sorted);
+		
+		if (sorted.length % 2 == 1) {
+			return sorted[sorted.length/2];
+		}
+		
+		return (sorted[sorted.length/2-1]+sorted[sorted.length/2])/2;
+	}
+	
+	/**
+	 * Get the number of bytes of a file or of all files in a directory.
+	 */
+	static long Size (File file) {
+		if (!file.isDirectory()) {
+			return file.length();
+		}
+		
+		long size = 0;
+		
+		for (File child: file.listFiles()) {
+			size = size+Size(child);
+		}
+		
+		return size;
+	}
+	
+	/**
+	 * Delete a file or a directory with all files in it.
+	 */
+	static void Delete (File file) {
+		if (file.isDirectory()) {
+			for (File child: file.listFiles()) {
+				Delete(child);
+			}
+		}
+		
+		file.delete();
+	}
+	
+	/**
+	 * Write the results as CSV, one line per result.
+	 * @param results The results.
+	 * @param path The path of the file.
+	 * @throws IOException
+	 */
+	static void WriteCSV (List<Result> results, String path) throws IOException {
+		BufferedWriter writer = new BufferedWriter(new FileWriter(path));
+		
+		try {
+			writer.write("format,document,tokens,save_ms,load_ms,first_query_ms,bytes,"
+					+ "save_heap_growth,load_heap_growth,save_thread_allocated,"
+					+ "load_thread_allocated,error");
+			writer.newLine();
+			
+			for (Result result: results) {
+				writer.write(result.format + "," + result.document + "," +
+						result.tokens + "," + result.save_ms + "," + result.load_ms + "," +
+						result.first_query_ms + "," + result.bytes + "," +
+						result.save_heap_growth + "," + result.load_heap_growth + "," +
+						result.save_thread_allocated + "," +
+						result.load_thread_allocated + "," +
+						(result.error == null ? "" : "\"" + result.error.replace("\"",
+								"\"\"") + "\""));
+				writer.newLine();
+			}
+		} finally {
+			writer.close();
+		}
+	}
+	
+	/**
+	 * Write the results as a JSON array of objects, one object per result.
+	 * @param results The results.
+	 * @param path The path of the file.
+	 * @throws IOException
+	 */
+	static void WriteJSON (List<Result> results, String path) throws IOException {
+		BufferedWriter writer = new BufferedWriter(new FileWriter(path));
+		
+		try {
+			writer.write("[");
+			
+			for (int i=0;i<results.size();i++) {
+				Result result = results.get(i);
+				
+				writer.write(i == 0 ? "\n" : ",\n");
+				writer.write("  {\"format\": " + Quote(result.format) +
+						", \"document\": " + Quote(result.document) +
+						", \"tokens\": " + result.tokens +
+						", \"save_ms\": " + result.save_ms +
+						", \"load_ms\": " + result.load_ms +
+						", \"first_query_ms\": " + result.first_query_ms +
+						", \"bytes\": " + result.bytes +
+						", \"save_heap_growth\": " + result.save_heap_growth +
+						", \"load_heap_growth\": " + result.load_heap_growth +
+						", \"save_thread_allocated\": " + result.save_thread_allocated +
+						", \"load_thread_allocated\": " + result.load_thread_allocated +
+						", \"error\": " + Quote(result.error) + "}");
+			}
+			
+			writer.write("\n]\n");
+		} finally {
+			writer.close();
+		}
+	}
+	
+	/**
+	 * Quote a string for JSON.
+	 */
+	static String Quote (String string) {
+		if (string == null) {
+			return "null";
+		}
+		
+		StringBuilder quoted = new StringBuilder("\"");
+		
+		for (int i=0;i<string.length();i++) {
+			char character = string.charAt(i);
+			
+			if (character == '"' || character == '\\') {
+				quoted.append('\\').append(character);
+			} else if (character < 0x20) {
+				quoted.append(String.format("\\u%04x", (int) character));
+			} else {
+				quoted.append(character);
+			}
+		}
+		
+		return quoted.append('"').toString();
+	}
+	
+	public static void main(String[] args) {
+		int[] token_counts = DEFAULT_TOKEN_COUNTS;
+		String[] document_paths = new String[0];
+		String[] format_names = DEFAULT_FORMATS;
+		int iterations = 5;
+		int warmup = 2;
+		File directory = new File(System.getProperty("java.io.tmpdir"),
+				"teanlis_benchmark");
+		String output = "persistence_benchmark.json";
+		
+		for (int i=0;i+1<args.length;i=i+2) {
+			if (args[i].equals("-tokens")) {
+				String[] counts = args[i+1].split(",");
+				
+				token_counts = new int[counts.length];
+				
+				for (int j=0;j<counts.length;j++) {
+					token_counts[j] = Integer.parseInt(counts[j].trim());
+				}
+			} else if (args[i].equals("-documents")) {
+				document_paths = args[i+1].split(",");
+			} else if (args[i].equals("-formats")) {
+				format_names = args[i+1].split(",");
+			} else if (args[i].equals("-iterations")) {
+				iterations = Integer.parseInt(args[i+1]);
+			} else if (args[i].equals("-warmup")) {
+				warmup = Integer.parseInt(args[i+1]);
+			} else if (args[i].equals("-directory")) {
+				directory = new File(args[i+1]);
+			} else if (args[i].equals("-output")) {
+				output = args[i+1];
+			} else {
+				System.err.println("Unknown option: " + args[i]);
+				return;
+			}
+		}
+		
+		directory.mkdirs();
+		
+		LinkedHashMap<String, Storage_Format> formats = getFormats();
+		LinkedHashMap<String, Document> documents =
+				new LinkedHashMap<String, Document>();
+		
+		for (int token_count: token_counts) {
+			documents.put("synthetic_" + token_count, MakeSyntheticDocument(
+					token_count));
+		}
+		
+		for (String document_path: document_paths) {
+			Document document = new Document();
+			
+			document.LoadAsOneObject(document_path);
+			
+			documents.put(new File(document_path).getName(), document);
+		}
+		
+		ArrayList<Result> results = new ArrayList<Result>();
+		
+		for (String document_name: documents.keySet()) {
+			for (String format_name: format_names) {
+				Storage_Format format = formats.get(format_name.trim());
+				
+				if (format == null) {
+					System.err.println("Unknown format: " + format_name);
+					continue;
+				}
+				
+				Result result = Measure(format_name.trim(), format, document_name,
+						documents.get(document_name), directory, iterations, warmup);
+				
+				results.add(result);
+				
+				System.out.println(result.format + "\t" + result.document + "\tsave " +
+						result.save_ms + " ms\tload " + result.load_ms + " ms\tquery " +
+						result.first_query_ms + " ms\t" + result.bytes + " bytes" +
+						(result.error == null ? "" : "\t" + result.error));
+			}
+		}
+		
+		try {
+			if (output.endsWith(".csv")) {
+				WriteCSV(results, output);
+			} else {
+				WriteJSON(results, output);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,1180 @@
+package teanlis;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class writes documents to and reads documents from a directory of plain
+ * text files, one file for every layer of the document. The files can be read and
+ * changed with a text editor or other programs, unlike the files of
+ * Document_Format. All files are encoded in UTF-8. The file TEXT_FILE contains the
+ * text of the document as it is; all other files contain one record per line with
+ * the fields of the record separated by commas. In the fields a backslash escapes
+ * a comma, a backslash, a line feed (\n) and a carriage return (\r), and \N stands
+ * for null. The files are:
+ * 
+ * 1. META_FILE: records of the form "title,title", "start,offset", "end,offset",
+ * "next_annotation_id,id", "change_log_mode,mode" and "meta,name,value".
+ * 
+ * 2. TOKENS_FILE: start,end,lemma,function,pos,dependency,governor,sentence,id.
+ * Files with only the first seven fields, as written by earlier versions, can be
+ * read as well.
+ * 
+ * 3. SENTENCES_FILE: start,end,containing_paragraph,containing_chapter.
+ * 
+ * 4. PARAGRAPHS_FILE: start,end,containing_page,containing_chapter.
+ * 
+ * 5. PAGES_FILE: start,end,number,containing_chapter.
+ * 
+ * 6. SUB_CHAPTERS_FILE and MAIN_CHAPTERS_FILE:
+ * start,end,title,start_sentence,end_sentence.
+ * 
+ * 7. LINES_FILE: start,end,containing_paragraph,containing_page,
+ * containing_sub_chapter,containing_main_chapter.
+ * 
+ * 8. TEXT_UNITS_FILE: type,id,start,end,sub_type,color,note,unchecked,unchanged,
+ * propability.
+ * 
+ * 9. CHANGE_LOG_FILE: annotation_id,start,end,status,value,timestamp.
+ * 
+ * 10. NOTES_FILE: layer,type,index,date,note for the entries of the note histories,
+ * where layer is "document", the name of the file of a layer or TEXT_UNITS_FILE,
+ * and type is the type of the annotation for TEXT_UNITS_FILE and null otherwise.
+ * 
+ * A layer which is null in the document has no file and is null again after
+ * loading. The files are read by several threads at once, and the fields are
+ * parsed directly from the characters of the line, so large documents can be
+ * loaded quickly.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Plain_Text_Format {
+	
+	public static final String TEXT_FILE = "text";
+	public static final String META_FILE = "meta";
+	public static final String TOKENS_FILE = "tokens";
+	public static final String SENTENCES_FILE = "sentences";
+	public static final String PARAGRAPHS_FILE = "paragraphs";
+	public static final String PAGES_FILE = "pages";
+	public static final String SUB_CHAPTERS_FILE = "sub_chapters";
+	public static final String MAIN_CHAPTERS_FILE = "main_chapters";
+	public static final String LINES_FILE = "lines";
+	public static final String TEXT_UNITS_FILE = "text_units";
+	public static final String CHANGE_LOG_FILE = "change_log";
+	public static final String NOTES_FILE = "notes";
+	
+	/**
+	 * The layer of the note history of the document in NOTES_FILE.
+	 */
+	static final String DOCUMENT_NOTES = "document";
+	
+	/**
+	 * The files which are read in parallel when a document is loaded.
+	 */
+	static final String[] PARALLEL_FILES = {TEXT_FILE, TOKENS_FILE,
+		SENTENCES_FILE, PARAGRAPHS_FILE, PAGES_FILE, SUB_CHAPTERS_FILE,
+		MAIN_CHAPTERS_FILE, LINES_FILE, TEXT_UNITS_FILE, CHANGE_LOG_FILE,
+		NOTES_FILE};
+	
+	/**
+	 * The encoding of all files.
+	 */
+	static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	/**
+	 * The number of characters of the buffers for reading and writing.
+	 */
+	static final int BUFFER_SIZE = 1 << 16;
+	
+	/**
+	 * Write a document to a directory. The directory is created if it does not
+	 * exist; files of layers which are null in the document are deleted.
+	 * @param directory The directory.
+	 * @param document The document.
+	 * @throws IOException If a file can not be written.
+	 */
+	public static void Save (File directory, Document document)
+			throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("The directory " + directory + " can not be "
+					+ "created.");
+		}
+		
+		WriteText(new File(directory, TEXT_FILE), document.getText());
+		WriteMeta(new File(directory, META_FILE), document);
+		
+		Token_Table tokens = document.getToken_table();
+		
+		if (tokens == null) {
+			new File(directory, TOKENS_FILE).delete();
+		} else {
+			Record_Writer writer = new Record_Writer(new File(directory,
+					TOKENS_FILE));
+			
+			try {
+				for (int i=0;i<tokens.size();i++) {
+					writer.putInt(tokens.getStart(i));
+					writer.putInt(tokens.getEnd(i));
+					writer.putString(tokens.getLemma(i));
+					writer.putString(tokens.getFunction(i));
+					writer.putString(tokens.getPos(i));
+					writer.putString(tokens.getDependency(i));
+					writer.putInt(tokens.getGovernor(i));
+					writer.putInt(tokens.getSentence(i));
+					writer.putInt(tokens.getId(i));
+					writer.EndRecord();
+				}
+			} finally {
+				writer.Close();
+			}
+		}
+		
+		WriteLayer(directory, SENTENCES_FILE, document.getSentences());
+		WriteLayer(directory, PARAGRAPHS_FILE, document.getParagraphs());
+		WriteLayer(directory, PAGES_FILE, document.getPages());
+		WriteLayer(directory, SUB_CHAPTERS_FILE, document.getSub_chapters());
+		WriteLayer(directory, MAIN_CHAPTERS_FILE, document.getMain_chapters());
+		WriteLayer(directory, LINES_FILE, document.getLines());
+		
+		Map<String, List<Annotation>> text_units = document.getText_units();
+		
+		if (text_units == null) {
+			new File(directory, TEXT_UNITS_FILE).delete();
+		} else {
+			Record_Writer writer = new Record_Writer(new File(directory,
+					TEXT_UNITS_FILE));
+			
+			try {
+				for (String type: text_units.keySet()) {
+					for (Annotation annotation: text_units.get(type)) {
+						writer.putString(type);
+						writer.putInt(annotation.getId());
+						writer.putInt(annotation.getStart());
+						writer.putInt(annotation.getEnd());
+						writer.putString(annotation.getSub_type());
+						writer.putString(annotation.getColor());
+						writer.putString(annotation.getNote());
+						writer.putBoolean(annotation.isUnchecked());
+						writer.putBoolean(annotation.isUnchanged());
+						writer.putDouble(annotation.getPropability());
+						writer.EndRecord();
+					}
+				}
+			} finally {
+				writer.Close();
+			}
+		}
+		
+		Change_Log change_log = document.getChange_log();
+		
+		if (change_log == null) {
+			new File(directory, CHANGE_LOG_FILE).delete();
+		} else {
+			Record_Writer writer = new Record_Writer(new File(directory,
+					CHANGE_LOG_FILE));
+			
+			try {
+				for (int position: change_log.Find(-1, 0)) {
+					writer.putInt(change_log.getAnnotation_id(position));
+					writer.putInt(change_log.getStart(position));
+					writer.putInt(change_log.getEnd(position));
+					writer.putInt(change_log.getStatus(position));
+					writer.putString(Symbol_Table.getShared().getSymbol(
+							change_log.getValue(position)));
+					writer.putLong(change_log.getTimestamp(position));
+					writer.EndRecord();
+				}
+			} finally {
+				writer.Close();
+			}
+		}
+		
+		WriteNotes(new File(directory, NOTES_FILE), document);
+	}
+	
+	/**
+	 * Read a document from a directory which was written by Save. The files of the
+	 * directory are read by several threads at once.
+	 * @param directory The directory.
+	 * @return The document.
+	 * @throws IOException If a file can not be read.
+	 */
+	public static Document Load (File directory) throws IOException {
+		if (!directory.isDirectory()) {
+			throw new IOException(directory + " is not a directory.");
+		}
+		
+		ArrayList<String> names = new ArrayList<String>();
+		
+		for (String name: PARALLEL_FILES) {
+			if (new File(directory, name).isFile()) {
+				names.add(name);
+			}
+		}
+		
+		Document document = new Document();
+		
+		HashMap<String, Future<Object>> results =
+				new HashMap<String, Future<Object>>();
+		
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1,
+				Math.min(names.size(), Runtime.getRuntime().availableProcessors())));
+		
+		try {
+			for (String name: names) {
+				results.put(name, executor.submit(new Load_Task(new File(directory,
+						name), name)));
+			}
+			
+			int change_log_mode = Change_Log.ENABLED;
+			
+			File meta_file = new File(directory, META_FILE);
+			
+			if (meta_file.isFile()) {
+				change_log_mode = ReadMeta(meta_file, document);
+			}
+			
+			for (String name: names) {
+				Object result = Get(results.get(name));
+				
+				if (name.equals(TEXT_FILE)) {
+					document.setOriginal_text((String) result);
+				} else if (name.equals(TOKENS_FILE)) {
+					document.setToken_table((Token_Table) result);
+				} else if (name.equals(SENTENCES_FILE)) {
+					document.setSentences(Plain_Text_Format.<Sentence>Cast(result));
+				} else if (name.equals(PARAGRAPHS_FILE)) {
+					document.setParagraphs(Plain_Text_Format.<Paragraph>Cast(result));
+				} else if (name.equals(PAGES_FILE)) {
+					document.setPages(Plain_Text_Format.<Page>Cast(result));
+				} else if (name.equals(SUB_CHAPTERS_FILE)) {
+					document.setSub_chapters(Plain_Text_Format.<Chapter>Cast(result));
+				} else if (name.equals(MAIN_CHAPTERS_FILE)) {
+					document.setMain_chapters(Plain_Text_Format.<Chapter>Cast(
+							result));
+				} else if (name.equals(LINES_FILE)) {
+					document.setLines(Plain_Text_Format.<Line>Cast(result));
+				} else if (name.equals(TEXT_UNITS_FILE)) {
+					document.setText_units(Plain_Text_Format.<String,
+							List<Annotation>>CastMap(result));
+				} else if (name.equals(CHANGE_LOG_FILE)) {
+					document.change_log = (Change_Log) result;
+				}
+			}
+			
+			document.change_log.mode = change_log_mode;
+			
+			if (results.containsKey(NOTES_FILE)) {
+				AddNotes(document, Plain_Text_Format.<Note>Cast(Get(results.get(
+						NOTES_FILE))));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		
+		return document;
+	}
+	
+	/**
+	 * Wait for the result of a task of Load.
+	 */
+	static Object Get (Future<Object> result) throws IOException {
+		try {
+			return result.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			
+			throw new RuntimeException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			
+			throw new IOException("Interrupted while loading the document.");
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	static <T> List<T> Cast (Object list) {
+		return (List<T>) list;
+	}
+	
+	@SuppressWarnings("unchecked")
+	static <K, V> Map<K, V> CastMap (Object map) {
+		return (Map<K, V>) map;
+	}
+	
+	/**
+	 * A task which reads one of the files of a document.
+	 */
+	static class Load_Task implements Callable<Object> {
+		File file;
+		String name;
+		
+		Load_Task (File file, String name) {
+			this.file = file;
+			this.name = name;
+		}
+		
+		public Object call () throws IOException {
+			if (name.equals(TEXT_FILE)) {
+				return ReadText(file);
+			}
+			
+			Record_Reader reader = new Record_Reader(file);
+			
+			try {
+				if (name.equals(TOKENS_FILE)) {
+					return ReadTokens(reader, file.length());
+				} else if (name.equals(TEXT_UNITS_FILE)) {
+					return ReadText_units(reader);
+				} else if (name.equals(CHANGE_LOG_FILE)) {
+					return ReadChangeLog(reader);
+				} else if (name.equals(NOTES_FILE)) {
+					return ReadNotes(reader);
+				} else {
+					return ReadLayer(reader, name);
+				}
+			} finally {
+				reader.Close();
+			}
+		}
+	}
+	
+	/**
+	 * Write the text of a document. The file is deleted if the document has no
+	 * text.
+	 */
+	static void WriteText (File file, CharSequence text) throws IOException {
+		if (text == null) {
+			file.delete();
+			return;
+		}
+		
+		Writer writer = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(file), UTF_8), BUFFER_SIZE);
+		
+		try {
+			for (int i=0;i<text.length();i=i+BUFFER_SIZE) {
+				writer.append(text, i, Math.min(text.length(), i+BUFFER_SIZE));
+			}
+		} finally {
+			writer.close();
+		}
+	}
+	
+	/**
+	 * Read the text of a document.
+	 */
+	static String ReadText (File file) throws IOException {
+		Reader reader = new InputStreamReader(new FileInputStream(file), UTF_8);
+		
+		try {
+			StringBuilder text = new StringBuilder((int) Math.min(file.length(),
+					Integer.MAX_VALUE-8));
+			char[] buffer = new char[BUFFER_SIZE];
+			
+			int read = reader.read(buffer);
+			
+			while (read != -1) {
+				text.append(buffer, 0, read);
+				read = reader.read(buffer);
+			}
+			
+			return text.toString();
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Write the title, offsets, metadata, next annotation id and mode of the
+	 * change log of a document.
+	 */
+	static void WriteMeta (File file, Document document) throws IOException {
+		Record_Writer writer = new Record_Writer(file);
+		
+		try {
+			writer.putString("title");
+			writer.putString(document.getTitle());
+			writer.EndRecord();
+			
+			writer.putString("start");
+			writer.putInt(document.getStart());
+			writer.EndRecord();
+			
+			writer.putString("end");
+			writer.putInt(document.getEnd());
+			writer.EndRecord();
+			
+			if (document.next_annotation_id != null) {
+				writer.putString("next_annotation_id");
+				writer.putInt(document.next_annotation_id.get());
+				writer.EndRecord();
+			}
+			
+			if (document.getChange_log() != null) {
+				writer.putString("change_log_mode");
+				writer.putInt(document.getChange_log().getMode());
+				writer.EndRecord();
+			}
+			
+			Map<String, String> meta_data = document.getMeta_data();
+			
+			if (meta_data != null) {
+				for (String name: meta_data.keySet()) {
+					writer.putString("meta");
+					writer.putString(name);
+					writer.putString(meta_data.get(name));
+					writer.EndRecord();
+				}
+			}
+		} finally {
+			writer.Close();
+		}
+	}
+	
+	/**
+	 * Read the title, offsets, metadata and next annotation id of a document.
+	 * @return The mode of the change log.
+	 */
+	static int ReadMeta (File file, Document document) throws IOException {
+		Record_Reader reader = new Record_Reader(file);
+		
+		int change_log_mode = Change_Log.ENABLED;
+		
+		try {
+			while (reader.Next()) {
+				String name = reader.getString(0);
+				
+				if (name.equals("title")) {
+					document.setTitle(reader.getString(1));
+				} else if (name.equals("start")) {
+					document.setStart(reader.getInt(1));
+				} else if (name.equals("end")) {
+					document.setEnd(reader.getInt(1));
+				} else if (name.equals("next_annotation_id")) {
+					document.next_annotation_id.set(reader.getInt(1));
+				} else if (name.equals("change_log_mode")) {
+					change_log_mode = reader.getInt(1);
+				} else if (name.equals("meta")) {
+					if (document.getMeta_data() == null) {
+						document.setMeta_data(new HashMap<String, String>());
+					}
+					
+					document.getMeta_data().put(reader.getString(1),
+							reader.getString(2));
+				}
+			}
+		} finally {
+			reader.Close();
+		}
+		
+		return change_log_mode;
+	}
+	
+	/**
+	 * Write the elements of a layer. The file is deleted if the layer is null.
+	 */
+	static void WriteLayer (File directory, String name,
+			List<? extends Linguistic_Element> elements) throws IOException {
+		File file = new File(directory, name);
+		
+		if (elements == null) {
+			file.delete();
+			return;
+		}
+		
+		Record_Writer writer = new Record_Writer(file);
+		
+		try {
+			for (Linguistic_Element element: elements) {
+				writer.putInt(element.getStart());
+				writer.putInt(element.getEnd());
+				
+				if (element instanceof Sentence) {
+					Sentence sentence = (Sentence) element;
+					
+					writer.putInt(sentence.getContaining_paragraph());
+					writer.putInt(sentence.getContaining_chapter());
+				} else if (element instanceof Paragraph) {
+					Paragraph paragraph = (Paragraph) element;
+					
+					writer.putInt(paragraph.getContaining_page());
+					writer.putInt(paragraph.getContaining_chapter());
+				} else if (element instanceof Page) {
+					Page page = (Page) element;
+					
+					writer.putInt(page.getNumber());
+					writer.putInt(page.getContaining_chapter());
+				} else if (element instanceof Chapter) {
+					Chapter chapter = (Chapter) element;
+					
+					writer.putString(chapter.getTitle());
+					writer.putInt(chapter.getStart_sentence());
+					writer.putInt(chapter.getEnd_sentence());
+				} else if (element instanceof Line) {
+					Line line = (Line) element;
+					
+					writer.putInt(line.getContaining_paragraph());
+					writer.putInt(line.getContaining_page());
+					writer.putInt(line.getContaining_sub_chapter());
+					writer.putInt(line.getContaining_main_chapter());
+				}
+				
+				writer.EndRecord();
+			}
+		} finally {
+			writer.Close();
+		}
+	}
+	
+	/**
+	 * Read the elements of a layer.
+	 * @param reader The reader of the file of the layer.
+	 * @param name The name of the file of the layer.
+	 * @return The list of elements.
+	 */
+	static ArrayList<Linguistic_Element> ReadLayer (Record_Reader reader,
+			String name) throws IOException {
+		ArrayList<Linguistic_Element> elements = new ArrayList<Linguistic_Element>();
+		
+		while (reader.Next()) {
+			Linguistic_Element element;
+			
+			if (name.equals(SENTENCES_FILE)) {
+				Sentence sentence = new Sentence();
+				
+				sentence.setContaining_paragraph(reader.getInt(2));
+				sentence.setContaining_chapter(reader.getInt(3));
+				
+				element = sentence;
+			} else if (name.equals(PARAGRAPHS_FILE)) {
+				Paragraph paragraph = new Paragraph();
+				
+				paragraph.setContaining_page(reader.getInt(2));
+				paragraph.setContaining_chapter(reader.getInt(3));
+				
+				element = paragraph;
+			} else if (name.equals(PAGES_FILE)) {
+				Page page = new Page();
+				
+				page.setNumber(reader.getInt(2));
+				page.setContaining_chapter(reader.getInt(3));
+				
+				element = page;
+			} else if (name.equals(LINES_FILE)) {
+				Line line = new Line();
+				
+				line.setContaining_paragraph(reader.getInt(2));
+				line.setContaining_page(reader.getInt(3));
+				line.setContaining_sub_chapter(reader.getInt(4));
+				line.setContaining_main_chapter(reader.getInt(5));
+				
+				element = line;
+			} else {
+				Chapter chapter = new Chapter(reader.getString(2));
+				
+				chapter.setStart_sentence(reader.getInt(3));
+				chapter.setEnd_sentence(reader.getInt(4));
+				
+				element = chapter;
+			}
+			
+			element.setStart(reader.getInt(0));
+			element.setEnd(reader.getInt(1));
+			
+			elements.add(element);
+		}
+		
+		return elements;
+	}
+	
+	/**
+	 * Read the tokens of a document directly into a token table.
+	 * @param reader The reader of the file of the tokens.
+	 * @param file_length The length of the file, from which the number of tokens
+	 * is estimated.
+	 * @return The token table.
+	 */
+	static Token_Table ReadTokens (Record_Reader reader, long file_length)
+			throws IOException {
+		Token_Table tokens = new Token_Table((int) Math.min(file_length/24,
+				Integer.MAX_VALUE-8));
+		
+		while (reader.Next()) {
+			int index = tokens.add(reader.getInt(0), reader.getInt(1));
+			
+			tokens.setLemma(index, reader.getString(2));
+			tokens.setFunction(index, reader.getString(3));
+			tokens.setPos(index, reader.getString(4));
+			tokens.setDependency(index, reader.getString(5));
+			tokens.setGovernor(index, reader.getInt(6));
+			
+			if (reader.size() > 8) {
+				tokens.setSentence(index, reader.getInt(7));
+				tokens.setId(index, reader.getInt(8));
+			}
+		}
+		
+		return tokens;
+	}
+	
+	/**
+	 * Read the annotations of a document.
+	 * @return The map from types to the annotations of the types.
+	 */
+	static HashMap<String, List<Annotation>> ReadText_units (Record_Reader reader)
+			throws IOException {
+		HashMap<String, List<Annotation>> text_units =
+				new HashMap<String, List<Annotation>>();
+		
+		while (reader.Next()) {
+			String type = reader.getString(0);
+			
+			List<Annotation> annotations = text_units.get(type);
+			
+			if (annotations == null) {
+				annotations = new Interval_Index.Source_List();
+				text_units.put(type, annotations);
+			}
+			
+			Annotation annotation = new Annotation();
+			
+			annotation.setType(type);
+			annotation.setId(reader.getInt(1));
+			annotation.setStart(reader.getInt(2));
+			annotation.setEnd(reader.getInt(3));
+			annotation.sub_type = Symbol_Table.getShared().Intern(reader.getString(
+					4));
+			annotation.setColor(reader.getString(5));
+			annotation.setNote(reader.getString(6));
+			annotation.unchecked = reader.getBoolean(7);
+			annotation.unchanged = reader.getBoolean(8);
+			annotation.setPropability(reader.getDouble(9));
+			
+			annotations.add(annotation);
+		}
+		
+		return text_units;
+	}
+	
+	/**
+	 * Read the records of a change log.
+	 */
+	static Change_Log ReadChangeLog (Record_Reader reader) throws IOException {
+		Change_Log change_log = new Change_Log();
+		
+		int count = 0;
+		
+		while (reader.Next()) {
+			change_log.Write(count, reader.getInt(0), reader.getInt(1),
+					reader.getInt(2), reader.getInt(3), Symbol_Table.getShared().Intern(
+					reader.getString(4)), reader.getLong(5));
+			
+			count = count+1;
+		}
+		
+		change_log.reserved.set(count);
+		
+		return change_log;
+	}
+	
+	/**
+	 * An entry of a note history, see NOTES_FILE.
+	 */
+	static class Note {
+		String layer;
+		String type;
+		int index;
+		String date;
+		String note;
+	}
+	
+	/**
+	 * Write the entries of the note histories of the document, its tokens, the
+	 * elements of its layers and its annotations.
+	 */
+	static void WriteNotes (File file, Document document) throws IOException {
+		Record_Writer writer = new Record_Writer(file);
+		
+		try {
+			WriteNotes(writer, DOCUMENT_NOTES, null, 0, document.getNote_history());
+			
+			Token_Table tokens = document.getToken_table();
+			
+			if (tokens != null) {
+				for (int i=0;i<tokens.size();i++) {
+					WriteNotes(writer, TOKENS_FILE, null, i, tokens.getNote_history(
+							i));
+				}
+			}
+			
+			WriteNotes(writer, SENTENCES_FILE, document.getSentences());
+			WriteNotes(writer, PARAGRAPHS_FILE, document.getParagraphs());
+			WriteNotes(writer, PAGES_FILE, document.getPages());
+			WriteNotes(writer, SUB_CHAPTERS_FILE, document.getSub_chapters());
+			WriteNotes(writer, MAIN_CHAPTERS_FILE, document.getMain_chapters());
+			WriteNotes(writer, LINES_FILE, document.getLines());
+			
+			Map<String, List<Annotation>> text_units = document.getText_units();
+			
+			if (text_units != null) {
+				for (String type: text_units.keySet()) {
+					List<Annotation> annotations = text_units.get(type);
+					
+					for (int i=0;i<annotations.size();i++) {
+						WriteNotes(writer, TEXT_UNITS_FILE, type, i,
+								annotations.get(i).getNote_history());
+					}
+				}
+			}
+		} finally {
+			writer.Close();
+		}
+	}
+	
+	/**
+	 * Write the entries of the note histories of the elements of a layer.
+	 */
+	static void WriteNotes (Record_Writer writer, String layer,
+			List<? extends Linguistic_Element> elements) throws IOException {
+		if (elements == null) {
+			return;
+		}
+		
+		for (int i=0;i<elements.size();i++) {
+			WriteNotes(writer, layer, null, i, elements.get(i).getNote_history());
+		}
+	}
+	
+	/**
+	 * Write the entries of one note history.
+	 */
+	static void WriteNotes (Record_Writer writer, String layer, String type,
+			int index, HashMap<String, String> note_history) throws IOException {
+		if (note_history == null) {
+			return;
+		}
+		
+		for (String date: note_history.keySet()) {
+			writer.putString(layer);
+			writer.putString(type);
+			writer.putInt(index);
+			writer.putString(date);
+			writer.putString(note_history.get(date));
+			writer.EndRecord();
+		}
+	}
+	
+	/**
+	 * Read the entries of the note histories.
+	 */
+	static ArrayList<Note> ReadNotes (Record_Reader reader) throws IOException {
+		ArrayList<Note> notes = new ArrayList<Note>();
+		
+		while (reader.Next()) {
+			Note note = new Note();
+			
+			note.layer = reader.getString(0);
+			note.type = reader.getString(1);
+			note.index = reader.getInt(2);
+			note.date = reader.getString(3);
+			note.note = reader.getString(4);
+			
+			notes.add(note);
+		}
+		
+		return notes;
+	}
+	
+	/**
+	 * Add the entries of note histories to the elements of a loaded document.
+	 * Entries of elements which do not exist are ignored.
+	 */
+	static void AddNotes (Document document, List<Note> notes) {
+		for (Note note: notes) {
+			HashMap<String, String> note_history = null;
+			
+			if (note.layer.equals(DOCUMENT_NOTES)) {
+				if (document.getNote_history() == null) {
+					document.setNote_history(new HashMap<String, String>());
+				}
+				
+				note_history = document.getNote_history();
+			} else if (note.layer.equals(TOKENS_FILE)) {
+				Token_Table tokens = document.getToken_table();
+				
+				if (tokens != null && note.index < tokens.size()) {
+					note_history = tokens.getNote_history(note.index);
+					
+					if (note_history == null) {
+						note_history = new HashMap<String, String>();
+						tokens.setNote_history(note.index, note_history);
+					}
+				}
+			} else {
+				List<? extends Linguistic_Element> elements = null;
+				
+				if (note.layer.equals(TEXT_UNITS_FILE)) {
+					if (document.getText_units() != null) {
+						elements = document.getText_units().get(note.type);
+					}
+				} else {
+					elements = getLayer(document, note.layer);
+				}
+				
+				if (elements != null && note.index < elements.size()) {
+					Linguistic_Element element = elements.get(note.index);
+					
+					if (element.getNote_history() == null) {
+						element.setNote_history(new HashMap<String, String>());
+					}
+					
+					note_history = element.getNote_history();
+				}
+			}
+			
+			if (note_history != null) {
+				note_history.put(note.date, note.note);
+			}
+		}
+	}
+	
+	/**
+	 * Get the layer of a document which is stored in the file with the specified
+	 * name.
+	 */
+	static List<? extends Linguistic_Element> getLayer (Document document,
+			String name) {
+		if (name.equals(SENTENCES_FILE)) {
+			return document.getSentences();
+		} else if (name.equals(PARAGRAPHS_FILE)) {
+			return document.getParagraphs();
+		} else if (name.equals(PAGES_FILE)) {
+			return document.getPages();
+		} else if (name.equals(SUB_CHAPTERS_FILE)) {
+			return document.getSub_chapters();
+		} else if (name.equals(MAIN_CHAPTERS_FILE)) {
+			return document.getMain_chapters();
+		} else if (name.equals(LINES_FILE)) {
+			return document.getLines();
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Writer for the records of the files, which escapes the fields.
+	 */
+	static class Record_Writer {
+		Writer writer;
+		boolean first_field;
+		
+		Record_Writer (File file) throws IOException {
+			this.writer = new BufferedWriter(new OutputStreamWriter(
+					new FileOutputStream(file), UTF_8), BUFFER_SIZE);
+			this.first_field = true;
+		}
+		
+		void Separate () throws IOException {
+			if (first_field) {
+				first_field = false;
+			} else {
+				writer.write(',');
+			}
+		}
+		
+		void putInt (int value) throws IOException {
+			Separate();
+			writer.write(Integer.toString(value));
+		}
+		
+		void putLong (long value) throws IOException {
+			Separate();
+			writer.write(Long.toString(value));
+		}
+		
+		void putDouble (double value) throws IOException {
+			Separate();
+			writer.write(Double.toString(value));
+		}
+		
+		void putBoolean (boolean value) throws IOException {
+			Separate();
+			writer.write(value ? "true" : "false");
+		}
+		
+		void putString (String value) throws IOException {
+			Separate();
+			
+			if (value == null) {
+				writer.write("\\N");
+				return;
+			}
+			
+			for (int i=0;i<value.length();i++) {
+				char character = value.charAt(i);
+				
+				if (character == ',' || character == '\\') {
+					writer.write('\\');
+					writer.write(character);
+				} else if (character == '\n') {
+					writer.write("\\n");
+				} else if (character == '\r') {
+					writer.write("\\r");
+				} else {
+					writer.write(character);
+				}
+			}
+		}
+		
+		void EndRecord () throws IOException {
+			writer.write('\n');
+			first_field = true;
+		}
+		
+		void Close () throws IOException {
+			writer.close();
+		}
+	}
+	
+	/**
+	 * Reader for the records of the files. The characters of a record are
+	 * unescaped into one buffer which is reused for all records, and numbers are
+	 * parsed directly from the buffer, so only the strings of a record are
+	 * created.
+	 */
+	static class Record_Reader {
+		File file;
+		Reader reader;
+		char[] buffer;
+		int position;
+		int limit;
+		
+		/**
+		 * The unescaped characters of the current record.
+		 */
+		char[] line;
+		int[] field_starts;
+		int[] field_ends;
+		boolean[] nulls;
+		int field_count;
+		int line_number;
+		
+		Record_Reader (File file) throws IOException {
+			this.file = file;
+			this.reader = new InputStreamReader(new FileInputStream(file), UTF_8);
+			this.buffer = new char[BUFFER_SIZE];
+			this.line = new char[256];
+			this.field_starts = new int[16];
+			this.field_ends = new int[16];
+			this.nulls = new boolean[16];
+		}
+		
+		/**
+		 * Read the next character or -1 at the end of the file.
+		 */
+		int Read () throws IOException {
+			if (position == limit) {
+				limit = reader.read(buffer, 0, buffer.length);
+				position = 0;
+				
+				if (limit <= 0) {
+					limit = 0;
+					return -1;
+				}
+			}
+			
+			position = position+1;
+			
+			return buffer[position-1];
+		}
+		
+		/**
+		 * Read the next record. Empty lines are skipped.
+		 * @return Whether there was another record.
+		 */
+		boolean Next () throws IOException {
+			field_count = 0;
+			
+			int length = 0;
+			int field_start = 0;
+			boolean is_null = false;
+			
+			int character = Read();
+			
+			while (character == '\n' || character == '\r') {
+				line_number = line_number+1;
+				character = Read();
+			}
+			
+			if (character == -1) {
+				return false;
+			}
+			
+			while (character != -1 && character != '\n') {
+				if (character == ',') {
+					AddField(field_start, length, is_null);
+					
+					field_start = length;
+					is_null = false;
+				} else if (character != '\r') {
+					if (character == '\\') {
+						character = Read();
+						
+						if (character == 'N') {
+							is_null = true;
+							character = Read();
+							continue;
+						} else if (character == 'n') {
+							character = '\n';
+						} else if (character == 'r') {
+							character = '\r';
+						} else if (character == -1) {
+							break;
+						}
+					}
+					
+					if (length == line.length) {
+						line = Arrays.copyOf(line, line.length*2);
+					}
+					
+					line[length] = (char) character;
+					length = length+1;
+				}
+				
+				character = Read();
+			}
+			
+			AddField(field_start, length, is_null);
+			
+			line_number = line_number+1;
+			
+			return true;
+		}
+		
+		void AddField (int start, int end, boolean is_null) {
+			if (field_count == field_starts.length) {
+				field_starts = Arrays.copyOf(field_starts, field_count*2);
+				field_ends = Arrays.copyOf(field_ends, field_count*2);
+				nulls = Arrays.copyOf(nulls, field_count*2);
+			}
+			
+			field_starts[field_count] = start;
+			field_ends[field_count] = end;
+			nulls[field_count] = is_null;
+			field_count = field_count+1;
+		}
+		
+		/**
+		 * Get the number of fields of the current record.
+		 */
+		int size () {
+			return field_count;
+		}
+		
+		/**
+		 * Check that the current record has the specified field.
+		 */
+		void CheckField (int field) throws IOException {
+			if (field >= field_count) {
+				throw new IOException("Line " + line_number + " of " + file +
+						" has only " + field_count + " fields.");
+			}
+		}
+		
+		String getString (int field) throws IOException {
+			CheckField(field);
+			
+			if (nulls[field]) {
+				return null;
+			}
+			
+			return new String(line, field_starts[field], field_ends[field]-
+					field_starts[field]);
+		}
+		
+		int getInt (int field) throws IOException {
+			long value = getLong(field);
+			
+			if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+				throw new IOException("The number in line " + line_number + " of "
+						+ file + " is too large.");
+			}
+			
+			return (int) value;
+		}
+		
+		long getLong (int field) throws IOException {
+			CheckField(field);
+			
+			int start = field_starts[field];
+			int end = field_ends[field];
+			boolean negative = start < end && line[start] == '-';
+			
+			if (negative) {
+				start = start+1;
+			}
+			
+			if (start == end || end-start > 18) {
+				throw new IOException("Invalid number in line " + line_number +
+						" of " + file + ".");
+			}
+			
+			long value = 0;
+			
+			for (int i=start;i<end;i++) {
+				int digit = line[i]-'0';
+				
+				if (digit < 0 || digit > 9) {
+					throw new IOException("Invalid number in line " + line_number +
+							" of " + file + ".");
+				}
+				
+				value = value*10+digit;
+			}
+			
+			return negative ? -value : value;
+		}
+		
+		double getDouble (int field) throws IOException {
+			try {
+				return Double.parseDouble(getString(field));
+			} catch (NumberFormatException e) {
+				throw new IOException("Invalid number in line " + line_number +
+						" of " + file + ".");
+			}
+		}
+		
+		boolean getBoolean (int field) throws IOException {
+			CheckField(field);
+			
+			return field_ends[field] > field_starts[field] &&
+					line[field_starts[field]] == 't';
+		}
+		
+		void Close () throws IOException {
+			reader.close();
+		}
+	}
+}
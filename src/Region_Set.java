@@ -0,0 +1,174 @@
+package teanlis;
+
+import java.util.Collection;
+
+/**
+ * This class is a set of strings which can be asked whether it contains the
+ * string of a region of a text without creating that string, for example
+ * whether a token of a document is one of a list of sentiment words. The strings
+ * are stored in an open addressing hash table whose hash codes are the hash
+ * codes of the strings, so a region is looked up by computing its hash code with
+ * Text_View.Hash and comparing it character by character with the strings with
+ * the same hash code.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Region_Set {
+	
+	/**
+	 * The strings in the set, null for empty slots.
+	 */
+	String[] strings;
+	
+	/**
+	 * The hash codes of the strings in the set.
+	 */
+	int[] hashes;
+	
+	/**
+	 * The number of strings in the set.
+	 */
+	int size;
+	
+	/**
+	 * No-arguments constructor for the set.
+	 */
+	public Region_Set () {
+		this.strings = new String[16];
+		this.hashes = new int[16];
+		this.size = 0;
+	}
+	
+	/**
+	 * Constructor for the set which takes the strings the set contains as
+	 * argument.
+	 * @param strings The strings the set contains.
+	 */
+	public Region_Set (Collection<String> strings) {
+		this();
+		
+		for (String string: strings) {
+			add(string);
+		}
+	}
+	
+	/**
+	 * Get the number of strings in the set.
+	 * @return The number of strings in the set.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Add a string to the set.
+	 * @param string The string.
+	 * @return True if the string was added, false if the set already contained it.
+	 */
+	public boolean add (String string) {
+		int hash = string.hashCode();
+		
+		if (Find(string, 0, string.length(), hash) != -1) {
+			return false;
+		}
+		
+		if (2*(size+1) > strings.length) {
+			Grow();
+		}
+		
+		Insert(string, hash);
+		
+		size = size+1;
+		
+		return true;
+	}
+	
+	/**
+	 * Check whether the set contains the string of a region of a text.
+	 * @param text The text the region is contained in.
+	 * @param start The start offset of the region.
+	 * @param end The end offset of the region (exclusive).
+	 * @return True if the set contains the string of the region.
+	 */
+	public boolean contains (CharSequence text, int start, int end) {
+		return Find(text, start, end, Text_View.Hash(text, start, end)) != -1;
+	}
+	
+	/**
+	 * Check whether the set contains the specified sequence of characters.
+	 * @param sequence A sequence of characters, for example a Text_View.
+	 * @return True if the set contains the sequence.
+	 */
+	public boolean contains (CharSequence sequence) {
+		return contains(sequence, 0, sequence.length());
+	}
+	
+	/**
+	 * Find the slot of the string of a region of a text.
+	 * @param text The text the region is contained in.
+	 * @param start The start offset of the region.
+	 * @param end The end offset of the region (exclusive).
+	 * @param hash The hash code of the region.
+	 * @return The slot of the string or -1 if the set does not contain it.
+	 */
+	int Find (CharSequence text, int start, int end, int hash) {
+		int mask = strings.length-1;
+		int slot = Spread(hash) & mask;
+		
+		while (strings[slot] != null) {
+			if (hashes[slot] == hash && Text_View.RegionEquals(text, start, end,
+					strings[slot])) {
+				return slot;
+			}
+			
+			slot = (slot+1) & mask;
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Put a string into the first empty slot for its hash code.
+	 * @param string The string.
+	 * @param hash The hash code of the string.
+	 */
+	void Insert (String string, int hash) {
+		int mask = strings.length-1;
+		int slot = Spread(hash) & mask;
+		
+		while (strings[slot] != null) {
+			slot = (slot+1) & mask;
+		}
+		
+		strings[slot] = string;
+		hashes[slot] = hash;
+	}
+	
+	/**
+	 * Double the number of slots of the table.
+	 */
+	void Grow () {
+		String[] old_strings = strings;
+		int[] old_hashes = hashes;
+		
+		strings = new String[old_strings.length*2];
+		hashes = new int[old_strings.length*2];
+		
+		for (int i=0;i<old_strings.length;i++) {
+			if (old_strings[i] != null) {
+				Insert(old_strings[i], old_hashes[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Mix the high bits of a hash code into the low bits, which are used to pick
+	 * the slot.
+	 * @param hash A hash code.
+	 * @return The mixed hash code.
+	 */
+	static int Spread (int hash) {
+		return hash ^ (hash >>> 16);
+	}
+}
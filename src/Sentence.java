@@ -1,5 +1,9 @@
 package teanlis;
 
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
 /**
  * This class represents a sentence. The fields containing_paragraph and
  * containing_chapter contain the index of the paragraph and chapter the
@@ -12,6 +16,8 @@ package teanlis;
 
 public class Sentence extends Linguistic_Element {
 	
+	private static final long serialVersionUID = 2L;
+	
 	/**
 	 * The paragraph containing the sentence.
 	 */
@@ -61,4 +67,27 @@ public class Sentence extends Linguistic_Element {
 	public void setContaining_chapter(int containing_chapter) {
 		this.containing_chapter = containing_chapter;
 	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see teanlis.Linguistic_Element#writeExternal(java.io.ObjectOutput)
+	 */
+	public void writeExternal (ObjectOutput output) throws IOException {
+		super.writeExternal(output);
+		
+		output.writeInt(containing_paragraph);
+		output.writeInt(containing_chapter);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see teanlis.Linguistic_Element#readExternal(java.io.ObjectInput)
+	 */
+	public void readExternal (ObjectInput input) throws IOException, 
+			ClassNotFoundException {
+		super.readExternal(input);
+		
+		this.containing_paragraph = input.readInt();
+		this.containing_chapter = input.readInt();
+	}
 }
@@ -0,0 +1,462 @@
+package teanlis;
+
+import java.util.List;
+
+/**
+ * This class contains a range of consecutive sentences of a document and the
+ * annotations of their tokens, which the stages of an Annotation_Pipeline add
+ * one after the other. The tokens are stored sentence by sentence: for every
+ * sentence of the batch there is an array of start offsets, an array of end
+ * offsets and an array for every annotation of the tokens (part-of-speech tags,
+ * lemmas, morphological features, governors and dependency relations). An
+ * annotation array which is null is not set by any stage and is not written to
+ * the document.
+ * 
+ * When the pipeline has finished a batch, its tokens are written to the table
+ * of tokens of the document. If the tokens were taken from the document, every
+ * batch writes to its own range of the table, so batches can write at the same
+ * time. If a stage of the pipeline tokenized the sentences, the tokens of all
+ * batches are added to a new table in the order of the sentences.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Sentence_Batch {
+	
+	/**
+	 * The document containing the sentences.
+	 */
+	Document document;
+	
+	/**
+	 * The language of the document.
+	 */
+	String language;
+	
+	/**
+	 * The sentences of the document.
+	 */
+	List<Sentence> sentences;
+	
+	/**
+	 * The index of the first sentence of the batch in the document.
+	 */
+	int first;
+	
+	/**
+	 * The index after the last sentence of the batch in the document.
+	 */
+	int end;
+	
+	/**
+	 * The index of the first token of every sentence in the table of tokens of
+	 * the document or null if the sentences were tokenized by the pipeline.
+	 */
+	int[] first_tokens;
+	
+	int[][] starts;
+	int[][] ends;
+	String[][] forms;
+	String[][] pos_tags;
+	String[][] lemmas;
+	String[][] features;
+	int[][] heads;
+	String[][] dependencies;
+	
+	/**
+	 * Data of the tools of the pipeline for every sentence, which is passed from
+	 * one stage to the next, for example the SentenceData09 of the mate tools.
+	 */
+	Object[] sentence_data;
+	
+	/**
+	 * Constructor for a batch of the sentences from first to end of a document.
+	 * @param document The document.
+	 * @param language The language of the document.
+	 * @param first The index of the first sentence.
+	 * @param end The index after the last sentence.
+	 */
+	public Sentence_Batch (Document document, String language, int first,
+			int end) {
+		this.document = document;
+		this.language = language;
+		this.sentences = document.getSentences();
+		this.first = first;
+		this.end = end;
+		
+		int size = end-first;
+		
+		this.starts = new int[size][];
+		this.ends = new int[size][];
+		this.forms = new String[size][];
+		this.sentence_data = new Object[size];
+	}
+	
+	/**
+	 * Take the tokens of the sentences of the batch from the table of tokens of
+	 * the document.
+	 * @param tokens The table of tokens of the document.
+	 * @param sentence_tokens The index of the first token of every sentence of the
+	 * document, followed by the index after the last token of the last sentence.
+	 */
+	void LoadTokens (Token_Table tokens, int[] sentence_tokens) {
+		first_tokens = new int[size()];
+		
+		for (int i=0;i<size();i++) {
+			int first_token = sentence_tokens[first+i];
+			int end_token = sentence_tokens[first+i+1];
+			
+			first_tokens[i] = first_token;
+			starts[i] = new int[end_token-first_token];
+			ends[i] = new int[end_token-first_token];
+			
+			for (int j=first_token;j<end_token;j++) {
+				starts[i][j-first_token] = tokens.getStart(j);
+				ends[i][j-first_token] = tokens.getEnd(j);
+			}
+		}
+	}
+	
+	/**
+	 * Get the document containing the sentences.
+	 * @return The document.
+	 */
+	public Document getDocument() {
+		return document;
+	}
+	
+	/**
+	 * Get the text of the document.
+	 * @return The text.
+	 */
+	public String getText() {
+		return document.getOriginal_text();
+	}
+	
+	/**
+	 * Get the language of the document.
+	 * @return The language.
+	 */
+	public String getLanguage() {
+		return language;
+	}
+	
+	/**
+	 * Get the index of the first sentence of the batch in the document.
+	 * @return The index of the first sentence.
+	 */
+	public int getFirst() {
+		return first;
+	}
+	
+	/**
+	 * Get the number of sentences of the batch.
+	 * @return The number of sentences.
+	 */
+	public int size() {
+		return end-first;
+	}
+	
+	/**
+	 * Get a sentence of the batch.
+	 * @param index The index of the sentence in the batch.
+	 * @return The sentence.
+	 */
+	public Sentence getSentence (int index) {
+		return sentences.get(first+index);
+	}
+	
+	/**
+	 * Get the text of a sentence of the batch.
+	 * @param index The index of the sentence in the batch.
+	 * @return The text of the sentence.
+	 */
+	public String getSentence_text (int index) {
+		Sentence sentence = getSentence(index);
+		
+		return getText().substring(sentence.getStart(), sentence.getEnd());
+	}
+	
+	/**
+	 * Check whether the tokens of the sentences are known.
+	 * @return Whether the sentences are tokenized.
+	 */
+	public boolean isTokenized() {
+		for (int i=0;i<size();i++) {
+			if (starts[i] == null) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Set the tokens of a sentence of the batch, replacing its annotations.
+	 * @param index The index of the sentence in the batch.
+	 * @param starts The start offsets of the tokens in the text of the document.
+	 * @param ends The end offsets of the tokens in the text of the document.
+	 */
+	public void setTokens (int index, int[] starts, int[] ends) {
+		this.starts[index] = starts;
+		this.ends[index] = ends;
+		this.forms[index] = null;
+		this.sentence_data[index] = null;
+		
+		first_tokens = null;
+		
+		for (String[][] column: new String[][][] {pos_tags, lemmas, features,
+				dependencies}) {
+			if (column != null) {
+				column[index] = null;
+			}
+		}
+		
+		if (heads != null) {
+			heads[index] = null;
+		}
+	}
+	
+	/**
+	 * Get the start offsets of the tokens of a sentence.
+	 * @param index The index of the sentence in the batch.
+	 * @return The start offsets in the text of the document.
+	 */
+	public int[] getStarts (int index) {
+		return starts[index];
+	}
+	
+	/**
+	 * Get the end offsets of the tokens of a sentence.
+	 * @param index The index of the sentence in the batch.
+	 * @return The end offsets in the text of the document.
+	 */
+	public int[] getEnds (int index) {
+		return ends[index];
+	}
+	
+	/**
+	 * Get the strings of the tokens of a sentence. They are cut from the text
+	 * when they are requested the first time.
+	 * @param index The index of the sentence in the batch.
+	 * @return The strings of the tokens.
+	 */
+	public String[] getForms (int index) {
+		if (forms[index] == null) {
+			String text = getText();
+			
+			String[] token_strings = new String[starts[index].length];
+			
+			for (int i=0;i<token_strings.length;i++) {
+				token_strings[i] = text.substring(starts[index][i], ends[index][i]);
+			}
+			
+			forms[index] = token_strings;
+		}
+		
+		return forms[index];
+	}
+	
+	/**
+	 * Get the part-of-speech tags of the tokens of a sentence.
+	 * @param index The index of the sentence in the batch.
+	 * @return The tags or null.
+	 */
+	public String[] getPos (int index) {
+		return pos_tags == null ? null : pos_tags[index];
+	}
+	
+	/**
+	 * Set the part-of-speech tags of the tokens of a sentence.
+	 * @param index The index of the sentence in the batch.
+	 * @param pos The tags.
+	 */
+	public void setPos (int index, String[] pos) {
+		if (pos_tags == null) {
+			pos_tags = new String[size()][];
+		}
+		
+		pos_tags[index] = pos;
+	}
+	
+	/**
+	 * Get the lemmas of the tokens of a sentence.
+	 * @param index The index of the sentence in the batch.
+	 * @return The lemmas or null.
+	 */
+	public String[] getLemmas (int index) {
+		return lemmas == null ? null : lemmas[index];
+	}
+	
+	/**
+	 * Set the lemmas of the tokens of a sentence.
+	 * @param index The index of the sentence in the batch.
+	 * @param lemmas The lemmas.
+	 */
+	public void setLemmas (int index, String[] lemmas) {
+		if (this.lemmas == null) {
+			this.lemmas = new String[size()][];
+		}
+		
+		this.lemmas[index] = lemmas;
+	}
+	
+	/**
+	 * Get the morphological features of the tokens of a sentence.
+	 * @param index The index of the sentence in the batch.
+	 * @return The features or null.
+	 */
+	public String[] getFeatures (int index) {
+		return features == null ? null : features[index];
+	}
+	
+	/**
+	 * Set the morphological features of the tokens of a sentence.
+	 * @param index The index of the sentence in the batch.
+	 * @param features The features.
+	 */
+	public void setFeatures (int index, String[] features) {
+		if (this.features == null) {
+			this.features = new String[size()][];
+		}
+		
+		this.features[index] = features;
+	}
+	
+	/**
+	 * Get the governors of the tokens of a sentence.
+	 * @param index The index of the sentence in the batch.
+	 * @return The governors as indices of tokens relative to the first token of
+	 * the sentence or null.
+	 */
+	public int[] getHeads (int index) {
+		return heads == null ? null : heads[index];
+	}
+	
+	/**
+	 * Set the governors of the tokens of a sentence.
+	 * @param index The index of the sentence in the batch.
+	 * @param heads The governors as indices of tokens relative to the first token of
+	 * the sentence.
+	 */
+	public void setHeads (int index, int[] heads) {
+		if (this.heads == null) {
+			this.heads = new int[size()][];
+		}
+		
+		this.heads[index] = heads;
+	}
+	
+	/**
+	 * Get the dependency relations of the tokens of a sentence.
+	 * @param index The index of the sentence in the batch.
+	 * @return The names of the relations or null.
+	 */
+	public String[] getDependencies (int index) {
+		return dependencies == null ? null : dependencies[index];
+	}
+	
+	/**
+	 * Set the dependency relations of the tokens of a sentence.
+	 * @param index The index of the sentence in the batch.
+	 * @param dependencies The names of the relations.
+	 */
+	public void setDependencies (int index, String[] dependencies) {
+		if (this.dependencies == null) {
+			this.dependencies = new String[size()][];
+		}
+		
+		this.dependencies[index] = dependencies;
+	}
+	
+	/**
+	 * Get the data of the tools of the pipeline for a sentence.
+	 * @param index The index of the sentence in the batch.
+	 * @return The data or null.
+	 */
+	public Object getSentence_data (int index) {
+		return sentence_data[index];
+	}
+	
+	/**
+	 * Set the data of the tools of the pipeline for a sentence.
+	 * @param index The index of the sentence in the batch.
+	 * @param data The data.
+	 */
+	public void setSentence_data (int index, Object data) {
+		sentence_data[index] = data;
+	}
+	
+	/**
+	 * Check whether the tokens of the batch were taken from the table of tokens
+	 * of the document and can be written back to their places in it.
+	 * @return Whether the tokens are from the document.
+	 */
+	boolean isFrom_document() {
+		return first_tokens != null;
+	}
+	
+	/**
+	 * Write the annotations of the tokens to their places in the table of tokens
+	 * of the document they were taken from.
+	 * @param tokens The table of tokens of the document.
+	 */
+	void WriteTokens (Token_Table tokens) {
+		for (int i=0;i<size();i++) {
+			WriteTokens(tokens, i, first_tokens[i]);
+		}
+	}
+	
+	/**
+	 * Add the tokens of the batch to the end of a table.
+	 * @param tokens The table.
+	 */
+	void AddTokens (Token_Table tokens) {
+		for (int i=0;i<size();i++) {
+			int first_token = tokens.size();
+			
+			for (int j=0;j<starts[i].length;j++) {
+				tokens.add(starts[i][j], ends[i][j]);
+			}
+			
+			WriteTokens(tokens, i, first_token);
+		}
+	}
+	
+	/**
+	 * Write the annotations of the tokens of a sentence to a table.
+	 */
+	void WriteTokens (Token_Table tokens, int index, int first_token) {
+		String[] sentence_pos = getPos(index);
+		String[] sentence_lemmas = getLemmas(index);
+		String[] sentence_features = getFeatures(index);
+		int[] sentence_heads = getHeads(index);
+		String[] sentence_dependencies = getDependencies(index);
+		
+		for (int j=0;j<starts[index].length;j++) {
+			int token = first_token+j;
+			
+			tokens.setSentence(token, first+index);
+			
+			if (sentence_pos != null && j < sentence_pos.length) {
+				tokens.setPos(token, sentence_pos[j]);
+			}
+			
+			if (sentence_lemmas != null && j < sentence_lemmas.length) {
+				tokens.setLemma(token, sentence_lemmas[j]);
+			}
+			
+			if (sentence_features != null && j < sentence_features.length) {
+				tokens.setFunction(token, sentence_features[j]);
+			}
+			
+			if (sentence_heads != null && j < sentence_heads.length) {
+				tokens.setGovernor(token, first_token+sentence_heads[j]);
+			}
+			
+			if (sentence_dependencies != null && j < sentence_dependencies.length) {
+				tokens.setDependency(token, sentence_dependencies[j]);
+			}
+		}
+	}
+}
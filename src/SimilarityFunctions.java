@@ -286,6 +286,18 @@ public class SimilarityFunctions {
 		
 		Stopwords stopwords = new weka.core.Stopwords();
 		
+		Token_Table tokens = document.getToken_table();
+		
+		Symbol_Class nouns = tokens.getSymbol_table().MakePrefixClass("N");
+		
+		CharSequence original_text = document.getText();
+		
+		Text_View token_text = new Text_View(original_text, 0, 0);
+		
+		Matcher word_matcher = Pattern.compile("[A-z]+").matcher("");
+		
+		StringBuilder element_text = new StringBuilder();
+		
 		HashSet<String> keywords = new HashSet<String>();
 		
 		HashMap<Integer, HashMap<String, Double>> search_units = 
@@ -300,49 +312,40 @@ public class SimilarityFunctions {
 			int start_token = 0;
 			int end_token = 0;
 			
-			try {
-				start_token = document.getOffset_to_token_map().get(
-						element.getStart());
-				end_token = document.getOffset_to_token_map().get(
-						element.getEnd());
-			} catch (java.lang.Exception e) {
-				end_token = document.getTokens().size()-1;
-			}
-			
-			String element_text = document.getTokens().get(start_token).
-					getString(document.getOriginal_text());
-			
-			Token token = document.getTokens().get(start_token);
+			start_token = document.getTokenAtOffset(element.getStart());
+			end_token = document.getTokenAtOffset(element.getEnd());
 			
-			if (start_token != -1 && token.getPos() != null && token.getPos().
-					startsWith("N") && token.getString(
-							document.getOriginal_text()).matches("[A-z]+") && 
-									stopwords.isStopword(token.getString(
-											document.getOriginal_text()))) {
-				keywords.add(document.getTokens().get(start_token).getString(
-						document.getOriginal_text()));
+			if (start_token == -1) {
+				start_token = 0;
+				end_token = tokens.size()-1;
+			} else if (end_token == -1) {
+				end_token = tokens.size()-1;
 			}
 			
-			for (int i=start_token+1;i<end_token+1;i++) {
-				element_text = element_text + " " + document.getTokens().
-						get(i).getString(document.getOriginal_text());
+			element_text.setLength(0);
+			
+			for (int i=start_token;i<end_token+1;i++) {
+				token_text.set(tokens.getStart(i), tokens.getEnd(i));
 				
-				token = document.getTokens().get(i);
-			
-				if (token.getPos() != null && 
-						token.getPos().startsWith("N") && token.getString(
-								document.getOriginal_text()).matches("[A-z]+")
-										&& stopwords.isStopword(token.
-												getString(document.
-														getOriginal_text()))) {
-					keywords.add(document.getTokens().get(i).getString(
-							document.getOriginal_text()));
+				if (i > start_token) {
+					element_text.append(' ');
+				}
+				
+				element_text.append(token_text);
+				
+				if (nouns.contains(tokens.getPos_code(i)) && 
+						word_matcher.reset(token_text).matches()) {
+					String token_string = token_text.toString();
+					
+					if (stopwords.isStopword(token_string)) {
+						keywords.add(token_string);
+					}
 				}
 			}
 			
 			
 			
-			search_units.put(j,computeVectors(element_text,"").get(0));
+			search_units.put(j,computeVectors(element_text.toString(),"").get(0));
 		}
 		
 		return search_units;
@@ -353,6 +356,18 @@ public class SimilarityFunctions {
 		
 		Stopwords stopwords = new weka.core.Stopwords();
 		
+		Token_Table tokens = document.getToken_table();
+		
+		Symbol_Class nouns = tokens.getSymbol_table().MakePrefixClass("N");
+		
+		CharSequence original_text = document.getText();
+		
+		Text_View token_text = new Text_View(original_text, 0, 0);
+		
+		Matcher word_matcher = Pattern.compile("[A-z]+").matcher("");
+		
+		StringBuilder element_text = new StringBuilder();
+		
 		HashSet<String> keywords = new HashSet<String>();
 		
 		HashMap<Integer, String> search_units = new HashMap<Integer, String>();
@@ -366,49 +381,40 @@ public class SimilarityFunctions {
 			int start_token = 0;
 			int end_token = 0;
 			
-			try {
-				start_token = document.getOffset_to_token_map().get(
-						element.getStart());
-				end_token = document.getOffset_to_token_map().get(
-						element.getEnd());
-			} catch (java.lang.Exception e) {
-				end_token = document.getTokens().size()-1;
-			}
-			
-			String element_text = document.getTokens().get(start_token).
-					getString(document.getOriginal_text());
+			start_token = document.getTokenAtOffset(element.getStart());
+			end_token = document.getTokenAtOffset(element.getEnd());
 			
-			Token token = document.getTokens().get(start_token);
-			
-			if (start_token != -1 && token.getPos() != null && token.getPos().
-					startsWith("N") && token.getString(
-							document.getOriginal_text()).matches("[A-z]+") && 
-									stopwords.isStopword(token.getString(
-											document.getOriginal_text()))) {
-				keywords.add(document.getTokens().get(start_token).getString(
-						document.getOriginal_text()));
+			if (start_token == -1) {
+				start_token = 0;
+				end_token = tokens.size()-1;
+			} else if (end_token == -1) {
+				end_token = tokens.size()-1;
 			}
 			
-			for (int i=start_token+1;i<end_token+1;i++) {
-				element_text = element_text + " " + document.getTokens().
-						get(i).getString(document.getOriginal_text());
+			element_text.setLength(0);
+			
+			for (int i=start_token;i<end_token+1;i++) {
+				token_text.set(tokens.getStart(i), tokens.getEnd(i));
 				
-				token = document.getTokens().get(i);
-			
-				if (token.getPos() != null && 
-						token.getPos().startsWith("N") && token.getString(
-								document.getOriginal_text()).matches("[A-z]+")
-										&& stopwords.isStopword(token.
-												getString(document.
-														getOriginal_text()))) {
-					keywords.add(document.getTokens().get(i).getString(
-							document.getOriginal_text()));
+				if (i > start_token) {
+					element_text.append(' ');
+				}
+				
+				element_text.append(token_text);
+				
+				if (nouns.contains(tokens.getPos_code(i)) && 
+						word_matcher.reset(token_text).matches()) {
+					String token_string = token_text.toString();
+					
+					if (stopwords.isStopword(token_string)) {
+						keywords.add(token_string);
+					}
 				}
 			}
 			
 			
 			
-			search_units.put(j,element_text);
+			search_units.put(j,element_text.toString());
 			
 			
 		}
@@ -532,33 +538,32 @@ public class SimilarityFunctions {
 		
 		HashSet<String> keywords = new HashSet<String>();
 		
+		Token_Table tokens = document.getToken_table();
 		
+		Symbol_Class nouns = tokens.getSymbol_table().MakePrefixClass("N");
 		
 		HashMap<Integer, String> search_units = new HashMap<Integer, String>();
 		
 		for (int j=0;j<document.getSub_chapters().size();j++) {
 			Chapter sub_chapter = document.getSub_chapters().get(j);
-			String sub_chapter_lemma_text = sub_chapter.getString(document.getOriginal_text());
 			
-			int start_token = document.getOffset_to_token_map().get(sub_chapter.getStart());
-			int end_token = document.getOffset_to_token_map().get(sub_chapter.getEnd());
+			int start_token = document.getTokenAtOffset(sub_chapter.getStart());
+			int end_token = document.getTokenAtOffset(sub_chapter.getEnd());
 			
-			sub_chapter_lemma_text = document.getTokens().get(start_token).getLemma();
+			String sub_chapter_lemma_text = tokens.getLemma(start_token);
 			
-			if (start_token != -1 && document.getTokens().get(start_token).getPos() != null &&
-					document.getTokens().get(start_token).getPos().startsWith("N") && 
-					document.getTokens().get(start_token).getlemma().matches("[A-Z].+")) {
-				keywords.add(document.getTokens().get(start_token).getLemma());
+			if (start_token != -1 && nouns.contains(tokens.getPos_code(start_token)) && 
+					sub_chapter_lemma_text.matches("[A-Z].+")) {
+				keywords.add(sub_chapter_lemma_text);
 			}
 			
 			for (int i=start_token+1;i<end_token+1;i++) {
-				sub_chapter_lemma_text = sub_chapter_lemma_text+" "+document.getTokens().get(i).
-						getLemma();
-			
-				if (document.getTokens().get(i).getPos() != null && 
-						document.getTokens().get(i).getPos().startsWith("N") && 
-						document.getTokens().get(i).getLemma().matches("[A-Z].+")) {
-					keywords.add(document.getTokens().get(i).getLemma());
+				String lemma = tokens.getLemma(i);
+				
+				sub_chapter_lemma_text = sub_chapter_lemma_text+" "+lemma;
+				
+				if (nouns.contains(tokens.getPos_code(i)) && lemma.matches("[A-Z].+")) {
+					keywords.add(lemma);
 				}
 			}
 			
@@ -823,19 +828,13 @@ public class SimilarityFunctions {
 		
 			ArrayList<String> keywords_at_008 = tag_cloud.getNTopKeywords(10);
 			
-			Chapter current_sub_chapter = document.getSub_chapters().get(i);
-		
-			ArrayList<Token> chapter = new ArrayList<Token>();
+			Hierarchy hierarchy = document.getHierarchy();
 		
-			for (Token token: document.getTokens()) {
-			
-				if (token.getEnd() > current_sub_chapter.getEnd()) {
-					break;
-				} else if (token.getStart() >= current_sub_chapter.getStart() &&
-						token.getEnd() <= current_sub_chapter.getEnd()) {
-					chapter.add(token);
-				}
-			}
+			ArrayList<Token> chapter = new ArrayList<Token>(document.getTokens().subList(
+					hierarchy.getFirst_descendant(Hierarchy.SUB_CHAPTERS, i, 
+							Hierarchy.TOKENS), 
+					hierarchy.getEnd_descendant(Hierarchy.SUB_CHAPTERS, i, 
+							Hierarchy.TOKENS)));
 		
 			HashMap<Integer, String> segmentation = TagBasedSegmentation.Baseline_1(chapter, 
 					keywords_at_008, document);
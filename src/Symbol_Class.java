@@ -0,0 +1,111 @@
+package teanlis;
+
+import java.util.BitSet;
+
+/**
+ * This class represents a class of symbols of a Symbol_Table, for example the
+ * class of all part-of-speech tags of nouns. The members of the class are stored
+ * as a bitset over the codes of the symbols, so checking whether a token has a
+ * part-of-speech tag of a particular class is a single bit lookup instead of a
+ * string comparison.
+ * 
+ * Symbols which are added to the table after the class was made are checked when
+ * their code is looked up for the first time. The class can be used by many
+ * threads at the same time.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Symbol_Class {
+	
+	/**
+	 * The table the symbols of the class are contained in.
+	 */
+	Symbol_Table table;
+	
+	/**
+	 * The prefix all symbols of the class start with.
+	 */
+	String prefix;
+	
+	/**
+	 * The codes of the symbols which are members of the class. The bitset is never
+	 * changed after it has been assigned to this field, it is replaced by a new
+	 * one when more symbols are checked.
+	 */
+	volatile BitSet members;
+	
+	/**
+	 * The number of symbols of the table which have been checked for membership.
+	 */
+	volatile int checked;
+	
+	/**
+	 * Constructor for the class which takes the table and the prefix all symbols
+	 * of the class start with as arguments.
+	 * @param table The table the symbols of the class are contained in.
+	 * @param prefix The prefix all symbols of the class start with.
+	 */
+	public Symbol_Class (Symbol_Table table, String prefix) {
+		this.table = table;
+		this.prefix = prefix;
+		this.members = new BitSet();
+		this.checked = 0;
+		
+		Extend();
+	}
+	
+	/**
+	 * Get the prefix all symbols of the class start with.
+	 * @return The prefix all symbols of the class start with.
+	 */
+	public String getPrefix() {
+		return prefix;
+	}
+	
+	/**
+	 * Check whether the symbol with the specified code is a member of the class.
+	 * @param code The code of the symbol.
+	 * @return True if the symbol is a member of the class, false if it is not or
+	 * if the code is -1.
+	 */
+	public boolean contains (int code) {
+		if (code < 0) {
+			return false;
+		}
+		
+		int current_checked = checked;
+		BitSet current_members = members;
+		
+		if (code >= current_checked) {
+			current_members = Extend();
+		}
+		
+		return current_members.get(code);
+	}
+	
+	/**
+	 * Check the symbols which were added to the table since the last check.
+	 * @return The bitset of the members of the class after the check.
+	 */
+	synchronized BitSet Extend () {
+		int table_size = table.size();
+		
+		if (checked >= table_size) {
+			return members;
+		}
+		
+		BitSet new_members = (BitSet) members.clone();
+		
+		for (int i=checked;i<table_size;i++) {
+			if (table.getSymbol(i).startsWith(prefix)) {
+				new_members.set(i);
+			}
+		}
+		
+		members = new_members;
+		checked = table_size;
+		
+		return new_members;
+	}
+}
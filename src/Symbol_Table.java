@@ -0,0 +1,225 @@
+package teanlis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class is a table of symbols which maps strings like part-of-speech tags,
+ * lemmas, names of dependency relations and annotation types to ints, the codes
+ * of the strings. Every distinct string is stored only once, so documents and
+ * tokens which store codes instead of strings do not keep duplicate strings in
+ * memory, and comparing two symbols becomes comparing two ints.
+ * 
+ * There is one table which is shared by all documents in the JVM (see
+ * getShared). Codes of the shared table are only valid while the JVM is running,
+ * so everything which is persisted stores the strings of the symbols and gets the
+ * codes again from the shared table when it is loaded. The table can also be
+ * saved and loaded as a whole, for example to store it next to the documents of a
+ * corpus so the codes stay the same when the corpus is loaded again.
+ * 
+ * Symbols are never removed from a table. Looking up symbols does not lock the
+ * table, adding new symbols does.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Symbol_Table {
+	
+	/**
+	 * The table shared by all documents.
+	 */
+	static final Symbol_Table shared = new Symbol_Table();
+	
+	/**
+	 * Get the table shared by all documents.
+	 * @return The table shared by all documents.
+	 */
+	public static Symbol_Table getShared() {
+		return shared;
+	}
+	
+	/**
+	 * The symbols of the table, the position of a symbol is its code.
+	 */
+	volatile String[] symbols;
+	
+	/**
+	 * The number of symbols in the table.
+	 */
+	volatile int size;
+	
+	/**
+	 * A map from the symbols to their codes.
+	 */
+	ConcurrentHashMap<String, Integer> codes;
+	
+	/**
+	 * No-arguments constructor for the table.
+	 */
+	public Symbol_Table () {
+		this.symbols = new String[256];
+		this.size = 0;
+		this.codes = new ConcurrentHashMap<String, Integer>();
+	}
+	
+	/**
+	 * Get the number of symbols in the table.
+	 * @return The number of symbols in the table.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Get the code of the specified symbol. The symbol is added to the table if it
+	 * is not contained in it yet.
+	 * @param symbol The symbol.
+	 * @return The code of the symbol or -1 if the symbol is null.
+	 */
+	public int Intern (String symbol) {
+		if (symbol == null) {
+			return -1;
+		}
+		
+		Integer code = codes.get(symbol);
+		
+		if (code != null) {
+			return code;
+		}
+		
+		synchronized (this) {
+			code = codes.get(symbol);
+			
+			if (code != null) {
+				return code;
+			}
+			
+			String[] current_symbols = symbols;
+			
+			if (size == current_symbols.length) {
+				current_symbols = Arrays.copyOf(current_symbols,
+						current_symbols.length*2);
+			}
+			
+			current_symbols[size] = symbol;
+			
+			symbols = current_symbols;
+			size = size+1;
+			
+			codes.put(symbol, size-1);
+			
+			return size-1;
+		}
+	}
+	
+	/**
+	 * Get the instance of the specified string which is stored in the table. The
+	 * string is added to the table if it is not contained in it yet. Storing the
+	 * returned instance instead of the specified one avoids keeping many copies of
+	 * the same string in memory.
+	 * @param symbol The string.
+	 * @return The instance of the string which is stored in the table or null if
+	 * the string is null.
+	 */
+	public String Canonical (String symbol) {
+		return getSymbol(Intern(symbol));
+	}
+	
+	/**
+	 * Get the code of the specified symbol without adding it to the table.
+	 * @param symbol The symbol.
+	 * @return The code of the symbol or -1 if the symbol is null or not contained
+	 * in the table.
+	 */
+	public int getCode (String symbol) {
+		if (symbol == null) {
+			return -1;
+		}
+		
+		Integer code = codes.get(symbol);
+		
+		if (code == null) {
+			return -1;
+		}
+		
+		return code;
+	}
+	
+	/**
+	 * Get the symbol with the specified code.
+	 * @param code The code of the symbol.
+	 * @return The symbol or null if the code is -1.
+	 */
+	public String getSymbol (int code) {
+		if (code == -1) {
+			return null;
+		}
+		
+		return symbols[code];
+	}
+	
+	/**
+	 * Make a class of all symbols which start with the specified prefix, for
+	 * example the class of all part-of-speech tags of nouns, "N". Symbols which are
+	 * added to the table later are also members of the class if they start with
+	 * the prefix.
+	 * @param prefix The prefix of the symbols in the class.
+	 * @return The class of all symbols which start with the prefix.
+	 */
+	public Symbol_Class MakePrefixClass (String prefix) {
+		return new Symbol_Class(this, prefix);
+	}
+	
+	/**
+	 * Save the symbols of the table to a file at the specified path.
+	 * @param path
+	 */
+	public void Save (String path) {
+		try {
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(path)));
+			
+			String[] current_symbols = symbols;
+			int current_size = size;
+			
+			output.writeInt(current_size);
+			
+			for (int i=0;i<current_size;i++) {
+				output.writeUTF(current_symbols[i]);
+			}
+			
+			output.close();
+		} catch (java.io.IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Load the symbols stored in a file at the specified path and add them to the
+	 * table in the order they were saved in. If the table is empty, every symbol
+	 * gets the same code it had in the saved table.
+	 * @param path
+	 */
+	public void Load (String path) {
+		try {
+			DataInputStream input = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(path)));
+			
+			int stored_size = input.readInt();
+			
+			for (int i=0;i<stored_size;i++) {
+				Intern(input.readUTF());
+			}
+			
+			input.close();
+		} catch (java.io.IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
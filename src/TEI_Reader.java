@@ -0,0 +1,502 @@
+package teanlis;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+
+/**
+ * This class reads a document from a file in TEI conform xml format in one pass.
+ * The characters of the file are scanned once: tags, comments and processing
+ * instructions are removed, entities are replaced by their characters, and the
+ * text is appended to one StringBuilder while the elements are collected:
+ * 
+ * 1. Lines: every line break of the text outside of tags ends a line.
+ * 2. Paragraphs: the elements p.
+ * 3. Pages: a page ends at every element pb and starts at the previous one.
+ * 4. Chapters: the elements div1, div2 and so on, whose level is their number,
+ * and div, whose level is the number of divs it is contained in. Chapters of
+ * the first level are the main chapters and chapters of the second level the
+ * sub-chapters of the document; chapters of deeper levels are stored as
+ * annotations of the types "div3", "div4" and so on. The text of the first
+ * element head of a chapter is its title.
+ * 
+ * Tags may span several lines and elements may be nested. Everything up to the
+ * end of the line containing the end of the element teiHeader is skipped. The
+ * memory needed besides the document is bounded by the length of the longest
+ * tag and the depth of the nesting.
+ * 
+ * @author Andreas Mller
+ */
+
+public class TEI_Reader {
+	
+	/**
+	 * The number of characters read from the file at once.
+	 */
+	static final int BUFFER_SIZE = 8192;
+	
+	/**
+	 * The maximal length of an entity, longer ones are kept as text.
+	 */
+	static final int MAX_ENTITY_LENGTH = 16;
+	
+	static final int TEXT = 0;
+	static final int TAG = 1;
+	static final int ENTITY = 2;
+	
+	/**
+	 * The text of the document.
+	 */
+	StringBuilder text;
+	
+	/**
+	 * The tag or entity which is being read.
+	 */
+	StringBuilder markup;
+	
+	/**
+	 * Whether the end of the element teiHeader was read.
+	 */
+	boolean header_found;
+	
+	/**
+	 * Whether the text up to the next line break is skipped.
+	 */
+	boolean skip_line;
+	
+	/**
+	 * The offset the current line starts at.
+	 */
+	int line_start;
+	
+	ArrayList<Line> lines;
+	ArrayList<Paragraph> paragraphs;
+	ArrayList<Page> pages;
+	
+	/**
+	 * The chapters by their levels, starting at 1.
+	 */
+	ArrayList<ArrayList<Chapter>> chapters;
+	
+	/**
+	 * The start offsets of the open paragraphs.
+	 */
+	ArrayList<Integer> open_paragraphs;
+	
+	/**
+	 * The open chapters, the innermost one last.
+	 */
+	ArrayList<Chapter> open_chapters;
+	
+	/**
+	 * The offset the open element head starts at or -1.
+	 */
+	int head_start;
+	
+	/**
+	 * The offset the current page starts at.
+	 */
+	int page_start;
+	
+	/**
+	 * Constructor for a reader of one document.
+	 */
+	TEI_Reader () {
+		this.text = new StringBuilder();
+		this.markup = new StringBuilder();
+		this.lines = new ArrayList<Line>();
+		this.paragraphs = new ArrayList<Paragraph>();
+		this.pages = new ArrayList<Page>();
+		this.chapters = new ArrayList<ArrayList<Chapter>>();
+		this.open_paragraphs = new ArrayList<Integer>();
+		this.open_chapters = new ArrayList<Chapter>();
+		this.head_start = -1;
+	}
+	
+	/**
+	 * Read a document from a file in TEI conform xml format encoded in UTF-8.
+	 * @param path The path of the file.
+	 * @return The document.
+	 * @throws IOException If the file can not be read.
+	 */
+	public static Document Load (String path) throws IOException {
+		Reader reader = new InputStreamReader(new FileInputStream(path), "UTF-8");
+		
+		try {
+			return Load(reader);
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Read a document in TEI conform xml format.
+	 * @param reader The reader of the xml.
+	 * @return The document.
+	 * @throws IOException If the xml can not be read.
+	 */
+	public static Document Load (Reader reader) throws IOException {
+		TEI_Reader tei_reader = new TEI_Reader();
+		
+		tei_reader.Scan(reader);
+		
+		return tei_reader.MakeDocument();
+	}
+	
+	/**
+	 * Scan the characters of the xml once.
+	 */
+	void Scan (Reader reader) throws IOException {
+		char[] buffer = new char[BUFFER_SIZE];
+		int state = TEXT;
+		
+		int count = reader.read(buffer);
+		
+		while (count != -1) {
+			for (int i=0;i<count;i++) {
+				char character = buffer[i];
+				
+				if (state == TAG) {
+					if (character == '>' && isTag_complete()) {
+						HandleTag();
+						markup.setLength(0);
+						state = TEXT;
+					} else {
+						markup.append(character);
+					}
+				} else if (state == ENTITY) {
+					if (character == ';') {
+						AppendText(DecodeEntity(markup));
+						markup.setLength(0);
+						state = TEXT;
+					} else if (character == '<' || character == '&' ||
+							Character.isWhitespace(character) ||
+							markup.length() >= MAX_ENTITY_LENGTH) {
+						AppendText("&");
+						AppendText(markup);
+						markup.setLength(0);
+						
+						if (character == '<') {
+							state = TAG;
+						} else if (character != '&') {
+							AppendText(character);
+							state = TEXT;
+						}
+					} else {
+						markup.append(character);
+					}
+				} else if (character == '<') {
+					state = TAG;
+				} else if (character == '&') {
+					state = ENTITY;
+				} else {
+					AppendText(character);
+				}
+			}
+			
+			count = reader.read(buffer);
+		}
+		
+		if (state == ENTITY) {
+			AppendText("&");
+			AppendText(markup);
+		}
+	}
+	
+	/**
+	 * Check whether the '>' which was read ends the tag. Comments end with "-->"
+	 * and sections of character data with "]]>".
+	 */
+	boolean isTag_complete () {
+		if (StartsWith(markup, "!--")) {
+			return markup.length() >= 5 && EndsWith(markup, "--");
+		}
+		
+		if (StartsWith(markup, "![CDATA[")) {
+			return EndsWith(markup, "]]");
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Append a character to the text, ending the current line at line breaks.
+	 */
+	void AppendText (char character) {
+		if (!header_found) {
+			return;
+		}
+		
+		if (skip_line) {
+			if (character == '\n') {
+				skip_line = false;
+			}
+			
+			return;
+		}
+		
+		text.append(character);
+		
+		if (character == '\n') {
+			Line line = new Line();
+			
+			line.setStart(line_start);
+			line.setEnd(text.length());
+			
+			lines.add(line);
+			
+			line_start = text.length();
+		}
+	}
+	
+	/**
+	 * Append characters to the text.
+	 */
+	void AppendText (CharSequence characters) {
+		for (int i=0;i<characters.length();i++) {
+			AppendText(characters.charAt(i));
+		}
+	}
+	
+	/**
+	 * Handle the tag in markup, without its angle brackets.
+	 */
+	void HandleTag () {
+		if (StartsWith(markup, "![CDATA[")) {
+			AppendText(markup.subSequence(8, markup.length()-2));
+			return;
+		}
+		
+		if (markup.length() == 0 || markup.charAt(0) == '!' ||
+				markup.charAt(0) == '?') {
+			return;
+		}
+		
+		boolean end_tag = markup.charAt(0) == '/';
+		boolean empty_element = markup.charAt(markup.length()-1) == '/';
+		
+		int name_start = end_tag ? 1 : 0;
+		int name_end = name_start;
+		
+		while (name_end < markup.length() && !Character.isWhitespace(
+				markup.charAt(name_end)) && markup.charAt(name_end) != '/') {
+			name_end = name_end+1;
+		}
+		
+		String name = markup.substring(name_start, name_end);
+		
+		if (!header_found) {
+			if (end_tag && name.equals("teiHeader")) {
+				header_found = true;
+				skip_line = true;
+			}
+			
+			return;
+		}
+		
+		if (end_tag) {
+			EndElement(name);
+		} else {
+			StartElement(name);
+			
+			if (empty_element) {
+				EndElement(name);
+			}
+		}
+	}
+	
+	/**
+	 * Handle the start of an element.
+	 * @param name The name of the element.
+	 */
+	void StartElement (String name) {
+		int offset = text.length();
+		
+		if (name.equals("p")) {
+			open_paragraphs.add(offset);
+		} else if (isDiv(name)) {
+			Chapter chapter = new Chapter();
+			
+			chapter.setStart(offset);
+			
+			int level = name.length() > 3 ? name.charAt(3)-'0' :
+				open_chapters.size()+1;
+			
+			while (chapters.size() < level) {
+				chapters.add(new ArrayList<Chapter>());
+			}
+			
+			chapters.get(level-1).add(chapter);
+			open_chapters.add(chapter);
+		} else if (name.equals("head")) {
+			head_start = offset;
+		} else if (name.equals("pb")) {
+			Page page = new Page();
+			
+			page.setStart(page_start);
+			page.setEnd(offset);
+			
+			pages.add(page);
+			
+			page_start = offset;
+		}
+	}
+	
+	/**
+	 * Handle the end of an element.
+	 * @param name The name of the element.
+	 */
+	void EndElement (String name) {
+		int offset = text.length();
+		
+		if (name.equals("p")) {
+			if (!open_paragraphs.isEmpty()) {
+				Paragraph paragraph = new Paragraph();
+				
+				paragraph.setStart(open_paragraphs.remove(open_paragraphs.size()-1));
+				paragraph.setEnd(offset);
+				
+				paragraphs.add(paragraph);
+			}
+		} else if (isDiv(name)) {
+			if (!open_chapters.isEmpty()) {
+				open_chapters.remove(open_chapters.size()-1).setEnd(offset);
+			}
+		} else if (name.equals("head")) {
+			if (head_start != -1 && !open_chapters.isEmpty()) {
+				Chapter chapter = open_chapters.get(open_chapters.size()-1);
+				
+				if (chapter.getTitle() == null) {
+					chapter.setTitle(text.substring(head_start, offset).trim()
+							.replaceAll("\\s+", " "));
+				}
+			}
+			
+			head_start = -1;
+		}
+	}
+	
+	/**
+	 * Check whether an element is a division: div or div1 to div9.
+	 */
+	static boolean isDiv (String name) {
+		return name.equals("div") || (name.length() == 4 && name.startsWith("div")
+				&& name.charAt(3) >= '1' && name.charAt(3) <= '9');
+	}
+	
+	/**
+	 * Replace an entity by its characters.
+	 * @param entity The entity without '&' and ';'.
+	 * @return The characters.
+	 */
+	static String DecodeEntity (CharSequence entity) {
+		String name = entity.toString();
+		
+		if (name.equals("amp")) {
+			return "&";
+		} else if (name.equals("lt")) {
+			return "<";
+		} else if (name.equals("gt")) {
+			return ">";
+		} else if (name.equals("quot")) {
+			return "\"";
+		} else if (name.equals("apos")) {
+			return "'";
+		}
+		
+		try {
+			if (name.startsWith("#x")) {
+				return new String(Character.toChars(Integer.parseInt(
+						name.substring(2), 16)));
+			} else if (name.startsWith("#")) {
+				return new String(Character.toChars(Integer.parseInt(
+						name.substring(1))));
+			}
+		} catch (IllegalArgumentException e) {
+			// kept as text below
+		}
+		
+		return "&" + name + ";";
+	}
+	
+	/**
+	 * Make the document of the collected text and elements. Elements which are
+	 * still open end at the end of the text.
+	 */
+	Document MakeDocument () {
+		if (line_start < text.length()) {
+			AppendText('\n');
+		}
+		
+		int offset = text.length();
+		
+		while (!open_paragraphs.isEmpty()) {
+			EndElement("p");
+		}
+		
+		for (Chapter chapter: open_chapters) {
+			chapter.setEnd(offset);
+		}
+		
+		Document document = new Document(text.toString());
+		
+		document.setLines(lines);
+		document.setParagraphs(paragraphs);
+		document.setPages(pages);
+		document.setMain_chapters(chapters.size() > 0 ? chapters.get(0) :
+			new ArrayList<Chapter>());
+		document.setSub_chapters(chapters.size() > 1 ? chapters.get(1) :
+			new ArrayList<Chapter>());
+		
+		for (int level=3;level<=chapters.size();level++) {
+			for (Chapter chapter: chapters.get(level-1)) {
+				Annotation division = new Annotation();
+				
+				division.setStart(chapter.getStart());
+				division.setEnd(chapter.getEnd());
+				
+				document.addAnnotation("div" + level, division);
+			}
+		}
+		
+		return document;
+	}
+	
+	/**
+	 * Check whether a builder starts with a prefix, without copying it.
+	 */
+	static boolean StartsWith (StringBuilder builder, String prefix) {
+		if (builder.length() < prefix.length()) {
+			return false;
+		}
+		
+		for (int i=0;i<prefix.length();i++) {
+			if (builder.charAt(i) != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Check whether a builder ends with a suffix, without copying it.
+	 */
+	static boolean EndsWith (StringBuilder builder, String suffix) {
+		int offset = builder.length()-suffix.length();
+		
+		if (offset < 0) {
+			return false;
+		}
+		
+		for (int i=0;i<suffix.length();i++) {
+			if (builder.charAt(offset+i) != suffix.charAt(i)) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+}
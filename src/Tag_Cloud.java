@@ -1,5 +1,8 @@
 package teanlis;
 
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.HashMap;
 import java.util.ArrayList;
 
@@ -13,6 +16,8 @@ import java.util.ArrayList;
  */
 public class Tag_Cloud extends Linguistic_Element {
 	
+	private static final long serialVersionUID = 2L;
+	
 	/**
 	 * The sorted list of the scores of the keywords in the cloud.
 	 */
@@ -138,4 +143,31 @@ public class Tag_Cloud extends Linguistic_Element {
 			}
 		}
 	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see teanlis.Linguistic_Element#writeExternal(java.io.ObjectOutput)
+	 */
+	public void writeExternal (ObjectOutput output) throws IOException {
+		super.writeExternal(output);
+		
+		output.writeObject(sorted_score_list);
+		output.writeObject(keywords_at_score);
+		output.writeObject(keyword_at_rank);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see teanlis.Linguistic_Element#readExternal(java.io.ObjectInput)
+	 */
+	@SuppressWarnings("unchecked")
+	public void readExternal (ObjectInput input) throws IOException, 
+			ClassNotFoundException {
+		super.readExternal(input);
+		
+		this.sorted_score_list = (Float[]) input.readObject();
+		this.keywords_at_score = (HashMap<Float, ArrayList<String>>) 
+				input.readObject();
+		this.keyword_at_rank = (HashMap<String, Integer>) input.readObject();
+	}
 }
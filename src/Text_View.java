@@ -0,0 +1,215 @@
+package teanlis;
+
+/**
+ * This class is a view of a region of the text of a document. The view does not
+ * copy the characters of the region, it only stores the text and the start and
+ * end offsets of the region, so it can be used wherever a CharSequence is
+ * accepted (for example for matching regular expressions or appending to a
+ * StringBuilder) without creating a substring. A new string is only created
+ * when toString is called.
+ * 
+ * The region of a view can be changed with set, so a loop over many tokens can
+ * use the same view for all of them. The hash code of a view is the hash code of
+ * the string of its region, and two views are equal if their regions contain the
+ * same characters. Views are not equal to strings; use contentEquals to compare
+ * a view with a string.
+ * 
+ * The static methods of this class compare and hash regions of a text without
+ * creating a view at all.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Text_View implements CharSequence {
+	
+	/**
+	 * The text the region is contained in.
+	 */
+	CharSequence text;
+	
+	/**
+	 * The start offset of the region in the text.
+	 */
+	int start;
+	
+	/**
+	 * The end offset of the region in the text (exclusive).
+	 */
+	int end;
+	
+	/**
+	 * Constructor for the view which takes the text and the start and end offsets
+	 * of the region as arguments.
+	 * @param text The text the region is contained in.
+	 * @param start The start offset of the region.
+	 * @param end The end offset of the region (exclusive).
+	 */
+	public Text_View (CharSequence text, int start, int end) {
+		this.text = text;
+		
+		set(start, end);
+	}
+	
+	/**
+	 * Change the region of the view.
+	 * @param start The start offset of the region.
+	 * @param end The end offset of the region (exclusive).
+	 * @return The view.
+	 */
+	public Text_View set (int start, int end) {
+		if (start < 0 || end > text.length() || start > end) {
+			throw new StringIndexOutOfBoundsException("Region " + start + "-" + end
+					+ " is outside of a text of length " + text.length());
+		}
+		
+		this.start = start;
+		this.end = end;
+		
+		return this;
+	}
+	
+	/**
+	 * Get the text the region is contained in.
+	 * @return The text the region is contained in.
+	 */
+	public CharSequence getText() {
+		return text;
+	}
+	
+	/**
+	 * Get the start offset of the region in the text.
+	 * @return The start offset of the region.
+	 */
+	public int getStart() {
+		return start;
+	}
+	
+	/**
+	 * Get the end offset of the region in the text.
+	 * @return The end offset of the region (exclusive).
+	 */
+	public int getEnd() {
+		return end;
+	}
+	
+	public int length() {
+		return end-start;
+	}
+	
+	public char charAt(int index) {
+		if (index < 0 || index >= end-start) {
+			throw new StringIndexOutOfBoundsException(index);
+		}
+		
+		return text.charAt(start+index);
+	}
+	
+	public CharSequence subSequence(int sub_start, int sub_end) {
+		if (sub_start < 0 || sub_end > end-start || sub_start > sub_end) {
+			throw new StringIndexOutOfBoundsException(sub_start);
+		}
+		
+		return new Text_View(text, start+sub_start, start+sub_end);
+	}
+	
+	/**
+	 * Check whether the region of the view contains the same characters as the
+	 * specified sequence.
+	 * @param other A sequence of characters.
+	 * @return True if the region contains the same characters as the sequence.
+	 */
+	public boolean contentEquals (CharSequence other) {
+		return RegionEquals(text, start, end, other);
+	}
+	
+	public boolean equals(Object object) {
+		if (this == object) {
+			return true;
+		}
+		
+		if (!(object instanceof Text_View)) {
+			return false;
+		}
+		
+		return contentEquals((Text_View) object);
+	}
+	
+	public int hashCode() {
+		return Hash(text, start, end);
+	}
+	
+	public String toString() {
+		return text.subSequence(start, end).toString();
+	}
+	
+	/**
+	 * Compute the hash code of a region of a text without creating a string. The
+	 * hash code is the same as the hash code of the string of the region.
+	 * @param text The text the region is contained in.
+	 * @param start The start offset of the region.
+	 * @param end The end offset of the region (exclusive).
+	 * @return The hash code of the region.
+	 */
+	public static int Hash (CharSequence text, int start, int end) {
+		int hash = 0;
+		
+		for (int i=start;i<end;i++) {
+			hash = 31*hash + text.charAt(i);
+		}
+		
+		return hash;
+	}
+	
+	/**
+	 * Check whether a region of a text contains the same characters as the
+	 * specified sequence without creating a string.
+	 * @param text The text the region is contained in.
+	 * @param start The start offset of the region.
+	 * @param end The end offset of the region (exclusive).
+	 * @param other A sequence of characters.
+	 * @return True if the region contains the same characters as the sequence.
+	 */
+	public static boolean RegionEquals (CharSequence text, int start, int end,
+			CharSequence other) {
+		if (other.length() != end-start) {
+			return false;
+		}
+		
+		for (int i=start;i<end;i++) {
+			if (text.charAt(i) != other.charAt(i-start)) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Check whether a region of a text contains the specified string, ignoring the
+	 * case of the characters, without creating a string.
+	 * @param text The text the region is contained in.
+	 * @param start The start offset of the region.
+	 * @param end The end offset of the region (exclusive).
+	 * @param part The string which is searched for.
+	 * @return True if the region contains the string.
+	 */
+	public static boolean RegionContainsIgnoreCase (CharSequence text, int start,
+			int end, String part) {
+		int part_length = part.length();
+		
+		for (int i=start;i+part_length<=end;i++) {
+			int j = 0;
+			
+			while (j < part_length && Character.toLowerCase(text.charAt(i+j)) ==
+					Character.toLowerCase(part.charAt(j))) {
+				j = j+1;
+			}
+			
+			if (j == part_length) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+}
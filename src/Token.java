@@ -1,5 +1,8 @@
 package teanlis;
 
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.HashMap;
 
 /**
@@ -21,12 +24,18 @@ import java.util.HashMap;
  * use the position in the list of tokens a document consists of to relate tokens to
  * each other.
  * 
+ * The strings of the lemma, the part-of-speech tag, the name of the grammatical
+ * relation and the morphological properties are taken from the Symbol_Table shared 
+ * by all documents, so equal strings are only stored once.
+ * 
  * @author Andreas Mller
  *
  */
 
 public class Token extends Linguistic_Element implements java.io.Serializable {
 	
+	private static final long serialVersionUID = 2L;
+	
 	/**
 	 * The sentence containing the token.
 	 */
@@ -53,7 +62,7 @@ public class Token extends Linguistic_Element implements java.io.Serializable {
 	 * @param lemma The lemma of the token.
 	 */
 	public void setLemma(String lemma) {
-		this.lemma = lemma;
+		this.lemma = Symbol_Table.getShared().Canonical(lemma);
 	}
 	
 	/**
@@ -69,7 +78,7 @@ public class Token extends Linguistic_Element implements java.io.Serializable {
 	 * @param pos The part-of-speech tag of the token.
 	 */
 	public void setPos(String pos) {
-		this.pos = pos;
+		this.pos = Symbol_Table.getShared().Canonical(pos);
 	}
 	
 	/**
@@ -87,7 +96,7 @@ public class Token extends Linguistic_Element implements java.io.Serializable {
 	 * @param dependency
 	 */
 	public void setDependency(String dependency) {
-		this.dependency = dependency;
+		this.dependency = Symbol_Table.getShared().Canonical(dependency);
 	}
 	
 	/**
@@ -119,7 +128,7 @@ public class Token extends Linguistic_Element implements java.io.Serializable {
 	 * @param function The morphological properties of the token.
 	 */
 	public void setFunction(String function) {
-		this.function = function;
+		this.function = Symbol_Table.getShared().Canonical(function);
 	}
 	
 	/**
@@ -226,4 +235,39 @@ public class Token extends Linguistic_Element implements java.io.Serializable {
 		this.start = start_char;
 		this.end = end_char;
 	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see teanlis.Linguistic_Element#writeExternal(java.io.ObjectOutput)
+	 */
+	public void writeExternal (ObjectOutput output) throws IOException {
+		super.writeExternal(output);
+		
+		output.writeInt(containing_sentence);
+		output.writeInt(id);
+		output.writeInt(governor);
+		output.writeObject(lemma);
+		output.writeObject(pos);
+		output.writeObject(dependency);
+		output.writeObject(function);
+	}
+	
+	/*
+	 * (non-Javadoc)
+	 * @see teanlis.Linguistic_Element#readExternal(java.io.ObjectInput)
+	 */
+	public void readExternal (ObjectInput input) throws IOException, 
+			ClassNotFoundException {
+		super.readExternal(input);
+		
+		Symbol_Table symbols = Symbol_Table.getShared();
+		
+		this.containing_sentence = input.readInt();
+		this.id = input.readInt();
+		this.governor = input.readInt();
+		this.lemma = symbols.Canonical((String) input.readObject());
+		this.pos = symbols.Canonical((String) input.readObject());
+		this.dependency = symbols.Canonical((String) input.readObject());
+		this.function = symbols.Canonical((String) input.readObject());
+	}
 }
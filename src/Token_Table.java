@@ -0,0 +1,884 @@
+package teanlis;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * This class stores the tokens of a document column by column instead of as one
+ * object per token. Every property of the tokens is stored in its own primitive
+ * array:
+ * 
+ * 1. The start and end offsets, the index of the governor, the index of the
+ * containing sentence and the id of the tokens are stored as ints.
+ * 
+ * 2. The lemma, the part-of-speech tag, the morphological properties and the
+ * name of the dependency relation are dictionary encoded: the columns store the
+ * codes of the strings in the Symbol_Table shared by all documents, so every
+ * distinct string is only stored once and filters like "all nouns" can compare
+ * codes or use a Symbol_Class instead of comparing strings. The value -1 stands
+ * for a property which is not set.
+ * 
+ * 3. Note histories are only stored for the tokens which actually have one.
+ * 
+ * Methods which scan all tokens, like keyword extraction, can read the columns
+ * directly with the get-methods which take the index of a token. For code which
+ * works with Token objects the method getToken returns a light-weight view of a
+ * token, which reads and writes the columns of the table, and the method asList
+ * returns a list of such views.
+ * 
+ * A read-only copy of a table (see CopyReadOnly) throws an 
+ * UnsupportedOperationException when a token is added, removed or changed, so 
+ * it can be read by several threads at once, for example as the tokens of a 
+ * Frozen_Document.
+ * 
+ * @author Andreas Mller
+ */
+
+public class Token_Table implements java.io.Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * The number of tokens in the table.
+	 */
+	int size;
+	
+	/**
+	 * The start offsets of the tokens.
+	 */
+	transient int[] starts;
+	
+	/**
+	 * The end offsets of the tokens.
+	 */
+	transient int[] ends;
+	
+	/**
+	 * The indices of the tokens the tokens are related to by their grammatical
+	 * dependency relation.
+	 */
+	transient int[] governors;
+	
+	/**
+	 * The indices of the sentences containing the tokens.
+	 */
+	transient int[] sentences;
+	
+	/**
+	 * The ids of the tokens.
+	 */
+	transient int[] ids;
+	
+	/**
+	 * The dictionary codes of the lemmas of the tokens.
+	 */
+	transient int[] lemmas;
+	
+	/**
+	 * The dictionary codes of the part-of-speech tags of the tokens.
+	 */
+	transient int[] pos_tags;
+	
+	/**
+	 * The dictionary codes of the morphological properties of the tokens.
+	 */
+	transient int[] functions;
+	
+	/**
+	 * The dictionary codes of the names of the dependency relations of the tokens.
+	 */
+	transient int[] dependencies;
+	
+	/**
+	 * The table of symbols the codes in the dictionary encoded columns refer to.
+	 * This is always the table shared by all documents. When the token table is 
+	 * serialized, the strings of the codes are written, and they are added to the 
+	 * shared table again when the token table is deserialized.
+	 */
+	transient Symbol_Table symbol_table;
+	
+	/**
+	 * A map from the indices of tokens to the note histories of the tokens. Only
+	 * tokens which have a note history are contained in the map.
+	 */
+	HashMap<Integer, HashMap<String, String>> note_histories;
+	
+	/**
+	 * Whether the tokens of the table can not be changed.
+	 */
+	boolean read_only;
+	
+	/**
+	 * No-arguments constructor for the table.
+	 */
+	public Token_Table () {
+		this(16);
+	}
+	
+	/**
+	 * Constructor for the table which takes the number of tokens the table should
+	 * have room for without growing as an argument.
+	 * @param capacity The number of tokens the table has room for initially.
+	 */
+	public Token_Table (int capacity) {
+		if (capacity < 1) {
+			capacity = 1;
+		}
+		
+		this.starts = new int[capacity];
+		this.ends = new int[capacity];
+		this.governors = new int[capacity];
+		this.sentences = new int[capacity];
+		this.ids = new int[capacity];
+		this.lemmas = new int[capacity];
+		this.pos_tags = new int[capacity];
+		this.functions = new int[capacity];
+		this.dependencies = new int[capacity];
+		
+		this.symbol_table = Symbol_Table.getShared();
+		this.note_histories = new HashMap<Integer, HashMap<String, String>>();
+	}
+	
+	/**
+	 * Constructor for the table which copies the properties of the specified
+	 * tokens into the table.
+	 * @param tokens The tokens which are copied into the table.
+	 */
+	public Token_Table (List<Token> tokens) {
+		this(tokens.size());
+		
+		for (Token token: tokens) {
+			add(token);
+		}
+	}
+	
+	/**
+	 * Get the number of tokens in the table.
+	 * @return The number of tokens in the table.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Add a token with the specified start and end offset to the table. The other
+	 * properties of the token get the same values a token created with the
+	 * no-arguments constructor of the Token class has.
+	 * @param start The start offset of the token.
+	 * @param end The end offset of the token.
+	 * @return The index of the new token.
+	 */
+	public int add (int start, int end) {
+		CheckWritable();
+		EnsureCapacity(size+1);
+		
+		int index = size;
+		
+		starts[index] = start;
+		ends[index] = end;
+		governors[index] = 0;
+		sentences[index] = -1;
+		ids[index] = 0;
+		lemmas[index] = -1;
+		pos_tags[index] = -1;
+		functions[index] = -1;
+		dependencies[index] = -1;
+		
+		size = size+1;
+		
+		return index;
+	}
+	
+	/**
+	 * Add a copy of the properties of the specified token to the table.
+	 * @param token The token which is added to the table.
+	 * @return The index of the new token.
+	 */
+	public int add (Token token) {
+		int index = add(token.getStart(), token.getEnd());
+		
+		set(index, token);
+		
+		return index;
+	}
+	
+	/**
+	 * Overwrite the properties of the token at the specified index with the
+	 * properties of the specified token.
+	 * @param index The index of the token which is overwritten.
+	 * @param token The token whose properties are copied into the table.
+	 */
+	public void set (int index, Token token) {
+		CheckWritable();
+		CheckIndex(index);
+		
+		starts[index] = token.getStart();
+		ends[index] = token.getEnd();
+		governors[index] = token.getGovernor();
+		sentences[index] = token.getContaining_sentence();
+		ids[index] = token.getId();
+		lemmas[index] = Encode(token.getLemma());
+		pos_tags[index] = Encode(token.getPos());
+		functions[index] = Encode(token.getFunction());
+		dependencies[index] = Encode(token.getDependency());
+		
+		setNote_history(index, token.getNote_history());
+	}
+	
+	/**
+	 * Remove the token at the specified index from the table. The tokens after the
+	 * removed token move one position to the front.
+	 * @param index The index of the token which is removed.
+	 */
+	public void remove (int index) {
+		CheckWritable();
+		CheckIndex(index);
+		
+		int moved = size-index-1;
+		
+		System.arraycopy(starts, index+1, starts, index, moved);
+		System.arraycopy(ends, index+1, ends, index, moved);
+		System.arraycopy(governors, index+1, governors, index, moved);
+		System.arraycopy(sentences, index+1, sentences, index, moved);
+		System.arraycopy(ids, index+1, ids, index, moved);
+		System.arraycopy(lemmas, index+1, lemmas, index, moved);
+		System.arraycopy(pos_tags, index+1, pos_tags, index, moved);
+		System.arraycopy(functions, index+1, functions, index, moved);
+		System.arraycopy(dependencies, index+1, dependencies, index, moved);
+		
+		if (!note_histories.isEmpty()) {
+			HashMap<Integer, HashMap<String, String>> moved_note_histories =
+					new HashMap<Integer, HashMap<String, String>>();
+			
+			for (Integer key: note_histories.keySet()) {
+				if (key < index) {
+					moved_note_histories.put(key, note_histories.get(key));
+				} else if (key > index) {
+					moved_note_histories.put(key-1, note_histories.get(key));
+				}
+			}
+			
+			note_histories = moved_note_histories;
+		}
+		
+		size = size-1;
+	}
+	
+	/**
+	 * Get a view of the token at the specified index. The view reads and writes
+	 * the columns of this table, so changes made to the view change the table.
+	 * @param index The index of the token.
+	 * @return A view of the token at the specified index.
+	 */
+	public Token getToken (int index) {
+		CheckIndex(index);
+		
+		return new Token_View(this, index);
+	}
+	
+	/**
+	 * Get a list of views of the tokens in the table. The list reads and writes
+	 * the table, adding a token to the list adds a copy of its properties to the
+	 * table.
+	 * @return A list of views of the tokens in the table.
+	 */
+	public List<Token> asList () {
+		return new AbstractList<Token>() {
+			
+			public Token get (int index) {
+				return getToken(index);
+			}
+			
+			public int size () {
+				return size;
+			}
+			
+			public Token set (int index, Token token) {
+				Token previous = new Token();
+				
+				Token_View.CopyProperties(getToken(index), previous);
+				
+				Token_Table.this.set(index, token);
+				
+				return previous;
+			}
+			
+			public void add (int index, Token token) {
+				if (index == size) {
+					Token_Table.this.add(token);
+				} else {
+					throw new UnsupportedOperationException(
+							"Tokens can only be added at the end of the table.");
+				}
+			}
+			
+			public Token remove (int index) {
+				Token previous = new Token();
+				
+				Token_View.CopyProperties(getToken(index), previous);
+				
+				Token_Table.this.remove(index);
+				
+				return previous;
+			}
+		};
+	}
+	
+	/**
+	 * Get the start offset of the token at the specified index.
+	 * @param index The index of the token.
+	 * @return The start offset of the token.
+	 */
+	public int getStart (int index) {
+		CheckIndex(index);
+		return starts[index];
+	}
+	
+	/**
+	 * Set the start offset of the token at the specified index.
+	 * @param index The index of the token.
+	 * @param start The start offset of the token.
+	 */
+	public void setStart (int index, int start) {
+		CheckWritable();
+		CheckIndex(index);
+		starts[index] = start;
+	}
+	
+	/**
+	 * Get the end offset of the token at the specified index.
+	 * @param index The index of the token.
+	 * @return The end offset of the token.
+	 */
+	public int getEnd (int index) {
+		CheckIndex(index);
+		return ends[index];
+	}
+	
+	/**
+	 * Set the end offset of the token at the specified index.
+	 * @param index The index of the token.
+	 * @param end The end offset of the token.
+	 */
+	public void setEnd (int index, int end) {
+		CheckWritable();
+		CheckIndex(index);
+		ends[index] = end;
+	}
+	
+	/**
+	 * Get the index of the governor of the token at the specified index.
+	 * @param index The index of the token.
+	 * @return The index of the governor of the token.
+	 */
+	public int getGovernor (int index) {
+		CheckIndex(index);
+		return governors[index];
+	}
+	
+	/**
+	 * Set the index of the governor of the token at the specified index.
+	 * @param index The index of the token.
+	 * @param governor The index of the governor of the token.
+	 */
+	public void setGovernor (int index, int governor) {
+		CheckWritable();
+		CheckIndex(index);
+		governors[index] = governor;
+	}
+	
+	/**
+	 * Get the index of the sentence containing the token at the specified index.
+	 * @param index The index of the token.
+	 * @return The index of the sentence containing the token.
+	 */
+	public int getSentence (int index) {
+		CheckIndex(index);
+		return sentences[index];
+	}
+	
+	/**
+	 * Set the index of the sentence containing the token at the specified index.
+	 * @param index The index of the token.
+	 * @param sentence The index of the sentence containing the token.
+	 */
+	public void setSentence (int index, int sentence) {
+		CheckWritable();
+		CheckIndex(index);
+		sentences[index] = sentence;
+	}
+	
+	/**
+	 * Get the id of the token at the specified index.
+	 * @param index The index of the token.
+	 * @return The id of the token.
+	 */
+	public int getId (int index) {
+		CheckIndex(index);
+		return ids[index];
+	}
+	
+	/**
+	 * Set the id of the token at the specified index.
+	 * @param index The index of the token.
+	 * @param id The id of the token.
+	 */
+	public void setId (int index, int id) {
+		CheckWritable();
+		CheckIndex(index);
+		ids[index] = id;
+	}
+	
+	/**
+	 * Get the lemma of the token at the specified index.
+	 * @param index The index of the token.
+	 * @return The lemma of the token.
+	 */
+	public String getLemma (int index) {
+		CheckIndex(index);
+		return Decode(lemmas[index]);
+	}
+	
+	/**
+	 * Get the dictionary code of the lemma of the token at the specified index.
+	 * @param index The index of the token.
+	 * @return The dictionary code of the lemma of the token or -1 if the token has
+	 * no lemma.
+	 */
+	public int getLemma_code (int index) {
+		CheckIndex(index);
+		return lemmas[index];
+	}
+	
+	/**
+	 * Set the lemma of the token at the specified index.
+	 * @param index The index of the token.
+	 * @param lemma The lemma of the token.
+	 */
+	public void setLemma (int index, String lemma) {
+		CheckWritable();
+		CheckIndex(index);
+		lemmas[index] = Encode(lemma);
+	}
+	
+	/**
+	 * Get the part-of-speech tag of the token at the specified index.
+	 * @param index The index of the token.
+	 * @return The part-of-speech tag of the token.
+	 */
+	public String getPos (int index) {
+		CheckIndex(index);
+		return Decode(pos_tags[index]);
+	}
+	
+	/**
+	 * Get the dictionary code of the part-of-speech tag of the token at the
+	 * specified index.
+	 * @param index The index of the token.
+	 * @return The dictionary code of the part-of-speech tag of the token or -1 if
+	 * the token has no part-of-speech tag.
+	 */
+	public int getPos_code (int index) {
+		CheckIndex(index);
+		return pos_tags[index];
+	}
+	
+	/**
+	 * Set the part-of-speech tag of the token at the specified index.
+	 * @param index The index of the token.
+	 * @param pos The part-of-speech tag of the token.
+	 */
+	public void setPos (int index, String pos) {
+		CheckWritable();
+		CheckIndex(index);
+		pos_tags[index] = Encode(pos);
+	}
+	
+	/**
+	 * Get the morphological properties of the token at the specified index.
+	 * @param index The index of the token.
+	 * @return The morphological properties of the token.
+	 */
+	public String getFunction (int index) {
+		CheckIndex(index);
+		return Decode(functions[index]);
+	}
+	
+	/**
+	 * Get the dictionary code of the morphological properties of the token at the
+	 * specified index.
+	 * @param index The index of the token.
+	 * @return The dictionary code of the morphological properties of the token or
+	 * -1 if the token has no morphological properties.
+	 */
+	public int getFunction_code (int index) {
+		CheckIndex(index);
+		return functions[index];
+	}
+	
+	/**
+	 * Set the morphological properties of the token at the specified index.
+	 * @param index The index of the token.
+	 * @param function The morphological properties of the token.
+	 */
+	public void setFunction (int index, String function) {
+		CheckWritable();
+		CheckIndex(index);
+		functions[index] = Encode(function);
+	}
+	
+	/**
+	 * Get the name of the dependency relation of the token at the specified index.
+	 * @param index The index of the token.
+	 * @return The name of the dependency relation of the token.
+	 */
+	public String getDependency (int index) {
+		CheckIndex(index);
+		return Decode(dependencies[index]);
+	}
+	
+	/**
+	 * Get the dictionary code of the name of the dependency relation of the token
+	 * at the specified index.
+	 * @param index The index of the token.
+	 * @return The dictionary code of the name of the dependency relation of the
+	 * token or -1 if the token has no dependency relation.
+	 */
+	public int getDependency_code (int index) {
+		CheckIndex(index);
+		return dependencies[index];
+	}
+	
+	/**
+	 * Set the name of the dependency relation of the token at the specified index.
+	 * @param index The index of the token.
+	 * @param dependency The name of the dependency relation of the token.
+	 */
+	public void setDependency (int index, String dependency) {
+		CheckWritable();
+		CheckIndex(index);
+		dependencies[index] = Encode(dependency);
+	}
+	
+	/**
+	 * Get the note history of the token at the specified index.
+	 * @param index The index of the token.
+	 * @return The note history of the token or null if the token has no note
+	 * history.
+	 */
+	public HashMap<String, String> getNote_history (int index) {
+		CheckIndex(index);
+		return note_histories.get(index);
+	}
+	
+	/**
+	 * Set the note history of the token at the specified index.
+	 * @param index The index of the token.
+	 * @param note_history The note history of the token. If it is null, the note
+	 * history of the token is removed.
+	 */
+	public void setNote_history (int index, HashMap<String, String> note_history) {
+		CheckWritable();
+		CheckIndex(index);
+		
+		if (note_history == null) {
+			note_histories.remove(index);
+		} else {
+			note_histories.put(index, note_history);
+		}
+	}
+	
+	/**
+	 * Get the string of the token at the specified index.
+	 * @param index The index of the token.
+	 * @param original_text The text of the document the token is contained in.
+	 * @return The string of the token.
+	 */
+	public String getString (int index, String original_text) {
+		CheckIndex(index);
+		return original_text.substring(starts[index], ends[index]);
+	}
+	
+	/**
+	 * Get a view of the region of the text constituting the token at the specified 
+	 * index. The characters of the region are not copied.
+	 * @param index The index of the token.
+	 * @param original_text The text of the document the token is contained in.
+	 * @return A view of the region of the text constituting the token.
+	 */
+	public Text_View getText (int index, CharSequence original_text) {
+		CheckIndex(index);
+		return new Text_View(original_text, starts[index], ends[index]);
+	}
+	
+	/**
+	 * Get the table of symbols the codes in the dictionary encoded columns refer 
+	 * to.
+	 * @return The table of symbols.
+	 */
+	public Symbol_Table getSymbol_table() {
+		return symbol_table;
+	}
+	
+	/**
+	 * Get the string the specified dictionary code stands for.
+	 * @param code A dictionary code.
+	 * @return The string the code stands for or null if the code is -1.
+	 */
+	public String getSymbol (int code) {
+		return Decode(code);
+	}
+	
+	/**
+	 * Get the dictionary code of the specified string.
+	 * @param symbol A string.
+	 * @return The dictionary code of the string or -1 if the string is not 
+	 * contained in the table of symbols.
+	 */
+	public int getSymbol_code (String symbol) {
+		return symbol_table.getCode(symbol);
+	}
+	
+	/**
+	 * Get a copy of the start offsets of the tokens.
+	 * @return A copy of the start offsets of the tokens.
+	 */
+	public int[] CopyStarts () {
+		return Arrays.copyOf(starts, size);
+	}
+	
+	/**
+	 * Get a copy of the end offsets of the tokens.
+	 * @return A copy of the end offsets of the tokens.
+	 */
+	public int[] CopyEnds () {
+		return Arrays.copyOf(ends, size);
+	}
+	
+	/**
+	 * Copy the tokens from the specified first index up to the specified end 
+	 * index into a new table. The offsets of the tokens are not changed.
+	 * @param first The index of the first token which is copied.
+	 * @param end The index after the last token which is copied.
+	 * @return A new table containing the copied tokens.
+	 */
+	public Token_Table CopyRange (int first, int end) {
+		if (first < 0 || end > size || first > end) {
+			throw new IndexOutOfBoundsException("Range " + first + "-" + end + 
+					", size " + size);
+		}
+		
+		Token_Table copy = new Token_Table(end-first);
+		
+		copy.size = end-first;
+		
+		System.arraycopy(starts, first, copy.starts, 0, copy.size);
+		System.arraycopy(ends, first, copy.ends, 0, copy.size);
+		System.arraycopy(governors, first, copy.governors, 0, copy.size);
+		System.arraycopy(sentences, first, copy.sentences, 0, copy.size);
+		System.arraycopy(ids, first, copy.ids, 0, copy.size);
+		System.arraycopy(lemmas, first, copy.lemmas, 0, copy.size);
+		System.arraycopy(pos_tags, first, copy.pos_tags, 0, copy.size);
+		System.arraycopy(functions, first, copy.functions, 0, copy.size);
+		System.arraycopy(dependencies, first, copy.dependencies, 0, copy.size);
+		
+		for (Integer index: note_histories.keySet()) {
+			if (index >= first && index < end) {
+				copy.note_histories.put(index-first, note_histories.get(index));
+			}
+		}
+		
+		return copy;
+	}
+	
+	/**
+	 * Copy all tokens of the table into a new table which can not be changed.
+	 * @return A read-only copy of the table.
+	 */
+	public Token_Table CopyReadOnly () {
+		Token_Table copy = CopyRange(0, size);
+		
+		for (Integer index: copy.note_histories.keySet()) {
+			copy.note_histories.put(index, new HashMap<String, String>(
+					copy.note_histories.get(index)));
+		}
+		
+		copy.read_only = true;
+		
+		return copy;
+	}
+	
+	/**
+	 * Check whether the tokens of the table can be changed.
+	 * @return True if the table is a read-only copy (see CopyReadOnly).
+	 */
+	public boolean isRead_only () {
+		return read_only;
+	}
+	
+	/**
+	 * Get the dictionary code of the specified string. The string is added to
+	 * the dictionary if it is not contained in it yet.
+	 * @param symbol The string which is encoded.
+	 * @return The dictionary code of the string or -1 if the string is null.
+	 */
+	int Encode (String symbol) {
+		return symbol_table.Intern(symbol);
+	}
+	
+	/**
+	 * Get the string the specified dictionary code stands for.
+	 * @param code A dictionary code.
+	 * @return The string the code stands for or null if the code is -1.
+	 */
+	String Decode (int code) {
+		return symbol_table.getSymbol(code);
+	}
+	
+	/**
+	 * Make sure the columns have room for the specified number of tokens.
+	 * @param capacity The number of tokens the columns must have room for.
+	 */
+	void EnsureCapacity (int capacity) {
+		if (capacity <= starts.length) {
+			return;
+		}
+		
+		int new_capacity = Math.max(capacity, starts.length+(starts.length >> 1));
+		
+		starts = Arrays.copyOf(starts, new_capacity);
+		ends = Arrays.copyOf(ends, new_capacity);
+		governors = Arrays.copyOf(governors, new_capacity);
+		sentences = Arrays.copyOf(sentences, new_capacity);
+		ids = Arrays.copyOf(ids, new_capacity);
+		lemmas = Arrays.copyOf(lemmas, new_capacity);
+		pos_tags = Arrays.copyOf(pos_tags, new_capacity);
+		functions = Arrays.copyOf(functions, new_capacity);
+		dependencies = Arrays.copyOf(dependencies, new_capacity);
+	}
+	
+	/**
+	 * Write the table to a stream. Only the used part of the columns is written, 
+	 * and the dictionary encoded columns are written with codes of a dictionary 
+	 * which only contains the strings used by the tokens of this table, so the 
+	 * table can be read in a JVM with a different shared table of symbols.
+	 * @param output The stream the table is written to.
+	 * @throws IOException
+	 */
+	private void writeObject (ObjectOutputStream output) throws IOException {
+		output.defaultWriteObject();
+		
+		int[] local_codes = new int[symbol_table.size()];
+		Arrays.fill(local_codes, -1);
+		
+		int local_size = 0;
+		
+		int[][] columns = {lemmas, pos_tags, functions, dependencies};
+		int[][] local_columns = new int[columns.length][size];
+		
+		for (int i=0;i<columns.length;i++) {
+			for (int j=0;j<size;j++) {
+				int code = columns[i][j];
+				
+				if (code == -1) {
+					local_columns[i][j] = -1;
+				} else {
+					if (local_codes[code] == -1) {
+						local_codes[code] = local_size;
+						local_size = local_size+1;
+					}
+					
+					local_columns[i][j] = local_codes[code];
+				}
+			}
+		}
+		
+		String[] local_symbols = new String[local_size];
+		
+		for (int i=0;i<local_codes.length;i++) {
+			if (local_codes[i] != -1) {
+				local_symbols[local_codes[i]] = symbol_table.getSymbol(i);
+			}
+		}
+		
+		output.writeObject(local_symbols);
+		
+		output.writeObject(Arrays.copyOf(starts, size));
+		output.writeObject(Arrays.copyOf(ends, size));
+		output.writeObject(Arrays.copyOf(governors, size));
+		output.writeObject(Arrays.copyOf(sentences, size));
+		output.writeObject(Arrays.copyOf(ids, size));
+		
+		for (int i=0;i<local_columns.length;i++) {
+			output.writeObject(local_columns[i]);
+		}
+	}
+	
+	/**
+	 * Read the table from a stream. The strings of the dictionary encoded columns 
+	 * are added to the shared table of symbols and the columns are changed to the 
+	 * codes of the shared table.
+	 * @param input The stream the table is read from.
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	private void readObject (ObjectInputStream input) throws IOException, 
+			ClassNotFoundException {
+		input.defaultReadObject();
+		
+		symbol_table = Symbol_Table.getShared();
+		
+		String[] local_symbols = (String[]) input.readObject();
+		
+		int[] shared_codes = new int[local_symbols.length];
+		
+		for (int i=0;i<local_symbols.length;i++) {
+			shared_codes[i] = symbol_table.Intern(local_symbols[i]);
+		}
+		
+		starts = (int[]) input.readObject();
+		ends = (int[]) input.readObject();
+		governors = (int[]) input.readObject();
+		sentences = (int[]) input.readObject();
+		ids = (int[]) input.readObject();
+		
+		lemmas = (int[]) input.readObject();
+		pos_tags = (int[]) input.readObject();
+		functions = (int[]) input.readObject();
+		dependencies = (int[]) input.readObject();
+		
+		int[][] columns = {lemmas, pos_tags, functions, dependencies};
+		
+		for (int[] column: columns) {
+			for (int i=0;i<size;i++) {
+				if (column[i] != -1) {
+					column[i] = shared_codes[column[i]];
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Check that the tokens of the table can be changed.
+	 */
+	void CheckWritable () {
+		if (read_only) {
+			throw new UnsupportedOperationException("The token table is read-only.");
+		}
+	}
+	
+	/**
+	 * Check that the specified index is the index of a token in the table.
+	 * @param index The index which is checked.
+	 */
+	void CheckIndex (int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package teanlis;
+
+import java.util.HashMap;
+
+/**
+ * This class is a light-weight view of a token which is stored in a Token_Table.
+ * The view does not store the properties of the token itself, all get-methods
+ * read the columns of the table and all set-methods write them. Views are
+ * created on demand by the table and can be thrown away after use.
+ * 
+ * When a view is serialized, a copy of the token it shows is written instead, so
+ * serializing a view does not serialize the whole table.
+ * 
+ * @author Andreas Mller
+ */
+
+class Token_View extends Token {
+	
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * The table the token is stored in.
+	 */
+	Token_Table table;
+	
+	/**
+	 * The index of the token in the table.
+	 */
+	int index;
+	
+	/**
+	 * Constructor for the view which takes the table and the index of the token in
+	 * the table as arguments.
+	 * @param table The table the token is stored in.
+	 * @param index The index of the token in the table.
+	 */
+	Token_View (Token_Table table, int index) {
+		this.table = table;
+		this.index = index;
+	}
+	
+	public int getStart() {
+		return table.getStart(index);
+	}
+	
+	public void setStart(int start) {
+		table.setStart(index, start);
+	}
+	
+	public int getEnd() {
+		return table.getEnd(index);
+	}
+	
+	public void setEnd(int end) {
+		table.setEnd(index, end);
+	}
+	
+	public HashMap<String, String> getNote_history() {
+		return table.getNote_history(index);
+	}
+	
+	public void setNote_history(HashMap<String, String> note_history) {
+		table.setNote_history(index, note_history);
+	}
+	
+	public String getString(String original_text) {
+		String return_string = "";
+		
+		try {
+			return_string = table.getString(index, original_text);
+		} catch (java.lang.StringIndexOutOfBoundsException e) {
+			e.printStackTrace();
+		}
+		
+		return return_string;
+	}
+	
+	public int getContaining_sentence() {
+		return table.getSentence(index);
+	}
+	
+	public void setContaining_sentence(int containing_sentence) {
+		table.setSentence(index, containing_sentence);
+	}
+	
+	public int getSentence() {
+		return table.getSentence(index);
+	}
+	
+	public void setSentence(int containing_sentence) {
+		table.setSentence(index, containing_sentence);
+	}
+	
+	public String getLemma() {
+		return table.getLemma(index);
+	}
+	
+	public String getlemma () {
+		return table.getLemma(index);
+	}
+	
+	public void setLemma(String lemma) {
+		table.setLemma(index, lemma);
+	}
+	
+	public String getPos() {
+		return table.getPos(index);
+	}
+	
+	public void setPos(String pos) {
+		table.setPos(index, pos);
+	}
+	
+	public String getDependency() {
+		return table.getDependency(index);
+	}
+	
+	public void setDependency(String dependency) {
+		table.setDependency(index, dependency);
+	}
+	
+	public String getFunction() {
+		return table.getFunction(index);
+	}
+	
+	public void setFunction(String function) {
+		table.setFunction(index, function);
+	}
+	
+	public int getGovernor() {
+		return table.getGovernor(index);
+	}
+	
+	public void setGovernor(int governor) {
+		table.setGovernor(index, governor);
+	}
+	
+	public int getId() {
+		return table.getId(index);
+	}
+	
+	public void setId(int id) {
+		table.setId(index, id);
+	}
+	
+	/**
+	 * Replace the view by a copy of the token it shows when the view is
+	 * serialized.
+	 * @return A copy of the token the view shows.
+	 */
+	Object writeReplace() {
+		Token token = new Token();
+		
+		CopyProperties(this, token);
+		
+		return token;
+	}
+	
+	/**
+	 * Copy all properties of a token to another token.
+	 * @param from The token whose properties are copied.
+	 * @param to The token the properties are copied to.
+	 */
+	static void CopyProperties (Token from, Token to) {
+		to.setStart(from.getStart());
+		to.setEnd(from.getEnd());
+		to.setNote_history(from.getNote_history());
+		to.setContaining_sentence(from.getContaining_sentence());
+		to.setLemma(from.getLemma());
+		to.setPos(from.getPos());
+		to.setDependency(from.getDependency());
+		to.setFunction(from.getFunction());
+		to.setGovernor(from.getGovernor());
+		to.setId(from.getId());
+	}
+}
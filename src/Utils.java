@@ -27,88 +27,33 @@ import java.util.HashSet;
  */
 public class Utils {
 	
+	/**
+	 * Load a document which is stored in a directory of plain text files, one file
+	 * for every layer of the document (see Plain_Text_Format). The files are read
+	 * in parallel.
+	 * @param path_to_directory The path of the directory.
+	 * @return The document or null if it can not be loaded.
+	 */
 	public static Document LoadFromPlainTextFormat (String path_to_directory) {
-		Document document = new Document();
-		
 		try {
-			File directory = new File(path_to_directory);
-			
-			File[] files_in_directory = directory.listFiles();
-			
-			ArrayList<Token> token_list = new ArrayList<Token>();
-			
-			for (int i=0;i<files_in_directory.length;i++) {
-				File file = files_in_directory[i];
-				
-				if (file.getName().equals("tokens")) {
-					BufferedReader reader = new BufferedReader(new FileReader(
-							file));
-					
-					String line = "";
-					
-					while (line != null) {
-						line = reader.readLine();
-						
-						String[] token_properties = line.split(",");
-						
-						Token token = new Token();
-						
-						token.setStart(new Integer(token_properties[0]));
-						token.setEnd(new Integer(token_properties[1]));
-						
-						token.setLemma(token_properties[2]);
-						token.setFunction(token_properties[3]);
-						token.setPos(token_properties[4]);
-						token.setDependency(token_properties[5]);
-						token.setGovernor(new Integer(token_properties[6]));
-						
-						token_list.add(token);
-					}
-				}
-			}
+			return Plain_Text_Format.Load(new File(path_to_directory));
 		} catch (java.lang.Exception e) {
 			e.printStackTrace();
+			return null;
 		}
-		
-		return document;
 	}
 	
+	/**
+	 * Save a document in a directory of plain text files, one file for every layer
+	 * of the document (see Plain_Text_Format). The directory is created if it does
+	 * not exist.
+	 * @param path_to_directory The path of the directory.
+	 * @param document The document.
+	 */
 	public static void SaveInPlainTextFormat (String path_to_directory, 
 			Document document) {
 		try {
-			BufferedWriter token_writer = new BufferedWriter(new FileWriter(
-					path_to_directory+"\\tokens"));
-			
-			for (Token token: document.getTokens()) {
-				token_writer.write(token.getStart()+","+token.getEnd()+","
-						+token.getLemma()+","+token.getFunction()+","+
-							token.getPos()+","+token.getDependency()+","
-								+token.getGovernor()+"\n");
-			}
-			
-			token_writer.close();
-			
-			BufferedWriter sentence_writer = new BufferedWriter(new FileWriter(
-					path_to_directory+"\\sentences"));
-			
-			for (Sentence sentence: document.getSentences()) {
-				sentence_writer.write(sentence.getStart()+","+sentence.getEnd()+
-						","+sentence.getContaining_paragraph()+","
-							+sentence.getContaining_chapter()+"\n");
-			}
-			
-			sentence_writer.close();
-			
-			BufferedWriter paragraph_writer = new BufferedWriter(new FileWriter(
-					path_to_directory+"\\paragraphs"));
-			
-			for (Paragraph paragraph: document.getParagraphs()) {
-				paragraph_writer.write(paragraph.getStart()+","+paragraph.getEnd()+
-						","+paragraph.getContaining_page()+","
-							+paragraph.getContaining_chapter()+"\n");
-			}
-			
-			paragraph_writer.close();
+			Plain_Text_Format.Save(new File(path_to_directory), document);
 		} catch (java.lang.Exception e) {
 			e.printStackTrace();
 		}
@@ -157,7 +102,7 @@ public class Utils {
 			
 			String line = reader.readLine();
 			
-			HashSet<String> sentiment_words = new HashSet<String>();
+			Region_Set sentiment_words = new Region_Set();
 			
 			while (line != null) {
 				sentiment_words.add(line.split("	")[0]);
@@ -186,20 +131,21 @@ public class Utils {
 			ArrayList<Annotation> sentiment_annotated_sentences = 
 					new ArrayList<Annotation>();
 			
+			Token_Table tokens = document.getToken_table();
+			
+			CharSequence original_text = document.getText();
+			
 			for (Sentence sentence: document.getSentences()) {
-				int start = document.getOffset_to_token_map().get(
-						sentence.getStart());
-				int end = document.getOffset_to_token_map().get(sentence.getEnd());
+				int start = document.getTokenAtOffset(sentence.getStart());
+				int end = document.getTokenAtOffset(sentence.getEnd());
 				
 				int counter = 0;
 				
 				for (int i=start;i<=end;i++) {
-					Token token = document.getTokens().get(i);
-					
-					if (sentiment_words.contains(token.getString(
-							document.getOriginal_text()))) {
-						sentiment_words_in_document.add(token.getString(
-								document.getOriginal_text()));
+					if (sentiment_words.contains(original_text, tokens.getStart(i), 
+							tokens.getEnd(i))) {
+						sentiment_words_in_document.add(tokens.getText(i, 
+								original_text).toString());
 						
 						counter = counter+1;
 					}
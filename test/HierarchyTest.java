@@ -0,0 +1,120 @@
+package teanlis;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the hierarchy of a document whose second sub-chapter starts in the
+ * middle of its only page. The document has one page from offset 0 to 59, two
+ * sub-chapters from 0 to 29 and from 30 to 59, one main-chapter, one paragraph
+ * and two sentences in every sub-chapter and two tokens in every sentence.
+ * 
+ * @author Andreas Mller
+ */
+
+public class HierarchyTest {
+	
+	Document document;
+	
+	@Before
+	public void MakeDocument() {
+		StringBuilder text = new StringBuilder();
+		
+		for (int i=0;i<60;i++) {
+			text.append(i % 15 == 5 || i % 15 == 12 ? ' ' : 'a');
+		}
+		
+		document = new Document(text.toString());
+		
+		Token_Table tokens = new Token_Table();
+		List<Sentence> sentences = new ArrayList<Sentence>();
+		List<Paragraph> paragraphs = new ArrayList<Paragraph>();
+		List<Chapter> sub_chapters = new ArrayList<Chapter>();
+		List<Chapter> main_chapters = new ArrayList<Chapter>();
+		List<Page> pages = new ArrayList<Page>();
+		
+		for (int start=0;start<60;start=start+15) {
+			tokens.add(start, start+5);
+			tokens.add(start+6, start+12);
+			
+			sentences.add(MakeElement(new Sentence(), start, start+14));
+		}
+		
+		for (int start=0;start<60;start=start+30) {
+			paragraphs.add(MakeElement(new Paragraph(), start, start+29));
+			sub_chapters.add(MakeElement(new Chapter(), start, start+29));
+		}
+		
+		main_chapters.add(MakeElement(new Chapter(), 0, 59));
+		pages.add(MakeElement(new Page(), 0, 59));
+		
+		document.setToken_table(tokens);
+		document.setSentences(sentences);
+		document.setParagraphs(paragraphs);
+		document.setPages(pages);
+		document.setSub_chapters(sub_chapters);
+		document.setMain_chapters(main_chapters);
+		
+		document.BuildHierarchy();
+	}
+	
+	static <T extends Linguistic_Element> T MakeElement (T element, int start,
+			int end) {
+		element.setStart(start);
+		element.setEnd(end);
+		
+		return element;
+	}
+	
+	@Test
+	public void ChaptersOfSentences() {
+		Hierarchy hierarchy = document.getHierarchy();
+		
+		assertEquals(0, hierarchy.getAncestor(Hierarchy.SENTENCES, 1,
+				Hierarchy.SUB_CHAPTERS));
+		assertEquals(1, hierarchy.getAncestor(Hierarchy.SENTENCES, 2,
+				Hierarchy.SUB_CHAPTERS));
+		assertEquals(0, hierarchy.getAncestor(Hierarchy.SENTENCES, 2,
+				Hierarchy.MAIN_CHAPTERS));
+		
+		assertEquals(0, document.getSentences().get(1).getContaining_chapter());
+		assertEquals(1, document.getSentences().get(2).getContaining_chapter());
+		assertEquals(1, document.getParagraphs().get(1).getContaining_chapter());
+		assertEquals(0, document.getParagraphs().get(1).getContaining_page());
+	}
+	
+	@Test
+	public void ChaptersOfTokens() {
+		Hierarchy hierarchy = document.getHierarchy();
+		
+		assertEquals(1, hierarchy.getAncestor(Hierarchy.TOKENS, 4,
+				Hierarchy.SUB_CHAPTERS));
+		assertEquals(0, hierarchy.getAncestor(Hierarchy.TOKENS, 4,
+				Hierarchy.PAGES));
+	}
+	
+	@Test
+	public void DescendantsOfChapters() {
+		Hierarchy hierarchy = document.getHierarchy();
+		
+		assertEquals(0, hierarchy.getFirst_descendant(Hierarchy.SUB_CHAPTERS, 0,
+				Hierarchy.TOKENS));
+		assertEquals(4, hierarchy.getEnd_descendant(Hierarchy.SUB_CHAPTERS, 0,
+				Hierarchy.TOKENS));
+		assertEquals(4, hierarchy.getFirst_descendant(Hierarchy.SUB_CHAPTERS, 1,
+				Hierarchy.TOKENS));
+		assertEquals(8, hierarchy.getEnd_descendant(Hierarchy.SUB_CHAPTERS, 1,
+				Hierarchy.TOKENS));
+		assertEquals(2, hierarchy.getFirst_descendant(Hierarchy.SUB_CHAPTERS, 1,
+				Hierarchy.SENTENCES));
+		assertEquals(2, hierarchy.getEnd_descendant(Hierarchy.SUB_CHAPTERS, 0,
+				Hierarchy.SENTENCES));
+		assertEquals(8, hierarchy.getEnd_descendant(Hierarchy.MAIN_CHAPTERS, 0,
+				Hierarchy.TOKENS));
+	}
+}